@@ -24,7 +24,7 @@ import org.aksw.limes.core.execution.engine.ExecutionEngineFactory;
 import org.aksw.limes.core.execution.planning.planner.ExecutionPlannerFactory;
 import org.aksw.limes.core.execution.rewriter.RewriterFactory;
 import org.aksw.limes.core.io.cache.ACache;
-import org.aksw.limes.core.io.cache.HybridCache;
+import org.aksw.limes.core.io.cache.CacheFactory;
 import org.aksw.limes.core.io.cache.MemoryCache;
 import org.aksw.limes.core.io.config.Configuration;
 import org.aksw.limes.core.io.config.reader.AConfigurationReader;
@@ -35,6 +35,7 @@ import org.aksw.limes.core.io.preprocessing.Preprocessor;
 import org.aksw.limes.core.io.serializer.ISerializer;
 import org.aksw.limes.core.io.serializer.SerializerFactory;
 import org.aksw.limes.core.measures.mapper.MappingOperations;
+import org.aksw.limes.core.util.ComputePool;
 import org.apache.commons.cli.*;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
@@ -94,6 +95,8 @@ public class Controller {
                 System.exit(1);
             }
             Configuration config = getConfig(cmd);
+            // the shared pool is sized once, before any task runs on it
+            ComputePool.setParallelism(config.getNumberOfThreads());
             LimesResult result = getMapping(config);
             if (cmd.hasOption('1')) {
                 //force 1-to-1 result
@@ -193,8 +196,8 @@ public class Controller {
         AMapping results = null;
 
         // 3. Fill Caches
-        ACache sourceCache = HybridCache.getData(config.getSourceInfo());
-        ACache targetCache = HybridCache.getData(config.getTargetInfo());
+        ACache sourceCache = CacheFactory.getData(config.getSourceInfo());
+        ACache targetCache = CacheFactory.getData(config.getTargetInfo());
         if (limit > 0) {
             Function<ACache, ACache> getSubCache = c -> {
                 ACache reducedCache = new MemoryCache();
@@ -230,6 +233,7 @@ public class Controller {
         }
         long runTime = stopWatch.getTime();
         logger.info("Mapping task finished in " + runTime + " ms");
+        logger.debug("Compute pool: " + ComputePool.getStatistics());
         assert results != null;
         AMapping acceptanceMapping = results.getSubMap(config.getAcceptanceThreshold());
         AMapping verificationMapping = MappingOperations.difference(results, acceptanceMapping);
@@ -0,0 +1,271 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.datastrutures;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Dictionary that interns strings (e.g., resource URIs) into dense int ids.
+ * Ids are assigned in insertion order, starting with 0. The dictionary uses an
+ * open addressing hash table over int arrays, hence it does not create any
+ * boxed objects per entry. All methods are thread-safe.
+ * <p>
+ * A dictionary can be frozen once all strings have been added, e.g., after
+ * the URIs of a cache have been interned. A frozen dictionary does not accept
+ * new strings and is read without locking, which makes it cheap to share
+ * between threads, e.g., by the partitions of a mapper.
+ */
+public class StringDictionary implements Serializable {
+
+    private static final long serialVersionUID = 4623085342917361874L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Strings indexed by their id.
+     */
+    private String[] strings;
+    /**
+     * Hash table that maps hash slots to id + 1 (0 marks an empty slot).
+     */
+    private int[] table;
+    private int size;
+    /**
+     * Set once after the last change, reads of a frozen dictionary do not
+     * need to lock.
+     */
+    private volatile boolean frozen = false;
+
+    public StringDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize
+     *            expected number of strings
+     */
+    public StringDictionary(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        strings = new String[Math.max(DEFAULT_CAPACITY, expectedSize)];
+        table = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Returns the id of a string. If the string is not yet contained in the
+     * dictionary, it is added and a new id is assigned to it.
+     *
+     * @param s
+     *            the string
+     * @return the id of s
+     * @throws IllegalStateException
+     *             if s is not contained in the dictionary and the dictionary
+     *             is frozen
+     */
+    public int getId(String s) {
+        if (!frozen) {
+            synchronized (this) {
+                if (!frozen) {
+                    return add(s);
+                }
+            }
+        }
+        int id = lookup(s);
+        if (id < 0) {
+            throw new IllegalStateException("Cannot add " + s + " to a frozen dictionary");
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a string without adding it to the dictionary.
+     *
+     * @param s
+     *            the string
+     * @return the id of s or -1 if s is not contained in the dictionary
+     */
+    public int lookup(String s) {
+        if (frozen) {
+            return table[findSlot(s)] - 1;
+        }
+        synchronized (this) {
+            return table[findSlot(s)] - 1;
+        }
+    }
+
+    /**
+     * @param id
+     *            the id of a string
+     * @return the string with the given id
+     */
+    public String getString(int id) {
+        if (frozen) {
+            return get(id);
+        }
+        synchronized (this) {
+            return get(id);
+        }
+    }
+
+    /**
+     * Adds the strings of a range of ids to a collection, locking the
+     * dictionary once instead of once per id.
+     *
+     * @param ids
+     *            ids of strings
+     * @param from
+     *            first index of the range of ids, inclusive
+     * @param to
+     *            last index of the range of ids, exclusive
+     * @param target
+     *            collection the strings are added to
+     */
+    public void getStrings(int[] ids, int from, int to, Collection<? super String> target) {
+        if (frozen) {
+            for (int i = from; i < to; i++) {
+                target.add(get(ids[i]));
+            }
+            return;
+        }
+        synchronized (this) {
+            for (int i = from; i < to; i++) {
+                target.add(get(ids[i]));
+            }
+        }
+    }
+
+    /**
+     * @return the number of strings in the dictionary
+     */
+    public int size() {
+        if (frozen) {
+            return size;
+        }
+        synchronized (this) {
+            return size;
+        }
+    }
+
+    /**
+     * Freezes the dictionary. Afterwards, no strings can be added and all
+     * reads are lock-free.
+     *
+     * @return this dictionary
+     */
+    public synchronized StringDictionary freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * @return true if no strings can be added to the dictionary, else false
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns a copy of the dictionary that assigns the same ids to the same
+     * strings and is not frozen, so that strings can be added to it without
+     * changing this dictionary.
+     *
+     * @return a copy of the dictionary
+     */
+    public synchronized StringDictionary copy() {
+        StringDictionary copy = new StringDictionary(0);
+        copy.strings = Arrays.copyOf(strings, strings.length);
+        copy.table = table.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @param s
+     *            the string
+     * @return true if the dictionary contains s, else false
+     */
+    public boolean contains(String s) {
+        return lookup(s) >= 0;
+    }
+
+    private int add(String s) {
+        int slot = findSlot(s);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, strings.length * 2);
+        }
+        strings[size] = s;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return size - 1;
+    }
+
+    private String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown id " + id);
+        }
+        return strings[id];
+    }
+
+    private int findSlot(String s) {
+        int mask = table.length - 1;
+        int slot = mix(s.hashCode()) & mask;
+        while (table[slot] != 0 && !strings[table[slot] - 1].equals(s)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(strings[id].hashCode()) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id + 1;
+        }
+        table = newTable;
+    }
+
+    /**
+     * Spreads the bits of a hash code (murmur3 finalizer).
+     *
+     * @param h
+     *            hash code
+     * @return the mixed hash code
+     */
+    public static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
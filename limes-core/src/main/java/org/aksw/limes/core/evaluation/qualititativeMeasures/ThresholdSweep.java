@@ -0,0 +1,149 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.evaluation.qualititativeMeasures;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates the mapping of an atomic measure for a series of thresholds.
+ * The mapping is computed once with the lowest threshold and its links are
+ * sorted by decreasing similarity. The mapping for a higher threshold is then
+ * a prefix of the sorted links, and the F-measures of all thresholds are
+ * computed in one pass over the links.
+ */
+public class ThresholdSweep {
+
+    private final String[] sources;
+    private final String[] targets;
+    // similarities sorted in decreasing order
+    private final double[] similarities;
+
+    /**
+     * @param mapping
+     *            mapping computed with the lowest threshold of the sweep
+     */
+    public ThresholdSweep(AMapping mapping) {
+        int size = mapping.size();
+        String[] s = new String[size];
+        String[] t = new String[size];
+        double[] sim = new double[size];
+        int[] count = new int[1];
+        mapping.forEachLink((source, target, confidence) -> {
+            s[count[0]] = source;
+            t[count[0]] = target;
+            sim[count[0]++] = confidence;
+        });
+        Integer[] order = IntStream.range(0, count[0]).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -sim[i]));
+        sources = new String[order.length];
+        targets = new String[order.length];
+        similarities = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sources[i] = s[order[i]];
+            targets[i] = t[order[i]];
+            similarities[i] = sim[order[i]];
+        }
+    }
+
+    /**
+     * @return number of links of the sweep
+     */
+    public int size() {
+        return similarities.length;
+    }
+
+    /**
+     * @param threshold
+     *            similarity threshold
+     * @return number of links with a similarity of at least threshold
+     */
+    public int countLinks(double threshold) {
+        int low = 0, high = similarities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (similarities[mid] >= threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param threshold
+     *            similarity threshold
+     * @return the links with a similarity of at least threshold
+     */
+    public AMapping getMapping(double threshold) {
+        AMapping result = MappingFactory.createDefaultMapping();
+        int count = countLinks(threshold);
+        for (int i = 0; i < count; i++) {
+            result.add(sources[i], targets[i], similarities[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the F-measures of the mappings of several thresholds w.r.t. a
+     * reference mapping. The results equal those of
+     * {@link FMeasure#calculate(AMapping, org.aksw.limes.core.datastrutures.GoldStandard, double)}
+     * for the mappings returned by {@link #getMapping(double)}.
+     *
+     * @param thresholds
+     *            similarity thresholds, in any order
+     * @param reference
+     *            reference mapping
+     * @param beta
+     *            weight of the recall
+     * @return the F-measure for each threshold
+     */
+    public double[] fMeasures(double[] thresholds, AMapping reference, double beta) {
+        double beta2 = Math.pow(beta, 2);
+        double referencePositives = reference.getNumberofPositiveMappings();
+        Integer[] order = IntStream.range(0, thresholds.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -thresholds[i]));
+        double[] result = new double[thresholds.length];
+        int link = 0, truePositives = 0, positives = 0;
+        for (int i : order) {
+            // add the links that pass the next lower threshold
+            for (; link < similarities.length && similarities[link] >= thresholds[i]; link++) {
+                if (similarities[link] > 0) {
+                    positives++;
+                }
+                if (reference.contains(sources[link], targets[link])
+                        && reference.getConfidence(sources[link], targets[link]) > 0) {
+                    truePositives++;
+                }
+            }
+            if (link == 0 || positives == 0) {
+                result[i] = 0d;
+                continue;
+            }
+            double p = truePositives / (double) positives;
+            double r = truePositives / referencePositives;
+            result[i] = p + r > 0d ? (1 + beta2) * p * r / ((beta2 * p) + r) : 0d;
+        }
+        return result;
+    }
+}
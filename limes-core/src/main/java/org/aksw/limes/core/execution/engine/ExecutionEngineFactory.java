@@ -37,7 +37,7 @@ public class ExecutionEngineFactory {
      * Enum class of allowed execution engine types.
      */
     public enum ExecutionEngineType {
-        DEFAULT, SIMPLE, PARTIAL_RECALL
+        DEFAULT, SIMPLE, PARALLEL, PARTIAL_RECALL
     }
 
     /**
@@ -48,6 +48,10 @@ public class ExecutionEngineFactory {
      * Execution engine factory field for simple execution engine.
      */
     public static final String SIMPLE = "simple";
+    /**
+     * Execution engine factory field for parallel execution engine.
+     */
+    public static final String PARALLEL = "parallel";
 
     /**
      * Execution engine factory field for partial recall (LIGER) execution
@@ -70,6 +74,9 @@ public class ExecutionEngineFactory {
         if (name.equalsIgnoreCase(SIMPLE)) {
             return ExecutionEngineType.SIMPLE;
         }
+        if (name.equalsIgnoreCase(PARALLEL)) {
+            return ExecutionEngineType.PARALLEL;
+        }
         if (name.equalsIgnoreCase(PARTIAL_RECALL)) {
             return ExecutionEngineType.PARTIAL_RECALL;
         }
@@ -100,6 +107,8 @@ public class ExecutionEngineFactory {
             case DEFAULT:
             case SIMPLE:
                 return new SimpleExecutionEngine(source, target, sourceVar, targetVar);
+            case PARALLEL:
+                return new ParallelExecutionEngine(source, target, sourceVar, targetVar, maxOpt, k);
             case PARTIAL_RECALL:
                 return new PartialRecallExecutionEngine(source, target, sourceVar, targetVar, maxOpt,k);
             default:
@@ -17,22 +17,85 @@
  */
 package org.aksw.limes.core.execution.engine;
 
-import org.aksw.limes.core.execution.planning.planner.IPlanner;
+import org.aksw.limes.core.datastrutures.LogicOperator;
+import org.aksw.limes.core.execution.planning.plan.NestedPlan;
+import org.aksw.limes.core.execution.planning.plan.Plan;
+import org.aksw.limes.core.execution.planning.planner.DynamicPlanner;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.ls.LinkSpecification;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.util.ComputePool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
- * Implements the default execution engine class. The idea is that the engine
+ * Implements the parallel execution engine class. The idea is that the engine
  * gets as input a link specification and a planner type, executes the
  * independent parts of the plan returned from the planner in parallel and
- * returns a MemoryMemoryMapping.
+ * returns a MemoryMemoryMapping. For static planners, the subplans of a nested
+ * plan are executed concurrently on the shared {@link ComputePool}, at most
+ * as many at a time as the engine has threads, and their mappings are merged
+ * in the order of the subplans, hence the results are
+ * identical to the ones of the {@link SimpleExecutionEngine}. For the dynamic planner, the
+ * children of OR and XOR specifications are executed concurrently, whereas
+ * AND and MINUS specifications are still executed sequentially since the plan
+ * of their second child depends on the result of the first one.
  *
  *
  * @author Kleanthi Georgala (georgala@informatik.uni-leipzig.de)
  * @version 1.0
  */
-public class ParallelExecutionEngine extends ExecutionEngine {
+public class ParallelExecutionEngine extends SimpleExecutionEngine {
+
+    private final int numberOfThreads;
+
+    /**
+     * Constructor for a parallel execution engine. The number of threads is
+     * the one of the shared {@link ComputePool}.
+     *
+     * @param source
+     *            Source cache
+     * @param target
+     *            Target cache
+     * @param sourceVar
+     *            Source variable
+     * @param targetVar
+     *            Target variable
+     */
+    public ParallelExecutionEngine(ACache source, ACache target, String sourceVar, String targetVar) {
+        this(source, target, sourceVar, targetVar, ComputePool.getParallelism());
+    }
+
+    /**
+     * Constructor for a parallel execution engine. The engine runs on the
+     * shared {@link ComputePool} without changing it, numberOfThreads only
+     * bounds the number of subplans that the engine executes at the same
+     * time.
+     *
+     * @param source
+     *            Source cache
+     * @param target
+     *            Target cache
+     * @param sourceVar
+     *            Source variable
+     * @param targetVar
+     *            Target variable
+     * @param numberOfThreads
+     *            Maximal number of subplans executed concurrently
+     */
+    public ParallelExecutionEngine(ACache source, ACache target, String sourceVar, String targetVar,
+                                   int numberOfThreads) {
+        super(source, target, sourceVar, targetVar);
+        if (numberOfThreads < 1) {
+            logger.info("\nNumber of threads must be positive. Your input value is " + numberOfThreads
+                    + ".\nSetting it to the number of available processors.");
+            numberOfThreads = Runtime.getRuntime().availableProcessors();
+        }
+        this.numberOfThreads = numberOfThreads;
+    }
+
     /**
      * Constructor for a parallel execution engine.
      *
@@ -47,22 +110,87 @@ public class ParallelExecutionEngine extends ExecutionEngine {
      */
     public ParallelExecutionEngine(ACache source, ACache target, String sourceVar, String targetVar, long maxOpt,
                                    double k) {
-        super(source, target, sourceVar, targetVar);
+        this(source, target, sourceVar, targetVar);
+    }
+
+    /**
+     * Implementation of the execution of a plan. Since atomic plans of
+     * different subtrees are executed concurrently, each plan is executed with
+     * its own instruction buffer.
+     *
+     * @param plan
+     *            An execution plan
+     * @return The mapping obtained from executing the plan
+     */
+    @Override
+    public AMapping executeInstructions(Plan plan) {
+        SimpleExecutionEngine engine = new SimpleExecutionEngine(source, target, sourceVariable, targetVariable);
+        return engine.executeInstructions(plan);
+    }
+
+    /**
+     * Executes the subplans of a complex nested plan concurrently. The
+     * mappings are returned in the order of the subplans.
+     *
+     * @param subPlans
+     *            The subplans of a complex nested plan
+     * @return The list of mappings obtained from executing each subplan
+     */
+    @Override
+    protected List<AMapping> executeSubPlans(List<NestedPlan> subPlans) {
+        List<Callable<AMapping>> tasks = new ArrayList<>(subPlans.size());
+        for (NestedPlan subPlan : subPlans) {
+            tasks.add(() -> executeStatic(subPlan));
+        }
+        return ComputePool.invokeAll(tasks, numberOfThreads);
     }
 
     /**
-     * Implementation of the execution of an execution plan. Independent parts
-     * of the plan are executed in parallel.
+     * Executes an input link specification in a dynamic fashion. If the
+     * specification is an OR or XOR specification that has not been executed
+     * yet, its children are executed concurrently first. Then, the
+     * specification is executed as in
+     * {@link SimpleExecutionEngine#executeDynamic(LinkSpecification, DynamicPlanner)},
+     * which retrieves the mappings of the already executed children from the
+     * intermediate results.
      *
      * @param spec
      *            The input link specification
-     * @param planner
-     *            The chosen planner
-     * @return The mapping from running the plan
+     * @param planner,
+     *            The dynamic planner
+     * @return The mapping obtained from executing the link specification.
      */
     @Override
-    public AMapping execute(LinkSpecification spec, IPlanner planner) {
-        throw new UnsupportedOperationException("Not implemented yet");
+    public AMapping executeDynamic(LinkSpecification spec, DynamicPlanner planner) {
+        if (!spec.isEmpty() && !spec.isAtomic() && hasIndependentChildren(spec) && !planner.isExecuted(spec)
+                && planner.getDependency(spec) == null) {
+            List<Callable<AMapping>> tasks = new ArrayList<>(spec.getChildren().size());
+            for (LinkSpecification child : spec.getChildren()) {
+                tasks.add(() -> executeDynamic(child, planner));
+            }
+            ComputePool.invokeAll(tasks, numberOfThreads);
+        }
+        return super.executeDynamic(spec, planner);
+    }
+
+    /**
+     * Checks whether the children of a complex specification can be executed
+     * independently of each other.
+     *
+     * @param spec
+     *            A complex link specification
+     * @return true if the specification is an OR or XOR specification, false
+     *         otherwise
+     */
+    private boolean hasIndependentChildren(LinkSpecification spec) {
+        return spec.getOperator().equals(LogicOperator.OR) || spec.getOperator().equals(LogicOperator.XOR);
+    }
+
+    /**
+     * @return the number of threads of the engine
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
     }
 
 }
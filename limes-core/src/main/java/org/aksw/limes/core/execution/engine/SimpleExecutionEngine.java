@@ -30,7 +30,6 @@ import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.ls.LinkSpecification;
 import org.aksw.limes.core.io.mapping.AMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
-import org.aksw.limes.core.io.mapping.MemoryMapping;
 import org.aksw.limes.core.measures.mapper.IMapper;
 import org.aksw.limes.core.measures.mapper.MapperFactory;
 import org.aksw.limes.core.measures.mapper.MappingOperations;
@@ -40,8 +39,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implements the default execution engine class. The idea is that the engine
@@ -59,7 +59,7 @@ public class SimpleExecutionEngine extends ExecutionEngine {
     /**
      * Map of intermediate mappings. Used for dynamic planning.
      */
-    private HashMap<String, AMapping> dynamicResults = new HashMap<String, AMapping>();
+    private Map<String, AMapping> dynamicResults = new ConcurrentHashMap<String, AMapping>();
 
     /**
      * Constructor for a simple execution engine.
@@ -158,12 +158,12 @@ public class SimpleExecutionEngine extends ExecutionEngine {
             }
             // place resulting mapping in the buffer
             if (index < 0) {// add the new mapping at the end of the list
-                getBuffer().add((MemoryMapping) m);
+                getBuffer().add(m);
             } else {
                 // avoid overriding places in buffer
                 // by adding the result at the end
                 if (index < getBuffer().size()) {
-                    getBuffer().add((MemoryMapping) m);
+                    getBuffer().add(m);
                 } else {
                     // add placeholders to ensure that the mapping can be placed
                     // where the user wanted to have it
@@ -171,7 +171,7 @@ public class SimpleExecutionEngine extends ExecutionEngine {
                     while ((index + 1) > getBuffer().size()) {
                         getBuffer().add(MappingFactory.createDefaultMapping());
                     }
-                    getBuffer().set(index, (MemoryMapping) m);
+                    getBuffer().set(index, m);
                 }
 
             }
@@ -325,10 +325,11 @@ public class SimpleExecutionEngine extends ExecutionEngine {
         // subplan
         else {
             // run all the subplans
-            m = executeStatic(plan.getSubPlans().get(0));
+            List<AMapping> subMappings = executeSubPlans(plan.getSubPlans());
+            m = subMappings.get(0);
             AMapping m2, result = m;
-            for (int i = 1; i < plan.getSubPlans().size(); i++) {
-                m2 = executeStatic(plan.getSubPlans().get(i));
+            for (int i = 1; i < subMappings.size(); i++) {
+                m2 = subMappings.get(i);
                 if (plan.getOperator().equals(Command.INTERSECTION)) {
                     result = executeIntersection(m, m2);
                 } // union
@@ -359,6 +360,23 @@ public class SimpleExecutionEngine extends ExecutionEngine {
         return m;
     }
 
+    /**
+     * Executes the subplans of a complex nested plan and returns their mappings
+     * in the order of the subplans. The subplans are executed sequentially in
+     * lNr depth first order.
+     *
+     * @param subPlans
+     *            The subplans of a complex nested plan
+     * @return The list of mappings obtained from executing each subplan
+     */
+    protected List<AMapping> executeSubPlans(List<NestedPlan> subPlans) {
+        List<AMapping> mappings = new ArrayList<>(subPlans.size());
+        for (NestedPlan subPlan : subPlans) {
+            mappings.add(executeStatic(subPlan));
+        }
+        return mappings;
+    }
+
     /**
      * Executes an input link specification L in a dynamic fashion. See
      * {@link #execute(LinkSpecification, IPlanner)}. If L is already executed,
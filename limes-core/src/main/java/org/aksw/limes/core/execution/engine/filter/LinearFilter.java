@@ -18,11 +18,11 @@
 package org.aksw.limes.core.execution.engine.filter;
 
 import org.aksw.limes.core.io.cache.ACache;
-import org.aksw.limes.core.io.cache.Instance;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.measures.mapper.MappingOperations;
-import org.aksw.limes.core.measures.measure.MeasureProcessor;
+import org.aksw.limes.core.measures.measure.SimilarityEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +52,8 @@ public class LinearFilter implements IFilter {
         double sim = 0.0;
         if (threshold <= 0.0) {
             return map;
+        } else if (map instanceof ColumnarMapping) {
+            return map.getSubMap(threshold);
         } else {
             AMapping result = MappingFactory.createDefaultMapping();
             // run on all pairs and remove those whose similarity is below
@@ -93,27 +95,20 @@ public class LinearFilter implements IFilter {
      */
     public AMapping filter(AMapping map, String condition, double threshold, ACache source, ACache target,
                            String sourceVar, String targetVar) {
-        double sim = 0.0;
-        Instance s, t;
-
         if (condition == null) {
             logger.error("Null condition in filter function (LinearFilter). Exiting..");
             throw new RuntimeException();
         }
 
-        AMapping result = MappingFactory.createDefaultMapping();
+        AMapping result = createResultMapping(map);
+        SimilarityEvaluator evaluator = SimilarityEvaluator.compile(condition, threshold, sourceVar, targetVar);
         // 2. run on all pairs and remove those
-        for (String key : map.getMap().keySet()) {
-            s = source.getInstance(key);
-            for (String value : map.getMap().get(key).keySet()) {
-                t = target.getInstance(value);
-                sim = MeasureProcessor.getSimilarity(s, t, condition, threshold, sourceVar, targetVar);
-                if (sim >= threshold) {
-                    result.add(s.getUri(), t.getUri(), sim);
-                }
+        map.forEachLink((key, value, confidence) -> {
+            double sim = evaluator.getSimilarity(source.getInstance(key), target.getInstance(value));
+            if (sim >= threshold) {
+                result.add(key, value, sim);
             }
-
-        }
+        });
         return result;
     }
 
@@ -148,32 +143,25 @@ public class LinearFilter implements IFilter {
      */
     public AMapping filter(AMapping map, String condition, double threshold, double mainThreshold, ACache source,
                            ACache target, String sourceVar, String targetVar) {
-        double sim = 0.0;
-        Instance s, t;
-        AMapping result = MappingFactory.createDefaultMapping();
+        AMapping result = createResultMapping(map);
         if (condition == null) {
             logger.info("Null condition in extended filter function (LinearFilter). Exiting..");
             throw new RuntimeException();
         }
+        SimilarityEvaluator evaluator = SimilarityEvaluator.compile(condition, threshold, sourceVar, targetVar);
 
-        for (String key : map.getMap().keySet()) {
-            s = source.getInstance(key);
-            for (String value : map.getMap().get(key).keySet()) {
-                t = target.getInstance(value);
-                sim = MeasureProcessor.getSimilarity(s, t, condition, threshold, sourceVar, targetVar);
-                // result must pass the filter threshold first!
-                if (sim >= threshold) {
-                    double sim2 = map.getConfidence(key, value);
-                    double minSimilarity = Math.min(sim, sim2);
-                    // min similarity because of AND operator
-                    // check if min sim passes the bigger threshold
-                    if (minSimilarity >= mainThreshold) {
-                        result.add(key, value, minSimilarity);
-                    }
+        map.forEachLink((key, value, sim2) -> {
+            double sim = evaluator.getSimilarity(source.getInstance(key), target.getInstance(value));
+            // result must pass the filter threshold first!
+            if (sim >= threshold) {
+                double minSimilarity = Math.min(sim, sim2);
+                // min similarity because of AND operator
+                // check if min sim passes the bigger threshold
+                if (minSimilarity >= mainThreshold) {
+                    result.add(key, value, minSimilarity);
                 }
-
             }
-        }
+        });
         return result;
 
     }
@@ -209,30 +197,21 @@ public class LinearFilter implements IFilter {
     public AMapping reversefilter(AMapping map, String condition, double threshold, double mainThreshold, ACache source,
                                   ACache target, String sourceVar, String targetVar) {
 
-        double sim = 0.0;
-        Instance s, t;
-        AMapping result = MappingFactory.createDefaultMapping();
+        AMapping result = createResultMapping(map);
         if (condition == null) {
             System.err.println("Null condition in extended reverse filter function (LinearFilter). Exiting..");
             throw new RuntimeException();
         }
+        SimilarityEvaluator evaluator = SimilarityEvaluator.compile(condition, threshold, sourceVar, targetVar);
 
         // 2. run on all pairs and remove those
-        for (String key : map.getMap().keySet()) {
-            s = source.getInstance(key);
-            for (String value : map.getMap().get(key).keySet()) {
-                t = target.getInstance(value);
-                sim = MeasureProcessor.getSimilarity(s, t, condition, threshold, sourceVar, targetVar);
-
-                // similarity of s and t must be 0 to be accepted
-                if (sim == 0) {
-                    double sim2 = map.getConfidence(key, value);
-                    if (sim2 >= mainThreshold) {
-                        result.add(key, value, sim2);
-                    }
-                }
+        map.forEachLink((key, value, sim2) -> {
+            double sim = evaluator.getSimilarity(source.getInstance(key), target.getInstance(value));
+            // similarity of s and t must be 0 to be accepted
+            if (sim == 0 && sim2 >= mainThreshold) {
+                result.add(key, value, sim2);
             }
-        }
+        });
         return result;
 
     }
@@ -293,4 +272,22 @@ public class LinearFilter implements IFilter {
         return result;
     }
 
+    /**
+     * Creates the output mapping of a filter. Columnar mappings are filtered
+     * into columnar mappings over the same dictionaries, so that set
+     * operations on the filtered mappings can still work on interned ids.
+     *
+     * @param map
+     *            Input mapping of the filter
+     * @return an empty mapping of the same kind as the input mapping
+     */
+    private AMapping createResultMapping(AMapping map) {
+        if (map instanceof ColumnarMapping) {
+            ColumnarMapping columnar = (ColumnarMapping) map;
+            return MappingFactory.createColumnarMapping(columnar.getSourceDictionary(),
+                    columnar.getTargetDictionary());
+        }
+        return MappingFactory.createDefaultMapping();
+    }
+
 }
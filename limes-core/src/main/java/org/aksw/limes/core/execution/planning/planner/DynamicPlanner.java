@@ -93,7 +93,7 @@ public class DynamicPlanner extends Planner {
      * @param spec
      *            The input link specification
      */
-    public void init(LinkSpecification spec) {
+    public synchronized void init(LinkSpecification spec) {
         NestedPlan plan = new NestedPlan();
         if (!plans.containsKey(spec.toString())) {
             if (spec.isAtomic()) {
@@ -126,7 +126,7 @@ public class DynamicPlanner extends Planner {
      * @param spec
      *            The recently executed specification
      */
-    public void createDependencies(LinkSpecification spec) {
+    public synchronized void createDependencies(LinkSpecification spec) {
         for (Entry<String, LinkSpecification> entry : specifications.entrySet()) {
             String dependentString = entry.getKey();
             LinkSpecification dependent = entry.getValue();
@@ -150,7 +150,7 @@ public class DynamicPlanner extends Planner {
      *            The dependent specification
      * @return a string representation of specification that spec depends upon
      */
-    public String getDependency(LinkSpecification spec) {
+    public synchronized String getDependency(LinkSpecification spec) {
         String specString = spec.toString();
         if (dependencies.containsKey(specString)) {
             return dependencies.get(spec.toString()).toString();
@@ -203,7 +203,7 @@ public class DynamicPlanner extends Planner {
      *            The input link specification
      * @return true if the plan is executed, or false otherwise
      */
-    public boolean isExecuted(LinkSpecification spec) {
+    public synchronized boolean isExecuted(LinkSpecification spec) {
         return (plans.get(spec.toString()).getExecutionStatus());
     }
 
@@ -238,7 +238,7 @@ public class DynamicPlanner extends Planner {
      *            The link specification
      * @return the plan of the input specification
      */
-    public NestedPlan getPlan(LinkSpecification spec) {
+    public synchronized NestedPlan getPlan(LinkSpecification spec) {
         if (plans.containsKey(spec.toString()))
             return plans.get(spec.toString());
         return null;
@@ -251,7 +251,7 @@ public class DynamicPlanner extends Planner {
      *            The nested plan
      * @return the spec of the input plan
      */
-    public LinkSpecification getLinkSpec(NestedPlan plan) {
+    public synchronized LinkSpecification getLinkSpec(NestedPlan plan) {
         for (Map.Entry<String, NestedPlan> entry : plans.entrySet()) {
             String spec = entry.getKey();
             NestedPlan value = entry.getValue();
@@ -273,7 +273,7 @@ public class DynamicPlanner extends Planner {
      * @param msize
      *            The real mapping size returned when the plan is executed
      */
-    public void updatePlan(LinkSpecification spec, double rt, double selectivity, double msize) {
+    public synchronized void updatePlan(LinkSpecification spec, double rt, double selectivity, double msize) {
         if (!plans.containsKey(spec.toString())) {
             logger.error("Specification: " + spec.getFullExpression() + " was not initialised. Exiting..");
             throw new RuntimeException();
@@ -296,7 +296,7 @@ public class DynamicPlanner extends Planner {
      * @return a NestedPlan of the input link specification
      */
     @Override
-    public NestedPlan plan(LinkSpecification spec) {
+    public synchronized NestedPlan plan(LinkSpecification spec) {
         return plan(spec, source, target, MappingFactory.createDefaultMapping(), MappingFactory.createDefaultMapping());
 
     }
@@ -320,7 +320,7 @@ public class DynamicPlanner extends Planner {
      *            Size of target mapping
      * @return a NestedPlan for the input link specification
      */
-    public NestedPlan plan(LinkSpecification spec, ACache source, ACache target, AMapping sourceMapping,
+    public synchronized NestedPlan plan(LinkSpecification spec, ACache source, ACache target, AMapping sourceMapping,
                            AMapping targetMapping) {
         NestedPlan plan = new NestedPlan();
 
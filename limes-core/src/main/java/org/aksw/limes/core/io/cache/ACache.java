@@ -17,16 +17,39 @@
  */
 package org.aksw.limes.core.io.cache;
 
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
 
 /**
  * @author Mohamed Sherif (sherif@informatik.uni-leipzig.de)
  * @version Jul 8, 2015
  */
 public abstract class ACache implements ICache {
+    private static final Logger logger = LoggerFactory.getLogger(ACache.class);
+
+    private transient volatile StringDictionary uriDictionary = null;
+    // memoized property indexes by kind and property, dropped on changes
+    private transient volatile ConcurrentHashMap<String, FutureTask<?>> propertyIndexes = null;
+
     public abstract void addInstance(Instance i);
 
     public abstract Instance getNextInstance();
@@ -53,6 +76,134 @@ public abstract class ACache implements ICache {
 
     public abstract Set<String> getAllProperties();
 
+    /**
+     * Returns the dictionary that interns the URIs of this cache. Mappings
+     * that share the dictionaries of their source and target caches can
+     * store links as pairs of int ids instead of strings. The dictionary is
+     * frozen, i.e., it is read without locking, and it is built again after
+     * the cache has been changed.
+     *
+     * @return the URI dictionary of the cache
+     */
+    public synchronized StringDictionary getUriDictionary() {
+        StringDictionary dictionary = uriDictionary;
+        if (dictionary == null) {
+            dictionary = new StringDictionary(size());
+            for (String uri : getAllUris()) {
+                dictionary.getId(uri);
+            }
+            uriDictionary = dictionary.freeze();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Returns an index that maps the values of a property to the URIs of the
+     * instances that have them. The index is built once per property and
+     * reused until the cache is changed; concurrent callers wait for the same
+     * build. The returned map and its sets are read-only.
+     *
+     * @param property
+     *            property name
+     * @return map from the values of the property to URIs
+     */
+    public Map<String, Set<String>> getValueToUriIndex(String property) {
+        return getPropertyIndex("valueToUri", property, this::buildValueToUriIndex);
+    }
+
+    /**
+     * Returns a structure derived from the values of a property, such as an
+     * index or the parsed values. It is built once per kind and property and
+     * reused until the cache is changed; concurrent callers wait for the same
+     * build. Callers must not change the returned structure.
+     *
+     * @param kind
+     *            name of the kind of structure, distinct per builder
+     * @param property
+     *            property name
+     * @param builder
+     *            builds the structure for a property
+     * @param <T>
+     *            type of the structure
+     * @return the structure for the property
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getPropertyIndex(String kind, String property, Function<String, T> builder) {
+        ConcurrentHashMap<String, FutureTask<?>> indexes = propertyIndexes;
+        if (indexes == null) {
+            synchronized (this) {
+                indexes = propertyIndexes;
+                if (indexes == null) {
+                    indexes = new ConcurrentHashMap<>();
+                    propertyIndexes = indexes;
+                }
+            }
+        }
+        String key = kind + '\u0000' + property;
+        FutureTask<?> index = indexes.get(key);
+        if (index == null) {
+            FutureTask<T> task = new FutureTask<>(() -> builder.apply(property));
+            index = indexes.putIfAbsent(key, task);
+            if (index == null) {
+                index = task;
+                task.run();
+            }
+        }
+        try {
+            return (T) index.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while indexing " + property, e);
+        } catch (ExecutionException e) {
+            indexes.remove(key, index);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Cannot index " + property, e.getCause());
+        }
+    }
+
+    /**
+     * Builds the index returned by {@link #getValueToUriIndex(String)}.
+     *
+     * @param property
+     *            property name
+     * @return read-only map from the values of the property to URIs
+     */
+    protected Map<String, Set<String>> buildValueToUriIndex(String property) {
+        Map<String, Set<String>> index = new HashMap<>();
+        for (String uri : getAllUris()) {
+            for (String value : getInstance(uri).getProperty(property)) {
+                index.computeIfAbsent(value, k -> new HashSet<>()).add(uri);
+            }
+        }
+        return toReadOnlyIndex(index);
+    }
+
+    /**
+     * @param index
+     *            map from values to URIs
+     * @return read-only view of the index and its sets
+     */
+    protected static Map<String, Set<String>> toReadOnlyIndex(Map<String, Set<String>> index) {
+        for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Drops the memoized property indexes. Called by all methods that change
+     * the cache; code that changes instances of the cache in place has to call
+     * it as well.
+     */
+    public void invalidateIndexes() {
+        if (propertyIndexes != null) {
+            propertyIndexes = null;
+        }
+        uriDictionary = null;
+    }
+
     @Override
     public abstract ACache clone();
 
@@ -98,6 +249,39 @@ public abstract class ACache implements ICache {
      *         rdf:Type of the instances.
      * @return JENA RDF Model
      */
-    public abstract Model parseCSVtoRDFModel(String baseURI, String IDbaseURI, String rdfType);
+    public Model parseCSVtoRDFModel(String baseURI, String IDbaseURI, String rdfType) {
+        if (baseURI.length() > 0 && !(baseURI.endsWith("#") || baseURI.endsWith("/"))) {
+            baseURI += "#";
+        }
+        Model model = ModelFactory.createDefaultModel();
+        // 2nd create Properties
+        Resource r_rdfType = model.createResource(baseURI + rdfType);
+        Set<String> props = getAllProperties();
+        Map<String, Property> map = new HashMap<String, Property>();
+        for (String prop : props) {
+            map.put(prop, model.createProperty(baseURI + prop));
+        }
+        Instance i = getNextInstance();
+        while (i != null) {
+
+            String uri = IDbaseURI + i.getUri();
+            // create resource with id
+            Resource r = model.createResource(uri);
+            Statement typeStmt = model.createStatement(r, RDF.type, r_rdfType);
+            model.add(typeStmt);
+            logger.debug("Created statement: " + typeStmt);
+            props = i.getAllProperties();
+            for (String prop : props) {
+                for (String value : i.getProperty(prop)) {
+                    Literal lit = model.createLiteral(value);
+                    Statement stmt = model.createStatement(r, map.get(prop), lit);
+                    logger.debug("Created statement: " + stmt);
+                    model.add(stmt);
+                }
+            }
+            i = getNextInstance();
+        }
+        return model;
+    }
 
 }
@@ -0,0 +1,64 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import org.aksw.limes.core.io.config.KBInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Fills the cache type specified for a knowledge base.
+ */
+public class CacheFactory {
+
+    static Logger logger = LoggerFactory.getLogger(CacheFactory.class);
+
+    public static final String HYBRID = "hybrid";
+    public static final String FILE = "file";
+    public static final String COLUMNAR = "columnar";
+
+    public static ACache getData(KBInfo kb) {
+        return getData(new File(""), kb);
+    }
+
+    /**
+     * Gets the data of a knowledge base into a cache of the type given by
+     * {@link KBInfo#getCache()}.
+     *
+     * @param folder
+     *            Path to the parent folder of the "cache" folder.
+     * @param kb
+     *            Endpoint specification.
+     * @return the filled cache
+     */
+    public static ACache getData(File folder, KBInfo kb) {
+        String type = kb.getCache() == null ? HYBRID : kb.getCache().toLowerCase();
+        if (type.equals(FILE)) {
+            return FileCache.getData(folder, kb);
+        }
+        if (type.equals(COLUMNAR)) {
+            return ColumnarCache.getData(folder, kb);
+        }
+        if (!type.equals(HYBRID)) {
+            logger.warn("Sorry, cache " + type + " is not yet implemented. Generating " + HYBRID + " cache ...");
+        }
+        return HybridCache.getData(folder, kb);
+    }
+}
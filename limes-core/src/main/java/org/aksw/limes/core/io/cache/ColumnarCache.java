@@ -0,0 +1,580 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.aksw.limes.core.io.config.KBInfo;
+import org.aksw.limes.core.io.preprocessing.Preprocessor;
+import org.aksw.limes.core.io.query.IQueryModule;
+import org.aksw.limes.core.io.query.QueryModuleFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache that stores the data in columns instead of one map of property sets
+ * per instance. URIs, property names and values are interned into
+ * dictionaries, and the values of each property are kept in a
+ * {@link PropertyColumn}, i.e., two int arrays that map entity ids to value
+ * ids. This avoids one tree set per property and instance and stores each
+ * distinct value only once.
+ * <p>
+ * The instances returned by the cache are lightweight views on the columns,
+ * changes made through them are visible in the cache. Mappers can access the
+ * columns directly through {@link #getColumn(String)} and resolve the ids
+ * with {@link #getUriDictionary()} and {@link #getValueDictionary()}. The
+ * value and property dictionaries can be shared between caches (e.g., source
+ * and target), so that equal values have equal ids.
+ * <p>
+ * Added triples and changed instances are merged into the columns lazily.
+ * Changing the cache while its columns are read concurrently is not
+ * supported.
+ */
+public class ColumnarCache extends ACache {
+    static Logger logger = LoggerFactory.getLogger(ColumnarCache.class);
+
+    // frozen by getUriDictionary(), copied before new URIs are added
+    private volatile StringDictionary entities;
+    private final StringDictionary properties;
+    private final StringDictionary values;
+    // columns indexed by property id, null for properties without values
+    private volatile PropertyColumn[] columns = new PropertyColumn[0];
+    // triples that have not been merged into the columns yet, by property id
+    private PendingPairs[] pending = new PendingPairs[0];
+    private volatile int pendingSize = 0;
+    // changed properties of instances, a null value marks a removed property
+    private final ConcurrentHashMap<Integer, HashMap<String, TreeSet<String>>> changes = new ConcurrentHashMap<>();
+    private int iteratorPosition = 0;
+
+    public ColumnarCache() {
+        this(new StringDictionary(), new StringDictionary());
+    }
+
+    /**
+     * @param properties
+     *            dictionary of the property names
+     * @param values
+     *            dictionary of the property values
+     */
+    public ColumnarCache(StringDictionary properties, StringDictionary values) {
+        this(new StringDictionary(), properties, values);
+    }
+
+    private ColumnarCache(StringDictionary entities, StringDictionary properties, StringDictionary values) {
+        this.entities = entities;
+        this.properties = properties;
+        this.values = values;
+    }
+
+    /**
+     * Method to get Data of the specified endpoint into a columnar cache. The
+     * data is read from (and stored to) the same file in the "cache" folder as
+     * the data of a {@link HybridCache}.
+     *
+     * @param folder
+     *            Path to the parent folder of the "cache" folder.
+     * @param kb
+     *            Endpoint specification.
+     * @return ColumnarCache of the data
+     */
+    public static ColumnarCache getData(File folder, KBInfo kb) {
+        ColumnarCache cache = new ColumnarCache();
+        File cacheFolder = new File(folder.getAbsolutePath() + File.separatorChar + "cache");
+        File cacheFile = new File(cacheFolder, kb.hashCode() + ".ser");
+        logger.info("Checking for file " + cacheFile.getAbsolutePath());
+        try {
+            if (cacheFile.exists()) {
+                logger.info("Found cached data. Loading data from file " + cacheFile.getAbsolutePath());
+                if (MappedCacheFile.isCacheFile(cacheFile)) {
+                    MappedCacheFile file = MappedCacheFile.open(cacheFile);
+                    for (int i = 0; i < file.size(); i++) {
+                        cache.addInstance(file.getInstance(i));
+                    }
+                } else {
+                    for (Instance i : HybridCache.loadFromFile(cacheFile).getAllInstances()) {
+                        cache.addInstance(i);
+                    }
+                }
+            }
+            if (cache.size() > 0) {
+                logger.info("Cached data loaded successfully from file " + cacheFile.getAbsolutePath());
+                logger.info("Size = " + cache.size());
+                return cache;
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot read cache file " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+        }
+        logger.info("No cached data found for " + kb.getId());
+        IQueryModule module = QueryModuleFactory.getQueryModule(kb.getType(), kb);
+        module.fillCache(cache);
+        if (!cacheFolder.isDirectory()) {
+            cacheFolder.mkdir();
+        }
+        try {
+            MappedCacheFile.write(cache.getAllInstances(), cacheFile);
+        } catch (IOException e) {
+            logger.warn("Cannot write cache file " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+        }
+        return cache;
+    }
+
+    public static ColumnarCache getData(KBInfo kb) {
+        return getData(new File(""), kb);
+    }
+
+    @Override
+    public synchronized void addInstance(Instance i) {
+        invalidateIndexes();
+        if (entities.contains(i.getUri())) {
+            return;
+        }
+        int entity = getEntityId(i.getUri());
+        for (String p : i.getAllProperties()) {
+            for (String o : i.getProperty(p)) {
+                add(entity, p, o);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void addTriple(String s, String p, String o) {
+        invalidateIndexes();
+        int entity = getEntityId(s);
+        HashMap<String, TreeSet<String>> changed = changes.get(entity);
+        if (changed != null && changed.containsKey(p)) {
+            Instance instance = new ColumnarInstance(this, entity, s);
+            instance.addProperty(p, o);
+        } else {
+            add(entity, p, o);
+        }
+    }
+
+    @Override
+    public synchronized Instance getNextInstance() {
+        if (iteratorPosition < entities.size()) {
+            return getInstance(iteratorPosition++);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void resetIterator() {
+        iteratorPosition = 0;
+    }
+
+    @Override
+    public ArrayList<Instance> getAllInstances() {
+        int size = size();
+        ArrayList<Instance> result = new ArrayList<>(size);
+        for (int e = 0; e < size; e++) {
+            result.add(getInstance(e));
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<String> getAllUris() {
+        int size = size();
+        ArrayList<String> result = new ArrayList<>(size);
+        for (int e = 0; e < size; e++) {
+            result.add(entities.getString(e));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsInstance(Instance i) {
+        return containsUri(i.getUri());
+    }
+
+    @Override
+    public boolean containsUri(String uri) {
+        return entities.contains(uri);
+    }
+
+    /**
+     * @param uri
+     *            URI to look for
+     * @return a view on the instance with the URI uri if it is in the cache,
+     *         else null
+     */
+    @Override
+    public Instance getInstance(String uri) {
+        int entity = entities.lookup(uri);
+        return entity < 0 ? null : new ColumnarInstance(this, entity, uri);
+    }
+
+    /**
+     * @param entity
+     *            entity id
+     * @return a view on the instance with the given id
+     */
+    public Instance getInstance(int entity) {
+        return new ColumnarInstance(this, entity, entities.getString(entity));
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+
+    @Override
+    public ACache getSample(int size) {
+        ColumnarCache c = new ColumnarCache(properties, values);
+        while (c.size() < Math.min(size, size())) {
+            c.addInstance(getInstance((int) Math.floor(Math.random() * size())));
+        }
+        return c;
+    }
+
+    @Override
+    public synchronized void replaceInstance(String uri, Instance a) {
+        invalidateIndexes();
+        int entity = getEntityId(uri);
+        if (a instanceof ColumnarInstance && ((ColumnarInstance) a).getCache() == this
+                && ((ColumnarInstance) a).getEntity() == entity) {
+            return;
+        }
+        // reading the properties may compact the cache, which drops all changes
+        Set<String> removed = getProperties(entity);
+        HashMap<String, TreeSet<String>> changed = getChanges(entity, true);
+        changed.clear();
+        for (String p : removed) {
+            changed.put(p, null);
+        }
+        for (String p : a.getAllProperties()) {
+            changed.put(p, new TreeSet<>(a.getProperty(p)));
+        }
+    }
+
+    /**
+     * Returns the properties that have at least one value.
+     *
+     * @return set of all properties
+     */
+    @Override
+    public Set<String> getAllProperties() {
+        compact();
+        Set<String> result = new HashSet<>();
+        PropertyColumn[] columns = this.columns;
+        for (int p = 0; p < columns.length; p++) {
+            if (columns[p] != null && columns[p].getValueCount() > 0) {
+                result.add(properties.getString(p));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ACache addProperty(String sourcePropertyName, String targetPropertyName, String processingChain) {
+        LinkedHashMap<String, Map<String, String>> functions = new LinkedHashMap<>();
+        HashMap<String, String> f1 = new HashMap<>();
+        f1.put(targetPropertyName, processingChain);
+        functions.put(sourcePropertyName, f1);
+        ACache c = Preprocessor.applyFunctionsToCache(this, functions, true);
+        logger.debug("Cache is ready");
+        return c;
+    }
+
+    /**
+     * Returns the column of a property. Pending changes are merged into the
+     * columns first.
+     *
+     * @param property
+     *            property name
+     * @return the column of the property, an empty column if no entity has
+     *         a value for the property
+     */
+    public PropertyColumn getColumn(String property) {
+        compact();
+        int p = properties.lookup(property);
+        PropertyColumn[] columns = this.columns;
+        if (p < 0 || p >= columns.length || columns[p] == null) {
+            return PropertyColumn.EMPTY_COLUMN;
+        }
+        return columns[p];
+    }
+
+    /**
+     * Builds the index directly from the column of the property, without
+     * creating instances.
+     */
+    @Override
+    protected Map<String, Set<String>> buildValueToUriIndex(String property) {
+        PropertyColumn column = getColumn(property);
+        int[] offsets = column.getOffsets();
+        int[] valueIds = column.getValueIds();
+        // group the URIs by value id first to decode each value only once
+        Map<Integer, Set<String>> byId = new HashMap<>();
+        for (int e = 0; e < column.getEntityCount(); e++) {
+            for (int i = offsets[e]; i < offsets[e + 1]; i++) {
+                byId.computeIfAbsent(valueIds[i], k -> new HashSet<>()).add(entities.getString(e));
+            }
+        }
+        Map<String, Set<String>> index = new HashMap<>(byId.size() * 2);
+        for (Map.Entry<Integer, Set<String>> entry : byId.entrySet()) {
+            index.put(values.getString(entry.getKey()), entry.getValue());
+        }
+        return toReadOnlyIndex(index);
+    }
+
+    /**
+     * The ids of the entities of the cache are the ids of their URIs in this
+     * dictionary. The dictionary is frozen, adding instances afterwards
+     * continues on a copy, so that the returned dictionary stays valid for
+     * the URIs it contains.
+     *
+     * @return the URI dictionary of the cache
+     */
+    @Override
+    public synchronized StringDictionary getUriDictionary() {
+        return entities.freeze();
+    }
+
+    private int getEntityId(String uri) {
+        if (entities.isFrozen() && !entities.contains(uri)) {
+            entities = entities.copy();
+        }
+        return entities.getId(uri);
+    }
+
+    /**
+     * @return dictionary of the property names
+     */
+    public StringDictionary getPropertyDictionary() {
+        return properties;
+    }
+
+    /**
+     * @return dictionary of the property values
+     */
+    public StringDictionary getValueDictionary() {
+        return values;
+    }
+
+    /**
+     * Merges all added triples and changed instances into the columns.
+     */
+    public synchronized void compact() {
+        if (pendingSize == 0 && changes.isEmpty()) {
+            return;
+        }
+        int entityCount = entities.size();
+        // collect the replaced rows by property
+        Map<Integer, BitSet> replaced = new HashMap<>();
+        Map<Integer, Map<Integer, int[]>> replacements = new HashMap<>();
+        for (Map.Entry<Integer, HashMap<String, TreeSet<String>>> change : changes.entrySet()) {
+            for (Map.Entry<String, TreeSet<String>> property : change.getValue().entrySet()) {
+                int p = properties.getId(property.getKey());
+                replaced.computeIfAbsent(p, k -> new BitSet(entityCount)).set(change.getKey());
+                if (property.getValue() != null) {
+                    int[] ids = new int[property.getValue().size()];
+                    int i = 0;
+                    for (String value : property.getValue()) {
+                        ids[i++] = values.getId(value);
+                    }
+                    replacements.computeIfAbsent(p, k -> new HashMap<>()).put(change.getKey(), ids);
+                }
+            }
+        }
+        ensureColumns(properties.size());
+        PropertyColumn[] merged = Arrays.copyOf(columns, columns.length);
+        for (int p = 0; p < merged.length; p++) {
+            PendingPairs pairs = pending[p];
+            boolean hasPending = pairs != null && pairs.size > 0;
+            if (hasPending || replaced.containsKey(p)) {
+                PropertyColumn column = merged[p] == null ? PropertyColumn.EMPTY_COLUMN : merged[p];
+                merged[p] = column.merge(entityCount,
+                        hasPending ? pairs.entities : null, hasPending ? pairs.values : null,
+                        hasPending ? pairs.size : 0,
+                        replaced.getOrDefault(p, new BitSet()),
+                        replacements.getOrDefault(p, new HashMap<>()));
+                pending[p] = null;
+            }
+        }
+        columns = merged;
+        pendingSize = 0;
+        changes.clear();
+    }
+
+    @Override
+    public synchronized ColumnarCache clone() {
+        compact();
+        StringDictionary uris = new StringDictionary(size());
+        for (int e = 0; e < size(); e++) {
+            uris.getId(entities.getString(e));
+        }
+        ColumnarCache clone = new ColumnarCache(uris, properties, values);
+        // columns are immutable, hence they can be shared
+        clone.columns = columns;
+        clone.pending = new PendingPairs[columns.length];
+        return clone;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int e = 0; e < size(); e++) {
+            hash += entities.getString(e).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ColumnarCache)) {
+            return false;
+        }
+        ColumnarCache other = (ColumnarCache) obj;
+        if (other.size() != size()) {
+            return false;
+        }
+        for (int e = 0; e < size(); e++) {
+            Instance instance = getInstance(e);
+            if (!instance.equals(other.getInstance(instance.getUri()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarCache[" + size() + " instances, " + properties.size() + " properties, "
+                + values.size() + " values]";
+    }
+
+    /**
+     * Returns the columns of the cache. Added triples are merged into the
+     * columns first, changes made through views are not. The columns are
+     * replaced by new ones whenever the cache is compacted.
+     *
+     * @return the columns indexed by property id
+     */
+    PropertyColumn[] getColumns() {
+        if (pendingSize > 0) {
+            compact();
+        }
+        return columns;
+    }
+
+    /**
+     * @param columns
+     *            columns returned by {@link #getColumns()}
+     * @param entity
+     *            entity id
+     * @param property
+     *            property name
+     * @return the values of the entity for the property in the columns,
+     *         without the changes made through views
+     */
+    TreeSet<String> getValues(PropertyColumn[] columns, int entity, String property) {
+        TreeSet<String> result = new TreeSet<>();
+        int p = properties.lookup(property);
+        if (p >= 0 && p < columns.length && columns[p] != null && columns[p].hasValues(entity)) {
+            PropertyColumn column = columns[p];
+            values.getStrings(column.getValueIds(), column.getOffsets()[entity], column.getOffsets()[entity + 1],
+                    result);
+        }
+        return result;
+    }
+
+    /**
+     * @param entity
+     *            entity id
+     * @return the properties the entity has values for, without the changes
+     *         made through views
+     */
+    Set<String> getProperties(int entity) {
+        if (pendingSize > 0) {
+            compact();
+        }
+        Set<String> result = new HashSet<>();
+        PropertyColumn[] columns = this.columns;
+        for (int p = 0; p < columns.length; p++) {
+            if (columns[p] != null && columns[p].hasValues(entity)) {
+                result.add(properties.getString(p));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param entity
+     *            entity id
+     * @param create
+     *            create the map of changes if the entity has none
+     * @return the changed properties of the entity, null if it has none and
+     *         create is false
+     */
+    HashMap<String, TreeSet<String>> getChanges(int entity, boolean create) {
+        if (!create) {
+            return changes.isEmpty() ? null : changes.get(entity);
+        }
+        invalidateIndexes();
+        return changes.computeIfAbsent(entity, k -> new HashMap<>());
+    }
+
+    private void add(int entity, String property, String value) {
+        int p = properties.getId(property);
+        ensureColumns(p + 1);
+        if (pending[p] == null) {
+            pending[p] = new PendingPairs();
+        }
+        pending[p].add(entity, values.getId(value));
+        pendingSize++;
+    }
+
+    private void ensureColumns(int count) {
+        if (pending.length < count) {
+            int capacity = Math.max(count, pending.length * 2);
+            pending = Arrays.copyOf(pending, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+    }
+
+    /**
+     * Growable buffer of (entity id, value id) pairs.
+     */
+    private static class PendingPairs {
+        int[] entities = new int[16];
+        int[] values = new int[16];
+        int size = 0;
+
+        void add(int entity, int value) {
+            if (size == entities.length) {
+                entities = Arrays.copyOf(entities, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            entities[size] = entity;
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An {@link Instance} that is a view on an entity of a {@link ColumnarCache}.
+ * The view does not hold any property values, these are read from the
+ * columns of the cache. Changes are kept by the cache in a copy-on-write map
+ * of the changed properties of the entity, which is shared by all views of the
+ * entity and merged into the columns when the cache is compacted.
+ * <p>
+ * The sets returned by {@link #getProperty(String)} for properties that have
+ * not been changed through a view are decoded from the columns. The view keeps
+ * the last decoded set until the columns change, so that repeated reads of a
+ * property, e.g., in nested loops over instances, decode it once; changes to
+ * such a set do not change the cache. Code that only needs the value ids reads
+ * them from {@link ColumnarCache#getColumn(String)}. Properties without values
+ * are not listed by {@link #getAllProperties()}.
+ */
+class ColumnarInstance extends Instance {
+
+    private static final long serialVersionUID = 2350811349184525618L;
+
+    private final transient ColumnarCache cache;
+    private final int entity;
+    // values of the property read last, decoded from the columns of the cache
+    private transient volatile Decoded decoded;
+
+    ColumnarInstance(ColumnarCache cache, int entity, String uri) {
+        super(uri, null);
+        this.cache = cache;
+        this.entity = entity;
+    }
+
+    ColumnarCache getCache() {
+        return cache;
+    }
+
+    int getEntity() {
+        return entity;
+    }
+
+    @Override
+    public void addProperty(String propUri, String value) {
+        change(propUri).add(value);
+    }
+
+    @Override
+    public void addProperty(String propUri, TreeSet<String> values) {
+        change(propUri).addAll(values);
+    }
+
+    @Override
+    public void replaceProperty(String propUri, TreeSet<String> values) {
+        cache.getChanges(entity, true).put(propUri, values);
+    }
+
+    @Override
+    public void removePropery(String uri) {
+        cache.getChanges(entity, true).put(uri, null);
+    }
+
+    @Override
+    public TreeSet<String> getProperty(String propUri) {
+        HashMap<String, TreeSet<String>> changes = cache.getChanges(entity, false);
+        if (changes != null && changes.containsKey(propUri)) {
+            TreeSet<String> values = changes.get(propUri);
+            return values == null ? new TreeSet<String>() : values;
+        }
+        PropertyColumn[] columns = cache.getColumns();
+        Decoded last = decoded;
+        if (last != null && last.columns == columns && last.property.equals(propUri)) {
+            return last.values;
+        }
+        TreeSet<String> values = cache.getValues(columns, entity, propUri);
+        decoded = new Decoded(columns, propUri, values);
+        return values;
+    }
+
+    @Override
+    public Set<String> getAllProperties() {
+        Set<String> properties = cache.getProperties(entity);
+        HashMap<String, TreeSet<String>> changes = cache.getChanges(entity, false);
+        if (changes != null) {
+            for (Map.Entry<String, TreeSet<String>> entry : changes.entrySet()) {
+                if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                    properties.remove(entry.getKey());
+                } else {
+                    properties.add(entry.getKey());
+                }
+            }
+        }
+        return properties;
+    }
+
+    @Override
+    protected Map<String, TreeSet<String>> getPropertyMap() {
+        HashMap<String, TreeSet<String>> map = new HashMap<String, TreeSet<String>>();
+        for (String p : getAllProperties()) {
+            map.put(p, getProperty(p));
+        }
+        return map;
+    }
+
+    /**
+     * @return a detached copy of the instance that does not write through to
+     *         the cache
+     */
+    @Override
+    public Instance copy() {
+        Instance instance = new Instance(getUri());
+        for (Map.Entry<String, TreeSet<String>> entry : getPropertyMap().entrySet()) {
+            instance.addProperty(entry.getKey(), new TreeSet<String>(entry.getValue()));
+        }
+        return instance;
+    }
+
+    /**
+     * Views are serialized as plain instances.
+     *
+     * @return detached copy of this view
+     */
+    private Object writeReplace() {
+        Instance instance = copy();
+        instance.distance = distance;
+        return instance;
+    }
+
+    private TreeSet<String> change(String propUri) {
+        HashMap<String, TreeSet<String>> changes = cache.getChanges(entity, false);
+        if (changes != null && changes.containsKey(propUri)) {
+            TreeSet<String> values = changes.get(propUri);
+            if (values == null) {
+                values = new TreeSet<String>();
+                changes.put(propUri, values);
+            }
+            return values;
+        }
+        // reading the columns may compact the cache, which drops all changes
+        TreeSet<String> values = cache.getValues(cache.getColumns(), entity, propUri);
+        cache.getChanges(entity, true).put(propUri, values);
+        return values;
+    }
+
+    /**
+     * Values of a property decoded from the columns of the cache.
+     */
+    private static class Decoded {
+        final PropertyColumn[] columns;
+        final String property;
+        final TreeSet<String> values;
+
+        Decoded(PropertyColumn[] columns, String property, TreeSet<String> values) {
+            this.columns = columns;
+            this.property = property;
+            this.values = values;
+        }
+    }
+}
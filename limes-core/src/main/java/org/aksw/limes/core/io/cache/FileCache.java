@@ -17,14 +17,824 @@
  */
 package org.aksw.limes.core.io.cache;
 
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.aksw.limes.core.io.config.KBInfo;
+import org.aksw.limes.core.io.preprocessing.Preprocessor;
+import org.aksw.limes.core.io.query.IQueryModule;
+import org.aksw.limes.core.io.query.QueryModuleFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
- * Not yet implemented. Will be an elaborate cache for very large data sets
- * that do not fit in memory.
+ * Cache for data sets that do not fit in memory. Instances are stored in
+ * memory mapped files in a folder and only a bounded number of recently used
+ * instances is kept on the heap. The folder contains
+ * <ul>
+ * <li>uris: the URIs of the instances, in insertion order,</li>
+ * <li>records: the properties and values of the instances. An instance that
+ * is modified is appended again, so that records are never overwritten,</li>
+ * <li>entries: per instance id, the position of its URI, the position of its
+ * latest record and the hash of its URI,</li>
+ * <li>table-n: an open addressing hash table with n slots from URI hashes to
+ * instance ids,</li>
+ * <li>meta: the number of instances and the sizes of the files, written by
+ * {@link #flush()}. The first change after opening or flushing the cache marks
+ * it as not flushed, and a cache with changes that were not flushed is
+ * discarded when its folder is opened again.</li>
+ * </ul>
+ * Records of replaced instances are removed when the cache is flushed and they
+ * take up more than half of the records. Caches returned by
+ * {@link #getData(File, KBInfo)} are read-only, so that the cached data of an
+ * endpoint is never changed; {@link Preprocessor} writes the preprocessed
+ * instances of a file cache into a temporary copy.
+ * Instances are returned as decoded copies. Modified instances have to be
+ * written back with {@link #replaceInstance(String, Instance)}. Instances
+ * added with {@link #addTriple(String, String, String)} or
+ * {@link #addInstance(Instance)} are written when they leave the heap or when
+ * the cache is flushed. {@link #getNextInstance()} streams over the
+ * instances without keeping them on the heap, whereas
+ * {@link #getAllInstances()} materializes all of them and should be avoided
+ * for large data sets.
+ * <p>
+ * The files of a read-only cache are not changed after it was opened, so that
+ * its reads do not lock the cache and several threads can probe it at the
+ * same time. Its instances are kept on the heap in a concurrent map and are
+ * evicted in the order in which they were read. The reads of a writable cache
+ * hold its lock.
+ * <p>
+ * Only {@link org.aksw.limes.core.measures.mapper.string.ExactMatchMapper}
+ * streams file caches, through a partitioned hash join that spills to disk.
+ * The other mappers index the values of the compared properties on the heap,
+ * by {@link #getValueToUriIndex(String)} or {@link #getAllUris()}, so that a
+ * file cache bounds the memory of the instances but not the memory of these
+ * indexes.
  *
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
  * @author Mohamed Sherif (sherif@informatik.uni-leipzig.de)
- * @version Nov 23, 2015
+ * @version 1.0
  */
-public class FileCache {
+public class FileCache extends ACache {
+    static Logger logger = LoggerFactory.getLogger(FileCache.class);
+
+    public static final int DEFAULT_HEAP_INSTANCES = 10000;
+
+    private static final int VERSION = 2;
+    private static final int ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+    private static final int INITIAL_TABLE_CAPACITY = 1 << 16;
+    private static final String META = "meta";
+    private static final String URIS = "uris";
+    private static final String RECORDS = "records";
+    private static final String ENTRIES = "entries";
+    private static final String TABLE = "table-";
+
+    private final File folder;
+    private final boolean temporary;
+    private final boolean readOnly;
+    private final MappedSegments uris;
+    private MappedSegments records;
+    private final MappedSegments entries;
+    private MappedSegments table;
+    private int tableCapacity;
+    private int size;
+    private long urisEnd;
+    private long recordsEnd;
+    // bytes of the records of replaced instances
+    private long garbage;
+    // whether the cache was changed since it was opened or flushed
+    private boolean changed = false;
+    private final int maxHeapInstances;
+    // recently used instances, in access order unless the cache is read-only
+    private final Map<String, Instance> heapInstances;
+    // instances on the heap of a read-only cache, in insertion order
+    private final Queue<String> heapOrder = new ConcurrentLinkedQueue<>();
+    // URIs of the instances on the heap that have not been written yet
+    private final Set<String> dirty = new HashSet<>();
+    private int iteratorPosition = 0;
+
+    /**
+     * Creates a cache in a temporary folder that is deleted on exit.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    public FileCache() throws IOException {
+        this(Files.createTempDirectory("limes-cache").toFile(), DEFAULT_HEAP_INSTANCES, true, false);
+    }
+
+    /**
+     * Opens the cache stored in a folder or creates a new cache there.
+     *
+     * @param folder
+     *            Folder of the cache
+     * @throws IOException
+     *             if the folder cannot be read or written
+     */
+    public FileCache(File folder) throws IOException {
+        this(folder, DEFAULT_HEAP_INSTANCES);
+    }
+
+    /**
+     * Opens the cache stored in a folder or creates a new cache there.
+     *
+     * @param folder
+     *            Folder of the cache
+     * @param maxHeapInstances
+     *            Maximal number of instances kept on the heap
+     * @throws IOException
+     *             if the folder cannot be read or written
+     */
+    public FileCache(File folder, int maxHeapInstances) throws IOException {
+        this(folder, maxHeapInstances, false, false);
+    }
+
+    /**
+     * Opens the cache stored in a folder.
+     *
+     * @param folder
+     *            Folder of the cache
+     * @param maxHeapInstances
+     *            Maximal number of instances kept on the heap
+     * @param readOnly
+     *            if true, the cache cannot be changed and the folder has to
+     *            contain a flushed cache
+     * @throws IOException
+     *             if the folder cannot be read or written
+     */
+    public FileCache(File folder, int maxHeapInstances, boolean readOnly) throws IOException {
+        this(folder, maxHeapInstances, false, readOnly);
+    }
+
+    private FileCache(File folder, int maxHeapInstances, boolean temporary, boolean readOnly) throws IOException {
+        if (maxHeapInstances < 1) {
+            throw new IllegalArgumentException("A file cache has to keep at least one instance on the heap.");
+        }
+        this.folder = folder;
+        this.temporary = temporary;
+        this.readOnly = readOnly;
+        this.maxHeapInstances = maxHeapInstances;
+        if (!readOnly && !folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Cannot create cache folder " + folder.getAbsolutePath());
+        }
+        if (!readMeta()) {
+            if (readOnly) {
+                throw new IOException("Folder " + folder.getAbsolutePath() + " does not contain a flushed file cache.");
+            }
+            // files of a cache that was not flushed are incomplete
+            for (File file : folder.listFiles()) {
+                String name = file.getName();
+                if (name.equals(META) || name.equals(URIS) || name.startsWith(RECORDS) || name.equals(ENTRIES)
+                        || name.startsWith(TABLE)) {
+                    Files.delete(file.toPath());
+                }
+            }
+            size = 0;
+            tableCapacity = INITIAL_TABLE_CAPACITY;
+            urisEnd = 0;
+            recordsEnd = 0;
+            garbage = 0;
+            // a new cache is written on flush even if it stays empty
+            changed = true;
+        }
+        if (temporary) {
+            folder.deleteOnExit();
+        }
+        uris = new MappedSegments(file(URIS), readOnly);
+        records = new MappedSegments(file(RECORDS), readOnly);
+        entries = new MappedSegments(file(ENTRIES), readOnly);
+        table = new MappedSegments(file(TABLE + tableCapacity), readOnly);
+        if (readOnly) {
+            heapInstances = new ConcurrentHashMap<>();
+            return;
+        }
+        table.reserve((long) tableCapacity * Integer.BYTES);
+        heapInstances = new LinkedHashMap<String, Instance>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Instance> eldest) {
+                if (size() > maxHeapInstances) {
+                    if (dirty.remove(eldest.getKey())) {
+                        writeRecord(find(eldest.getKey()), eldest.getValue());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Method to get the data of the specified endpoint and to cache it in a
+     * file cache in the "cache" folder of the folder specified. If the data
+     * has already been cached, the cache is reopened.
+     *
+     * @param folder
+     *            Path to the parent folder of the "cache" folder.
+     * @param kb
+     *            Endpoint specification.
+     * @return read-only FileCache of the data
+     */
+    public static FileCache getData(File folder, KBInfo kb) {
+        File cacheFolder = new File(folder.getAbsolutePath() + File.separatorChar + "cache" + File.separatorChar
+                + kb.hashCode() + ".files");
+        logger.info("Checking for file cache " + cacheFolder.getAbsolutePath());
+        try {
+            FileCache cache = new FileCache(cacheFolder);
+            if (cache.size() > 0) {
+                logger.info("Cached data loaded successfully from folder " + cacheFolder.getAbsolutePath());
+                logger.info("Size = " + cache.size());
+            } else {
+                logger.info("No cached data found for " + kb.getId());
+                IQueryModule module = QueryModuleFactory.getQueryModule(kb.getType(), kb);
+                module.fillCache(cache);
+            }
+            cache.close();
+            return new FileCache(cacheFolder, DEFAULT_HEAP_INSTANCES, true);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot use file cache " + cacheFolder.getAbsolutePath(), e);
+        }
+    }
+
+    public static FileCache getData(KBInfo kb) {
+        return getData(new File(""), kb);
+    }
+
+    @Override
+    public synchronized void addInstance(Instance i) {
+        startChange();
+        if (find(i.getUri()) < 0) {
+            register(i.getUri());
+            heapInstances.put(i.getUri(), i);
+            dirty.add(i.getUri());
+        }
+    }
+
+    /**
+     * Returns the next instance. The instance is decoded without being kept
+     * on the heap.
+     *
+     * @return null if no next instance, else the next instance
+     */
+    @Override
+    public synchronized Instance getNextInstance() {
+        if (iteratorPosition < size) {
+            return peekInstance(iteratorPosition++);
+        }
+        return null;
+    }
+
+    /**
+     * Streams over the instances with a cursor of its own. Unlike
+     * {@link #getNextInstance()}, it does not move the iterator of the cache,
+     * so that several readers can stream over the cache at the same time.
+     * The instances are decoded without being kept on the heap.
+     *
+     * @param consumer
+     *            Consumer of the instances, called without holding the lock
+     *            of the cache
+     */
+    public void forEachInstance(Consumer<Instance> consumer) {
+        for (int id = 0;; id++) {
+            final int current = id;
+            Instance instance = read(() -> current < size ? peekInstance(current) : null);
+            if (instance == null) {
+                return;
+            }
+            consumer.accept(instance);
+        }
+    }
+
+    @Override
+    public ArrayList<Instance> getAllInstances() {
+        return read(() -> {
+            ArrayList<Instance> instances = new ArrayList<>(size);
+            for (int id = 0; id < size; id++) {
+                instances.add(peekInstance(id));
+            }
+            return instances;
+        });
+    }
+
+    @Override
+    protected Map<String, Set<String>> buildValueToUriIndex(String property) {
+        return read(() -> {
+            Map<String, Set<String>> index = new HashMap<>();
+            for (int id = 0; id < size; id++) {
+                Instance instance = peekInstance(id);
+                for (String value : instance.getProperty(property)) {
+                    index.computeIfAbsent(value, k -> new HashSet<>()).add(instance.getUri());
+                }
+            }
+            return toReadOnlyIndex(index);
+        });
+    }
+
+    @Override
+    public ArrayList<String> getAllUris() {
+        return read(() -> {
+            ArrayList<String> result = new ArrayList<>(size);
+            for (int id = 0; id < size; id++) {
+                result.add(getUri(id));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public synchronized void addTriple(String s, String p, String o) {
+        startChange();
+        Instance m = getInstance(s);
+        if (m == null) {
+            register(s);
+            m = new Instance(s);
+            heapInstances.put(s, m);
+        }
+        m.addProperty(p, o);
+        dirty.add(s);
+    }
+
+    @Override
+    public boolean containsInstance(Instance i) {
+        return containsUri(i.getUri());
+    }
+
+    @Override
+    public boolean containsUri(String uri) {
+        return read(() -> heapInstances.containsKey(uri) || find(uri) >= 0);
+    }
+
+    /**
+     * @param uri
+     *            URI to look for
+     * @return The instance with the URI uri if it is in the cache, else null
+     */
+    @Override
+    public Instance getInstance(String uri) {
+        if (readOnly) {
+            return getReadOnlyInstance(uri);
+        }
+        synchronized (this) {
+            Instance instance = heapInstances.get(uri);
+            if (instance == null) {
+                int id = find(uri);
+                if (id < 0) {
+                    return null;
+                }
+                instance = readRecord(id, uri);
+                heapInstances.put(uri, instance);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Looks an instance of a read-only cache up without locking. The
+     * instances on the heap are evicted in the order in which they were read.
+     */
+    private Instance getReadOnlyInstance(String uri) {
+        Instance instance = heapInstances.get(uri);
+        if (instance == null) {
+            int id = find(uri);
+            if (id < 0) {
+                return null;
+            }
+            instance = readRecord(id, uri);
+            Instance previous = heapInstances.putIfAbsent(uri, instance);
+            if (previous != null) {
+                return previous;
+            }
+            heapOrder.add(uri);
+            while (heapInstances.size() > maxHeapInstances) {
+                String eldest = heapOrder.poll();
+                if (eldest == null) {
+                    break;
+                }
+                heapInstances.remove(eldest);
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized void resetIterator() {
+        iteratorPosition = 0;
+    }
+
+    @Override
+    public int size() {
+        return read(() -> size);
+    }
+
+    @Override
+    public ACache getSample(int size) {
+        return read(() -> {
+            ACache c = new MemoryCache();
+            while (c.size() < Math.min(size, this.size)) {
+                c.addInstance(peekInstance((int) Math.floor(Math.random() * this.size)));
+            }
+            return c;
+        });
+    }
+
+    @Override
+    public synchronized void replaceInstance(String uri, Instance a) {
+        startChange();
+        if (find(uri) < 0) {
+            register(uri);
+        }
+        heapInstances.put(uri, a);
+        dirty.add(uri);
+    }
+
+    @Override
+    public Set<String> getAllProperties() {
+        return read(() -> {
+            HashSet<String> props = new HashSet<String>();
+            for (int id = 0; id < size; id++) {
+                props.addAll(peekInstance(id).getAllProperties());
+            }
+            return props;
+        });
+    }
+
+    @Override
+    public ACache addProperty(String sourcePropertyName, String targetPropertyName, String processingChain) {
+        LinkedHashMap<String, Map<String, String>> functions = new LinkedHashMap<>();
+        HashMap<String, String> f1 = new HashMap<>();
+        f1.put(targetPropertyName, processingChain);
+        functions.put(sourcePropertyName, f1);
+        return Preprocessor.applyFunctionsToCache(this, functions, true);
+    }
+
+    /**
+     * Copies the cache into a new temporary file cache.
+     */
+    @Override
+    public FileCache clone() {
+        try {
+            FileCache clone = new FileCache();
+            forEachInstance(instance -> clone.addInstance(instance.copy()));
+            return clone;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot clone file cache " + folder.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Writes all instances that have been added or replaced and the sizes of
+     * the files, so that the cache can be reopened from its folder.
+     */
+    public synchronized void flush() {
+        if (!changed) {
+            return;
+        }
+        for (String uri : dirty) {
+            writeRecord(find(uri), heapInstances.get(uri));
+        }
+        dirty.clear();
+        if (garbage > recordsEnd / 2) {
+            compactRecords();
+        }
+        uris.force();
+        records.force();
+        entries.force();
+        table.force();
+        writeMeta(true);
+        changed = false;
+    }
+
+    /**
+     * Flushes the cache and closes its files.
+     *
+     * @throws IOException
+     *             if the files cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        flush();
+        uris.close();
+        records.close();
+        entries.close();
+        table.close();
+    }
+
+    /**
+     * @return the folder of the cache
+     */
+    public File getFolder() {
+        return folder;
+    }
+
+    @Override
+    public String toString() {
+        return "FileCache(" + folder.getAbsolutePath() + ", " + size() + " instances)";
+    }
+
+    @Override
+    public int hashCode() {
+        return folder.getAbsoluteFile().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof FileCache) {
+            return folder.getAbsoluteFile().equals(((FileCache) obj).folder.getAbsoluteFile());
+        }
+        return false;
+    }
+
+    /**
+     * Reads the meta data of the folder.
+     *
+     * @return false if the folder does not contain a flushed cache of this
+     *         version
+     */
+    private boolean readMeta() throws IOException {
+        File meta = new File(folder, META);
+        if (!meta.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(meta))) {
+            int version = in.readInt();
+            if (version != VERSION || !in.readBoolean()) {
+                logger.warn("Discarding file cache " + folder.getAbsolutePath()
+                        + " since it has another version or was changed without being flushed.");
+                return false;
+            }
+            size = in.readInt();
+            tableCapacity = in.readInt();
+            urisEnd = in.readLong();
+            recordsEnd = in.readLong();
+            garbage = in.readLong();
+            return true;
+        }
+    }
+
+    private void writeMeta(boolean flushed) {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file(META)))) {
+            out.writeInt(VERSION);
+            out.writeBoolean(flushed);
+            out.writeInt(size);
+            out.writeInt(tableCapacity);
+            out.writeLong(urisEnd);
+            out.writeLong(recordsEnd);
+            out.writeLong(garbage);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write meta data of file cache " + folder.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Called before each change of the cache. Marks the cache as not flushed
+     * on the first change.
+     */
+    private void startChange() {
+        if (readOnly) {
+            throw new UnsupportedOperationException(
+                    "File cache " + folder.getAbsolutePath() + " is read-only, clone it to change it.");
+        }
+        invalidateIndexes();
+        if (!changed) {
+            writeMeta(false);
+            changed = true;
+        }
+    }
+
+    /**
+     * Runs a read of the cache. The files of a read-only cache are not
+     * changed after it was opened, so that it is read without locking,
+     * whereas the reads of a writable cache hold its lock.
+     */
+    private <T> T read(Supplier<T> reader) {
+        if (readOnly) {
+            return reader.get();
+        }
+        synchronized (this) {
+            return reader.get();
+        }
+    }
+
+    private File file(String name) {
+        File file = new File(folder, name);
+        if (temporary) {
+            file.deleteOnExit();
+        }
+        return file;
+    }
+
+    private static int hash(String uri) {
+        return StringDictionary.mix(uri.hashCode());
+    }
+
+    private long entry(int id) {
+        return (long) id * ENTRY_SIZE;
+    }
+
+    private String getUri(int id) {
+        return readString(uris, entries.getLong(entry(id)));
+    }
+
+    /**
+     * @return the slot of the table that holds the id of the URI or the empty
+     *         slot where it has to be inserted
+     */
+    private long findSlot(String uri, int hash) {
+        long mask = tableCapacity - 1;
+        long slot = hash & mask;
+        int value;
+        while ((value = table.getInt(slot * Integer.BYTES)) != 0) {
+            int id = value - 1;
+            if (entries.getInt(entry(id) + 2 * Long.BYTES) == hash && getUri(id).equals(uri)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int find(String uri) {
+        return table.getInt(findSlot(uri, hash(uri)) * Integer.BYTES) - 1;
+    }
+
+    private int register(String uri) {
+        int hash = hash(uri);
+        int id = size++;
+        entries.putLong(entry(id), urisEnd);
+        entries.putLong(entry(id) + Long.BYTES, -1);
+        entries.putInt(entry(id) + 2 * Long.BYTES, hash);
+        urisEnd = writeString(uris, urisEnd, uri);
+        table.putInt(findSlot(uri, hash) * Integer.BYTES, id + 1);
+        if ((long) size * 2 > tableCapacity) {
+            resize(tableCapacity * 2);
+        }
+        return id;
+    }
+
+    private void resize(int capacity) {
+        MappedSegments old = table;
+        File oldFile = file(TABLE + tableCapacity);
+        try {
+            table = new MappedSegments(file(TABLE + capacity));
+            table.reserve((long) capacity * Integer.BYTES);
+            tableCapacity = capacity;
+            long mask = capacity - 1;
+            for (int id = 0; id < size; id++) {
+                long slot = entries.getInt(entry(id) + 2 * Long.BYTES) & mask;
+                while (table.getInt(slot * Integer.BYTES) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table.putInt(slot * Integer.BYTES, id + 1);
+            }
+            old.close();
+            Files.delete(oldFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot resize the table of file cache " + folder.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * @return the instance from the heap if it is there, else a decoded copy
+     *         that is not kept on the heap
+     */
+    private Instance peekInstance(int id) {
+        String uri = getUri(id);
+        Instance instance = heapInstances.get(uri);
+        return instance != null ? instance : readRecord(id, uri);
+    }
+
+    private Instance readRecord(int id, String uri) {
+        Instance instance = new Instance(uri);
+        long position = entries.getLong(entry(id) + Long.BYTES);
+        if (position < 0) {
+            return instance;
+        }
+        int propertyCount = records.getInt(position);
+        position += Integer.BYTES;
+        for (int p = 0; p < propertyCount; p++) {
+            String property = readString(records, position);
+            position += Integer.BYTES + records.getInt(position);
+            int valueCount = records.getInt(position);
+            position += Integer.BYTES;
+            TreeSet<String> values = new TreeSet<>();
+            for (int v = 0; v < valueCount; v++) {
+                values.add(readString(records, position));
+                position += Integer.BYTES + records.getInt(position);
+            }
+            instance.addProperty(property, values);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the position after the record at a position
+     */
+    private long skipRecord(long position) {
+        int propertyCount = records.getInt(position);
+        position += Integer.BYTES;
+        for (int p = 0; p < propertyCount; p++) {
+            position += Integer.BYTES + records.getInt(position);
+            int valueCount = records.getInt(position);
+            position += Integer.BYTES;
+            for (int v = 0; v < valueCount; v++) {
+                position += Integer.BYTES + records.getInt(position);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Rewrites the records of the instances into a new file without the
+     * records of replaced instances.
+     */
+    private void compactRecords() {
+        File compacted = file(RECORDS + ".compacted");
+        long end = 0;
+        try {
+            try (MappedSegments target = new MappedSegments(compacted)) {
+                for (int id = 0; id < size; id++) {
+                    long position = entries.getLong(entry(id) + Long.BYTES);
+                    if (position >= 0) {
+                        byte[] record = new byte[(int) (skipRecord(position) - position)];
+                        records.get(position, record);
+                        target.put(end, record);
+                        entries.putLong(entry(id) + Long.BYTES, end);
+                        end += record.length;
+                    }
+                }
+            }
+            records.close();
+            Files.move(compacted.toPath(), file(RECORDS).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            records = new MappedSegments(file(RECORDS));
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot compact the records of file cache " + folder.getAbsolutePath(), e);
+        }
+        recordsEnd = end;
+        garbage = 0;
+    }
+
+    private void writeRecord(int id, Instance instance) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(instance.getAllProperties().size());
+            for (String property : instance.getAllProperties()) {
+                writeString(out, property);
+                TreeSet<String> values = instance.getProperty(property);
+                out.writeInt(values.size());
+                for (String value : values) {
+                    writeString(out, value);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        long previous = entries.getLong(entry(id) + Long.BYTES);
+        if (previous >= 0) {
+            garbage += skipRecord(previous) - previous;
+        }
+        records.put(recordsEnd, record);
+        entries.putLong(entry(id) + Long.BYTES, recordsEnd);
+        recordsEnd += record.length;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static long writeString(MappedSegments segments, long position, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        segments.putInt(position, bytes.length);
+        segments.put(position + Integer.BYTES, bytes);
+        return position + Integer.BYTES + bytes.length;
+    }
 
+    private static String readString(MappedSegments segments, long position) {
+        byte[] bytes = new byte[segments.getInt(position)];
+        segments.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 }
@@ -28,6 +28,7 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This cache implements a hybrid between memory and file cache. It generates a
@@ -38,7 +39,9 @@ import java.util.TreeMap;
  * HTTP latency, offline processing, etc.). Else, it retrieves the data,
  * generates a hash and caches it on the hard drive. Enhancing it with folders:
  * specify the folder, where the application has permissions to read and write
- * files.
+ * files. The content is stored in the binary format of {@link MappedCacheFile}.
+ * A cache loaded from a file only decodes the instances that are accessed
+ * until it is modified or iterated over.
  *
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
  * @author Lyko
@@ -52,6 +55,10 @@ public class HybridCache extends MemoryCache implements Serializable {
     protected TreeMap<String, Instance> instanceMap;
     // Iterator for getting next instance
     protected Iterator<Instance> instanceIterator;
+    // file the instances are loaded from on demand, null once all are loaded
+    private transient volatile MappedCacheFile mappedFile = null;
+    // instances decoded from mappedFile, kept so that changes to them persist
+    private transient ConcurrentHashMap<String, Instance> loadedInstances = null;
 
     // pointing to the parent folder of the "cache" folder
     private File folder = new File("");
@@ -87,6 +94,13 @@ public class HybridCache extends MemoryCache implements Serializable {
         String parentPath = path.substring(0, path.lastIndexOf("cache"));
         File parent = new File(parentPath);
 
+        if (MappedCacheFile.isCacheFile(file)) {
+            HybridCache cache = new HybridCache(parent);
+            cache.loadedInstances = new ConcurrentHashMap<>();
+            cache.mappedFile = MappedCacheFile.open(file);
+            return cache;
+        }
+        // caches written by former versions with Java serialization
         FileInputStream in = new FileInputStream(file);
         ObjectInputStream deSerializer = new ObjectInputStream(in);
         HybridCache cache;
@@ -214,6 +228,7 @@ public class HybridCache extends MemoryCache implements Serializable {
      * @return null if no next instance, else the next instance
      */
     public Instance getNextInstance() {
+        loadAllInstances();
         if (instanceIterator == null) {
             instanceIterator = instanceMap.values().iterator();
         }
@@ -231,23 +246,36 @@ public class HybridCache extends MemoryCache implements Serializable {
      * @return ArrayList containing all instances
      */
     public ArrayList<Instance> getAllInstances() {
+        loadAllInstances();
         return new ArrayList<Instance>(instanceMap.values());
     }
 
 
     public void addInstance(Instance i) {
+        invalidateIndexes();
+        loadAllInstances();
         if (!instanceMap.containsKey(i.getUri())) {
             instanceMap.put(i.getUri(), i);
         }
     }
 
+    @Override
+    public void replaceInstance(String uri, Instance a) {
+        invalidateIndexes();
+        loadAllInstances();
+        instanceMap.put(uri, a);
+    }
+
     /**
      * @param uri
      *            URI to look for
      * @return The instance with the URI uri if it is in the cache, else null
      */
     public Instance getInstance(String uri) {
-        if (instanceMap.containsKey(uri)) {
+        MappedCacheFile file = mappedFile;
+        if (file != null) {
+            return loadInstance(file, uri);
+        } else if (instanceMap.containsKey(uri)) {
             return instanceMap.get(uri);
         } else {
             return null;
@@ -258,6 +286,10 @@ public class HybridCache extends MemoryCache implements Serializable {
      * @return The size of the cache
      */
     public int size() {
+        MappedCacheFile file = mappedFile;
+        if (file != null) {
+            return file.size();
+        }
         return instanceMap.size();
     }
 
@@ -272,6 +304,8 @@ public class HybridCache extends MemoryCache implements Serializable {
      *            The value of the property of p for the entity s
      */
     public void addTriple(String s, String p, String o) {
+        invalidateIndexes();
+        loadAllInstances();
         if (instanceMap.containsKey(s)) {
             Instance m = instanceMap.get(s);
             m.addProperty(p, o);
@@ -289,19 +323,33 @@ public class HybridCache extends MemoryCache implements Serializable {
      *         false
      */
     public boolean containsUri(String uri) {
+        MappedCacheFile file = mappedFile;
+        if (file != null) {
+            return file.indexOf(uri) >= 0;
+        }
         return instanceMap.containsKey(uri.toString());
     }
 
     public void resetIterator() {
+        loadAllInstances();
         instanceIterator = instanceMap.values().iterator();
     }
 
     @Override
     public String toString() {
+        loadAllInstances();
         return instanceMap.toString();
     }
 
     public ArrayList<String> getAllUris() {
+        MappedCacheFile file = mappedFile;
+        if (file != null) {
+            ArrayList<String> uris = new ArrayList<String>(file.size());
+            for (int i = 0; i < file.size(); i++) {
+                uris.add(file.getUri(i));
+            }
+            return uris;
+        }
         return new ArrayList<String>(instanceMap.keySet());
     }
 
@@ -311,7 +359,7 @@ public class HybridCache extends MemoryCache implements Serializable {
      * @return true if the URI of the instance is found in the cache
      */
     public boolean containsInstance(Instance i) {
-        return instanceMap.containsKey(i.getUri());
+        return containsUri(i.getUri());
     }
 
     /**
@@ -322,20 +370,71 @@ public class HybridCache extends MemoryCache implements Serializable {
      *            File wherein the content of the cache is to be serialized
      */
     public void saveToFile(File file) {
-        FileOutputStream out;
         logger.info("Serializing " + size() + " objects to " + file.getAbsolutePath());
-
+        loadAllInstances();
         try {
-            out = new FileOutputStream(file);
-            ObjectOutputStream serializer = new ObjectOutputStream(out);
-            serializer.writeObject(this);
-            out.close();
+            MappedCacheFile.write(instanceMap.values(), file);
         } catch (Exception e) {
             e.printStackTrace();
             file.delete();
         }
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        loadAllInstances();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Decodes an instance from the file the cache was loaded from and keeps
+     * it in memory. Instances that were decoded before are returned without
+     * locking.
+     *
+     * @param file
+     *            file the cache was loaded from
+     * @param uri
+     *            URI of the instance
+     * @return the instance or null if the file does not contain it
+     */
+    private Instance loadInstance(MappedCacheFile file, String uri) {
+        Instance instance = loadedInstances.get(uri);
+        if (instance == null) {
+            int index = file.indexOf(uri);
+            if (index < 0) {
+                return null;
+            }
+            instance = file.getInstance(index);
+            Instance loaded = loadedInstances.putIfAbsent(uri, instance);
+            if (loaded != null) {
+                instance = loaded;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Decodes all instances of the file the cache was loaded from that have
+     * not been accessed yet. Must be called before the cache is modified or
+     * iterated over.
+     */
+    private void loadAllInstances() {
+        if (mappedFile == null) {
+            return;
+        }
+        synchronized (this) {
+            MappedCacheFile file = mappedFile;
+            if (file != null) {
+                for (int i = 0; i < file.size(); i++) {
+                    String uri = file.getUri(i);
+                    Instance instance = loadedInstances.get(uri);
+                    instanceMap.put(uri, instance != null ? instance : file.getInstance(i));
+                }
+                mappedFile = null;
+                loadedInstances.clear();
+            }
+        }
+    }
+
     /**
      * Returns the file pointing to the parent folder of cache.
      *
@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -59,6 +60,21 @@ public class Instance implements Comparable<Object>, Serializable {
         distance = -1;
     }
 
+    /**
+     * Constructor for subclasses that keep their properties elsewhere and
+     * override all property accessors.
+     *
+     * @param _uri
+     *         URI of the instance
+     * @param _properties
+     *         property map of the instance, may be null
+     */
+    protected Instance(String _uri, HashMap<String, TreeSet<String>> _properties) {
+        uri = _uri;
+        properties = _properties;
+        distance = -1;
+    }
+
     /**
      * Add a new (property, value) pair
      *
@@ -132,10 +148,21 @@ public class Instance implements Comparable<Object>, Serializable {
         return properties.keySet();
     }
 
+    /**
+     * Returns the properties of this instance as a map from property URIs to
+     * values. Used for comparing and printing instances.
+     *
+     * @return map of property URIs to values
+     */
+    protected Map<String, TreeSet<String>> getPropertyMap() {
+        return properties;
+    }
+
     @Override
     public String toString() {
-        String s = uri;
+        String s = getUri();
         String propUri;
+        Map<String, TreeSet<String>> properties = getPropertyMap();
         Iterator<String> iter = properties.keySet().iterator();
         while (iter.hasNext()) {
             propUri = iter.next();
@@ -153,7 +180,7 @@ public class Instance implements Comparable<Object>, Serializable {
      * smaller than the distance from the exemplar to o.
      */
     public int compareTo(Object o) {
-        if (!o.getClass().equals(Instance.class))
+        if (!(o instanceof Instance))
             return -1;
         double diff = distance - ((Instance) o).distance;
         if (diff < 0) {
@@ -161,7 +188,7 @@ public class Instance implements Comparable<Object>, Serializable {
         } else if (diff > 0) {
             return -1;
         } else {
-            return ((Instance) o).uri.compareTo(uri);
+            return ((Instance) o).getUri().compareTo(getUri());
         }
     }
 
@@ -196,8 +223,9 @@ public class Instance implements Comparable<Object>, Serializable {
         long temp;
         temp = Double.doubleToLongBits(distance);
         result = prime * result + (int) (temp ^ (temp >>> 32));
+        Map<String, TreeSet<String>> properties = getPropertyMap();
         result = prime * result + ((properties == null) ? 0 : properties.hashCode());
-        result = prime * result + ((uri == null) ? 0 : uri.hashCode());
+        result = prime * result + ((getUri() == null) ? 0 : getUri().hashCode());
         return result;
     }
 
@@ -207,20 +235,22 @@ public class Instance implements Comparable<Object>, Serializable {
             return true;
         if (obj == null)
             return false;
-        if (getClass() != obj.getClass())
+        if (!(obj instanceof Instance))
             return false;
         Instance other = (Instance) obj;
         if (Double.doubleToLongBits(distance) != Double.doubleToLongBits(other.distance))
             return false;
-        if (properties == null) {
-            if (other.properties != null)
+        if (getUri() == null) {
+            if (other.getUri() != null)
                 return false;
-        } else if (!properties.equals(other.properties))
+        } else if (!getUri().equals(other.getUri()))
             return false;
-        if (uri == null) {
-            if (other.uri != null)
+        Map<String, TreeSet<String>> properties = getPropertyMap();
+        Map<String, TreeSet<String>> otherProperties = other.getPropertyMap();
+        if (properties == null) {
+            if (otherProperties != null)
                 return false;
-        } else if (!uri.equals(other.uri))
+        } else if (!properties.equals(otherProperties))
             return false;
         return true;
     }
@@ -0,0 +1,320 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Versioned binary file format for caches. URIs, property names and values are
+ * dictionary encoded, i.e., each distinct string is stored once and instances
+ * only refer to string ids. The layout of a file is
+ *
+ * <pre>
+ * header:   magic (8 bytes), version (int), #strings (int), #instances (int)
+ * strings:  UTF-8 bytes of all strings, concatenated
+ * records:  per instance: #properties (int), then per property:
+ *           property id (int), #values (int), value ids (int[])
+ * offsets:  start of each string in the string section (long[#strings + 1])
+ * index:    per instance, sorted by URI: URI id (int), record position (long)
+ * footer:   position of the offsets (long), position of the index (long)
+ * </pre>
+ *
+ * The file is written sequentially and read through memory mapped buffers, so
+ * that opening a file only reads its header and footer. Strings and instances
+ * are decoded on demand and not kept, hence reading needs no locks and the
+ * memory used does not grow with the number of strings read.
+ */
+public class MappedCacheFile {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = "LIMESBC\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 3 * Integer.BYTES;
+    private static final int FOOTER_SIZE = 2 * Long.BYTES;
+    private static final int INDEX_ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+    /**
+     * Number of bytes each chunk shares with the next one, so that numbers
+     * never cross chunk boundaries.
+     */
+    private static final int CHUNK_OVERLAP = Long.BYTES;
+
+    private final MappedByteBuffer[] chunks;
+    private final int stringCount;
+    private final int instanceCount;
+    private final long offsetsPosition;
+    private final long indexPosition;
+
+    private MappedCacheFile(MappedByteBuffer[] chunks, int stringCount, int instanceCount, long offsetsPosition,
+                            long indexPosition) {
+        this.chunks = chunks;
+        this.stringCount = stringCount;
+        this.instanceCount = instanceCount;
+        this.offsetsPosition = offsetsPosition;
+        this.indexPosition = indexPosition;
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of the format.
+     *
+     * @param file
+     *            File to check
+     * @return true if the file is a binary cache file
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static boolean isCacheFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < MAGIC.length) {
+                return false;
+            }
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            return Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    /**
+     * Writes instances to a file. The instances have to be sorted by URI,
+     * e.g., the values of a TreeMap from URIs to instances.
+     *
+     * @param instances
+     *            Instances to write, sorted by URI
+     * @param file
+     *            Output file
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void write(Collection<Instance> instances, File file) throws IOException {
+        HashMap<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Instance instance : instances) {
+            encode(instance.getUri(), ids, strings);
+            for (String property : instance.getAllProperties()) {
+                encode(property, ids, strings);
+                for (String value : instance.getProperty(property)) {
+                    encode(value, ids, strings);
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            out.writeInt(instances.size());
+            long position = HEADER_SIZE;
+            long[] offsets = new long[strings.size() + 1];
+            for (int i = 0; i < strings.size(); i++) {
+                byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                offsets[i] = position;
+                out.write(bytes);
+                position += bytes.length;
+            }
+            offsets[strings.size()] = position;
+            long[] records = new long[instances.size()];
+            int i = 0;
+            for (Instance instance : instances) {
+                records[i++] = position;
+                out.writeInt(instance.getAllProperties().size());
+                position += Integer.BYTES;
+                for (String property : instance.getAllProperties()) {
+                    TreeSet<String> values = instance.getProperty(property);
+                    out.writeInt(ids.get(property));
+                    out.writeInt(values.size());
+                    for (String value : values) {
+                        out.writeInt(ids.get(value));
+                    }
+                    position += (2L + values.size()) * Integer.BYTES;
+                }
+            }
+            long offsetsPosition = position;
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            long indexPosition = offsetsPosition + (long) offsets.length * Long.BYTES;
+            i = 0;
+            for (Instance instance : instances) {
+                out.writeInt(ids.get(instance.getUri()));
+                out.writeLong(records[i++]);
+            }
+            out.writeLong(offsetsPosition);
+            out.writeLong(indexPosition);
+        }
+    }
+
+    /**
+     * Opens a binary cache file. Only the header and the footer are read.
+     *
+     * @param file
+     *            File to open
+     * @return the opened file
+     * @throws IOException
+     *             if the file cannot be read, is not a binary cache file or
+     *             has another version
+     */
+    public static MappedCacheFile open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("File " + file + " is too small to be a cache file.");
+            }
+            int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, (1L << CHUNK_BITS) + CHUNK_OVERLAP));
+            }
+            byte[] magic = new byte[MAGIC.length];
+            chunks[0].duplicate().get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("File " + file + " is not a cache file.");
+            }
+            int version = chunks[0].getInt(MAGIC.length);
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of cache file " + file + ".");
+            }
+            int stringCount = chunks[0].getInt(MAGIC.length + Integer.BYTES);
+            int instanceCount = chunks[0].getInt(MAGIC.length + 2 * Integer.BYTES);
+            return new MappedCacheFile(chunks, stringCount, instanceCount, getLong(chunks, size - FOOTER_SIZE),
+                    getLong(chunks, size - Long.BYTES));
+        }
+    }
+
+    /**
+     * @return the number of instances in the file
+     */
+    public int size() {
+        return instanceCount;
+    }
+
+    /**
+     * @param index
+     *            index of an instance, between 0 and size() - 1
+     * @return the URI of the instance
+     */
+    public String getUri(int index) {
+        return getString(getInt(indexPosition + (long) index * INDEX_ENTRY_SIZE));
+    }
+
+    /**
+     * Looks up the index of a URI by binary search over the index.
+     *
+     * @param uri
+     *            URI to look for
+     * @return the index of the instance with this URI or -1 if the file does
+     *         not contain it
+     */
+    public int indexOf(String uri) {
+        int low = 0, high = instanceCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = getUri(middle).compareTo(uri);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes an instance.
+     *
+     * @param index
+     *            index of an instance, between 0 and size() - 1
+     * @return the instance
+     */
+    public Instance getInstance(int index) {
+        long entry = indexPosition + (long) index * INDEX_ENTRY_SIZE;
+        Instance instance = new Instance(getString(getInt(entry)));
+        long position = getLong(entry + Integer.BYTES);
+        int propertyCount = getInt(position);
+        position += Integer.BYTES;
+        for (int p = 0; p < propertyCount; p++) {
+            String property = getString(getInt(position));
+            int valueCount = getInt(position + Integer.BYTES);
+            position += 2 * Integer.BYTES;
+            TreeSet<String> values = new TreeSet<>();
+            for (int v = 0; v < valueCount; v++) {
+                values.add(getString(getInt(position)));
+                position += Integer.BYTES;
+            }
+            instance.addProperty(property, values);
+        }
+        return instance;
+    }
+
+    private static void encode(String s, HashMap<String, Integer> ids, List<String> strings) {
+        if (!ids.containsKey(s)) {
+            ids.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    private String getString(int id) {
+        long start = getLong(offsetsPosition + (long) id * Long.BYTES);
+        long end = getLong(offsetsPosition + (long) (id + 1) * Long.BYTES);
+        byte[] bytes = new byte[(int) (end - start)];
+        int read = 0;
+        while (read < bytes.length) {
+            long position = start + read;
+            ByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)].duplicate();
+            chunk.position((int) (position & CHUNK_MASK));
+            int length = Math.min(bytes.length - read, chunk.remaining());
+            chunk.get(bytes, read, length);
+            read += length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getInt(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    private long getLong(long position) {
+        return getLong(chunks, position);
+    }
+
+    private static long getLong(MappedByteBuffer[] chunks, long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file that is read and written through memory mapped segments of 128MB,
+ * which allows to address files larger than 2GB with long positions. The
+ * segments of a writable file are mapped on first access, with twice the size
+ * that is accessed, so that the file grows with its content rather than by
+ * whole segments. A read-only file is mapped entirely when it is opened and is
+ * never changed afterwards, so that it can be read by several threads without
+ * locking. Numbers that cross the boundary of two segments are read and
+ * written byte by byte.
+ */
+class MappedSegments implements Closeable {
+
+    private static final int SEGMENT_BITS = 27;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final long MIN_MAPPING_SIZE = 1L << 16;
+
+    private final FileChannel channel;
+    private final boolean readOnly;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    MappedSegments(File file) throws IOException {
+        this(file, false);
+    }
+
+    MappedSegments(File file, boolean readOnly) throws IOException {
+        this.readOnly = readOnly;
+        if (readOnly) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            for (int index = 0; (long) index << SEGMENT_BITS < channel.size(); index++) {
+                segments.add(map(index, 0));
+            }
+        } else {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * @return the segment of the position, mapped at least up to position +
+     *         length unless the file is read-only
+     */
+    private MappedByteBuffer segment(long position, int length) {
+        int index = (int) (position >>> SEGMENT_BITS);
+        if (readOnly) {
+            return segments.get(index);
+        }
+        while (segments.size() <= index) {
+            segments.add(null);
+        }
+        MappedByteBuffer segment = segments.get(index);
+        long end = (position & SEGMENT_MASK) + length;
+        if (segment == null || (!readOnly && segment.capacity() < end)) {
+            segment = map(index, end);
+            segments.set(index, segment);
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer map(int index, long end) {
+        long start = (long) index << SEGMENT_BITS;
+        try {
+            if (readOnly) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.max(0, Math.min(SEGMENT_SIZE, channel.size() - start)));
+            }
+            long size = Math.max(MIN_MAPPING_SIZE, Long.highestOneBit(end - 1) << 1);
+            return channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(SEGMENT_SIZE, size));
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot map segment " + index + " of the cache file.", e);
+        }
+    }
+
+    private static boolean fits(long position, int length) {
+        return (position & SEGMENT_MASK) + length <= SEGMENT_SIZE;
+    }
+
+    /**
+     * Extends the file to a length, e.g., to make sure that a table can be
+     * read entirely once the file is opened read-only.
+     *
+     * @param length
+     *            minimal length of the file
+     */
+    void reserve(long length) {
+        if (length > 0) {
+            segment(length - 1, 1);
+        }
+    }
+
+    int getInt(long position) {
+        if (fits(position, Integer.BYTES)) {
+            return segment(position, Integer.BYTES).getInt((int) (position & SEGMENT_MASK));
+        }
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    long getLong(long position) {
+        if (fits(position, Long.BYTES)) {
+            return segment(position, Long.BYTES).getLong((int) (position & SEGMENT_MASK));
+        }
+        return ((long) getInt(position) << 32) | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+    }
+
+    void putInt(long position, int value) {
+        if (fits(position, Integer.BYTES)) {
+            segment(position, Integer.BYTES).putInt((int) (position & SEGMENT_MASK), value);
+            return;
+        }
+        for (int i = 0; i < Integer.BYTES; i++) {
+            putByte(position + i, (byte) (value >>> (8 * (Integer.BYTES - 1 - i))));
+        }
+    }
+
+    void putLong(long position, long value) {
+        if (fits(position, Long.BYTES)) {
+            segment(position, Long.BYTES).putLong((int) (position & SEGMENT_MASK), value);
+            return;
+        }
+        putInt(position, (int) (value >>> 32));
+        putInt(position + Integer.BYTES, (int) value);
+    }
+
+    void get(long position, byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            int offset = (int) ((position + done) & SEGMENT_MASK);
+            int length = (int) Math.min(bytes.length - done, SEGMENT_SIZE - offset);
+            ByteBuffer view = segment(position + done, length).duplicate();
+            view.position(offset);
+            view.get(bytes, done, length);
+            done += length;
+        }
+    }
+
+    void put(long position, byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            int offset = (int) ((position + done) & SEGMENT_MASK);
+            int length = (int) Math.min(bytes.length - done, SEGMENT_SIZE - offset);
+            ByteBuffer view = segment(position + done, length).duplicate();
+            view.position(offset);
+            view.put(bytes, done, length);
+            done += length;
+        }
+    }
+
+    private byte getByte(long position) {
+        return segment(position, 1).get((int) (position & SEGMENT_MASK));
+    }
+
+    private void putByte(long position, byte value) {
+        segment(position, 1).put((int) (position & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Writes the content of all mapped segments to the file.
+     */
+    void force() {
+        if (readOnly) {
+            return;
+        }
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        segments.clear();
+        channel.close();
+    }
+}
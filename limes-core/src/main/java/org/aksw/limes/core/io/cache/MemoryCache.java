@@ -18,8 +18,6 @@
 package org.aksw.limes.core.io.cache;
 
 import org.aksw.limes.core.io.preprocessing.Preprocessor;
-import org.apache.jena.rdf.model.*;
-import org.apache.jena.vocabulary.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,6 +73,7 @@ public class MemoryCache extends ACache {
     }
 
     public void addInstance(Instance i) {
+        invalidateIndexes();
         if (instanceMap.containsKey(i.getUri())) {
             // Instance m = instanceMap.get(i.getUri());
         } else {
@@ -116,6 +115,7 @@ public class MemoryCache extends ACache {
      */
     @Override
     public void addTriple(String s, String p, String o) {
+        invalidateIndexes();
         if (instanceMap.containsKey(s)) {
             Instance m = instanceMap.get(s);
             m.addProperty(p, o);
@@ -200,47 +200,13 @@ public class MemoryCache extends ACache {
     }
 
     public void replaceInstance(String uri, Instance a) {
+        invalidateIndexes();
         if (instanceMap.containsKey(uri)) {
             instanceMap.remove(uri);
         }
         instanceMap.put(uri, a);
     }
 
-    public Model parseCSVtoRDFModel(String baseURI, String IDbaseURI, String rdfType) {
-        if (baseURI.length() > 0 && !(baseURI.endsWith("#") || baseURI.endsWith("/"))) {
-            baseURI += "#";
-        }
-        Model model = ModelFactory.createDefaultModel();
-        // 2nd create Properties
-        Resource r_rdfType = model.createResource(baseURI + rdfType);
-        Set<String> props = getAllProperties();
-        Map<String, Property> map = new HashMap<String, Property>();
-        for (String prop : props) {
-            map.put(prop, model.createProperty(baseURI + prop));
-        }
-        Instance i = getNextInstance();
-        while (i != null) {
-
-            String uri = IDbaseURI + i.getUri();
-            // create resource with id
-            Resource r = model.createResource(uri);
-            Statement typeStmt = model.createStatement(r, RDF.type, r_rdfType);
-            model.add(typeStmt);
-            logger.debug("Created statement: " + typeStmt);
-            props = i.getAllProperties();
-            for (String prop : props) {
-                for (String value : i.getProperty(prop)) {
-                    Literal lit = model.createLiteral(value);
-                    Statement stmt = model.createStatement(r, map.get(prop), lit);
-                    logger.debug("Created statement: " + stmt);
-                    model.add(stmt);
-                }
-            }
-            i = getNextInstance();
-        }
-        return model;
-    }
-
     /**
      * Ignores instanceIterator since there is no sane way to test the equality of iterators 
      */
@@ -0,0 +1,183 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * The values of one property of a {@link ColumnarCache} in compressed sparse
+ * row layout: the values of the entity with id <code>e</code> are the value
+ * ids <code>getValueIds()[getOffsets()[e]]</code> up to (excluding)
+ * <code>getValueIds()[getOffsets()[e + 1]]</code>. Entities with an id of at
+ * least {@link #getEntityCount()} have no value. The value ids of an entity
+ * are sorted and free of duplicates.
+ * <p>
+ * Columns are immutable, the arrays returned by the getters must not be
+ * modified. Triples added to the cache are buffered as (entity id, value id)
+ * pairs and merged into a new column when the cache is compacted.
+ */
+public class PropertyColumn {
+
+    private static final int[] EMPTY = new int[0];
+    static final PropertyColumn EMPTY_COLUMN = new PropertyColumn(new int[]{0}, EMPTY);
+
+    private final int[] offsets;
+    private final int[] valueIds;
+
+    PropertyColumn(int[] offsets, int[] valueIds) {
+        this.offsets = offsets;
+        this.valueIds = valueIds;
+    }
+
+    /**
+     * @return offsets of the rows of the entities, of length
+     *         {@link #getEntityCount()} + 1
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * @return value ids of all rows
+     */
+    public int[] getValueIds() {
+        return valueIds;
+    }
+
+    /**
+     * @return number of entities covered by the rows of this column
+     */
+    public int getEntityCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return total number of values in this column
+     */
+    public int getValueCount() {
+        return valueIds.length;
+    }
+
+    /**
+     * @param entity
+     *            entity id
+     * @return true if the entity has at least one value for this property
+     */
+    public boolean hasValues(int entity) {
+        return entity < offsets.length - 1 && offsets[entity] < offsets[entity + 1];
+    }
+
+    /**
+     * @param entity
+     *            entity id
+     * @return the value ids of the entity for this property
+     */
+    public int[] getValueIds(int entity) {
+        if (entity >= offsets.length - 1) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(valueIds, offsets[entity], offsets[entity + 1]);
+    }
+
+    /**
+     * Merges pending (entity id, value id) pairs and replaced rows into the
+     * rows of this column.
+     *
+     * @param entityCount
+     *            number of entities of the cache
+     * @param pendingEntities
+     *            entity ids of the pending pairs
+     * @param pendingValues
+     *            value ids of the pending pairs
+     * @param pendingSize
+     *            number of pending pairs
+     * @param replaced
+     *            entities whose rows are replaced, pending pairs of these
+     *            entities are dropped
+     * @param replacements
+     *            the new value ids of the replaced entities, null or missing
+     *            entries stand for an empty row
+     * @return the merged column
+     */
+    PropertyColumn merge(int entityCount, int[] pendingEntities, int[] pendingValues, int pendingSize,
+                         BitSet replaced, Map<Integer, int[]> replacements) {
+        int[] oldOffsets = offsets;
+        int[] oldValues = valueIds;
+        int oldCount = oldOffsets.length - 1;
+        int[] counts = new int[entityCount + 1];
+        for (int e = 0; e < oldCount; e++) {
+            if (!replaced.get(e)) {
+                counts[e + 1] = oldOffsets[e + 1] - oldOffsets[e];
+            }
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            if (!replaced.get(pendingEntities[i])) {
+                counts[pendingEntities[i] + 1]++;
+            }
+        }
+        for (Map.Entry<Integer, int[]> entry : replacements.entrySet()) {
+            if (entry.getValue() != null) {
+                counts[entry.getKey() + 1] += entry.getValue().length;
+            }
+        }
+        for (int e = 0; e < entityCount; e++) {
+            counts[e + 1] += counts[e];
+        }
+        int[] fill = Arrays.copyOf(counts, entityCount);
+        int[] values = new int[counts[entityCount]];
+        for (int e = 0; e < oldCount; e++) {
+            if (!replaced.get(e)) {
+                int length = oldOffsets[e + 1] - oldOffsets[e];
+                System.arraycopy(oldValues, oldOffsets[e], values, fill[e], length);
+                fill[e] += length;
+            }
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            int e = pendingEntities[i];
+            if (!replaced.get(e)) {
+                values[fill[e]++] = pendingValues[i];
+            }
+        }
+        for (Map.Entry<Integer, int[]> entry : replacements.entrySet()) {
+            if (entry.getValue() != null) {
+                int e = entry.getKey();
+                System.arraycopy(entry.getValue(), 0, values, fill[e], entry.getValue().length);
+                fill[e] += entry.getValue().length;
+            }
+        }
+        // sort the rows and drop duplicate values
+        int[] newOffsets = new int[entityCount + 1];
+        int size = 0;
+        for (int e = 0; e < entityCount; e++) {
+            int from = counts[e], to = counts[e + 1];
+            newOffsets[e] = size;
+            if (to - from > 1) {
+                Arrays.sort(values, from, to);
+            }
+            for (int i = from; i < to; i++) {
+                if (i == from || values[i] != values[i - 1]) {
+                    values[size++] = values[i];
+                }
+            }
+        }
+        newOffsets[entityCount] = size;
+        return new PropertyColumn(newOffsets, size == values.length ? values : Arrays.copyOf(values, size));
+    }
+}
@@ -59,6 +59,9 @@ public class Configuration implements IConfiguration {
     protected String executionEngine = DEFAULT;
     protected long optimizationTime = 0l;
     protected double expectedSelectivity = 1.0d;
+    // number of threads of the shared compute pool, 0 for the number of
+    // available processors
+    protected int numberOfThreads = 0;
 
     protected int granularity = 2;
 
@@ -130,7 +133,8 @@ public class Configuration implements IConfiguration {
         return new HashSet<String>(Arrays.asList("sourceInfo", "targetInfo", "metricExpression", "acceptanceRelation",
                 "verificationRelation", "acceptanceThreshold", "acceptanceFile", "verificationThreshold",
                 "verificationFile", "exemplars", "prefixes", "outputFormat", "executionPlan", "granularity",
-                "recallRegulator", "recallThreshold", "optimizationTime", "expectedSelectivity"));
+                "recallRegulator", "recallThreshold", "optimizationTime", "expectedSelectivity",
+                "numberOfThreads"));
     }
 
     public int getGranularity() {
@@ -317,6 +321,14 @@ public class Configuration implements IConfiguration {
         return this.expectedSelectivity;
     }
 
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public int getNumberOfThreads() {
+        return this.numberOfThreads;
+    }
+
     public String getMlTrainingDataFile() {
         return mlTrainingDataFile;
     }
@@ -330,7 +342,8 @@ public class Configuration implements IConfiguration {
                 + verificationFile + ", prefixes=" + prefixes + ", outputFormat=" + outputFormat
                 + ", executionRewriter=" + executionRewriter + ", executionPlanner=" + executionPlanner
                 + ", executionEngine=" + executionEngine + ", optimization time=" + optimizationTime
-                + ", expected selectivity=" + expectedSelectivity + ", granularity=" + granularity
+                + ", expected selectivity=" + expectedSelectivity + ", number of threads=" + numberOfThreads
+                + ", granularity=" + granularity
                 + ", mlAlgorithmName=" + mlAlgorithmName + ", mlParameters=" + mlAlgorithmParameters
                 + ", mlImplementationType=" + mlImplementationType + ", mlTrainingDataFile=" + mlTrainingDataFile
                 + ", mlPseudoFMeasure=" + mlPseudoFMeasure + "]";
@@ -367,6 +380,7 @@ public class Configuration implements IConfiguration {
         result = prime * result + (int) (temp ^ (temp >>> 32));
         temp = Double.doubleToLongBits(this.expectedSelectivity);
         result = prime * result + (int) (temp ^ (temp >>> 32));
+        result = prime * result + numberOfThreads;
         return result;
     }
 
@@ -468,6 +482,8 @@ public class Configuration implements IConfiguration {
             return false;
         if (Double.doubleToLongBits(expectedSelectivity) != Double.doubleToLongBits(other.expectedSelectivity))
             return false;
+        if (numberOfThreads != other.numberOfThreads)
+            return false;
         return true;
     }
 
@@ -36,6 +36,7 @@ import java.util.Map.Entry;
 public class KBInfo implements Serializable {
 
     private static final String DEFAULT_QUERY_TYPE = "sparql";
+    private static final String DEFAULT_CACHE_TYPE = "hybrid";
 
     private static final long serialVersionUID = 7915400434442160847L;
 
@@ -52,6 +53,7 @@ public class KBInfo implements Serializable {
     protected String type;
     protected int maxoffset;
     protected int minoffset;
+    protected String cache;
 
     /**
      * Constructor
@@ -69,6 +71,7 @@ public class KBInfo implements Serializable {
         type = DEFAULT_QUERY_TYPE;    //default value
         maxoffset  = -1;
         minoffset = -1;
+        cache = DEFAULT_CACHE_TYPE;
     }
 
     /**
@@ -95,6 +98,7 @@ public class KBInfo implements Serializable {
         this.prefixes = prefixes;
         this.pageSize = pageSize;
         this.type = type;
+        this.cache = DEFAULT_CACHE_TYPE;
     }
 
     public KBInfo(String id, String endpoint, String graph, String var,
@@ -223,6 +227,18 @@ public class KBInfo implements Serializable {
         return minoffset;
     }
 
+    /**
+     * @return the type of cache the data is loaded into, i.e., "hybrid" or
+     *         "file"
+     */
+    public String getCache() {
+        return cache;
+    }
+
+    public void setCache(String cache) {
+        this.cache = cache;
+    }
+
     /**
      * @return String representation of knowledge base info
      */
@@ -241,6 +257,7 @@ public class KBInfo implements Serializable {
         s = s + "Type: " + type + "\n";
         s = s + "MinOffset: " + minoffset + "\n";
         s = s + "MaxOffset: " + maxoffset + "\n";
+        s = s + "Cache: " + cache + "\n";
         return s;
     }
 
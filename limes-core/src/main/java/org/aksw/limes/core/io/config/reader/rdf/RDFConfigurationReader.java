@@ -212,6 +212,15 @@ public class RDFConfigurationReader extends AConfigurationReader {
                         + "Use default expected selectivity: 1.0" + "\n--End of message--");
                 configuration.setExpectedSelectivity(1.0d);
             }
+            RDFNode threads = getObject(exeParamResource, LIMES.threads, false);
+            if (threads != null) {
+                if (Integer.parseInt(threads.toString()) < 0) {
+                    logger.info("\nNumber of threads cannot be negative. Your input value is " + threads
+                            + ".\nSetting it to the number of available processors.");
+                    configuration.setNumberOfThreads(0);
+                } else
+                    configuration.setNumberOfThreads(Integer.parseInt(threads.toString()));
+            }
 
         } else {
             logger.info("Use default execution parameters.");
@@ -333,6 +342,12 @@ public class RDFConfigurationReader extends AConfigurationReader {
             kbinfo.setType(type.toString().toLowerCase());
         }
 
+        // KB cache
+        RDFNode cache = getObject(kb, LIMES.cache, false);
+        if (cache != null) {
+            kbinfo.setCache(cache.toString().toLowerCase());
+        }
+
         // Prefixes
         kbinfo.setPrefixes(configuration.getPrefixes());
     }
@@ -68,6 +68,7 @@ public class XMLConfigurationReader extends AConfigurationReader {
     protected static final String SOURCE = "SOURCE";
     protected static final String PREFIX = "PREFIX";
     protected static final String PAGESIZE = "PAGESIZE";
+    protected static final String CACHE = "CACHE";
     protected static final String ENDPOINT = "ENDPOINT";
     protected static final String GRAPH = "GRAPH";
     protected static final String RESTRICTION = "RESTRICTION";
@@ -90,6 +91,7 @@ public class XMLConfigurationReader extends AConfigurationReader {
     protected static final String FUNCTION = "FUNCTION";
     protected static final String OPTIMIZATION_TIME = "OPTIMIZATION_TIME";
     protected static final String EXPECTED_SELECTIVITY = "EXPECTED_SELECTIVITY";
+    protected static final String THREADS = "THREADS";
 
     /**
      * Constructor
@@ -271,6 +273,8 @@ public class XMLConfigurationReader extends AConfigurationReader {
                 kbinfo.setVar(getText(child));
             } else if (child.getNodeName().equals(TYPE)) {
                 kbinfo.setType(getText(child));
+            } else if (child.getNodeName().equals(CACHE)) {
+                kbinfo.setCache(getText(child).toLowerCase());
             } else if (child.getNodeName().equals(FUNCTION)) {
                 setComplexFunction(kbinfo, getText(child));
             }
@@ -485,6 +489,15 @@ public class XMLConfigurationReader extends AConfigurationReader {
                                 } else
                                     configuration.setExpectedSelectivity(k);
 
+                            } else if (child.getNodeName().equals(THREADS)) {
+                                int threads = Integer.parseInt(getText(child));
+                                if (threads < 0) {
+                                    logger.info("\nNumber of threads cannot be negative. Your input value is "
+                                            + threads + ".\nSetting it to the number of available processors.");
+                                    configuration.setNumberOfThreads(0);
+                                } else
+                                    configuration.setNumberOfThreads(threads);
+
                             }
                         }
                     }
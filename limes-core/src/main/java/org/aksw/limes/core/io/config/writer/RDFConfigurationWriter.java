@@ -98,6 +98,7 @@ public class RDFConfigurationWriter implements IConfigurationWriter {
         m.add(source, RDFS.label, configuration.getSourceInfo().getId());
         m.add(source, LIMES.endPoint, ResourceFactory.createStringLiteral(configuration.getSourceInfo().getEndpoint()));
         m.add(source, LIMES.type, String.valueOf(configuration.getSourceInfo().getType()));
+        m.add(source, LIMES.cache, String.valueOf(configuration.getSourceInfo().getCache()));
         m.add(source, LIMES.variable, configuration.getSourceInfo().getVar());
         m.add(source, LIMES.pageSize, String.valueOf(configuration.getSourceInfo().getPageSize()));
         for (String r : configuration.getSourceInfo().getRestrictions()) {
@@ -125,6 +126,7 @@ public class RDFConfigurationWriter implements IConfigurationWriter {
         m.add(target, RDFS.label, configuration.getTargetInfo().getId());
         m.add(target, LIMES.endPoint, ResourceFactory.createStringLiteral((configuration.getTargetInfo().getEndpoint())));
         m.add(target, LIMES.type, String.valueOf(configuration.getTargetInfo().getType()));
+        m.add(target, LIMES.cache, String.valueOf(configuration.getTargetInfo().getCache()));
         m.add(target, LIMES.variable, configuration.getTargetInfo().getVar() + "");
         m.add(target, LIMES.pageSize, String.valueOf(configuration.getTargetInfo().getPageSize()));
         for (String r : configuration.getTargetInfo().getRestrictions()) {
@@ -175,6 +177,7 @@ public class RDFConfigurationWriter implements IConfigurationWriter {
         m.add(s, LIMES.executionEngine, configuration.getExecutionEngine());
         m.add(s, LIMES.optimizationTime, String.valueOf(configuration.getOptimizationTime()));
         m.add(s, LIMES.expectedSelectivity, String.valueOf(configuration.getExpectedSelectivity()));
+        m.add(s, LIMES.threads, String.valueOf(configuration.getNumberOfThreads()));
 
         //7. TILING if necessary
         m.add(s, LIMES.granularity, String.valueOf(configuration.getGranularity()));
@@ -71,6 +71,20 @@ public abstract class AMapping implements IMapping {
 
     public abstract AMapping getSubMap(double threshold);
 
+    /**
+     * Applies an action to each link of the mapping.
+     *
+     * @param action, the action to apply to each (source, target, confidence)
+     */
+    public void forEachLink(LinkConsumer action) {
+        HashMap<String, HashMap<String, Double>> links = getMap();
+        for (String s : links.keySet()) {
+            for (String t : links.get(s).keySet()) {
+                action.accept(s, t, links.get(s).get(t));
+            }
+        }
+    }
+
     /**
      * Returns the best one to one mapping with a bias towards the source Should
      * actually be solved with Hospital residents
@@ -123,47 +137,49 @@ public abstract class AMapping implements IMapping {
         this.predicate = mappingPredicate;
     }
 
+    /**
+     * The hash code depends on the links and the predicate only, so that it
+     * is consistent with {@link #equals(Object)} across implementations.
+     */
     @Override
     public int hashCode() {
         final int prime = 31;
+        int[] links = new int[1];
+        forEachLink((s, t, confidence) ->
+                links[0] += (prime * s.hashCode() + t.hashCode()) ^ Double.hashCode(confidence));
         int result = 1;
-        result = prime * result + ((map == null) ? 0 : map.hashCode());
+        result = prime * result + links[0];
         result = prime * result
                 + ((predicate == null) ? 0 : predicate.hashCode());
-        result = prime * result
-                + ((reversedMap == null) ? 0 : reversedMap.hashCode());
-        result = prime * result + size;
         return result;
     }
 
+    /**
+     * Two mappings are equal if they have the same predicate and the same
+     * links with the same confidences, regardless of their implementation.
+     */
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
             return true;
         if (obj == null)
             return false;
-        if (getClass() != obj.getClass())
+        if (!(obj instanceof AMapping))
             return false;
         AMapping other = (AMapping) obj;
-        if (map == null) {
-            if (other.map != null)
-                return false;
-        } else if (!map.equals(other.map))
-            return false;
         if (predicate == null) {
             if (other.predicate != null)
                 return false;
         } else if (!predicate.equals(other.predicate))
             return false;
-        if (reversedMap == null) {
-            if (other.reversedMap != null)
-                return false;
-        } else if (!reversedMap.equals(other.reversedMap))
-            return false;
-        if (size != other.size)
+        if (getNumberofMappings() != other.getNumberofMappings())
             return false;
-        return true;
+        boolean[] equal = { true };
+        forEachLink((s, t, confidence) -> {
+            if (equal[0] && (!other.contains(s, t) || Double.compare(confidence, other.getConfidence(s, t)) != 0)) {
+                equal[0] = false;
+            }
+        });
+        return equal[0];
     }
-
-
 }
@@ -0,0 +1,659 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.mapping;
+
+import org.aksw.limes.core.datastrutures.StringDictionary;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * Mapping that stores its links in primitive columns. Source and target URIs
+ * are interned into int ids by two {@link StringDictionary}s, which can be
+ * shared with the caches (see
+ * {@link org.aksw.limes.core.io.cache.ACache#getUriDictionary()}) and with
+ * other mappings. Each link is stored as (source id, target id, confidence)
+ * in three parallel arrays and an open addressing hash table over the packed
+ * (source id, target id) pairs is used for lookups. The mapping keeps track of
+ * whether its links are sorted by (source id, target id), which allows set
+ * operations to merge sorted runs of links instead of probing. As for
+ * {@link MemoryMapping}, if (s, t, sim1) is already in the mapping and (s, t,
+ * sim2) is added then the mapping will contain (s, t, max(sim1, sim2)).
+ * <p>
+ * {@link #getMap()} and {@link #getReversedMap()} are only available as
+ * compatibility views. They are materialized on demand and modifying them does
+ * not modify the mapping. Use {@link #forEachLink(LinkConsumer)} or the column
+ * accessors to iterate over the links.
+ * <p>
+ * Reading a mapping does not change it: links that were added in sorted order
+ * are looked up by binary search, all other links through the hash table,
+ * which is maintained by the methods that add links. Hence, a mapping that is
+ * no longer changed can be read by several threads. If the dictionaries are
+ * frozen (see {@link StringDictionary#freeze()}), e.g., the URI dictionaries
+ * of caches, only links between URIs they contain can be added.
+ */
+public class ColumnarMapping extends AMapping {
+
+    private static final long serialVersionUID = -3604523437853162530L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final StringDictionary sourceDictionary;
+    private final StringDictionary targetDictionary;
+    private int[] sources;
+    private int[] targets;
+    private double[] confidences;
+    /**
+     * Hash table that maps hash slots to link index + 1 (0 marks an empty
+     * slot). Null as long as the links are added in sorted order, it is
+     * built by the first link that is added out of order.
+     */
+    private transient int[] table;
+    /**
+     * True if the links are sorted by (source id, target id).
+     */
+    private boolean sorted = true;
+    private transient boolean mapUpToDate = false;
+    private transient boolean reversedMapUpToDate = false;
+
+    protected ColumnarMapping() {
+        this(new StringDictionary(), new StringDictionary());
+    }
+
+    protected ColumnarMapping(StringDictionary sourceDictionary, StringDictionary targetDictionary) {
+        this(sourceDictionary, targetDictionary, DEFAULT_CAPACITY);
+    }
+
+    protected ColumnarMapping(StringDictionary sourceDictionary, StringDictionary targetDictionary,
+                              int expectedSize) {
+        super();
+        this.sourceDictionary = sourceDictionary;
+        this.targetDictionary = targetDictionary;
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+        sources = new int[capacity];
+        targets = new int[capacity];
+        confidences = new double[capacity];
+    }
+
+    /**
+     * @return the dictionary of the source URIs
+     */
+    public StringDictionary getSourceDictionary() {
+        return sourceDictionary;
+    }
+
+    /**
+     * @return the dictionary of the target URIs
+     */
+    public StringDictionary getTargetDictionary() {
+        return targetDictionary;
+    }
+
+    /**
+     * @param other
+     *            another columnar mapping
+     * @return true if both mappings use the same source and target
+     *         dictionaries, i.e., if their ids are comparable
+     */
+    public boolean hasSameDictionaries(ColumnarMapping other) {
+        return sourceDictionary == other.sourceDictionary && targetDictionary == other.targetDictionary;
+    }
+
+    /**
+     * @param index
+     *            index of a link, between 0 and size() - 1
+     * @return the source id of the link
+     */
+    public int getSourceId(int index) {
+        return sources[index];
+    }
+
+    /**
+     * @param index
+     *            index of a link, between 0 and size() - 1
+     * @return the target id of the link
+     */
+    public int getTargetId(int index) {
+        return targets[index];
+    }
+
+    /**
+     * @param index
+     *            index of a link, between 0 and size() - 1
+     * @return the confidence of the link
+     */
+    public double getConfidence(int index) {
+        return confidences[index];
+    }
+
+    /**
+     * @param index
+     *            index of a link, between 0 and size() - 1
+     * @return the source URI of the link
+     */
+    public String getSourceUri(int index) {
+        return sourceDictionary.getString(sources[index]);
+    }
+
+    /**
+     * @param index
+     *            index of a link, between 0 and size() - 1
+     * @return the target URI of the link
+     */
+    public String getTargetUri(int index) {
+        return targetDictionary.getString(targets[index]);
+    }
+
+    /**
+     * Returns the index of a link.
+     *
+     * @param sourceId
+     *            id of the source URI
+     * @param targetId
+     *            id of the target URI
+     * @return the index of the link or -1 if the mapping does not contain it
+     */
+    public int indexOf(int sourceId, int targetId) {
+        if (table == null) {
+            // the links are sorted
+            return binarySearch(getKey(sourceId, targetId));
+        }
+        int mask = table.length - 1;
+        int slot = hash(sourceId, targetId) & mask;
+        while (table[slot] != 0) {
+            int index = table[slot] - 1;
+            if (sources[index] == sourceId && targets[index] == targetId) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param sourceId
+     *            id of the source URI
+     * @param targetId
+     *            id of the target URI
+     * @return true if the mapping contains the link, else false
+     */
+    public boolean containsIds(int sourceId, int targetId) {
+        return indexOf(sourceId, targetId) >= 0;
+    }
+
+    /**
+     * @param sourceId
+     *            id of the source URI
+     * @param targetId
+     *            id of the target URI
+     * @return the confidence of the link or 0 if the mapping does not
+     *         contain it
+     */
+    public double getConfidenceOfIds(int sourceId, int targetId) {
+        int index = indexOf(sourceId, targetId);
+        return index < 0 ? 0 : confidences[index];
+    }
+
+    /**
+     * Adds a link given the ids of its URIs. If the link already exists, its
+     * confidence is set to the maximum of both confidences.
+     *
+     * @param sourceId
+     *            id of the source URI in the source dictionary
+     * @param targetId
+     *            id of the target URI in the target dictionary
+     * @param confidence
+     *            confidence of the link
+     */
+    public void addIds(int sourceId, int targetId, double confidence) {
+        if (table == null && sorted && (size == 0 || getKey(size - 1) < getKey(sourceId, targetId))) {
+            // links added in sorted order are new and are hashed lazily
+            ensureCapacity(size + 1);
+            sources[size] = sourceId;
+            targets[size] = targetId;
+            confidences[size++] = confidence;
+            invalidateViews();
+            return;
+        }
+        int slot = findSlot(sourceId, targetId);
+        if (table[slot] != 0) {
+            int index = table[slot] - 1;
+            if (confidence > confidences[index]) {
+                confidences[index] = confidence;
+                invalidateViews();
+            }
+            return;
+        }
+        ensureCapacity(size + 1);
+        if (sorted && size > 0 && getKey(size - 1) > getKey(sourceId, targetId)) {
+            sorted = false;
+        }
+        sources[size] = sourceId;
+        targets[size] = targetId;
+        confidences[size] = confidence;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        invalidateViews();
+    }
+
+    /**
+     * Adds the links from index {@code from} (inclusive) to index {@code to}
+     * (exclusive) of another mapping. If both mappings share their
+     * dictionaries, this mapping is sorted and not hashed yet and the links
+     * start after its last link in sorted order, the columns are copied
+     * without hashing, which is the case when concatenating the partitions of
+     * a merge. Otherwise the links are added one by one.
+     *
+     * @param other
+     *            the mapping to add links from
+     * @param from
+     *            index of the first link to add
+     * @param to
+     *            index after the last link to add
+     */
+    public void addAll(ColumnarMapping other, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        if (!hasSameDictionaries(other)) {
+            for (int i = from; i < to; i++) {
+                add(other.getSourceUri(i), other.getTargetUri(i), other.confidences[i]);
+            }
+            return;
+        }
+        boolean append = table == null && sorted && (size == 0 || getKey(size - 1) < other.getKey(from));
+        for (int i = from + 1; append && !other.sorted && i < to; i++) {
+            append = other.getKey(i - 1) < other.getKey(i);
+        }
+        if (!append) {
+            for (int i = from; i < to; i++) {
+                addIds(other.sources[i], other.targets[i], other.confidences[i]);
+            }
+            return;
+        }
+        int length = to - from;
+        ensureCapacity(size + length);
+        System.arraycopy(other.sources, from, sources, size, length);
+        System.arraycopy(other.targets, from, targets, size, length);
+        System.arraycopy(other.confidences, from, confidences, size, length);
+        size += length;
+        invalidateViews();
+    }
+
+    /**
+     * Adds all links of another mapping.
+     *
+     * @param other
+     *            the mapping to add links from
+     */
+    public void addAll(ColumnarMapping other) {
+        addAll(other, 0, other.size());
+    }
+
+    /**
+     * @return true if the links are sorted by (source id, target id)
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Returns the links sorted by (source id, target id). This mapping is not
+     * changed.
+     *
+     * @return this mapping if it is sorted, else a sorted copy that shares
+     *         its dictionaries
+     */
+    public ColumnarMapping sort() {
+        if (sorted) {
+            return this;
+        }
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = getKey(i);
+        }
+        Arrays.parallelSort(keys);
+        ColumnarMapping result = new ColumnarMapping(sourceDictionary, targetDictionary, size);
+        for (int i = 0; i < size; i++) {
+            int sourceId = (int) (keys[i] >>> 32);
+            int targetId = (int) keys[i];
+            result.sources[i] = sourceId;
+            result.targets[i] = targetId;
+            result.confidences[i] = confidences[indexOf(sourceId, targetId)];
+        }
+        result.size = size;
+        result.predicate = predicate;
+        return result;
+    }
+
+    /**
+     * @param index
+     *            index of a link, between 0 and size() - 1
+     * @return the sort key of the link, see {@link #getKey(int, int)}
+     */
+    public long getKey(int index) {
+        return getKey(sources[index], targets[index]);
+    }
+
+    /**
+     * Packs a pair of ids into a long whose natural order is the order of
+     * sorted mappings, i.e., by source id and then by target id.
+     *
+     * @param sourceId
+     *            id of the source URI
+     * @param targetId
+     *            id of the target URI
+     * @return the sort key of the pair
+     */
+    public static long getKey(int sourceId, int targetId) {
+        return ((long) sourceId << 32) | (targetId & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void add(String source, String target, double confidence) {
+        addIds(sourceDictionary.getId(source), targetDictionary.getId(target), confidence);
+    }
+
+    @Override
+    public void add(String source, HashMap<String, Double> targets) {
+        int sourceId = sourceDictionary.getId(source);
+        for (String target : targets.keySet()) {
+            addIds(sourceId, targetDictionary.getId(target), targets.get(target));
+        }
+    }
+
+    @Override
+    public double getConfidence(String source, String target) {
+        int sourceId = sourceDictionary.lookup(source);
+        int targetId = targetDictionary.lookup(target);
+        if (sourceId < 0 || targetId < 0) {
+            return 0;
+        }
+        return getConfidenceOfIds(sourceId, targetId);
+    }
+
+    @Override
+    public boolean contains(String source, String target) {
+        int sourceId = sourceDictionary.lookup(source);
+        int targetId = targetDictionary.lookup(target);
+        return sourceId >= 0 && targetId >= 0 && containsIds(sourceId, targetId);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getNumberofMappings() {
+        return size;
+    }
+
+    @Override
+    public int getNumberofPositiveMappings() {
+        int positive = 0;
+        for (int i = 0; i < size; i++) {
+            if (confidences[i] > 0) {
+                positive++;
+            }
+        }
+        return positive;
+    }
+
+    @Override
+    public AMapping getOnlyPositiveExamples() {
+        ColumnarMapping result = new ColumnarMapping(sourceDictionary, targetDictionary);
+        for (int i = 0; i < size; i++) {
+            if (confidences[i] > 0) {
+                result.addIds(sources[i], targets[i], confidences[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a mapping that contains all links of the current mapping that
+     * have a confidence above the threshold.
+     *
+     * @param threshold
+     *            Similarity threshold for filtering
+     * @return Mapping that contains all links (s,t) with sim(s,t) {@literal >}=
+     *         threshold
+     */
+    @Override
+    public AMapping getSubMap(double threshold) {
+        ColumnarMapping result = new ColumnarMapping(sourceDictionary, targetDictionary);
+        for (int i = 0; i < size; i++) {
+            if (confidences[i] >= threshold) {
+                result.addIds(sources[i], targets[i], confidences[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the best one to n mapping for the current mapping, i.e., for
+     * each element of the source, it gets the best t from target.
+     *
+     * @return Best one to n mapping
+     */
+    @Override
+    public AMapping getBestOneToNMapping() {
+        double[] maxSim = new double[sourceDictionary.size()];
+        for (int i = 0; i < size; i++) {
+            maxSim[sources[i]] = Math.max(maxSim[sources[i]], confidences[i]);
+        }
+        ColumnarMapping result = new ColumnarMapping(sourceDictionary, targetDictionary);
+        for (int i = 0; i < size; i++) {
+            if (confidences[i] == maxSim[sources[i]]) {
+                result.addIds(sources[i], targets[i], confidences[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reverses source and target. The returned mapping shares the
+     * dictionaries of this mapping.
+     *
+     * @return Reversed map
+     */
+    @Override
+    public AMapping reverseSourceTarget() {
+        ColumnarMapping result = new ColumnarMapping(targetDictionary, sourceDictionary, size);
+        for (int i = 0; i < size; i++) {
+            result.addIds(targets[i], sources[i], confidences[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return a copy of this mapping that shares its dictionaries
+     */
+    public ColumnarMapping copy() {
+        ColumnarMapping result = new ColumnarMapping(sourceDictionary, targetDictionary, 0);
+        result.sources = sources.clone();
+        result.targets = targets.clone();
+        result.confidences = confidences.clone();
+        result.table = table == null ? null : table.clone();
+        result.sorted = sorted;
+        result.size = size;
+        result.predicate = predicate;
+        return result;
+    }
+
+    @Override
+    public void forEachLink(LinkConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(sourceDictionary.getString(sources[i]), targetDictionary.getString(targets[i]),
+                    confidences[i]);
+        }
+    }
+
+    /**
+     * Returns a map representation of the mapping. The map is materialized on
+     * demand and is only a view: modifying it does not modify the mapping.
+     *
+     * @return the links of the mapping, grouped by source URI
+     */
+    @Override
+    public HashMap<String, HashMap<String, Double>> getMap() {
+        if (!mapUpToDate) {
+            HashMap<String, HashMap<String, Double>> view = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                view.computeIfAbsent(sourceDictionary.getString(sources[i]), k -> new HashMap<>())
+                        .put(targetDictionary.getString(targets[i]), confidences[i]);
+            }
+            map = view;
+            mapUpToDate = true;
+        }
+        return map;
+    }
+
+    /**
+     * Returns a view that groups the links of the mapping by their
+     * confidence. The view is materialized on demand.
+     *
+     * @return the links of the mapping, grouped by confidence and source URI
+     */
+    @Override
+    public HashMap<Double, HashMap<String, TreeSet<String>>> getReversedMap() {
+        if (!reversedMapUpToDate) {
+            HashMap<Double, HashMap<String, TreeSet<String>>> view = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                view.computeIfAbsent(confidences[i], k -> new HashMap<>())
+                        .computeIfAbsent(sourceDictionary.getString(sources[i]), k -> new TreeSet<>())
+                        .add(targetDictionary.getString(targets[i]));
+            }
+            reversedMap = view;
+            reversedMapUpToDate = true;
+        }
+        return reversedMap;
+    }
+
+    /**
+     * Replaces all links of the mapping by the links of the input map.
+     *
+     * @param map
+     *            the new links, grouped by source URI
+     */
+    @Override
+    public void setMap(HashMap<String, HashMap<String, Double>> map) {
+        table = null;
+        sorted = true;
+        size = 0;
+        invalidateViews();
+        for (String source : map.keySet()) {
+            add(source, map.get(source));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            s.append("[").append(getSourceUri(i)).append(" -> (").append(getTargetUri(i)).append("|")
+                    .append(confidences[i]).append(")]\n");
+        }
+        return s.toString();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (!sorted) {
+            // the hash table is not serialized, links out of order need it
+            buildTable();
+        }
+    }
+
+    private void invalidateViews() {
+        mapUpToDate = false;
+        reversedMapUpToDate = false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > sources.length) {
+            capacity = Math.max(capacity, sources.length * 2);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            confidences = Arrays.copyOf(confidences, capacity);
+        }
+    }
+
+    private int binarySearch(long key) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = getKey(middle);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int findSlot(int sourceId, int targetId) {
+        if (table == null) {
+            buildTable();
+        }
+        int mask = table.length - 1;
+        int slot = hash(sourceId, targetId) & mask;
+        while (table[slot] != 0) {
+            int index = table[slot] - 1;
+            if (sources[index] == sourceId && targets[index] == targetId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void buildTable() {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < size * 2 + 2) {
+            capacity <<= 1;
+        }
+        rehash(capacity);
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hash(sources[index], targets[index]) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = index + 1;
+        }
+        table = newTable;
+    }
+
+    private static int hash(int sourceId, int targetId) {
+        return StringDictionary.mix(sourceId * 0x9E3779B9 + targetId);
+    }
+}
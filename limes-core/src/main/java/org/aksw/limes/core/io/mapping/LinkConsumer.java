@@ -0,0 +1,36 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.mapping;
+
+/**
+ * Callback for iterating over the links of a mapping without materializing
+ * its map representation.
+ */
+@FunctionalInterface
+public interface LinkConsumer {
+
+    /**
+     * @param source
+     *            URI of the source resource
+     * @param target
+     *            URI of the target resource
+     * @param confidence
+     *            confidence of the link
+     */
+    void accept(String source, String target, double confidence);
+}
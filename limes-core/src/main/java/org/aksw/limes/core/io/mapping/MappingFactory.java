@@ -17,7 +17,8 @@
  */
 package org.aksw.limes.core.io.mapping;
 
-
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.aksw.limes.core.io.cache.ACache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,15 +51,48 @@ public class MappingFactory {
             return new HybridMapping();
         if (type == MappingType.FILE_MAPPING)
             return new FileMapping();
+        if (type == MappingType.COLUMNAR_MAPPING)
+            return new ColumnarMapping();
         logger.warn("Sorry, " + type + " is not yet implemented. Generating " + MappingType.DEFAULT + " map ...");
         return createDefaultMapping();
     }
 
+    /**
+     * @param sourceDictionary dictionary of the source URIs, e.g. the one of the source cache
+     * @param targetDictionary dictionary of the target URIs, e.g. the one of the target cache
+     * @return a columnar mapping that interns its URIs into the input dictionaries
+     */
+    public static ColumnarMapping createColumnarMapping(StringDictionary sourceDictionary,
+                                                        StringDictionary targetDictionary) {
+        return new ColumnarMapping(sourceDictionary, targetDictionary);
+    }
+
+    /**
+     * @param sourceDictionary dictionary of the source URIs
+     * @param targetDictionary dictionary of the target URIs
+     * @param expectedSize expected number of links
+     * @return a columnar mapping with room for expectedSize links
+     */
+    public static ColumnarMapping createColumnarMapping(StringDictionary sourceDictionary,
+                                                        StringDictionary targetDictionary, int expectedSize) {
+        return new ColumnarMapping(sourceDictionary, targetDictionary, expectedSize);
+    }
+
+    /**
+     * @param source source cache
+     * @param target target cache
+     * @return a columnar mapping that shares the URI dictionaries of the caches
+     */
+    public static ColumnarMapping createColumnarMapping(ACache source, ACache target) {
+        return new ColumnarMapping(source.getUriDictionary(), target.getUriDictionary());
+    }
+
     public enum MappingType {
         DEFAULT, // currently memory mapping
         MEMORY_MAPPING,
         HYBIRD_MAPPING,
-        FILE_MAPPING
+        FILE_MAPPING,
+        COLUMNAR_MAPPING
     }
 
 
@@ -18,10 +18,12 @@
 package org.aksw.limes.core.io.preprocessing;
 
 import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.FileCache;
 import org.aksw.limes.core.io.cache.Instance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -51,6 +53,9 @@ public class Preprocessor {
      * @return cache with instances on which the preprocessing functions where applied, if cloneCache was set to true this a different cache than the provided
      */
     public static ACache applyFunctionsToCache(ACache cache, Map<String, Map<String, String>> functions, boolean cloneCache) {
+        if (cache instanceof FileCache) {
+            return applyFunctionsToFileCache((FileCache) cache, functions, cloneCache);
+        }
         ACache cacheClone;
         if(cloneCache){
             cacheClone = cache.clone();
@@ -59,32 +64,64 @@ public class Preprocessor {
         }
         functions.forEach((property, innerMap) -> {
             innerMap.forEach((propertyDub, functionChain) -> {
-                for(Instance inst : cacheClone.getAllInstances()){
-                    logger.debug("Function chain = " + functionChain);
-                    applyRenameIfNecessary(inst, property, propertyDub);
-                    if (functionChain != null) {
-                        if (!functionChain.equals("")) {
-                            String split[] = functionChain.split("->");
-                            for (int i = 0; i < split.length; i++) {
-                                String functionId = getFunctionId(split[i]);
-                                PreprocessingFunctionType type = PreprocessingFunctionFactory
-                                        .getPreprocessingType(functionId);
-                                APreprocessingFunction func = PreprocessingFunctionFactory.getPreprocessingFunction(type);
-                                String[] arguments = func.retrieveArguments(split[i]);
-                                if (arguments.length > 0) {
-                                    func.applyFunction(inst, propertyDub, arguments);
-                                } else {
-                                    func.applyFunction(inst, propertyDub);
-                                }
-                            }
-                        }
-                    }
+                for (Instance inst : cacheClone.getAllInstances()) {
+                    applyFunctions(inst, property, propertyDub, functionChain);
                 }
             });
         });
+        // the instances were changed in place
+        cacheClone.invalidateIndexes();
         return cacheClone;
     }
 
+    /**
+     * File caches are never changed: the functions are applied to copies of
+     * the instances, which are collected in a new temporary file cache. A
+     * persisted cache thus stays as it was fetched, and each preprocessed
+     * instance is written once.
+     */
+    private static ACache applyFunctionsToFileCache(FileCache cache, Map<String, Map<String, String>> functions,
+                                                    boolean cloneCache) {
+        if (functions.isEmpty() && !cloneCache) {
+            return cache;
+        }
+        FileCache result;
+        try {
+            result = new FileCache();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create a file cache for the preprocessed instances", e);
+        }
+        cache.forEachInstance(instance -> {
+            Instance inst = instance.copy();
+            functions.forEach((property, innerMap) -> innerMap.forEach(
+                    (propertyDub, functionChain) -> applyFunctions(inst, property, propertyDub, functionChain)));
+            result.addInstance(inst);
+        });
+        return result;
+    }
+
+    private static void applyFunctions(Instance inst, String property, String propertyDub, String functionChain) {
+        logger.debug("Function chain = " + functionChain);
+        applyRenameIfNecessary(inst, property, propertyDub);
+        if (functionChain != null) {
+            if (!functionChain.equals("")) {
+                String split[] = functionChain.split("->");
+                for (int i = 0; i < split.length; i++) {
+                    String functionId = getFunctionId(split[i]);
+                    PreprocessingFunctionType type = PreprocessingFunctionFactory
+                            .getPreprocessingType(functionId);
+                    APreprocessingFunction func = PreprocessingFunctionFactory.getPreprocessingFunction(type);
+                    String[] arguments = func.retrieveArguments(split[i]);
+                    if (arguments.length > 0) {
+                        func.applyFunction(inst, propertyDub, arguments);
+                    } else {
+                        func.applyFunction(inst, propertyDub);
+                    }
+                }
+            }
+        }
+    }
+
     public static void applyRenameIfNecessary(Instance inst, String property, String propertyDub) {
         if (property != null && !property.equals("") && propertyDub != null && !propertyDub.equals("")
                 && !property.equals(propertyDub)) {
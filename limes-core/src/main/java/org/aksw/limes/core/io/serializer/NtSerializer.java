@@ -101,13 +101,10 @@ public class NtSerializer implements ISerializer {
         String predicatePrefix = getPrefix(predicate);
 
         if (mapping.size() > 0) {
-            for (String s : mapping.getMap().keySet()) {
-                for (String t : mapping.getMap().get(s).keySet()) {
-                    writer.println("<" + s + "> "
-                            + "<" + expand(predicate, predicatePrefix) + "> "
-                            + "<" + t + "> .");
-                }
-            }
+            String expandedPredicate = expand(predicate, predicatePrefix);
+            mapping.forEachLink((s, t, confidence) -> writer.println("<" + s + "> "
+                    + "<" + expandedPredicate + "> "
+                    + "<" + t + "> ."));
         }
         close();
     }
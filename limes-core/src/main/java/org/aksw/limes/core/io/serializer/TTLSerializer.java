@@ -94,11 +94,7 @@ public class TTLSerializer implements ISerializer {
         open(file);
         printPrefixes();
         statements = new TreeSet<String>();
-        for (String s : mapping.getMap().keySet()) {
-            for (String t : mapping.getMap().get(s).keySet()) {
-                writer.println("<" + s + "> <" + predicate + "> <" + t + "> .");
-            }
-        }
+        mapping.forEachLink((s, t, confidence) -> writer.println("<" + s + "> <" + predicate + "> <" + t + "> ."));
         close();
     }
 
@@ -73,11 +73,7 @@ public class TabSeparatedSerializer extends NtSerializer {
         open(file);
 
         if (mapping.size() > 0) {
-            for (String s : mapping.getMap().keySet()) {
-                for (String t : mapping.getMap().get(s).keySet()) {
-                    writer.println("<" + s + ">\t<" + t + ">\t" + mapping.getConfidence(s, t));
-                }
-            }
+            mapping.forEachLink((s, t, confidence) -> writer.println("<" + s + ">\t<" + t + ">\t" + confidence));
         }
         close();
     }
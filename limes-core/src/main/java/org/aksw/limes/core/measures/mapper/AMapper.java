@@ -17,8 +17,10 @@
  */
 package org.aksw.limes.core.measures.mapper;
 
+import org.aksw.limes.core.datastrutures.StringDictionary;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 
 import java.util.*;
@@ -40,21 +42,37 @@ public abstract class AMapper implements IMapper {
      * @param property,
      *            Input linking property
      * @return reversed Map from literal values to resource uris for a specified
-     *         property
+     *         property, memoized by the cache and read-only
      */
     protected Map<String, Set<String>> getValueToUriMap(ACache cache, String property) {
-        Map<String, Set<String>> result = new HashMap<>();
-        List<String> uris = cache.getAllUris();
-        for (String uri : uris) {
-            Set<String> values = cache.getInstance(uri).getProperty(property);
-            for (String value : values) {
-                if (!result.containsKey(value)) {
-                    result.put(value, new HashSet<>());
-                }
-                result.get(value).add(uri);
+        return cache.getValueToUriIndex(property);
+    }
+
+    /**
+     * Creates an empty columnar mapping for mappers that are called with value
+     * to uri maps instead of caches. The uris of the maps are interned into
+     * frozen dictionaries, so that the links can be added concurrently.
+     *
+     * @param sourceValueToUriMap
+     *            ValueToUriMap of the source
+     * @param targetValueToUriMap
+     *            ValueToUriMap of the target
+     * @return an empty mapping over the uris of the maps
+     */
+    protected static ColumnarMapping createMapping(Map<String, Set<String>> sourceValueToUriMap,
+                                                   Map<String, Set<String>> targetValueToUriMap) {
+        return MappingFactory.createColumnarMapping(getUriDictionary(sourceValueToUriMap),
+                getUriDictionary(targetValueToUriMap));
+    }
+
+    private static StringDictionary getUriDictionary(Map<String, Set<String>> valueToUriMap) {
+        StringDictionary dictionary = new StringDictionary(valueToUriMap.size());
+        for (Set<String> uris : valueToUriMap.values()) {
+            for (String uri : uris) {
+                dictionary.getId(uri);
             }
         }
-        return result;
+        return dictionary.freeze();
     }
 
     /**
@@ -73,7 +91,29 @@ public abstract class AMapper implements IMapper {
     protected AMapping getUriToUriMapping(Map<String, Map<String, Double>> valueMap,
                                           Map<String, Set<String>> sourceValueToUriMap, Map<String, Set<String>> targetValueToUriMap,
                                           boolean swapped) {
-        AMapping result = MappingFactory.createDefaultMapping();
+        return getUriToUriMapping(valueMap, sourceValueToUriMap, targetValueToUriMap, swapped,
+                MappingFactory.createDefaultMapping());
+    }
+
+    /**
+     * Adds the links between the resource uris of a mapping between values to
+     * a result mapping, e.g., a columnar mapping over the uris of the caches.
+     *
+     * @param valueMap
+     *            Mapping from values to values with similarity score
+     * @param sourceValueToUriMap
+     *            ValueToUriMap constructed from a source cache
+     * @param targetValueToUriMap
+     *            ValueToUriMap constructed from a target cache
+     * @param swapped
+     *            True if source and target have been swapped in the valueMap
+     * @param result
+     *            Mapping to which the links are added
+     * @return the result mapping
+     */
+    protected AMapping getUriToUriMapping(Map<String, Map<String, Double>> valueMap,
+                                          Map<String, Set<String>> sourceValueToUriMap, Map<String, Set<String>> targetValueToUriMap,
+                                          boolean swapped, AMapping result) {
         for (String s : valueMap.keySet()) {
             for (String t : valueMap.get(s).keySet()) {
                 if (sourceValueToUriMap.get(swapped ? t : s) != null)
@@ -18,15 +18,36 @@
 package org.aksw.limes.core.measures.mapper;
 
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.aksw.limes.core.util.ComputePool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinTask;
+
 /**
- * Implements the mapping operations abstract class.
+ * Implements the mapping operations abstract class. Columnar mappings that
+ * share their dictionaries are combined by merging their links sorted by
+ * (source id, target id). The merge is partitioned by ranges of source ids and
+ * the partitions are merged in parallel.
  *
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
  * @version 1.0
  */
 public class MappingOperations {
 
+    /**
+     * Minimal number of links for a merge to be split into partitions.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private enum Operation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
     /**
      * Computes the difference of two mappings.
      *
@@ -37,22 +58,26 @@ public class MappingOperations {
      * @return map1 \ map2
      */
     public static AMapping difference(AMapping map1, AMapping map2) {
+        if (areComparable(map1, map2)) {
+            return merge((ColumnarMapping) map1, (ColumnarMapping) map2, Operation.DIFFERENCE);
+        }
         AMapping map = MappingFactory.createDefaultMapping();
-
+        HashMap<String, HashMap<String, Double>> links2 = map2.getMap();
         // go through all the keys in map1
-        for (String key : map1.getMap().keySet()) {
+        for (Entry<String, HashMap<String, Double>> entry : map1.getMap().entrySet()) {
+            HashMap<String, Double> targets2 = links2.get(entry.getKey());
             // if the first term (key) can also be found in map2
-            if (map2.getMap().containsKey(key)) {
+            if (targets2 != null) {
                 // then go through the second terms and checks whether they can
                 // be found in map2 as well
-                for (String value : map1.getMap().get(key).keySet()) {
+                for (Entry<String, Double> link : entry.getValue().entrySet()) {
                     // if no, save the link
-                    if (!map2.getMap().get(key).containsKey(value)) {
-                        map.add(key, value, map1.getMap().get(key).get(value));
+                    if (!targets2.containsKey(link.getKey())) {
+                        map.add(entry.getKey(), link.getKey(), link.getValue());
                     }
                 }
             } else {
-                map.add(key, map1.getMap().get(key));
+                map.add(entry.getKey(), new HashMap<>(entry.getValue()));
             }
         }
         return map;
@@ -69,25 +94,29 @@ public class MappingOperations {
      * @return Intersection of map1 and map2
      */
     public static AMapping intersection(AMapping map1, AMapping map2) {
-        AMapping map = MappingFactory.createDefaultMapping();
         // takes care of not running the filter if some set is empty
         if (map1.size() == 0 || map2.size() == 0) {
             return MappingFactory.createDefaultMapping();
         }
-        // go through all the keys in map1
-        for (String key : map1.getMap().keySet()) {
-            // if the first term (key) can also be found in map2
-            if (map2.getMap().containsKey(key)) {
-                // then go through the second terms and checks whether they can
-                // be found in map2 as well
-                for (String value : map1.getMap().get(key).keySet()) {
-                    // if yes, take the highest similarity
-                    if (map2.getMap().get(key).containsKey(value)) {
-                        if (map1.getMap().get(key).get(value) <= map2.getMap().get(key).get(value)) {
-                            map.add(key, value, map1.getMap().get(key).get(value));
-                        } else {
-                            map.add(key, value, map2.getMap().get(key).get(value));
-                        }
+        if (areComparable(map1, map2)) {
+            return merge((ColumnarMapping) map1, (ColumnarMapping) map2, Operation.INTERSECTION);
+        }
+        AMapping map = MappingFactory.createDefaultMapping();
+        // go through the smaller mapping and probe the larger one
+        HashMap<String, HashMap<String, Double>> smaller = map1.getMap();
+        HashMap<String, HashMap<String, Double>> larger = map2.getMap();
+        if (map1.size() > map2.size()) {
+            smaller = map2.getMap();
+            larger = map1.getMap();
+        }
+        for (Entry<String, HashMap<String, Double>> entry : smaller.entrySet()) {
+            HashMap<String, Double> targets = larger.get(entry.getKey());
+            if (targets != null) {
+                for (Entry<String, Double> link : entry.getValue().entrySet()) {
+                    Double sim = targets.get(link.getKey());
+                    // if yes, take the lowest similarity
+                    if (sim != null) {
+                        map.add(entry.getKey(), link.getKey(), Math.min(sim, link.getValue()));
                     }
                 }
             }
@@ -106,20 +135,170 @@ public class MappingOperations {
      * @return Union of map1 and map2
      */
     public static AMapping union(AMapping map1, AMapping map2) {
+        if (areComparable(map1, map2)) {
+            return merge((ColumnarMapping) map1, (ColumnarMapping) map2, Operation.UNION);
+        }
         AMapping map = MappingFactory.createDefaultMapping();
-        // go through all the keys in map1
-        for (String key : map1.getMap().keySet()) {
-            for (String value : map1.getMap().get(key).keySet()) {
-                map.add(key, value, map1.getMap().get(key).get(value));
+        HashMap<String, HashMap<String, Double>> larger = map1.getMap();
+        HashMap<String, HashMap<String, Double>> smaller = map2.getMap();
+        if (map1.size() < map2.size()) {
+            larger = map2.getMap();
+            smaller = map1.getMap();
+        }
+        // the sources of both mappings are merged into a copy of their larger targets
+        for (Entry<String, HashMap<String, Double>> entry : smaller.entrySet()) {
+            HashMap<String, Double> targets = larger.get(entry.getKey());
+            if (targets == null) {
+                map.add(entry.getKey(), new HashMap<>(entry.getValue()));
+            } else {
+                map.add(entry.getKey(), new HashMap<>(targets));
+                for (Entry<String, Double> link : entry.getValue().entrySet()) {
+                    map.add(entry.getKey(), link.getKey(), link.getValue());
+                }
             }
         }
-        for (String key : map2.getMap().keySet()) {
-            // if the first term (key) can also be found in map2
-            for (String value : map2.getMap().get(key).keySet()) {
-                map.add(key, value, map2.getMap().get(key).get(value));
+        for (Entry<String, HashMap<String, Double>> entry : larger.entrySet()) {
+            if (!smaller.containsKey(entry.getKey())) {
+                map.add(entry.getKey(), new HashMap<>(entry.getValue()));
             }
         }
         return map;
     }
 
+    /**
+     * Checks whether two mappings can be combined on their interned ids, i.e.,
+     * whether both are columnar mappings over the same dictionaries.
+     *
+     * @param map1
+     *            First mapping
+     * @param map2
+     *            Second mapping
+     * @return true if the ids of both mappings are comparable
+     */
+    private static boolean areComparable(AMapping map1, AMapping map2) {
+        return map1 instanceof ColumnarMapping && map2 instanceof ColumnarMapping
+                && ((ColumnarMapping) map1).hasSameDictionaries((ColumnarMapping) map2);
+    }
+
+    /**
+     * Merges two columnar mappings over the same dictionaries. The inputs are
+     * not modified: {@link ColumnarMapping#sort()} returns unsorted inputs as
+     * sorted copies. The sorted links are then split into partitions of source
+     * ids that are merged in parallel. The merged
+     * partitions are sorted and disjoint, so that they are appended to the
+     * result without hashing and the result is sorted as well.
+     *
+     * @param mapping1
+     *            First mapping
+     * @param mapping2
+     *            Second mapping
+     * @param operation
+     *            Set operation to apply
+     * @return the result of the set operation, sharing the dictionaries of
+     *         the inputs
+     */
+    private static ColumnarMapping merge(ColumnarMapping mapping1, ColumnarMapping mapping2, Operation operation) {
+        ColumnarMapping map1 = mapping1.sort();
+        ColumnarMapping map2 = mapping2.sort();
+        int total = map1.size() + map2.size();
+        int partitions = 1;
+        if (total >= PARALLEL_THRESHOLD) {
+            partitions = Math.min(ComputePool.getParallelism() * 4, total / (PARALLEL_THRESHOLD / 4));
+        }
+        // split at the source ids of the larger mapping
+        ColumnarMapping larger = map1.size() >= map2.size() ? map1 : map2;
+        int[] bounds1 = new int[partitions + 1];
+        int[] bounds2 = new int[partitions + 1];
+        bounds1[partitions] = map1.size();
+        bounds2[partitions] = map2.size();
+        for (int p = 1; p < partitions; p++) {
+            int sourceId = larger.getSourceId((int) ((long) p * larger.size() / partitions));
+            bounds1[p] = lowerBound(map1, sourceId);
+            bounds2[p] = lowerBound(map2, sourceId);
+        }
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            final int from1 = bounds1[p], to1 = bounds1[p + 1];
+            final int from2 = bounds2[p], to2 = bounds2[p + 1];
+            tasks.add(ForkJoinTask.adapt(() -> mergeRange(map1, from1, to1, map2, from2, to2, operation)));
+        }
+        ComputePool.invokeAll(tasks);
+        int resultSize = 0;
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            resultSize += task.join().size();
+        }
+        ColumnarMapping result = MappingFactory.createColumnarMapping(map1.getSourceDictionary(),
+                map1.getTargetDictionary(), resultSize);
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            result.addAll(task.join());
+        }
+        return result;
+    }
+
+    /**
+     * Merges the links [from1, to1) of map1 with the links [from2, to2) of
+     * map2. Both ranges must be sorted.
+     */
+    private static ColumnarMapping mergeRange(ColumnarMapping map1, int from1, int to1, ColumnarMapping map2,
+                                              int from2, int to2, Operation operation) {
+        int capacity = to1 - from1;
+        if (operation == Operation.UNION) {
+            capacity += to2 - from2;
+        } else if (operation == Operation.INTERSECTION) {
+            capacity = Math.min(capacity, to2 - from2);
+        }
+        ColumnarMapping result = MappingFactory.createColumnarMapping(map1.getSourceDictionary(),
+                map1.getTargetDictionary(), capacity);
+        int i = from1, j = from2;
+        while (i < to1 && j < to2) {
+            long key1 = map1.getKey(i);
+            long key2 = map2.getKey(j);
+            if (key1 < key2) {
+                if (operation != Operation.INTERSECTION) {
+                    result.addIds(map1.getSourceId(i), map1.getTargetId(i), map1.getConfidence(i));
+                }
+                i++;
+            } else if (key1 > key2) {
+                if (operation == Operation.UNION) {
+                    result.addIds(map2.getSourceId(j), map2.getTargetId(j), map2.getConfidence(j));
+                }
+                j++;
+            } else {
+                if (operation == Operation.UNION) {
+                    result.addIds(map1.getSourceId(i), map1.getTargetId(i),
+                            Math.max(map1.getConfidence(i), map2.getConfidence(j)));
+                } else if (operation == Operation.INTERSECTION) {
+                    result.addIds(map1.getSourceId(i), map1.getTargetId(i),
+                            Math.min(map1.getConfidence(i), map2.getConfidence(j)));
+                }
+                i++;
+                j++;
+            }
+        }
+        if (operation != Operation.INTERSECTION) {
+            result.addAll(map1, i, to1);
+        }
+        if (operation == Operation.UNION) {
+            result.addAll(map2, j, to2);
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the first link of the sorted mapping whose source
+     *         id is not smaller than sourceId
+     */
+    private static int lowerBound(ColumnarMapping map, int sourceId) {
+        int low = 0, high = map.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (map.getSourceId(middle) < sourceId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
 }
@@ -0,0 +1,336 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.phonetic;
+
+import org.aksw.limes.core.exceptions.InvalidThresholdException;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.aksw.limes.core.measures.mapper.AMapper;
+import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
+import org.aksw.limes.core.util.ComputePool;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Common join of the phonetic mappers. The values are encoded once per
+ * distinct value, in parallel. Codes of the same length are compared by their
+ * Hamming distance: the exact case is a hash join on the codes, otherwise the
+ * source codes search an array-based trie of the target codes.
+ */
+public abstract class APhoneticMapper extends AMapper {
+
+    private static final int MIN_PARTITION_SIZE = 1024;
+
+    /**
+     * @param value
+     *            Input value
+     * @return phonetic code of the value, null or empty if it has none
+     */
+    protected abstract String getCode(String value);
+
+    /**
+     * @param threshold
+     *            Similarity threshold
+     * @return the maximal number of mismatching code characters
+     */
+    protected abstract int getMaxDistance(double threshold);
+
+    /**
+     * @param distance
+     *            Number of mismatching code characters
+     * @return the similarity of two codes at the given distance
+     */
+    protected abstract double getSimilarity(int distance);
+
+    /**
+     * Computes the similarity that the mapper assigns to a pair of values.
+     *
+     * @param value1
+     *            Source value
+     * @param value2
+     *            Target value
+     * @param threshold
+     *            Similarity threshold
+     * @return the similarity of the codes of the values, 0 if they have no
+     *         codes of the same length within the distance of the threshold
+     */
+    public double getSimilarity(String value1, String value2, double threshold) {
+        if (value1.isEmpty() || value2.isEmpty()) {
+            return 0d;
+        }
+        String code1 = getCode(value1);
+        String code2 = getCode(value2);
+        if (code1 == null || code2 == null || code1.isEmpty() || code1.length() != code2.length()) {
+            return 0d;
+        }
+        int distance = 0;
+        for (int i = 0; i < code1.length(); i++) {
+            if (code1.charAt(i) != code2.charAt(i)) {
+                distance++;
+            }
+        }
+        return distance <= getMaxDistance(threshold) ? getSimilarity(distance) : 0d;
+    }
+
+    /**
+     * Computes a mapping between a source and a target.
+     *
+     * @param source
+     *            Source cache
+     * @param target
+     *            Target cache
+     * @param sourceVar
+     *            Variable for the source dataset
+     * @param targetVar
+     *            Variable for the target dataset
+     * @param expression
+     *            Expression to process.
+     * @param threshold
+     *            Similarity threshold
+     * @return A mapping which contains links between the source instances and
+     *         the target instances
+     */
+    @Override
+    public AMapping getMapping(ACache source, ACache target, String sourceVar, String targetVar, String expression,
+                               double threshold) {
+        if (threshold <= 0) {
+            throw new InvalidThresholdException(threshold);
+        }
+        List<String> properties = PropertyFetcher.getProperties(expression, threshold);
+        Map<String, Set<String>> sourceMap = getValueToUriMap(source, properties.get(0));
+        Map<String, Set<String>> targetMap = getValueToUriMap(target, properties.get(1));
+        Map<String, String> codes = getCodes(sourceMap.keySet(), targetMap.keySet());
+        // group the values by their codes
+        Map<String, List<String>> sourceCodes = getInvertedList(sourceMap.keySet(), codes);
+        Map<String, List<String>> targetCodes = getInvertedList(targetMap.keySet(), codes);
+        String[] sourceKeys = sourceCodes.keySet().toArray(new String[sourceCodes.size()]);
+        int maxDistance = getMaxDistance(threshold);
+        Trie trie = maxDistance > 0 ? new Trie(targetCodes.keySet()) : null;
+        ColumnarMapping result = MappingFactory.createColumnarMapping(source, target);
+        int partitions = ComputePool.getPartitions(sourceKeys.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sourceKeys.length / partitions);
+            final int to = (int) ((long) (i + 1) * sourceKeys.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ColumnarMapping links = MappingFactory.createColumnarMapping(result.getSourceDictionary(),
+                        result.getTargetDictionary());
+                for (int j = from; j < to; j++) {
+                    String code = sourceKeys[j];
+                    if (trie == null) {
+                        List<String> targetValues = targetCodes.get(code);
+                        if (targetValues != null) {
+                            addLinks(links, sourceCodes.get(code), targetValues, 0, sourceMap, targetMap);
+                        }
+                    } else {
+                        int[] matches = trie.search(code, maxDistance);
+                        for (int k = 0; k < matches.length; k += 2) {
+                            addLinks(links, sourceCodes.get(code), targetCodes.get(trie.getCode(matches[k])),
+                                    matches[k + 1], sourceMap, targetMap);
+                        }
+                    }
+                }
+                return links;
+            }));
+        }
+        ComputePool.invokeAll(tasks);
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            result.addAll(task.join());
+        }
+        return result;
+    }
+
+    private void addLinks(AMapping links, List<String> sourceValues, List<String> targetValues, int distance,
+                          Map<String, Set<String>> sourceMap, Map<String, Set<String>> targetMap) {
+        double similarity = getSimilarity(distance);
+        for (String a : sourceValues) {
+            for (String b : targetValues) {
+                for (String sourceUri : sourceMap.get(a)) {
+                    for (String targetUri : targetMap.get(b)) {
+                        links.add(sourceUri, targetUri, similarity);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes each distinct value of the source and the target once, in
+     * parallel.
+     *
+     * @param sourceValues
+     *            Source values
+     * @param targetValues
+     *            Target values
+     * @return map from the values to their non-empty codes
+     */
+    private Map<String, String> getCodes(Set<String> sourceValues, Set<String> targetValues) {
+        Set<String> distinct = new HashSet<>(sourceValues);
+        distinct.addAll(targetValues);
+        String[] values = distinct.toArray(new String[distinct.size()]);
+        String[] codes = new String[values.length];
+        int partitions = ComputePool.getPartitions(values.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * values.length / partitions);
+            final int to = (int) ((long) (i + 1) * values.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                for (int j = from; j < to; j++) {
+                    if (!values[j].isEmpty()) {
+                        codes[j] = getCode(values[j]);
+                    }
+                }
+            }, null));
+        }
+        ComputePool.invokeAll(tasks);
+        Map<String, String> result = new HashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            if (codes[i] != null && !codes[i].isEmpty()) {
+                result.put(values[i], codes[i]);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, List<String>> getInvertedList(Set<String> values, Map<String, String> codes) {
+        Map<String, List<String>> result = new HashMap<>();
+        for (String value : values) {
+            String code = codes.get(value);
+            if (code != null) {
+                result.computeIfAbsent(code, k -> new ArrayList<>(1)).add(value);
+            }
+        }
+        return result;
+    }
+
+    public double getRuntimeApproximation(int sourceSize, int targetSize, double theta, Language language) {
+        return 1000d;
+    }
+
+    public double getMappingSizeApproximation(int sourceSize, int targetSize, double theta, Language language) {
+        return 1000d;
+    }
+
+    /**
+     * Trie of codes stored in arrays. The children of a node are linked
+     * through their siblings, a node that ends a code holds the index of that
+     * code.
+     */
+    static class Trie {
+
+        private final String[] codes;
+        private char[] labels;
+        private int[] firstChild;
+        private int[] nextSibling;
+        private int[] code;
+        private int size;
+
+        Trie(Collection<String> codes) {
+            this.codes = codes.toArray(new String[codes.size()]);
+            int capacity = 1;
+            for (String c : this.codes) {
+                capacity += c.length();
+            }
+            labels = new char[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            code = new int[capacity];
+            Arrays.fill(firstChild, -1);
+            Arrays.fill(nextSibling, -1);
+            Arrays.fill(code, -1);
+            size = 1;
+            for (int i = 0; i < this.codes.length; i++) {
+                add(this.codes[i], i);
+            }
+        }
+
+        private void add(String c, int index) {
+            int node = 0;
+            for (int i = 0; i < c.length(); i++) {
+                char label = c.charAt(i);
+                int child = firstChild[node];
+                while (child >= 0 && labels[child] != label) {
+                    child = nextSibling[child];
+                }
+                if (child < 0) {
+                    child = size++;
+                    labels[child] = label;
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            code[node] = index;
+        }
+
+        String getCode(int index) {
+            return codes[index];
+        }
+
+        /**
+         * @param c
+         *            Code to search for
+         * @param maxDistance
+         *            Maximal Hamming distance
+         * @return pairs of the indexes and the distances of the codes of the
+         *         same length within maxDistance of c
+         */
+        int[] search(String c, int maxDistance) {
+            int length = c.length();
+            int[] result = new int[8];
+            int n = 0;
+            // depth first search, each state is a node, its depth and distance
+            int[] stack = new int[3 * (length * 4 + 4)];
+            int top = 0;
+            stack[top++] = 0;
+            stack[top++] = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int distance = stack[--top];
+                int depth = stack[--top];
+                int node = stack[--top];
+                if (depth == length) {
+                    if (code[node] >= 0) {
+                        if (n == result.length) {
+                            result = Arrays.copyOf(result, n * 2);
+                        }
+                        result[n++] = code[node];
+                        result[n++] = distance;
+                    }
+                    continue;
+                }
+                char label = c.charAt(depth);
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    int childDistance = labels[child] == label ? distance : distance + 1;
+                    if (childDistance <= maxDistance) {
+                        if (top + 3 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[top++] = child;
+                        stack[top++] = depth + 1;
+                        stack[top++] = childDistance;
+                    }
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+    }
+}
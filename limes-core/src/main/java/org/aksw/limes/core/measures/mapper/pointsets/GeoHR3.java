@@ -29,8 +29,10 @@ import org.aksw.limes.core.measures.measure.MeasureType;
 import org.aksw.limes.core.measures.measure.pointsets.IPointsetsMeasure;
 import org.aksw.limes.core.measures.measure.pointsets.hausdorff.CentroidIndexedHausdorffMeasure;
 import org.aksw.limes.core.measures.measure.pointsets.hausdorff.IndexedHausdorffMeasure;
+import org.aksw.limes.core.util.ComputePool;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Still need to add tabu list. Basically checks whether two polygons have
@@ -44,11 +46,33 @@ public class GeoHR3 {
     // when using
     // this index
 
+    /**
+     * Strategies for generating the pairs of polygons whose distance is
+     * computed.
+     */
+    public enum CandidateStrategy {
+        /**
+         * Squares of a latitude/longitude grid around the points of the
+         * polygons
+         */
+        GRID,
+        /**
+         * STR-packed R-tree over the envelopes of the target polygons, see
+         * {@link PolygonEnvelopeIndex}
+         */
+        STR_TREE
+    }
+
+    private static final int MIN_PARTITION_SQUARES = 256;
+    private static final int MIN_PARTITION_POLYGONS = 64;
+
     public static boolean threshold = false;
     public static double DEFAULT_THRESHOLD = 1f;
     public static int DEFAULT_GRANULARITY = 4;
-    public static float delta;
+    public static final CandidateStrategy DEFAULT_STRATEGY = CandidateStrategy.GRID;
+    public float delta;
     public boolean HR3;
+    public CandidateStrategy strategy = DEFAULT_STRATEGY;
     public IPointsetsMeasure setMeasure;
     public boolean verbose = false;
     public long indexingTime;
@@ -240,7 +264,10 @@ public class GeoHR3 {
 
     /**
      * Runs GeoHR3 for source and target dataset. Uses the set SetMeasure
-     * implementation. FastHausdorff is used as default
+     * implementation. FastHausdorff is used as default. The source polygons
+     * are compared in partitions on the shared {@link ComputePool}, each of
+     * which fills its own mapping, hence the distance computation of the set
+     * measure must be thread-safe.
      *
      * @param sourceData,
      *            Source polygons
@@ -249,11 +276,13 @@ public class GeoHR3 {
      * @return Mapping of polygons
      */
     public AMapping run(Set<Polygon> sourceData, Set<Polygon> targetData) {
+        if (strategy == CandidateStrategy.STR_TREE) {
+            return runWithEnvelopeIndex(sourceData, targetData);
+        }
         long begin = System.currentTimeMillis();
         GeoIndex source = assignSquares(sourceData);
         GeoIndex target = assignSquares(targetData);
         long end = System.currentTimeMillis();
-        Map<String, Set<String>> computed = new HashMap<String, Set<String>>();
         indexingTime = end - begin;
         if (verbose) {
             System.out.println("Geo-Indexing took: " + indexingTime + " ms");
@@ -263,41 +292,166 @@ public class GeoHR3 {
             System.out.println("Angular Threshold = " + angularThreshold);
             System.out.println("Index = " + source);
         }
-        AMapping m = MappingFactory.createDefaultMapping();
-
-        double d;
-        if (setMeasure instanceof CentroidIndexedHausdorffMeasure) {
-            ((CentroidIndexedHausdorffMeasure) setMeasure).computeIndexes(sourceData, targetData);
-        } else if (setMeasure instanceof IndexedHausdorffMeasure) {
-            PolygonIndex targetIndex = new PolygonIndex();
-            targetIndex.index(targetData);
-            ((IndexedHausdorffMeasure) setMeasure).targetIndex = targetIndex;
+        prepareMeasure(sourceData, targetData);
+        // the target polygons are known by their position, each square of the
+        // target index becomes an array of these ids
+        Polygon[] targets = targetData.toArray(new Polygon[targetData.size()]);
+        Map<Polygon, Integer> targetIds = new HashMap<Polygon, Integer>(2 * targets.length);
+        for (int i = 0; i < targets.length; i++) {
+            targetIds.put(targets[i], i);
         }
+        // the target squares to compare with each source square are computed
+        // once and shared by all polygons of the square
+        List<List<Integer>> squareKeys = new ArrayList<List<Integer>>();
         for (Integer latIndex : source.squares.keySet()) {
             for (Integer longIndex : source.squares.get(latIndex).keySet()) {
-                GeoSquare g1 = source.getSquare(latIndex, longIndex);
-                Set<List<Integer>> squares = getSquaresToCompare(latIndex, longIndex, target);
-                for (List<Integer> squareIndex : squares) {
-                    GeoSquare g2 = target.getSquare(squareIndex.get(0), squareIndex.get(1));
-                    // only run if the hypercube actually exists
-                    for (Polygon a : g1.elements) {
-                        for (Polygon b : g2.elements) {
-                            if (!computed.containsKey(a.uri)) {
-                                computed.put(a.uri, new HashSet<String>());
+                squareKeys.add(Arrays.asList(latIndex, longIndex));
+            }
+        }
+        Map<List<Integer>, Integer> squareIds = new HashMap<List<Integer>, Integer>(2 * squareKeys.size());
+        for (int i = 0; i < squareKeys.size(); i++) {
+            squareIds.put(squareKeys.get(i), i);
+        }
+        int[][][] squaresToCompare = new int[squareKeys.size()][][];
+        int partitions = ComputePool.getPartitions(squareKeys.size(), MIN_PARTITION_SQUARES);
+        List<ForkJoinTask<Void>> squareTasks = new ArrayList<ForkJoinTask<Void>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * squareKeys.size() / partitions);
+            final int to = (int) ((long) (i + 1) * squareKeys.size() / partitions);
+            squareTasks.add(ForkJoinTask.adapt(() -> {
+                for (int j = from; j < to; j++) {
+                    List<Integer> key = squareKeys.get(j);
+                    List<int[]> ids = new ArrayList<int[]>();
+                    for (List<Integer> squareIndex : getSquaresToCompare(key.get(0), key.get(1), target)) {
+                        // only keep the squares that actually exist
+                        Set<Polygon> elements = target.getSquare(squareIndex.get(0), squareIndex.get(1)).elements;
+                        if (!elements.isEmpty()) {
+                            int[] square = new int[elements.size()];
+                            int k = 0;
+                            for (Polygon b : elements) {
+                                square[k++] = targetIds.get(b);
                             }
-                            if (!computed.get(a.uri).contains(b.uri)) {
-                                // add subset condition
-                                d = setMeasure.computeDistance(a, b, distanceThreshold);
+                            ids.add(square);
+                        }
+                    }
+                    squaresToCompare[j] = ids.toArray(new int[ids.size()][]);
+                }
+            }, null));
+        }
+        ComputePool.invokeAll(squareTasks);
+
+        // each source polygon is compared once with every target polygon of
+        // the squares around its own squares. A bitset over the target ids
+        // skips the pairs that were already computed, it is reused by all
+        // polygons of a partition and only the set bits are cleared.
+        Polygon[] sources = sourceData.toArray(new Polygon[sourceData.size()]);
+        partitions = ComputePool.getPartitions(sources.length, MIN_PARTITION_POLYGONS);
+        List<ForkJoinTask<AMapping>> tasks = new ArrayList<ForkJoinTask<AMapping>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sources.length / partitions);
+            final int to = (int) ((long) (i + 1) * sources.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                AMapping links = MappingFactory.createDefaultMapping();
+                BitSet computed = new BitSet(targets.length);
+                int[] computedIds = new int[16];
+                for (int j = from; j < to; j++) {
+                    Polygon a = sources[j];
+                    Set<List<Integer>> squares = source.getIndexes(a);
+                    if (squares == null) {
+                        // polygon without points
+                        continue;
+                    }
+                    int size = 0;
+                    for (List<Integer> squareIndex : squares) {
+                        for (int[] square : squaresToCompare[squareIds.get(squareIndex)]) {
+                            for (int id : square) {
+                                if (computed.get(id)) {
+                                    continue;
+                                }
+                                computed.set(id);
+                                if (size == computedIds.length) {
+                                    computedIds = Arrays.copyOf(computedIds, 2 * size);
+                                }
+                                computedIds[size++] = id;
+                                Polygon b = targets[id];
+                                double d = setMeasure.computeDistance(a, b, distanceThreshold);
                                 if (d <= distanceThreshold) {
-                                    m.add(a.uri, b.uri, 1 / (1 + d));
+                                    links.add(a.uri, b.uri, 1 / (1 + d));
                                 }
                             }
-                            computed.get(a.uri).add(b.uri);
                         }
                     }
+                    for (int k = 0; k < size; k++) {
+                        computed.clear(computedIds[k]);
+                    }
                 }
-            }
+                return links;
+            }));
+        }
+        AMapping m = MappingFactory.createDefaultMapping();
+        for (AMapping links : ComputePool.invokeAll(tasks)) {
+            links.forEachLink(m::add);
+        }
+        return m;
+    }
+
+    /**
+     * Runs the join with candidates from a {@link PolygonEnvelopeIndex} over
+     * the target polygons instead of the grid. Each candidate pair is visited
+     * once, hence no pairs need to be remembered.
+     *
+     * @param sourceData,
+     *            Source polygons
+     * @param targetData,
+     *            Target polygons
+     * @return Mapping of polygons
+     */
+    public AMapping runWithEnvelopeIndex(Set<Polygon> sourceData, Set<Polygon> targetData) {
+        long begin = System.currentTimeMillis();
+        PolygonEnvelopeIndex target = new PolygonEnvelopeIndex(targetData);
+        indexingTime = System.currentTimeMillis() - begin;
+        if (verbose) {
+            System.out.println("Envelope indexing took: " + indexingTime + " ms");
+            System.out.println("Distance Threshold = " + distanceThreshold);
+        }
+        prepareMeasure(sourceData, targetData);
+        Polygon[] sources = sourceData.toArray(new Polygon[sourceData.size()]);
+        int partitions = ComputePool.getPartitions(sources.length, MIN_PARTITION_POLYGONS);
+        List<ForkJoinTask<AMapping>> tasks = new ArrayList<ForkJoinTask<AMapping>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sources.length / partitions);
+            final int to = (int) ((long) (i + 1) * sources.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                AMapping links = MappingFactory.createDefaultMapping();
+                for (int j = from; j < to; j++) {
+                    Polygon a = sources[j];
+                    target.query(a, distanceThreshold, b -> {
+                        double d = setMeasure.computeDistance(a, b, distanceThreshold);
+                        if (d <= distanceThreshold) {
+                            links.add(a.uri, b.uri, 1 / (1 + d));
+                        }
+                    });
+                }
+                return links;
+            }));
+        }
+        AMapping m = MappingFactory.createDefaultMapping();
+        for (AMapping links : ComputePool.invokeAll(tasks)) {
+            links.forEachLink(m::add);
         }
         return m;
     }
+
+    /**
+     * Sets up the indexes of the indexed set measures.
+     */
+    private void prepareMeasure(Set<Polygon> sourceData, Set<Polygon> targetData) {
+        if (setMeasure instanceof CentroidIndexedHausdorffMeasure) {
+            ((CentroidIndexedHausdorffMeasure) setMeasure).computeIndexes(sourceData, targetData);
+        } else if (setMeasure instanceof IndexedHausdorffMeasure) {
+            PolygonIndex targetIndex = new PolygonIndex();
+            targetIndex.index(targetData);
+            ((IndexedHausdorffMeasure) setMeasure).targetIndex = targetIndex;
+        }
+    }
 }
@@ -44,6 +44,22 @@ public class OrchidMapper extends AMapper {
     private static final Logger logger = LoggerFactory.getLogger(OrchidMapper.class);
 
     IPointsetsMeasure m = null;
+    private GeoHR3.CandidateStrategy candidateStrategy = GeoHR3.DEFAULT_STRATEGY;
+
+    /**
+     * @return the strategy used to generate candidate pairs of polygons
+     */
+    public GeoHR3.CandidateStrategy getCandidateStrategy() {
+        return candidateStrategy;
+    }
+
+    /**
+     * @param candidateStrategy
+     *            the strategy used to generate candidate pairs of polygons
+     */
+    public void setCandidateStrategy(GeoHR3.CandidateStrategy candidateStrategy) {
+        this.candidateStrategy = candidateStrategy;
+    }
 
     public static List<Point> getPoints(String wktString) {
         LimesWktReader wktReader = new LimesWktReader();
@@ -107,6 +123,7 @@ public class OrchidMapper extends AMapper {
         Set<Polygon> targetPolygons = getPolygons(target, properties.get(1));
         float theta = (1 / (float) threshold) - 1;
         GeoHR3 orchid = new GeoHR3(theta, GeoHR3.DEFAULT_GRANULARITY, MeasureFactory.getMeasureType(expression));
+        orchid.strategy = candidateStrategy;
         return orchid.run(sourcePolygons, targetPolygons);
     }
 
@@ -0,0 +1,155 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.pointsets;
+
+import org.aksw.limes.core.datastrutures.Point;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * STR-packed R-tree over the envelopes of polygons, an alternative to the
+ * square grid of {@link GeoHR3} for generating candidate pairs. A query
+ * returns each polygon whose envelope lies within a given orthodromic distance
+ * of the envelope of the query polygon exactly once, hence a join needs no
+ * set of already compared pairs.
+ * <p>
+ * As in {@link GeoHR3}, the first coordinate of a point is its latitude and
+ * the second one its longitude.
+ */
+public class PolygonEnvelopeIndex {
+
+    // relative and absolute slack that keeps the expansion conservative
+    // under rounding
+    private static final double EPSILON = 1e-9;
+
+    private final STRtree tree;
+
+    private static class Entry {
+        final Polygon polygon;
+        final Envelope envelope;
+
+        Entry(Polygon polygon, Envelope envelope) {
+            this.polygon = polygon;
+            this.envelope = envelope;
+        }
+    }
+
+    /**
+     * Builds the index. Polygons without points are not indexed.
+     *
+     * @param polygons
+     *            polygons to index
+     */
+    public PolygonEnvelopeIndex(Collection<Polygon> polygons) {
+        tree = new STRtree();
+        for (Polygon p : polygons) {
+            Envelope envelope = getEnvelope(p);
+            if (envelope != null) {
+                tree.insert(envelope, new Entry(p, envelope));
+            }
+        }
+        // build the tree now, queries on a built tree are thread-safe
+        tree.build();
+    }
+
+    /**
+     * @param p
+     *            a polygon
+     * @return the envelope of the polygon with the longitude as x and the
+     *         latitude as y, null for polygons without points
+     */
+    public static Envelope getEnvelope(Polygon p) {
+        if (p.points.isEmpty()) {
+            return null;
+        }
+        Envelope envelope = new Envelope();
+        for (Point x : p.points) {
+            envelope.expandToInclude(x.coordinates.get(1), x.coordinates.get(0));
+        }
+        return envelope;
+    }
+
+    /**
+     * Visits the indexed polygons whose envelope may contain a point within
+     * the given distance of a point of the query polygon. The envelope of the
+     * query polygon is expanded by the distance in latitude and by the
+     * largest longitude difference that the distance allows at the most polar
+     * latitude of the expanded envelope, wrapping around the 180th meridian.
+     *
+     * @param p
+     *            query polygon
+     * @param distance
+     *            orthodromic distance in km
+     * @param visitor
+     *            called once for each candidate
+     */
+    public void query(Polygon p, double distance, Consumer<Polygon> visitor) {
+        Envelope envelope = getEnvelope(p);
+        if (envelope == null) {
+            return;
+        }
+        double angle = distance / OrthodromicDistance.R;
+        double deltaLat = Math.toDegrees(angle) * (1 + EPSILON) + EPSILON;
+        double minLat = envelope.getMinY() - deltaLat;
+        double maxLat = envelope.getMaxY() + deltaLat;
+        double polarLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        // cos(lat1) * cos(lat2) * sin^2(deltaLong / 2) <= sin^2(angle / 2)
+        double ratio = polarLat >= 90 ? Double.POSITIVE_INFINITY
+                : Math.sin(angle / 2) / Math.cos(Math.toRadians(polarLat));
+        if (ratio >= 1) {
+            query(new Envelope(-Double.MAX_VALUE, Double.MAX_VALUE, minLat, maxLat), null, visitor);
+            return;
+        }
+        double deltaLong = Math.toDegrees(2 * Math.asin(ratio)) * (1 + EPSILON) + EPSILON;
+        double minLong = envelope.getMinX() - deltaLong;
+        double maxLong = envelope.getMaxX() + deltaLong;
+        if (maxLong - minLong >= 360) {
+            query(new Envelope(-Double.MAX_VALUE, Double.MAX_VALUE, minLat, maxLat), null, visitor);
+            return;
+        }
+        Envelope main = new Envelope(minLong, maxLong, minLat, maxLat);
+        query(main, null, visitor);
+        // the parts beyond the 180th meridian skip polygons that were already
+        // visited through the main envelope
+        if (minLong < -180) {
+            query(new Envelope(minLong + 360, maxLong + 360, minLat, maxLat), main, visitor);
+        }
+        if (maxLong > 180) {
+            query(new Envelope(minLong - 360, maxLong - 360, minLat, maxLat), main, visitor);
+        }
+    }
+
+    private void query(Envelope search, Envelope visited, Consumer<Polygon> visitor) {
+        tree.query(search, item -> {
+            Entry entry = (Entry) item;
+            if (visited == null || !visited.intersects(entry.envelope)) {
+                visitor.accept(entry.polygon);
+            }
+        });
+    }
+
+    /**
+     * @return the number of indexed polygons
+     */
+    public int size() {
+        return tree.size();
+    }
+}
@@ -23,6 +23,7 @@ package org.aksw.limes.core.measures.mapper.space;
 
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.io.parser.Parser;
 import org.aksw.limes.core.measures.mapper.AMapper;
@@ -30,18 +31,23 @@ import org.aksw.limes.core.measures.mapper.space.blocking.BlockingFactory;
 import org.aksw.limes.core.measures.mapper.space.blocking.IBlockingModule;
 import org.aksw.limes.core.measures.measure.space.ISpaceMeasure;
 import org.aksw.limes.core.measures.measure.space.SpaceMeasureFactory;
+import org.aksw.limes.core.util.ComputePool;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.TreeSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 /**
- * Uses metric spaces to create blocks.
+ * Uses metric spaces to create blocks. The coordinates are parsed once into
+ * columns, the source blocks are compared in parallel.
  *
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
  */
 public class HR3Mapper extends AMapper {
 
+    private static final int MIN_PARTITION_SIZE = 64;
+
     public int granularity = 4;
 
     // this might only work for substraction. Need to create something that
@@ -75,13 +81,6 @@ public class HR3Mapper extends AMapper {
     public AMapping getMapping(ACache source, ACache target, String sourceVar, String targetVar, String expression,
                                double threshold) {
 
-
-        AMapping mapping = MappingFactory.createDefaultMapping();
-
-        // maps each block id to a set of instances. Actually one should
-        // integrate LIMES here
-        HashMap<ArrayList<Integer>, TreeSet<String>> targetBlocks = new HashMap<ArrayList<Integer>, TreeSet<String>>();
-
         // 0. get properties
         String property1, property2;
         // get property labels
@@ -111,7 +110,9 @@ public class HR3Mapper extends AMapper {
         }
 
         // get number of dimensions we are dealing with
-        int dimensions = property2.split("\\|").length;
+        String[] sourceProperties = property1.split("\\|");
+        String[] targetProperties = property2.split("\\|");
+        int dimensions = targetProperties.length;
         // important. The Blocking module takes care of the transformation from
         // similarity to
         // distance threshold. Central for finding the right blocks and might
@@ -122,62 +123,148 @@ public class HR3Mapper extends AMapper {
 
         // initialize the measure for similarity computation
         ISpaceMeasure measure = SpaceMeasureFactory.getMeasure(p.getOperator(), dimensions);
-
-        // compute blockid for each of the elements of the target
-        // implement our simple yet efficient blocking approach
-        ArrayList<ArrayList<Integer>> blockIds;
-        for (String key : target.getAllUris()) {
-            blockIds = generator.getAllBlockIds(target.getInstance(key));
-            for (int ids = 0; ids < blockIds.size(); ids++) {
-                if (!targetBlocks.containsKey(blockIds.get(ids))) {
-                    targetBlocks.put(blockIds.get(ids), new TreeSet<String>());
-                }
-                targetBlocks.get(blockIds.get(ids)).add(key);
-            }
+        if (p.getOperator().toLowerCase().startsWith("geo")) {
+            // geo measures expect lat|long points
+            sourceProperties = toLatLong(sourceProperties);
+            targetProperties = toLatLong(targetProperties);
         }
 
-        ArrayList<ArrayList<Integer>> blocksToCompare;
-        // comparison
-        TreeSet<String> uris;
-        double sim;
-        int counter = 0;
-        source.getAllUris().size();
-        for (String sourceInstanceUri : source.getAllUris()) {
-            counter++;
-            if (counter % 1000 == 0) {
-                // logger.info("Processed " + (counter * 100 / size) + "% of the
-                // links");
-                // get key
+        // parse the coordinates once and group the points by blocks
+        SpacePoints sourcePoints = SpacePoints.read(source, sourceProperties);
+        SpacePoints targetPoints = SpacePoints.read(target, targetProperties);
+        sourcePoints.groupByBlocks(generator);
+        targetPoints.groupByBlocks(generator);
 
-            }
-            // logger.info("Getting "+property1+" from "+sourceInstanceUri);
-            blockIds = generator.getAllSourceIds(source.getInstance(sourceInstanceUri), property1);
-            // logger.info("BlockId for "+sourceInstanceUri+" is "+blockId);
-            // for all blocks in [-1, +1] in each dimension compute similarities
-            // and store them
-            for (int ids = 0; ids < blockIds.size(); ids++) {
-                blocksToCompare = generator.getBlocksToCompare(blockIds.get(ids));
-
-                // logger.info(sourceInstanceUri+" is to compare with blocks
-                // "+blocksToCompare);
-                for (int index = 0; index < blocksToCompare.size(); index++) {
-                    if (targetBlocks.containsKey(blocksToCompare.get(index))) {
-                        uris = targetBlocks.get(blocksToCompare.get(index));
-                        for (String targetInstanceUri : uris) {
-                            sim = measure.getSimilarity(source.getInstance(sourceInstanceUri),
-                                    target.getInstance(targetInstanceUri), property1, property2);
-                            if (sim >= threshold) {
-                                mapping.add(sourceInstanceUri, targetInstanceUri, sim);
+        // compare the source blocks in parallel with the target blocks
+        // around them, which are computed once if they are the same for all
+        // blocks
+        int[][] offsets = generator.isTranslationInvariant() ? getBlockOffsets(generator, dimensions) : null;
+        int blocks = sourcePoints.getBlockCount();
+        ColumnarMapping mapping = MappingFactory.createColumnarMapping(source, target);
+        int partitions = ComputePool.getPartitions(blocks, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * blocks / partitions);
+            final int to = (int) ((long) (i + 1) * blocks / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ColumnarMapping links = MappingFactory.createColumnarMapping(mapping.getSourceDictionary(),
+                        mapping.getTargetDictionary());
+                double[] a = new double[dimensions];
+                double[] b = new double[dimensions];
+                int[] sources = sourcePoints.getPoints();
+                int[] targets = targetPoints.getPoints();
+                for (int block = from; block < to; block++) {
+                    int[] targetBlocks = offsets != null
+                            ? getBlocksToCompare(block, sourcePoints, offsets, targetPoints)
+                            : getBlocksToCompare(sourcePoints.getBlockId(block), generator, targetPoints);
+                    for (int j = sourcePoints.getBlockStart(block); j < sourcePoints.getBlockStart(block + 1); j++) {
+                        int s = sources[j];
+                        sourcePoints.getCoordinates(s, a);
+                        String sourceInstanceUri = sourcePoints.uris[sourcePoints.owners[s]];
+                        for (int targetBlock : targetBlocks) {
+                            for (int k = targetPoints.getBlockStart(targetBlock); k < targetPoints
+                                    .getBlockStart(targetBlock + 1); k++) {
+                                int t = targets[k];
+                                targetPoints.getCoordinates(t, b);
+                                double sim = measure.getSimilarity(a, b);
+                                if (sim >= threshold) {
+                                    links.add(sourceInstanceUri, targetPoints.uris[targetPoints.owners[t]], sim);
+                                }
                             }
                         }
                     }
                 }
-            }
+                return links;
+            }));
+        }
+        for (ColumnarMapping links : ComputePool.invokeAll(tasks)) {
+            mapping.addAll(links);
         }
-        // logger.info("Cmin = "+necessaryComparisons+"; C = "+comparisons);
         return mapping;
     }
 
+    /**
+     * Computes the offsets of the blocks to compare with any block of a
+     * translation invariant blocking module.
+     */
+    private int[][] getBlockOffsets(IBlockingModule generator, int dimensions) {
+        ArrayList<Integer> origin = new ArrayList<>(dimensions);
+        for (int d = 0; d < dimensions; d++) {
+            origin.add(0);
+        }
+        ArrayList<ArrayList<Integer>> blocksToCompare = generator.getBlocksToCompare(origin);
+        int[][] offsets = new int[blocksToCompare.size()][dimensions];
+        for (int i = 0; i < offsets.length; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                offsets[i][d] = blocksToCompare.get(i).get(d);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Computes the blocks of the target that are to be compared with a source
+     * block by shifting the offsets to the source block.
+     *
+     * @return the distinct target blocks that contain points
+     */
+    private int[] getBlocksToCompare(int sourceBlock, SpacePoints sourcePoints, int[][] offsets,
+                                     SpacePoints targetPoints) {
+        int[] targetBlocks = new int[offsets.length];
+        int[] blockId = new int[sourcePoints.columns.length];
+        int count = 0;
+        for (int[] offset : offsets) {
+            sourcePoints.getBlockId(sourceBlock, offset, blockId);
+            int block = targetPoints.findBlock(blockId);
+            if (block >= 0) {
+                targetBlocks[count++] = block;
+            }
+        }
+        return distinct(targetBlocks, count);
+    }
+
+    /**
+     * Computes the blocks of the target that are to be compared with a source
+     * block.
+     *
+     * @return the distinct target blocks that contain points
+     */
+    private int[] getBlocksToCompare(ArrayList<Integer> blockId, IBlockingModule generator,
+                                     SpacePoints targetPoints) {
+        ArrayList<ArrayList<Integer>> blocksToCompare = generator.getBlocksToCompare(blockId);
+        int[] targetBlocks = new int[blocksToCompare.size()];
+        int count = 0;
+        for (ArrayList<Integer> id : blocksToCompare) {
+            int block = targetPoints.findBlock(id);
+            if (block >= 0) {
+                targetBlocks[count++] = block;
+            }
+        }
+        return distinct(targetBlocks, count);
+    }
+
+    private static int[] distinct(int[] targetBlocks, int count) {
+        Arrays.sort(targetBlocks, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || targetBlocks[distinct - 1] != targetBlocks[i]) {
+                targetBlocks[distinct++] = targetBlocks[i];
+            }
+        }
+        return Arrays.copyOf(targetBlocks, distinct);
+    }
+
+    /**
+     * Orders two properties as latitude and longitude, properties starting
+     * with "lo" are taken to be longitudes.
+     */
+    private static String[] toLatLong(String[] properties) {
+        if (properties.length == 2 && properties[0].toLowerCase().startsWith("lo")) {
+            return new String[] { properties[1], properties[0] };
+        }
+        return properties;
+    }
+
     // need to change this
     public double getRuntimeApproximation(int sourceSize, int targetSize, double threshold, Language language) {
         if (language.equals(Language.DE)) {
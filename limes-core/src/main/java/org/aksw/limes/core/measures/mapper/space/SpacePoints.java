@@ -0,0 +1,397 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.space;
+
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.Instance;
+import org.aksw.limes.core.measures.mapper.space.blocking.IBlockingModule;
+import org.aksw.limes.core.util.ComputePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The points of a cache for the {@link HR3Mapper}. The property values are
+ * parsed once into one dense coordinate column per dimension. An instance
+ * with several values per property yields one point per combination of
+ * values, just like the block ids of the blocking modules.
+ * <p>
+ * The points can be grouped by their blocks. Blocks are looked up by block
+ * ids packed into long keys in an open addressing hash table, so that neither
+ * the points nor the block ids are boxed.
+ */
+class SpacePoints {
+
+    static Logger logger = LoggerFactory.getLogger(SpacePoints.class);
+
+    private static final int MIN_PARTITION_SIZE = 4096;
+
+    /**
+     * Uris of the instances.
+     */
+    final String[] uris;
+    /**
+     * Index of the instance of each point in {@link #uris}.
+     */
+    final int[] owners;
+    /**
+     * Coordinates of the points, columns[d][p] is coordinate d of point p.
+     */
+    final double[][] columns;
+    final int size;
+
+    private int blockCount;
+    /**
+     * Block ids, the id of block b is stored from b * dimensions on.
+     */
+    private int[] blockIds;
+    /**
+     * Packed block ids of the blocks.
+     */
+    private long[] blockKeys;
+    /**
+     * The points of block b are points[blockStarts[b]] to
+     * points[blockStarts[b + 1] - 1].
+     */
+    private int[] blockStarts;
+    private int[] points;
+    /**
+     * Hash table that maps hash slots to block + 1 (0 marks an empty slot).
+     */
+    private int[] table;
+
+    private SpacePoints(String[] uris, int[] owners, double[][] columns, int size) {
+        this.uris = uris;
+        this.owners = owners;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /**
+     * Parses the points of all instances of a cache. The instances are read
+     * sequentially, their values are parsed in parallel.
+     *
+     * @param cache
+     *            the cache
+     * @param properties
+     *            one property per dimension
+     * @return the points of the cache
+     */
+    static SpacePoints read(ACache cache, String[] properties) {
+        List<String> uriList = cache.getAllUris();
+        String[] uris = uriList.toArray(new String[uriList.size()]);
+        Instance[] instances = new Instance[uris.length];
+        for (int i = 0; i < uris.length; i++) {
+            instances[i] = cache.getInstance(uris[i]);
+        }
+        int dimensions = properties.length;
+        int partitions = ComputePool.getPartitions(uris.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<Columns>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * uris.length / partitions);
+            final int to = (int) ((long) (i + 1) * uris.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Columns columns = new Columns(dimensions, to - from);
+                for (int j = from; j < to; j++) {
+                    columns.add(j, instances[j], properties);
+                }
+                return columns;
+            }));
+        }
+        List<Columns> parts = ComputePool.invokeAll(tasks);
+        int size = 0;
+        for (Columns part : parts) {
+            size += part.size;
+        }
+        int[] owners = new int[size];
+        double[][] columns = new double[dimensions][size];
+        int offset = 0;
+        for (Columns part : parts) {
+            System.arraycopy(part.owners, 0, owners, offset, part.size);
+            for (int d = 0; d < dimensions; d++) {
+                System.arraycopy(part.columns[d], 0, columns[d], offset, part.size);
+            }
+            offset += part.size;
+        }
+        return new SpacePoints(uris, owners, columns, size);
+    }
+
+    /**
+     * Copies the coordinates of a point.
+     *
+     * @param point
+     *            the point
+     * @param coordinates
+     *            array of length dimensions the coordinates are copied to
+     */
+    void getCoordinates(int point, double[] coordinates) {
+        for (int d = 0; d < columns.length; d++) {
+            coordinates[d] = columns[d][point];
+        }
+    }
+
+    /**
+     * Groups the points by their blocks in the given blocking module.
+     *
+     * @param generator
+     *            the blocking module
+     */
+    void groupByBlocks(IBlockingModule generator) {
+        int dimensions = columns.length;
+        int[] ids = new int[size * dimensions];
+        int partitions = ComputePool.getPartitions(size, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * size / partitions);
+            final int to = (int) ((long) (i + 1) * size / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                double[] coordinates = new double[dimensions];
+                for (int p = from; p < to; p++) {
+                    getCoordinates(p, coordinates);
+                    System.arraycopy(generator.getBlockId(coordinates), 0, ids, p * dimensions, dimensions);
+                }
+            }, null));
+        }
+        ComputePool.invokeAll(tasks);
+
+        // assign the blocks in the order of their first point
+        int capacity = 16;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        blockIds = new int[Math.max(1, size) * dimensions];
+        blockKeys = new long[Math.max(1, size)];
+        blockCount = 0;
+        int[] pointBlocks = new int[size];
+        int[] counts = new int[size + 1];
+        for (int p = 0; p < size; p++) {
+            int offset = p * dimensions;
+            long key = pack(ids, offset, dimensions);
+            int slot = findSlot(key, ids, offset);
+            if (table[slot] == 0) {
+                System.arraycopy(ids, offset, blockIds, blockCount * dimensions, dimensions);
+                blockKeys[blockCount] = key;
+                table[slot] = ++blockCount;
+            }
+            pointBlocks[p] = table[slot] - 1;
+            counts[table[slot]]++;
+        }
+        blockStarts = new int[blockCount + 1];
+        for (int b = 0; b < blockCount; b++) {
+            blockStarts[b + 1] = blockStarts[b] + counts[b + 1];
+        }
+        int[] next = Arrays.copyOf(blockStarts, blockCount);
+        points = new int[size];
+        for (int p = 0; p < size; p++) {
+            points[next[pointBlocks[p]]++] = p;
+        }
+    }
+
+    /**
+     * @return the number of blocks
+     */
+    int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @param block
+     *            a block
+     * @return the block id of the block
+     */
+    ArrayList<Integer> getBlockId(int block) {
+        int dimensions = columns.length;
+        ArrayList<Integer> blockId = new ArrayList<>(dimensions);
+        for (int d = 0; d < dimensions; d++) {
+            blockId.add(blockIds[block * dimensions + d]);
+        }
+        return blockId;
+    }
+
+    /**
+     * Copies the block id of a block shifted by an offset.
+     *
+     * @param block
+     *            a block
+     * @param offset
+     *            offset per dimension
+     * @param blockId
+     *            array of length dimensions the shifted id is copied to
+     */
+    void getBlockId(int block, int[] offset, int[] blockId) {
+        int dimensions = columns.length;
+        for (int d = 0; d < dimensions; d++) {
+            blockId[d] = blockIds[block * dimensions + d] + offset[d];
+        }
+    }
+
+    /**
+     * @param block
+     *            a block
+     * @return the index in {@link #getPoints()} of the first point of the
+     *         block, the points of block b end before the start of block b + 1
+     */
+    int getBlockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /**
+     * @return the points ordered by their blocks
+     */
+    int[] getPoints() {
+        return points;
+    }
+
+    /**
+     * Finds a block by its id.
+     *
+     * @param blockId
+     *            the block id
+     * @return the block or -1 if none of the points lies in the block
+     */
+    int findBlock(List<Integer> blockId) {
+        int dimensions = columns.length;
+        int[] ids = new int[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            ids[d] = blockId.get(d);
+        }
+        return findBlock(ids);
+    }
+
+    /**
+     * Finds a block by its id.
+     *
+     * @param blockId
+     *            the block id
+     * @return the block or -1 if none of the points lies in the block
+     */
+    int findBlock(int[] blockId) {
+        return table[findSlot(pack(blockId, 0, blockId.length), blockId, 0)] - 1;
+    }
+
+    /**
+     * Packs a block id into a long. Up to two dimensions the key is exact,
+     * beyond that it is a hash and the block ids are compared as well.
+     */
+    private static long pack(int[] ids, int offset, int dimensions) {
+        if (dimensions == 1) {
+            return ids[offset];
+        }
+        if (dimensions == 2) {
+            return ((long) ids[offset] << 32) | (ids[offset + 1] & 0xFFFFFFFFL);
+        }
+        long key = 0;
+        for (int d = 0; d < dimensions; d++) {
+            key = key * 0x9E3779B97F4A7C15L + ids[offset + d];
+        }
+        return key;
+    }
+
+    private int findSlot(long key, int[] ids, int offset) {
+        int dimensions = columns.length;
+        int mask = table.length - 1;
+        int slot = StringDictionary.mix((int) (key ^ (key >>> 32))) & mask;
+        while (table[slot] != 0) {
+            int block = table[slot] - 1;
+            if (blockKeys[block] == key && (dimensions <= 2 || hasBlockId(block, ids, offset))) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean hasBlockId(int block, int[] ids, int offset) {
+        int dimensions = columns.length;
+        for (int d = 0; d < dimensions; d++) {
+            if (blockIds[block * dimensions + d] != ids[offset + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Growable columns of the points of a range of instances.
+     */
+    private static class Columns {
+        int[] owners;
+        double[][] columns;
+        int size;
+
+        Columns(int dimensions, int capacity) {
+            owners = new int[Math.max(16, capacity)];
+            columns = new double[dimensions][owners.length];
+        }
+
+        /**
+         * Adds one point per combination of the values of an instance.
+         * Values that are not numbers are skipped.
+         */
+        void add(int owner, Instance instance, String[] properties) {
+            int dimensions = properties.length;
+            double[][] values = new double[dimensions][];
+            int combinations = 1;
+            for (int d = 0; d < dimensions; d++) {
+                values[d] = parse(instance.getProperty(properties[d]));
+                combinations *= values[d].length;
+            }
+            if (combinations == 0) {
+                return;
+            }
+            if (size + combinations > owners.length) {
+                int capacity = Math.max(owners.length * 2, size + combinations);
+                owners = Arrays.copyOf(owners, capacity);
+                for (int d = 0; d < dimensions; d++) {
+                    columns[d] = Arrays.copyOf(columns[d], capacity);
+                }
+            }
+            // enumerate the combinations with the last dimension varying
+            // fastest
+            for (int c = 0; c < combinations; c++) {
+                int rest = c;
+                for (int d = dimensions - 1; d >= 0; d--) {
+                    columns[d][size] = values[d][rest % values[d].length];
+                    rest /= values[d].length;
+                }
+                owners[size++] = owner;
+            }
+        }
+
+        private static double[] parse(TreeSet<String> values) {
+            double[] result = new double[values.size()];
+            int n = 0;
+            for (String s : values) {
+                try {
+                    result[n] = Double.parseDouble(s);
+                    n++;
+                } catch (NumberFormatException e) {
+                    logger.warn(s + " is not a number. Will be ignored.");
+                }
+            }
+            return n == result.length ? result : Arrays.copyOf(result, n);
+        }
+    }
+}
@@ -133,6 +133,19 @@ public class EuclideanBlockingModule implements IBlockingModule {
         return blockIds;
     }
 
+    public int[] getBlockId(double[] coordinates) {
+        int[] blockId = new int[dim];
+        for (int i = 0; i < dim; i++) {
+            blockId[i] = (int) java.lang.Math.floor(coordinates[i] / thresholds.get(i));
+        }
+        return blockId;
+    }
+
+    @Override
+    public boolean isTranslationInvariant() {
+        return true;
+    }
+
     /**
      * Computes the ids of all the blocks surrounding a given block for
      * comparison Will be extremely useful for parallelizing as we can use
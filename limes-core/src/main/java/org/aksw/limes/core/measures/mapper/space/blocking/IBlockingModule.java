@@ -34,6 +34,27 @@ public interface IBlockingModule {
 
     public ArrayList<Integer> getBlockId(Instance a);
 
+    /**
+     * Computes the block id of a point whose coordinates have already been
+     * parsed, in the order of the properties of this module.
+     *
+     * @param coordinates
+     *         coordinates of the point
+     * @return the block id of the point
+     */
+    public int[] getBlockId(double[] coordinates);
+
+    /**
+     * Tells whether the blocks to compare with a block only depend on their
+     * position relative to that block. Mappers can then compute them once and
+     * shift them to each block.
+     *
+     * @return true if the blocks to compare are translation invariant
+     */
+    public default boolean isTranslationInvariant() {
+        return false;
+    }
+
     public ArrayList<ArrayList<Integer>> getAllBlockIds(Instance a);
 
     public ArrayList<ArrayList<Integer>> getAllSourceIds(Instance a, String properties);
@@ -25,15 +25,18 @@ import algorithms.edjoin.Record;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.cache.Instance;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.io.parser.Parser;
 import org.aksw.limes.core.measures.mapper.AMapper;
 import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
+import org.aksw.limes.core.util.ComputePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MarkerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
@@ -41,10 +44,8 @@ import java.util.*;
 public class EDJoinMapper extends AMapper {
 
     static Logger logger = LoggerFactory.getLogger(EDJoinMapper.class);
-    private static int Q = -1;
-    private static AMapping mapping = null;
-    private static HashMap<Integer, String> sourceMap;
-    private static HashMap<Integer, String> targetMap;
+    private static final int Q = 3;
+    private static final int MIN_PARTITION_SIZE = 1024;
     @SuppressWarnings("unused")
     private int comparisons = 0;
 
@@ -82,17 +83,32 @@ public class EDJoinMapper extends AMapper {
         return records;
     }
 
-    private static int verification(Record currentRec, HashMap<Integer, Record> candidates, ArrayList<String> objects,
-                                    int q, int threshold) {
-        int count = 0;
-        String id1, id2;
-        Iterator<Record> iter = candidates.values().iterator();
-        while (iter.hasNext()) {
-            Record y = iter.next();
+    /**
+     * Verifies the candidates of a source record and adds the links within the
+     * distance threshold to the mapping. The candidates are first checked by
+     * the count, location-based mismatch and content filters, the survivors
+     * by a bounded edit distance.
+     *
+     * @param currentRec
+     *            Source record x
+     * @param candidates
+     *            Target records that passed the prefix filter
+     * @param q
+     *            Length of the q-grams
+     * @param threshold
+     *            Maximal edit distance
+     * @param uris
+     *            URIs of the records by id
+     * @param mapping
+     *            Mapping to which the links are added
+     */
+    private static void verification(Record currentRec, Collection<Record> candidates, int q, int threshold,
+                                     String[] uris, AMapping mapping) {
+        for (Record y : candidates) {
             compareQGramsResult compResult = compareQGrams(currentRec, y, threshold);
 
             /*
-             * count fnoiltering
+             * count filtering
              */
             if (compResult.e1 <= q * threshold) {
                 int e2 = minEditErrors(compResult.Q, q);
@@ -100,31 +116,16 @@ public class EDJoinMapper extends AMapper {
                  * location-based mismatch filtering
                  */
                 if (e2 <= threshold) {
-                    int e3 = contentFilter(objects.get(currentRec.id), objects.get(y.id), compResult.Q, threshold, q);
+                    int e3 = contentFilter(currentRec.s, y.s, compResult.Q, threshold, q);
                     if (e3 <= 2 * threshold) {
-                        int ed = editDistance(objects.get(currentRec.id), objects.get(y.id));
+                        int ed = editDistance(currentRec.s, y.s, threshold);
                         if (ed <= threshold) {
-                            if ((sourceMap.containsKey(currentRec.id) && targetMap.containsKey(y.id))) {
-                                id1 = sourceMap.get(currentRec.id);
-                                id2 = targetMap.get(y.id);
-                                // CORRECT
-                                mapping.add(id1, id2, 1.0 / (1 + (double) ed));
-                            } else if (targetMap.containsKey(currentRec.id) && sourceMap.containsKey(y.id)) {
-                                // get uris for ids
-                                {
-                                    id1 = sourceMap.get(y.id);
-                                    id2 = targetMap.get(currentRec.id);
-                                    // CORRECT
-                                    mapping.add(id1, id2, 1.0 / (1 + (double) ed));
-                                }
-                                count++;
-                            }
+                            mapping.add(uris[currentRec.id], uris[y.id], 1.0 / (1 + (double) ed));
                         }
                     }
                 }
             }
         }
-        return count;
     }
 
     private static int calcPrefixLen(Record x, int tau, int q) {
@@ -211,7 +212,8 @@ public class EDJoinMapper extends AMapper {
     private static int minEditErrors(MismatchingQGram[] Q, int q) {
         Arrays.sort(Q);
         int cnt = 0;
-        int loc = 0;
+        // a q-gram at location 0 needs an edit as well
+        int loc = -1;
         for (int i = 0; i < Q.length; i++) {
             if (Q[i].loc > loc) {
                 cnt++;
@@ -295,6 +297,28 @@ public class EDJoinMapper extends AMapper {
         return 0;
     }
 
+    /**
+     * Computes the similarity that the mapper assigns to a pair of values,
+     * i.e., 1 / (1 + d) for their edit distance d.
+     *
+     * @param value1
+     *            Source value
+     * @param value2
+     *            Target value
+     * @param threshold
+     *            Similarity threshold
+     * @return the similarity of the values, 0 if it is below the threshold or
+     *         if a value is empty
+     */
+    public static double getSimilarity(String value1, String value2, double threshold) {
+        int maxDistance = (int) ((1 - threshold) / threshold);
+        if (maxDistance < 0 || value1.isEmpty() || value2.isEmpty()) {
+            return 0d;
+        }
+        int distance = editDistance(value1, value2, maxDistance);
+        return distance <= maxDistance ? 1.0 / (1 + (double) distance) : 0d;
+    }
+
     /**
      * Berechnet die Edit-Distanz zwischen zwei Zeichenketten.
      *
@@ -342,6 +366,79 @@ public class EDJoinMapper extends AMapper {
         return d[n][m];
     }
 
+    /**
+     * Computes the edit distance between two strings up to a maximal distance.
+     * Only the diagonal band of width 2 * maxDistance + 1 of the dynamic
+     * programming matrix is computed and the computation stops as soon as all
+     * the entries of a row exceed maxDistance.
+     *
+     * @param x
+     *            First string
+     * @param y
+     *            Second string
+     * @param maxDistance
+     *            Maximal edit distance of interest
+     * @return The edit distance of x and y if it is at most maxDistance,
+     *         else maxDistance + 1
+     */
+    public static int editDistance(String x, String y, int maxDistance) {
+        if (x.length() > y.length()) {
+            String swap = x;
+            x = y;
+            y = swap;
+        }
+        int bound = maxDistance + 1;
+        if (y.length() - x.length() > maxDistance) {
+            return bound;
+        }
+        // strip the common prefix and suffix
+        int start = 0;
+        while (start < x.length() && x.charAt(start) == y.charAt(start)) {
+            start++;
+        }
+        int xEnd = x.length();
+        int yEnd = y.length();
+        while (xEnd > start && x.charAt(xEnd - 1) == y.charAt(yEnd - 1)) {
+            xEnd--;
+            yEnd--;
+        }
+        int n = xEnd - start;
+        int m = yEnd - start;
+        if (n == 0) {
+            return m;
+        }
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = Math.min(j, bound);
+        }
+        for (int i = 1; i <= n; i++) {
+            int lo = Math.max(1, i - maxDistance);
+            int hi = Math.min(m, i + maxDistance);
+            current[lo - 1] = lo == 1 ? Math.min(i, bound) : bound;
+            int rowMin = current[lo - 1];
+            char c = x.charAt(start + i - 1);
+            for (int j = lo; j <= hi; j++) {
+                int d = previous[j - 1] + (c == y.charAt(start + j - 1) ? 0 : 1);
+                d = Math.min(d, previous[j] + 1);
+                d = Math.min(d, current[j - 1] + 1);
+                current[j] = Math.min(d, bound);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return bound;
+            }
+            // the entry right of the band is read by the next row
+            if (hi < m) {
+                current[hi + 1] = bound;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
     private static int min(int a, int b, int c) {
         int min;
         min = a;
@@ -380,14 +477,11 @@ public class EDJoinMapper extends AMapper {
     public AMapping getMapping(ACache source, ACache target, String sourceVar, String targetVar, String expression,
                                double threshold) {
 
-        if (Q <= 1) {
-            Q = 3;
-        }
         // convert similarity in distance threshold
         threshold = (1 - threshold) / threshold;
 
         this.comparisons = 0;
-        mapping = MappingFactory.createDefaultMapping();
+        ColumnarMapping mapping = MappingFactory.createColumnarMapping(source, target);
         if (threshold < 0) {
             logger.info("Wrong threshold setting. Returning empty mapping.");
             return mapping;
@@ -412,137 +506,207 @@ public class EDJoinMapper extends AMapper {
                     "Expression " + expression + " was given to a mapper to process");
         }
 
-        // 3.1 fill objects from source in entry. This is for indexing and
-        // sorting
-        // later on
-        // logger.info("Filling objects from source knowledge base.");
-        sourceMap = new HashMap<Integer, String>();
-        ArrayList<String> uris = source.getAllUris();
-        ArrayList<String> entries = new ArrayList<String>();
-        Instance instance;
-        int counter = 0;
-        for (int i = 0; i < uris.size(); i++) {
-            instance = source.getInstance(uris.get(i));
-            for (String s : instance.getProperty(properties.get(0))) {
-                sourceMap.put(counter, uris.get(i));
+        // 3.1 fill objects from source in entries
+        List<String> entries = new ArrayList<String>();
+        List<String> entryUris = new ArrayList<String>();
+        for (String uri : source.getAllUris()) {
+            for (String s : source.getInstance(uri).getProperty(properties.get(0))) {
                 entries.add(s);
-                counter++;
+                entryUris.add(uri);
             }
         }
+        int sourceSize = entries.size();
 
         // 3.2 fill objects from target in entries
-        // logger.info("Filling objects from target knowledge base.");
-        targetMap = new HashMap<Integer, String>();
-        uris = target.getAllUris();
-        for (int i = 0; i < uris.size(); i++) {
-            instance = target.getInstance(uris.get(i));
-            for (String s : instance.getProperty(properties.get(1))) {
-                targetMap.put(counter, uris.get(i));
+        for (String uri : target.getAllUris()) {
+            for (String s : target.getInstance(uri).getProperty(properties.get(1))) {
                 entries.add(s);
-                counter++;
+                entryUris.add(uri);
             }
         }
 
-        // transform entries into array so that tokenizer will work
-        // we will use entries later on as they do not lead to RAM errors
-        String[] entryArray = new String[entries.size()];
-        for (int i = 0; i < entries.size(); i++) {
-            entryArray[i] = entries.get(i);
+        // Begin EdJoin. First run the tokenization
+        Record[] sorted = qTokenizer(entries.toArray(new String[entries.size()]), Q);
+        Record[] records = new Record[sorted.length];
+        for (Record record : sorted) {
+            records[record.id] = record;
         }
+        join(records, sourceSize, entryUris.toArray(new String[entryUris.size()]), (int) threshold, mapping);
+        return mapping;
+    }
 
-        // Begin EdJoin. First run the tokenization
-        Record[] records = qTokenizer(entryArray, Q);
-        HashMap<Integer, LinkedList<EdPosition>> index = new HashMap<Integer, LinkedList<EdPosition>>(); // I
-        int count = 0;
-        // run the core of EdJoin
-        String id1, id2;
-        for (int i = 0; i < records.length; i++) {
-            /*
-             * if the length of a record is smaller than q, then we cannot use
-             * the q-gram approach and have to go for comparison without q-gram
-             * filtering
-             */
-            if (records[i].qGrams.length == 0 && records[i].s.length() > 0) {
-                String x = records[i].s;
-                for (int j = i + 1; j < records.length; j++) {
-                    if ((sourceMap.containsKey(records[i].id) && targetMap.containsKey(records[j].id))
-                            || (targetMap.containsKey(records[i].id) && sourceMap.containsKey(records[j].id))) {
-                        String y = records[j].s;
-
-                        // length filtering
-                        if (Math.abs(x.length() - y.length()) <= threshold) {
-                            int ed = editDistance(x, y);
-                            if (ed <= threshold) {
-                                if ((sourceMap.containsKey(records[i].id) && targetMap.containsKey(records[j].id))) {
-                                    id1 = sourceMap.get(records[i].id);
-                                    id2 = targetMap.get(records[j].id);
-                                    // CORRECT
-                                    // if ((1.0 / (1 + (double) ed)) >=
-                                    // threshold)
-                                    mapping.add(id1, id2, 1.0 / (1 + (double) ed));
-                                } else // should not be necessary
-                                {
-                                    // get uris for ids
-                                    {
-                                        id1 = sourceMap.get(records[j].id);
-                                        id2 = targetMap.get(records[i].id);
-
-                                        // CORRECT
-                                        // if ((1.0 / (1 + (double) ed)) >=
-                                        // threshold)
-                                        mapping.add(id1, id2, 1.0 / (1 + (double) ed));
-                                        // mapping.add(id2, id1, similarity);
-                                    }
-                                }
-                                count++;
-                            }
-                        } else {
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Joins the source records with the target records. The prefixes of the
+     * target records are indexed once, then the source records probe the index
+     * in parallel, partitioned into ranges of records. Records whose q-grams
+     * can all be destroyed by threshold edit operations, e.g., records that are
+     * shorter than q, might not share any q-gram with a record within the
+     * threshold. They are hence compared with all records of the other dataset
+     * whose length does not differ by more than the threshold.
+     *
+     * @param records
+     *            Source and target records by id
+     * @param sourceSize
+     *            Number of source records, source records have smaller ids
+     *            than target records
+     * @param uris
+     *            URIs of the records by id
+     * @param threshold
+     *            Maximal edit distance
+     * @param mapping
+     *            Mapping to which the links are added
+     */
+    private static void join(Record[] records, int sourceSize, String[] uris, int threshold,
+                             ColumnarMapping mapping) {
+        int[] prefixLengths = new int[records.length];
+        boolean[] unfiltered = new boolean[records.length];
+        for (Record record : records) {
+            prefixLengths[record.id] = calcPrefixLen(record, threshold, Q);
+            unfiltered[record.id] = !hasPrefix(record, prefixLengths[record.id], threshold);
+        }
+        HashMap<Integer, List<EdPosition>> index = new HashMap<Integer, List<EdPosition>>();
+        List<Record> targets = new ArrayList<Record>();
+        List<Record> unfilteredTargets = new ArrayList<Record>();
+        for (int i = sourceSize; i < records.length; i++) {
+            Record y = records[i];
+            if (y.s.length() == 0) {
+                continue;
+            }
+            targets.add(y);
+            if (unfiltered[i]) {
+                unfilteredTargets.add(y);
             } else {
-                HashMap<Integer, Record> candidates = new HashMap<Integer, Record>(); // A
-                Record currentRec = records[i]; // record x
-                int prefixLength = calcPrefixLen(currentRec, (int) threshold, Q);
-                for (int j = 0; j < prefixLength; j++) {
-                    Integer tokenID = currentRec.qGrams[j].token.id; // w
-                    Integer loc = currentRec.qGrams[j].loc; // locx
-                    LinkedList<EdPosition> l = index.get(tokenID);
-                    if (l != null) {
-                        Iterator<EdPosition> iter = l.iterator();
-                        while (iter.hasNext()) {
-                            EdPosition pos = iter.next();
-                            if (pos.record.qGrams.length >= currentRec.qGrams.length - threshold
-                                    && candidates.get(pos.record.id) == null) {
-                                if (Math.abs(loc - pos.EdPosition) <= threshold) {
-                                    candidates.put(pos.record.id, pos.record);
-                                }
-                            }
-                        }
-                        l.add(new EdPosition(currentRec, loc)); // index the
-                        // current
-                        // prefix
+                for (int j = 0; j < prefixLengths[i]; j++) {
+                    index.computeIfAbsent(y.qGrams[j].token.id, k -> new ArrayList<EdPosition>())
+                            .add(new EdPosition(y, y.qGrams[j].loc));
+                }
+            }
+        }
+        Record[] byLength = sortByLength(targets);
+        Record[] unfilteredByLength = sortByLength(unfilteredTargets);
+
+        int partitions = ComputePool.getPartitions(sourceSize, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sourceSize / partitions);
+            final int to = (int) ((long) (i + 1) * sourceSize / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ColumnarMapping links = MappingFactory.createColumnarMapping(mapping.getSourceDictionary(),
+                        mapping.getTargetDictionary());
+                for (int j = from; j < to; j++) {
+                    Record x = records[j];
+                    if (x.s.length() == 0) {
+                        continue;
+                    }
+                    if (unfiltered[j]) {
+                        compare(x, byLength, threshold, uris, links);
                     } else {
-                        l = new LinkedList<EdPosition>();
-                        l.add(new EdPosition(currentRec, loc));
-                        index.put(tokenID, l);
+                        Collection<Record> candidates = probe(x, prefixLengths[j], index, threshold);
+                        verification(x, candidates, Q, threshold, uris, links);
+                        compare(x, unfilteredByLength, threshold, uris, links);
                     }
                 }
-                if (candidates.size() > 0) {
-                    count = count + verification(currentRec, candidates, entries, Q, (int) threshold);
+                return links;
+            }));
+        }
+        ComputePool.invokeAll(tasks);
+        // add the links in the order of the partitions
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            mapping.addAll(task.join());
+        }
+    }
+
+    /**
+     * Checks whether the record has a prefix that cannot be destroyed by
+     * threshold edit operations. Only such records are guaranteed to share a
+     * q-gram of their prefix with every record within the threshold.
+     */
+    private static boolean hasPrefix(Record x, int prefixLength, int threshold) {
+        if (x.qGrams.length == 0) {
+            return false;
+        }
+        if (prefixLength < x.qGrams.length) {
+            return true;
+        }
+        MismatchingQGram[] qGrams = new MismatchingQGram[x.qGrams.length];
+        for (int i = 0; i < qGrams.length; i++) {
+            qGrams[i] = new MismatchingQGram(x.qGrams[i]);
+        }
+        return minEditErrors(qGrams, Q) > threshold;
+    }
+
+    /**
+     * Generates the candidates of a source record from the index of the target
+     * prefixes using the prefix, length and position filters.
+     *
+     * @param x
+     *            Source record
+     * @param prefixLength
+     *            Length of the prefix of x
+     * @param index
+     *            Index of the prefixes of the target records
+     * @param threshold
+     *            Maximal edit distance
+     * @return The candidates of x
+     */
+    private static Collection<Record> probe(Record x, int prefixLength, HashMap<Integer, List<EdPosition>> index,
+                                            int threshold) {
+        HashMap<Integer, Record> candidates = new HashMap<Integer, Record>(); // A
+        for (int j = 0; j < prefixLength; j++) {
+            List<EdPosition> l = index.get(x.qGrams[j].token.id);
+            if (l != null) {
+                int loc = x.qGrams[j].loc; // locx
+                for (EdPosition pos : l) {
+                    if (Math.abs(pos.record.qGrams.length - x.qGrams.length) <= threshold
+                            && Math.abs(loc - pos.EdPosition) <= threshold) {
+                        candidates.put(pos.record.id, pos.record);
+                    }
                 }
             }
         }
-        /*
-         * AMapping tempMapping = MappingFactory.createDefaultMapping(); for
-         * (String key : mapping.getMap().keySet()) { for (String value :
-         * mapping.getMap().get(key).keySet()) { double confidence =
-         * mapping.getConfidence(key, value); if (confidence < threshold) {
-         * tempMapping.add(key, value, confidence); } } } mapping = tempMapping;
-         */
+        return candidates.values();
+    }
 
-        return mapping;
+    /**
+     * Compares a source record with all the given target records whose length
+     * does not differ by more than the threshold.
+     *
+     * @param x
+     *            Source record
+     * @param targets
+     *            Target records, sorted by length
+     * @param threshold
+     *            Maximal edit distance
+     * @param uris
+     *            URIs of the records by id
+     * @param mapping
+     *            Mapping to which the links are added
+     */
+    private static void compare(Record x, Record[] targets, int threshold, String[] uris, AMapping mapping) {
+        int minLength = x.s.length() - threshold;
+        // binary search for the first target that is long enough
+        int lo = 0;
+        int hi = targets.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (targets[mid].s.length() < minLength) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < targets.length && targets[i].s.length() <= x.s.length() + threshold; i++) {
+            int ed = editDistance(x.s, targets[i].s, threshold);
+            if (ed <= threshold) {
+                mapping.add(uris[x.id], uris[targets[i].id], 1.0 / (1 + (double) ed));
+            }
+        }
+    }
+
+    private static Record[] sortByLength(List<Record> records) {
+        Record[] sorted = records.toArray(new Record[records.size()]);
+        Arrays.sort(sorted, Comparator.comparingInt((Record r) -> r.s.length()).thenComparingInt(r -> r.id));
+        return sorted;
     }
 
     @Override
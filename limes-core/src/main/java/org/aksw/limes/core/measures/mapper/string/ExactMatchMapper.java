@@ -19,15 +19,20 @@ package org.aksw.limes.core.measures.mapper.string;
 
 import org.aksw.limes.core.exceptions.InvalidThresholdException;
 import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.FileCache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.measures.mapper.AMapper;
 import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
+import org.aksw.limes.core.util.ComputePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MarkerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
 
 /**
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
@@ -35,6 +40,9 @@ import java.util.*;
 public class ExactMatchMapper extends AMapper {
 
     private static Logger logger = LoggerFactory.getLogger(ExactMatchMapper.class);
+    private static final int MIN_PARTITION_SIZE = 4096;
+    // number of build values per partition of a streamed join
+    private static final int MAX_PARTITION_SIZE = 1 << 20;
 
     /**
      * Computes a mapping between a source and a target.
@@ -66,32 +74,85 @@ public class ExactMatchMapper extends AMapper {
             logger.error(MarkerFactory.getMarker("FATAL"), "Property values could not be read. Exiting");
             throw new RuntimeException();
         }
+        if (source instanceof FileCache || target instanceof FileCache) {
+            return getStreamedMapping(source, target, properties.get(0), properties.get(1));
+        }
         Map<String, Set<String>> sourceIndex = getValueToUriMap(source, properties.get(0));
         Map<String, Set<String>> targetIndex = getValueToUriMap(target, properties.get(1));
-        AMapping m = MappingFactory.createDefaultMapping();
-        boolean swapped = sourceIndex.keySet().size() > targetIndex.keySet().size();
-        (!swapped ? sourceIndex : targetIndex).keySet().stream().filter(!swapped ? targetIndex::containsKey : sourceIndex::containsKey).forEach(value -> {
-            for (String sourceUri : sourceIndex.get(value)) {
-                for (String targetUri : targetIndex.get(value)) {
-                    m.add(sourceUri, targetUri, 1d);
+        // look the values of the smaller index up in the larger one, in
+        // parallel partitions of the smaller index
+        boolean sourceIsLarger = sourceIndex.size() > targetIndex.size();
+        Map<String, Set<String>> largerIndex = sourceIsLarger ? sourceIndex : targetIndex;
+        Map<String, Set<String>> smallerIndex = sourceIsLarger ? targetIndex : sourceIndex;
+        String[] values = smallerIndex.keySet().toArray(new String[smallerIndex.size()]);
+        ColumnarMapping m = MappingFactory.createColumnarMapping(source, target);
+        int partitions = ComputePool.getPartitions(values.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * values.length / partitions);
+            final int to = (int) ((long) (i + 1) * values.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ColumnarMapping links = MappingFactory.createColumnarMapping(m.getSourceDictionary(),
+                        m.getTargetDictionary());
+                for (int j = from; j < to; j++) {
+                    if (largerIndex.containsKey(values[j])) {
+                        for (String sourceUri : sourceIndex.get(values[j])) {
+                            for (String targetUri : targetIndex.get(values[j])) {
+                                links.add(sourceUri, targetUri, 1d);
+                            }
+                        }
+                    }
                 }
-            }
-        });
+                return links;
+            }));
+        }
+        ComputePool.invokeAll(tasks);
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            m.addAll(task.join());
+        }
         return m;
     }
 
-    public Map<String, Set<String>> index(ACache c, String property) {
-        Map<String, Set<String>> index = new HashMap<>();
-        for (String uri : c.getAllUris()) {
-            TreeSet<String> values = c.getInstance(uri).getProperty(property);
-            for (String v : values) {
-                if (!index.containsKey(v)) {
-                    index.put(v, new HashSet<>());
+    /**
+     * Joins caches without indexing the values of a file cache on the heap.
+     * The pairs of the smaller cache are the build side of a
+     * {@link PartitionedHashJoin}, the pairs of the larger cache are its probe
+     * side.
+     */
+    private AMapping getStreamedMapping(ACache source, ACache target, String sourceProperty, String targetProperty) {
+        boolean buildIsSource = source.size() <= target.size();
+        int buildSize = buildIsSource ? source.size() : target.size();
+        int partitions = Math.max(4 * ComputePool.getParallelism(), buildSize / MAX_PARTITION_SIZE);
+        try (PartitionedHashJoin join = new PartitionedHashJoin(partitions, Runtime.getRuntime().maxMemory() / 4,
+                buildIsSource)) {
+            forEachValue(buildIsSource ? source : target, buildIsSource ? sourceProperty : targetProperty,
+                    join::addBuild);
+            forEachValue(buildIsSource ? target : source, buildIsSource ? targetProperty : sourceProperty,
+                    join::addProbe);
+            return join.join();
+        }
+    }
+
+    private void forEachValue(ACache cache, String property, BiConsumer<String, String> consumer) {
+        if (cache instanceof FileCache) {
+            // stream the instances instead of materializing them, with a
+            // cursor of our own since other tasks may iterate over the cache
+            ((FileCache) cache).forEachInstance(instance -> {
+                for (String value : instance.getProperty(property)) {
+                    consumer.accept(value, instance.getUri());
+                }
+            });
+        } else {
+            getValueToUriMap(cache, property).forEach((value, uris) -> {
+                for (String uri : uris) {
+                    consumer.accept(value, uri);
                 }
-                index.get(v).add(uri);
-            }
+            });
         }
-        return index;
+    }
+
+    public Map<String, Set<String>> index(ACache c, String property) {
+        return getValueToUriMap(c, property);
     }
 
     @Override
@@ -20,18 +20,24 @@ package org.aksw.limes.core.measures.mapper.string;
 import org.aksw.limes.core.exceptions.InvalidThresholdException;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.measures.mapper.AMapper;
 import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
 import org.aksw.limes.core.measures.measure.string.TrigramMeasure;
+import org.aksw.limes.core.util.ComputePool;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * @author Peggy Lucke
  */
 public class MongeElkanMapper extends AMapper {
 
+    private static final int MIN_PARTITION_SIZE = 256;
+    // slack of the candidate bounds for rounding errors
+    private static final double EPSILON = 1e-9;
     // Tokens are divide by space
     private String split = " ";
     // underlying trigram measure provided
@@ -57,51 +63,67 @@ public class MongeElkanMapper extends AMapper {
         if (threshold <= 0) {
             throw new InvalidThresholdException(threshold);
         }
-        Iterator<String> sit = sourceMap.keySet().iterator();
-        double resultDouble;
-        Map<String, Map<String, Double>> similarityBook = new HashMap<>();
-        while (sit.hasNext()) {
-            Iterator<String> tit = targetMap.keySet().iterator();
-            String sourceString = sit.next();
-            HashMap<String, Double> resultB = new HashMap<>();
-            while (tit.hasNext()) {
-                String targetString = tit.next();
-                resultDouble = oneMongeElkan(sourceString.split(split), targetString.split(split), threshold);
-                if (threshold <= resultDouble) {
-                    resultB.put(targetString, resultDouble);
-                }
-            }
-            similarityBook.put(sourceString, resultB);
+        return getMapping(sourceMap, targetMap, threshold, createMapping(sourceMap, targetMap));
+    }
+
+    private AMapping getMapping(Map<String, Set<String>> sourceMap, Map<String, Set<String>> targetMap,
+                                double threshold, ColumnarMapping result) {
+        TokenIndex index = new TokenIndex();
+        String[] sourceValues = sourceMap.keySet().toArray(new String[sourceMap.size()]);
+        int[][] sourceTokens = new int[sourceValues.length][];
+        for (int i = 0; i < sourceValues.length; i++) {
+            sourceTokens[i] = index.tokenize(sourceValues[i].split(split), false);
+        }
+        String[] targetValues = targetMap.keySet().toArray(new String[targetMap.size()]);
+        int[][] targetTokens = new int[targetValues.length][];
+        for (int i = 0; i < targetValues.length; i++) {
+            targetTokens[i] = index.tokenize(targetValues[i].split(split), true);
         }
+        index.build(targetTokens);
 
-        AMapping result = MappingFactory.createDefaultMapping();
-        for (String s : similarityBook.keySet()) {
-            for (String t : similarityBook.get(s).keySet()) {
-                for (String sourceUri : sourceMap.get(s)) {
-                    for (String targetUri : targetMap.get(t)) {
-                        result.add(sourceUri, targetUri, similarityBook.get(s).get(t));
+        int partitions = ComputePool.getPartitions(sourceValues.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sourceValues.length / partitions);
+            final int to = (int) ((long) (i + 1) * sourceValues.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ColumnarMapping links = MappingFactory.createColumnarMapping(result.getSourceDictionary(),
+                        result.getTargetDictionary());
+                Candidates candidates = new Candidates(index, targetValues.length);
+                for (int j = from; j < to; j++) {
+                    int n = candidates.collect(sourceTokens[j], threshold);
+                    for (int k = 0; k < n; k++) {
+                        int t = candidates.get(k);
+                        double similarity = oneMongeElkan(index, sourceTokens[j], targetTokens[t]);
+                        if (threshold <= similarity) {
+                            for (String sourceUri : sourceMap.get(sourceValues[j])) {
+                                for (String targetUri : targetMap.get(targetValues[t])) {
+                                    links.add(sourceUri, targetUri, similarity);
+                                }
+                            }
+                        }
                     }
                 }
-            }
+                return links;
+            }));
+        }
+        ComputePool.invokeAll(tasks);
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            result.addAll(task.join());
         }
         return result;
     }
 
     /*
-     * compare one text with another
+     * compare one text with another, the source tokens in their order and
+     * the distinct target tokens
      */
-    private double oneMongeElkan(String[] sourceToken, String[] targetToken, double threshold) {
+    private static double oneMongeElkan(TokenIndex index, int[] sourceToken, int[] targetToken) {
         double simB = 0;
-        double result = 0;
-        float maxNumber = sourceToken.length;
-        /*
-         * the minimum of the result to reach the threshold
-         */
-        float treshMin = (float) (maxNumber * threshold);
-        for (String sourceString : sourceToken) {// ein a
+        for (int sourceString : sourceToken) {
             double maxSim = 0;
-            for (String targetString : targetToken) {// ein b
-                double sim = tokenSim(sourceString, targetString);
+            for (int targetString : targetToken) {
+                double sim = index.tokenSim(sourceString, targetString);
                 if (maxSim < sim) {
                     maxSim = sim;
                 }
@@ -109,40 +131,243 @@ public class MongeElkanMapper extends AMapper {
                     break;
                 }
             }
-            maxNumber -= 1 - maxSim;
-            /*
-             * add 0.0001 for rounding errors. if the similarity of all source
-             * tokens with the target tokens don't reach the minimum threshold,
-             * there are no result, so break the algorithm.
-             */
-            if (treshMin > maxNumber + 0.0001) {
-                result = 0;
-                break;
-            }
             simB += maxSim;
         }
-        if (simB != 0) {
-            result = simB / sourceToken.length;
-        }
-        return result;
+        return simB / sourceToken.length;
     }
 
-    /*
-     * use the Trigramm Algorithm to compare the tokens
+    /**
+     * Tokens of both sides with their trigrams, and the inverted lists from
+     * the trigrams to the target tokens and from the target tokens to the
+     * target values.
      */
-    private double tokenSim(String tokenA, String tokenB) {
-        double result = trigram.getSimilarity(tokenA, tokenB);
-        return result;
+    private class TokenIndex {
+
+        private final Map<String, Integer> tokenIds = new HashMap<>();
+        private final Map<String, Integer> trigramIds = new HashMap<>();
+        private final List<int[]> trigrams = new ArrayList<>();
+        // trigram -> target tokens
+        private int[] trigramStart;
+        private int[] trigramTokens;
+        // target token -> target values
+        private int[] tokenStart;
+        private int[] tokenValues;
+        // number of postings reached through a trigram, to order the tokens
+        private long[] trigramCost;
+
+        /**
+         * @param tokens
+         *            Tokens of a value
+         * @param distinct
+         *            whether to return each token id once, sorted
+         * @return token ids of the value
+         */
+        int[] tokenize(String[] tokens, boolean distinct) {
+            int[] result = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                Integer id = tokenIds.get(tokens[i]);
+                if (id == null) {
+                    id = trigrams.size();
+                    tokenIds.put(tokens[i], id);
+                    // same padding as the trigram measure
+                    Set<String> grams = trigram.getTrigrams("  " + tokens[i] + "  ");
+                    int[] gramIds = new int[grams.size()];
+                    int k = 0;
+                    for (String gram : grams) {
+                        Integer gramId = trigramIds.get(gram);
+                        if (gramId == null) {
+                            gramId = trigramIds.size();
+                            trigramIds.put(gram, gramId);
+                        }
+                        gramIds[k++] = gramId;
+                    }
+                    Arrays.sort(gramIds);
+                    trigrams.add(gramIds);
+                }
+                result[i] = id;
+            }
+            if (distinct) {
+                result = Arrays.stream(result).sorted().distinct().toArray();
+            }
+            return result;
+        }
+
+        void build(int[][] targetTokens) {
+            int tokens = trigrams.size();
+            tokenStart = new int[tokens + 1];
+            for (int[] value : targetTokens) {
+                for (int token : value) {
+                    tokenStart[token + 1]++;
+                }
+            }
+            for (int i = 0; i < tokens; i++) {
+                tokenStart[i + 1] += tokenStart[i];
+            }
+            tokenValues = new int[tokenStart[tokens]];
+            int[] next = Arrays.copyOf(tokenStart, tokens);
+            for (int i = 0; i < targetTokens.length; i++) {
+                for (int token : targetTokens[i]) {
+                    tokenValues[next[token]++] = i;
+                }
+            }
+            // only the tokens of target values are indexed by their trigrams
+            trigramStart = new int[trigramIds.size() + 1];
+            for (int token = 0; token < tokens; token++) {
+                if (tokenStart[token + 1] > tokenStart[token]) {
+                    for (int gram : trigrams.get(token)) {
+                        trigramStart[gram + 1]++;
+                    }
+                }
+            }
+            for (int i = 0; i < trigramIds.size(); i++) {
+                trigramStart[i + 1] += trigramStart[i];
+            }
+            trigramTokens = new int[trigramStart[trigramIds.size()]];
+            trigramCost = new long[trigramIds.size()];
+            next = Arrays.copyOf(trigramStart, trigramIds.size());
+            for (int token = 0; token < tokens; token++) {
+                int postings = tokenStart[token + 1] - tokenStart[token];
+                if (postings > 0) {
+                    for (int gram : trigrams.get(token)) {
+                        trigramTokens[next[gram]++] = token;
+                        trigramCost[gram] += postings;
+                    }
+                }
+            }
+        }
+
+        int size() {
+            return trigrams.size();
+        }
+
+        long getCost(int token) {
+            long cost = 0;
+            for (int gram : trigrams.get(token)) {
+                cost += trigramCost[gram];
+            }
+            return cost;
+        }
+
+        /*
+         * trigram similarity of two tokens, see TrigramMeasure
+         */
+        double tokenSim(int tokenA, int tokenB) {
+            int[] a = trigrams.get(tokenA);
+            int[] b = trigrams.get(tokenB);
+            int counter = 0;
+            for (int i = 0, j = 0; i < a.length && j < b.length;) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    counter++;
+                    i++;
+                    j++;
+                }
+            }
+            return (double) counter / (double) (a.length + b.length - counter);
+        }
     }
 
+    /**
+     * Collects the target values that may reach the threshold with a source
+     * value. As each source token adds at most 1 to the sum of the maximal
+     * token similarities, a target value must share a similar token with the
+     * source tokens until the remaining tokens cannot reach the threshold on
+     * their own. The rarest source tokens are probed first.
+     */
+    private static class Candidates {
+
+        private final TokenIndex index;
+        private final int[] counts;
+        private final int[] touched;
+        private final int[] stamps;
+        private final int[] candidates;
+        private int stamp = 0;
+
+        Candidates(TokenIndex index, int targetSize) {
+            this.index = index;
+            counts = new int[index.size()];
+            touched = new int[index.size()];
+            stamps = new int[targetSize];
+            candidates = new int[targetSize];
+        }
+
+        int get(int i) {
+            return candidates[i];
+        }
+
+        int collect(int[] sourceTokens, double threshold) {
+            int n = 0;
+            if (sourceTokens.length == 0) {
+                return n;
+            }
+            stamp++;
+            // distinct tokens with their number of occurrences, rarest first
+            int[] sorted = sourceTokens.clone();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            long[][] tokens = new long[sorted.length][];
+            for (int i = 0; i < sorted.length; i++) {
+                if (i > 0 && sorted[i] == sorted[i - 1]) {
+                    tokens[distinct - 1][2]++;
+                } else {
+                    tokens[distinct++] = new long[] { index.getCost(sorted[i]), sorted[i], 1 };
+                }
+            }
+            tokens = Arrays.copyOf(tokens, distinct);
+            Arrays.sort(tokens, (x, y) -> Long.compare(x[0], y[0]));
+            double minSum = threshold * sourceTokens.length - EPSILON;
+            double remaining = sourceTokens.length;
+            for (long[] token : tokens) {
+                int a = (int) token[1];
+                double weight = token[2];
+                if (remaining < minSum) {
+                    break;
+                }
+                remaining -= weight;
+                int[] gramsA = index.trigrams.get(a);
+                int touchedSize = 0;
+                for (int gram : gramsA) {
+                    for (int p = index.trigramStart[gram]; p < index.trigramStart[gram + 1]; p++) {
+                        int b = index.trigramTokens[p];
+                        if (counts[b]++ == 0) {
+                            touched[touchedSize++] = b;
+                        }
+                    }
+                }
+                for (int i = 0; i < touchedSize; i++) {
+                    int b = touched[i];
+                    int counter = counts[b];
+                    counts[b] = 0;
+                    double sim = (double) counter
+                            / (double) (gramsA.length + index.trigrams.get(b).length - counter);
+                    // upper bound of a target value first reached by this token
+                    if (sim * weight + remaining >= minSum) {
+                        for (int p = index.tokenStart[b]; p < index.tokenStart[b + 1]; p++) {
+                            int t = index.tokenValues[p];
+                            if (stamps[t] != stamp) {
+                                stamps[t] = stamp;
+                                candidates[n++] = t;
+                            }
+                        }
+                    }
+                }
+            }
+            return n;
+        }
+    }
     @Override
     public AMapping getMapping(ACache source, ACache target, String sourceVar, String targetVar, String expression,
                                double threshold) {
-
+        if (threshold <= 0) {
+            throw new InvalidThresholdException(threshold);
+        }
         List<String> properties = PropertyFetcher.getProperties(expression, threshold);
         Map<String, Set<String>> sourceMap = getValueToUriMap(source, properties.get(0));
         Map<String, Set<String>> targetMap = getValueToUriMap(target, properties.get(1));
-        return getMapping(sourceMap, targetMap, threshold);
+        return getMapping(sourceMap, targetMap, threshold, MappingFactory.createColumnarMapping(source, target));
     }
 
     @Override
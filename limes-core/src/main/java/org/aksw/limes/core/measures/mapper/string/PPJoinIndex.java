@@ -0,0 +1,399 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.measures.measure.string.IStringMeasure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * Prefix index of PPJoin+ over primitive arrays. The records of one dataset
+ * are indexed by the tokens of their prefixes, the records of the other
+ * dataset only probe the index. Records are int arrays of token ranks, the
+ * rarest token first, and the posting lists of all tokens are stored in one
+ * array each for the indexed records and the positions of the tokens. Once
+ * built, the index is read-only, hence disjoint ranges of probing records can
+ * be processed concurrently. Each range reuses one int-indexed accumulator for
+ * the overlaps of its candidates, so that probing does not allocate objects
+ * per record or posting.
+ */
+final class PPJoinIndex {
+
+    private static final int MAX_DEPTH = 2;
+    // overlap of a candidate that was pruned
+    private static final int PRUNED = Integer.MIN_VALUE;
+
+    private final IStringMeasure measure;
+    private final double threshold;
+    // indexed records, sorted by size
+    private final int[][] records;
+    // value id of each indexed record
+    private final int[] ids;
+    // postings of token t are [offsets[t], offsets[t + 1])
+    private final int[] offsets;
+    private final int[] postingRecords;
+    private final int[] postingPositions;
+
+    /**
+     * Constructor
+     *
+     * @param records
+     *            Records to index, as returned by {@link #tokenize(List, int[])}
+     * @param from
+     *            First record to index
+     * @param to
+     *            End of the records to index, exclusive
+     * @param tokenCount
+     *            Number of distinct tokens
+     * @param measure
+     *            Similarity measure
+     * @param threshold
+     *            Similarity threshold
+     */
+    PPJoinIndex(int[][] records, int from, int to, int tokenCount, IStringMeasure measure, double threshold) {
+        this.measure = measure;
+        this.threshold = threshold;
+        // sort the records by size, so that the posting lists are sorted by
+        // the size of their records as well
+        long[] bySize = new long[to - from];
+        for (int i = from; i < to; i++) {
+            bySize[i - from] = ((long) records[i].length << 32) | i;
+        }
+        Arrays.sort(bySize);
+        this.records = new int[bySize.length][];
+        this.ids = new int[bySize.length];
+        for (int r = 0; r < bySize.length; r++) {
+            ids[r] = (int) bySize[r];
+            this.records[r] = records[ids[r]];
+        }
+        offsets = new int[tokenCount + 1];
+        for (int[] record : this.records) {
+            int prefix = prefixLength(record.length);
+            for (int i = 0; i < prefix; i++) {
+                offsets[record[i] + 1]++;
+            }
+        }
+        for (int t = 0; t < tokenCount; t++) {
+            offsets[t + 1] += offsets[t];
+        }
+        postingRecords = new int[offsets[tokenCount]];
+        postingPositions = new int[offsets[tokenCount]];
+        int[] next = Arrays.copyOf(offsets, tokenCount);
+        for (int r = 0; r < this.records.length; r++) {
+            int[] record = this.records[r];
+            int prefix = prefixLength(record.length);
+            for (int i = 0; i < prefix; i++) {
+                int p = next[record[i]]++;
+                postingRecords[p] = r;
+                postingPositions[p] = i;
+            }
+        }
+    }
+
+    /**
+     * Splits the values into tokens and replaces each token by its rank in
+     * the ascending order of the document frequencies of the tokens. The
+     * k-th occurrence of a token in a value is a token of its own, as in
+     * {@link PPJoinPlusPlus}.
+     *
+     * @param values
+     *            Values of both datasets
+     * @param tokenCount
+     *            Array of length 1 in which the number of distinct tokens is
+     *            returned
+     * @return the records of the values, each sorted by ascending rank
+     */
+    static int[][] tokenize(List<String> values, int[] tokenCount) {
+        HashMap<String, Integer> tokenIds = new HashMap<>();
+        HashMap<String, Integer> recordTokens = new HashMap<>();
+        int[] df = new int[16];
+        int[][] records = new int[values.size()][];
+        for (int v = 0; v < records.length; v++) {
+            String[] tokens = getTokens(values.get(v), recordTokens);
+            int[] record = new int[tokens.length];
+            for (int j = 0; j < record.length; j++) {
+                String token = tokens[j];
+                Integer id = tokenIds.get(token);
+                if (id == null) {
+                    id = tokenIds.size();
+                    tokenIds.put(token, id);
+                    if (id == df.length) {
+                        df = Arrays.copyOf(df, 2 * df.length);
+                    }
+                }
+                df[id]++;
+                record[j] = id;
+            }
+            records[v] = record;
+        }
+        int n = tokenIds.size();
+        long[] byFrequency = new long[n];
+        for (int id = 0; id < n; id++) {
+            byFrequency[id] = ((long) df[id] << 32) | id;
+        }
+        Arrays.sort(byFrequency);
+        int[] rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[(int) byFrequency[r]] = r;
+        }
+        for (int[] record : records) {
+            for (int j = 0; j < record.length; j++) {
+                record[j] = rank[record[j]];
+            }
+            Arrays.sort(record);
+        }
+        tokenCount[0] = n;
+        return records;
+    }
+
+    /**
+     * Splits a value into its tokens. The second and further occurrences of a
+     * token are numbered, so that the tokens of a value are distinct.
+     *
+     * @param value
+     *            Value to split
+     * @param counts
+     *            Map used to count the occurrences, cleared before use
+     * @return the tokens of the value
+     */
+    static String[] getTokens(String value, Map<String, Integer> counts) {
+        StringTokenizer st = new StringTokenizer(value, " .,?!\t");
+        String[] tokens = new String[st.countTokens()];
+        counts.clear();
+        for (int j = 0; j < tokens.length; j++) {
+            String token = st.nextToken();
+            Integer freq = counts.merge(token, 1, Integer::sum);
+            if (freq > 1) {
+                // character '.' is not allowed in tokens
+                token = token + "." + freq;
+            }
+            tokens[j] = token;
+        }
+        return tokens;
+    }
+
+    /**
+     * Probes the index with the records [from, to) and verifies their
+     * candidates.
+     *
+     * @param probes
+     *            Probing records, as returned by {@link #tokenize(List, int[])}
+     * @param from
+     *            First probing record
+     * @param to
+     *            End of the probing records, exclusive
+     * @return the pairs of a probing and an indexed record whose similarity
+     *         is at least the threshold, ordered by probing record
+     */
+    Links probe(int[][] probes, int from, int to) {
+        Links links = new Links();
+        // overlaps of the indexed records with the current probing record
+        int[] overlaps = new int[records.length];
+        int[] candidates = new int[records.length];
+        for (int x = from; x < to; x++) {
+            int[] probe = probes[x];
+            int candidateCount = generateCandidates(probe, overlaps, candidates);
+            for (int c = 0; c < candidateCount; c++) {
+                int y = candidates[c];
+                if (overlaps[y] > 0) {
+                    int[] record = records[y];
+                    int alpha = measure.getAlpha(probe.length, record.length, threshold);
+                    int overlap = overlap(probe, record, alpha);
+                    if (overlap >= alpha) {
+                        double similarity = measure.getSimilarity(overlap, probe.length, record.length);
+                        if (similarity >= threshold) {
+                            links.add(x, ids[y], similarity);
+                        }
+                    }
+                }
+                overlaps[y] = 0;
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Applies the prefix, size, positional and suffix filters. The candidates
+     * are the indexed records that share a prefix token with the probe, their
+     * overlaps are positive unless they were pruned.
+     *
+     * @return the number of candidates
+     */
+    private int generateCandidates(int[] probe, int[] overlaps, int[] candidates) {
+        int candidateCount = 0;
+        int size = probe.length;
+        int prefix = prefixLength(size);
+        double minSize = measure.getSizeFilteringThreshold(size, threshold);
+        for (int i = 0; i < prefix; i++) {
+            int token = probe[i];
+            int end = offsets[token + 1];
+            for (int p = firstPosting(offsets[token], end, minSize); p < end; p++) {
+                int y = postingRecords[p];
+                int[] record = records[y];
+                if (size < measure.getSizeFilteringThreshold(record.length, threshold)) {
+                    // the remaining records are even larger
+                    break;
+                }
+                int overlap = overlaps[y];
+                if (overlap == PRUNED) {
+                    continue;
+                }
+                int j = postingPositions[p];
+                int alpha = measure.getAlpha(size, record.length, threshold);
+                int ubound = 1 + Math.min(size - i - 1, record.length - j - 1);
+                if (overlap == 0) {
+                    candidates[candidateCount++] = y;
+                    overlaps[y] = PRUNED;
+                    if (ubound >= alpha) {
+                        int hMax = size + record.length - 2 * alpha - i - j;
+                        if (suffixFilter(probe, i + 1, size - 1, record, j + 1, record.length - 1, hMax, 1) <= hMax) {
+                            overlaps[y] = 1;
+                        }
+                    }
+                } else if (overlap + ubound >= alpha) {
+                    overlaps[y] = overlap + 1;
+                } else {
+                    overlaps[y] = PRUNED;
+                }
+            }
+        }
+        return candidateCount;
+    }
+
+    /**
+     * @return the first posting in [from, to) whose record has at least
+     *         minSize tokens
+     */
+    private int firstPosting(int from, int to, double minSize) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (records[postingRecords[mid]].length < minSize) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private int prefixLength(int size) {
+        return Math.min(size, measure.getPrefixLength(size, threshold));
+    }
+
+    /**
+     * Computes the overlap of two records. Stops as soon as alpha can not be
+     * reached anymore.
+     */
+    private static int overlap(int[] x, int[] y, int alpha) {
+        int overlap = 0;
+        int i = 0, j = 0;
+        while (i < x.length && j < y.length && overlap + Math.min(x.length - i, y.length - j) >= alpha) {
+            if (x[i] == y[j]) {
+                overlap++;
+                i++;
+                j++;
+            } else if (x[i] < y[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return overlap;
+    }
+
+    /**
+     * Lower bound of the Hamming distance of the suffixes x[xBegin..xEnd] and
+     * y[yBegin..yEnd], see {@link PPJoinPlusPlus}.
+     */
+    private static int suffixFilter(int[] x, int xBegin, int xEnd, int[] y, int yBegin, int yEnd, int hMax,
+                                    int depth) {
+        int xSize = xEnd - xBegin + 1;
+        int ySize = yEnd - yBegin + 1;
+        if (depth > MAX_DEPTH) {
+            return Math.abs(xSize - ySize);
+        }
+        if (ySize <= 0 || xSize <= 0) {
+            return Math.max(Math.max(ySize, xSize), 0);
+        }
+        int mid = yBegin + (ySize + 1) / 2 - 1;
+        int w = y[mid];
+        // partition x around w
+        int p = lowerBound(x, xBegin, xEnd + 1, w);
+        int diff = p <= xEnd && x[p] == w ? 0 : 1;
+        int l = p - 1;
+        int r = p + 1 - diff;
+        int xlSize = l - xBegin + 1;
+        int xrSize = xEnd - r + 1;
+        int ylSize = mid - yBegin;
+        int yrSize = yEnd - mid;
+        int h = Math.abs(xlSize - ylSize) + Math.abs(xrSize - yrSize) + diff;
+        if (h > hMax) {
+            return h;
+        }
+        int hl = suffixFilter(x, xBegin, l, y, yBegin, mid - 1, hMax - Math.abs(xrSize - yrSize) - diff, depth + 1);
+        h = hl + Math.abs(xrSize - yrSize) + diff;
+        if (h <= hMax) {
+            int hr = suffixFilter(x, r, xEnd, y, mid + 1, yEnd, hMax - hl - diff, depth + 1);
+            return hl + hr + diff;
+        }
+        return h;
+    }
+
+    /**
+     * @return the first position in [from, to) whose token is no smaller than
+     *         w
+     */
+    private static int lowerBound(int[] x, int from, int to, int w) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (x[mid] < w) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Growable arrays of the links found by one probing task.
+     */
+    static final class Links {
+
+        int size = 0;
+        int[] probes = new int[16];
+        int[] records = new int[16];
+        double[] similarities = new double[16];
+
+        void add(int probe, int record, double similarity) {
+            if (size == probes.length) {
+                probes = Arrays.copyOf(probes, 2 * size);
+                records = Arrays.copyOf(records, 2 * size);
+                similarities = Arrays.copyOf(similarities, 2 * size);
+            }
+            probes[size] = probe;
+            records[size] = record;
+            similarities[size] = similarity;
+            size++;
+        }
+    }
+}
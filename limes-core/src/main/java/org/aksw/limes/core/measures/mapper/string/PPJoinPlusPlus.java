@@ -26,7 +26,6 @@ import algorithms.Token;
 import algorithms.ppjoinplus.Record;
 import org.aksw.limes.core.exceptions.InvalidThresholdException;
 import org.aksw.limes.core.io.cache.ACache;
-import org.aksw.limes.core.io.cache.Instance;
 import org.aksw.limes.core.io.mapping.AMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.io.parser.Parser;
@@ -34,11 +33,13 @@ import org.aksw.limes.core.measures.mapper.AMapper;
 import org.aksw.limes.core.measures.measure.MeasureFactory;
 import org.aksw.limes.core.measures.measure.MeasureType;
 import org.aksw.limes.core.measures.measure.string.IStringMeasure;
+import org.aksw.limes.core.util.ComputePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MarkerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
@@ -117,6 +118,59 @@ public class PPJoinPlusPlus extends AMapper {
 
     static Logger logger = LoggerFactory.getLogger(PPJoinPlusPlus.class);
     private static final int MAX_DEPTH = 2;
+    // minimal number of source values probed by one task
+    private static final int MIN_PARTITION_SIZE = 1024;
+
+    /**
+     * If true, the source and target values are joined as one dataset.
+     */
+    private final boolean selfJoin;
+
+    /**
+     * Constructor of a mapper that joins the source values with the target
+     * values.
+     */
+    public PPJoinPlusPlus() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param selfJoin
+     *            if true, the source and target values are concatenated and
+     *            self-joined, which generates and discards all candidates
+     *            within the same dataset. Otherwise, source values are only
+     *            compared with target values
+     */
+    public PPJoinPlusPlus(boolean selfJoin) {
+        this.selfJoin = selfJoin;
+    }
+
+    /**
+     * Computes the similarity that the mapper assigns to a pair of values,
+     * i.e., the similarity of the overlap of their tokens.
+     *
+     * @param measure
+     *            Token based measure of the mapper
+     * @param value1
+     *            Source value
+     * @param value2
+     *            Target value
+     * @return the similarity of the values, 0 if they share no token
+     */
+    public static double getSimilarity(IStringMeasure measure, String value1, String value2) {
+        Map<String, Integer> counts = new HashMap<>();
+        Set<String> tokens1 = new HashSet<>(Arrays.asList(PPJoinIndex.getTokens(value1, counts)));
+        String[] tokens2 = PPJoinIndex.getTokens(value2, counts);
+        int overlap = 0;
+        for (String token : tokens2) {
+            if (tokens1.contains(token)) {
+                overlap++;
+            }
+        }
+        return overlap == 0 ? 0d : measure.getSimilarity(overlap, tokens1.size(), tokens2.length);
+    }
 
     /**
      * Berechnet die Überlappung zwischen zwei Datensätzen mithilfe ihrer Tokens
@@ -350,13 +404,11 @@ public class PPJoinPlusPlus extends AMapper {
                                double threshold) {
 
         AMapping mapping;
-        HashMap<Integer, String> sourceMap;
-        HashMap<Integer, String> targetMap;
         IStringMeasure measure = null;
         if (threshold <= 0) {
             throw new InvalidThresholdException(threshold);
         }
-        mapping = MappingFactory.createDefaultMapping();
+        mapping = MappingFactory.createColumnarMapping(source, target);
         // logger.info("Starting PPJoinPlus");
 
         String property1 = null, property2 = null;
@@ -424,44 +476,27 @@ public class PPJoinPlusPlus extends AMapper {
 
         // 3.1 fill objects from source in entry
         // logger.info("Filling objects from source knowledge base.");
-        sourceMap = new HashMap<>();
-        ArrayList<String> uris = source.getAllUris();
         ArrayList<String> entries = new ArrayList<>();
-        Instance instance;
-        int counter = 0;
-        for (int i = 0; i < uris.size(); i++) {
-            instance = source.getInstance(uris.get(i));
-            for (String s : instance.getProperty(property1)) {
-                sourceMap.put(counter, uris.get(i));
+        ArrayList<String> entryUris = new ArrayList<>();
+        for (String uri : source.getAllUris()) {
+            for (String s : source.getInstance(uri).getProperty(property1)) {
+                entryUris.add(uri);
                 entries.add(s);
-                counter++;
             }
         }
+        // entries with an id below sourceSize belong to the source
+        int sourceSize = entries.size();
 
         // 3.2 fill objects from target in entries
         // logger.info("Filling objects from target knowledge base.");
-        targetMap = new HashMap<Integer, String>();
-        uris = target.getAllUris();
-        for (int i = 0; i < uris.size(); i++) {
-            instance = target.getInstance(uris.get(i));
-            for (String s : instance.getProperty(property2)) {
-                targetMap.put(counter, uris.get(i));
+        for (String uri : target.getAllUris()) {
+            for (String s : target.getInstance(uri).getProperty(property2)) {
+                entryUris.add(uri);
                 entries.add(s);
-                counter++;
             }
         }
 
-        String[] entryArray = new String[entries.size()];
-        for (int i = 0; i < entries.size(); i++) {
-            entryArray[i] = entries.get(i);
-        }
-
-        Record[] records = tokenizer(entryArray);
-        HashMap<Integer, LinkedList<Position>> index = new HashMap<Integer, LinkedList<Position>>(); // I
-
-        if (threshold == 0) {
-        } else {
-        }
+        String[] uriArray = entryUris.toArray(new String[entryUris.size()]);
 
         MeasureType type = MeasureFactory.getMeasureType(p.getOperator());
         measure = (IStringMeasure) MeasureFactory.createMeasure(type);
@@ -472,106 +507,191 @@ public class PPJoinPlusPlus extends AMapper {
             logger.error(MarkerFactory.getMarker("FATAL"), "Metric is null. Exiting.");
             throw new RuntimeException();
         }
+        if (selfJoin) {
+            Record[] records = tokenizer(entries.toArray(new String[entries.size()]));
+            selfJoin(records, sourceSize, uriArray, measure, threshold, mapping);
+        } else {
+            join(entries, sourceSize, uriArray, measure, threshold, mapping);
+        }
+        // logger.info("Mapping carried out using " + comparisons + "
+        // comparisons.");
+        return mapping.getSubMap(threshold);
+    }
+
+    /**
+     * Joins the source and target records as one dataset. All records probe
+     * and are added to a single index, hence source-source and target-target
+     * candidates are generated as well and only discarded in the
+     * verification.
+     *
+     * @param records
+     *            Source and target records, sorted by size
+     * @param sourceSize
+     *            Number of source records, source records have smaller ids
+     *            than target records
+     * @param uris
+     *            URIs of the records by id
+     * @param measure
+     *            Similarity measure
+     * @param threshold
+     *            Similarity threshold
+     * @param mapping
+     *            Mapping to which the links are added
+     */
+    private void selfJoin(Record[] records, int sourceSize, String[] uris, IStringMeasure measure,
+                          double threshold, AMapping mapping) {
+        HashMap<Integer, LinkedList<Position>> index = new HashMap<Integer, LinkedList<Position>>(); // I
         for (int i = 0; i < records.length; i++) {
-            HashMap<Record, CandidateInfo> candidates = new HashMap<Record, CandidateInfo>(); // A
             Record currentRec = records[i]; // record x
-            int tokensNumber = currentRec.tokens.length; // |x|
-
-            currentRec.prefixLength = measure.getPrefixLength(tokensNumber, threshold);
-            currentRec.midPrefix = measure.getMidLength(tokensNumber, threshold);
-
-            for (int j = 0; j < currentRec.tokens.length && j < currentRec.prefixLength; j++) {
-                Integer tokenID = currentRec.tokens[j].id;
-                LinkedList<Position> l = index.get(tokenID);
-                if (l != null) {
-                    Iterator<Position> iter = l.iterator();
-                    while (iter.hasNext()) {
-                        Position pos = iter.next();
-                        double sizeFilteringThreshold = measure.getSizeFilteringThreshold(tokensNumber, threshold);
-
-                        int tokensNumber2 = pos.record.tokens.length; // |y|
-                        if (tokensNumber2 >= sizeFilteringThreshold) { // size
-                            // filtering
-                            // on |y|
-                            int alpha = measure.getAlpha(tokensNumber, tokensNumber2, threshold);
-                            int ubound = 1 + Math.min(tokensNumber - j - 1, tokensNumber2 - pos.position - 1);
-
-                            CandidateInfo cf = candidates.get(pos.record);
-                            if (cf == null) {
-                                if (ubound >= alpha) {
-                                    // differs from paper because count starts
-                                    // at 0 not 1
+            HashMap<Record, CandidateInfo> candidates = probe(currentRec, index, measure, threshold);
+            verification(currentRec, candidates, mapping, sourceSize, uris, measure);
+        }
+    }
+
+    /**
+     * Joins the source values with the target values. The prefixes of the
+     * target records are indexed once, then the source records probe the index
+     * in parallel, partitioned into ranges of records. Thus, no candidate
+     * pairs within the same dataset are generated and the index only holds
+     * the prefixes of the target.
+     *
+     * @param values
+     *            Source and target values
+     * @param sourceSize
+     *            Number of source values, source values precede target values
+     * @param uris
+     *            URIs of the values
+     * @param measure
+     *            Similarity measure
+     * @param threshold
+     *            Similarity threshold
+     * @param mapping
+     *            Mapping to which the links are added
+     */
+    private void join(List<String> values, int sourceSize, String[] uris, IStringMeasure measure,
+                      double threshold, AMapping mapping) {
+        int[] tokenCount = new int[1];
+        int[][] records = PPJoinIndex.tokenize(values, tokenCount);
+        PPJoinIndex index = new PPJoinIndex(records, sourceSize, records.length, tokenCount[0], measure, threshold);
+        int partitions = ComputePool.getPartitions(sourceSize, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<PPJoinIndex.Links>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sourceSize / partitions);
+            final int to = (int) ((long) (i + 1) * sourceSize / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> index.probe(records, from, to)));
+        }
+        ComputePool.invokeAll(tasks);
+        // add the links in the order of the partitions
+        for (ForkJoinTask<PPJoinIndex.Links> task : tasks) {
+            PPJoinIndex.Links links = task.join();
+            for (int i = 0; i < links.size; i++) {
+                mapping.add(uris[links.probes[i]], uris[links.records[i]], links.similarities[i]);
+            }
+        }
+    }
+
+    /**
+     * Generates the candidates of a record using the prefix, positional and
+     * suffix filters and adds the mid-prefix of the record to the index.
+     *
+     * @param currentRec
+     *            Record x
+     * @param index
+     *            Index of the prefixes of the records processed before x, to
+     *            which the mid-prefix of x is added
+     * @param measure
+     *            Similarity measure
+     * @param threshold
+     *            Similarity threshold
+     * @return The candidates of x
+     */
+    private static HashMap<Record, CandidateInfo> probe(Record currentRec,
+                                                        HashMap<Integer, LinkedList<Position>> index,
+                                                        IStringMeasure measure, double threshold) {
+        HashMap<Record, CandidateInfo> candidates = new HashMap<Record, CandidateInfo>(); // A
+        int tokensNumber = currentRec.tokens.length; // |x|
+
+        currentRec.prefixLength = measure.getPrefixLength(tokensNumber, threshold);
+        currentRec.midPrefix = measure.getMidLength(tokensNumber, threshold);
+        double sizeFilteringThreshold = measure.getSizeFilteringThreshold(tokensNumber, threshold);
+
+        for (int j = 0; j < currentRec.tokens.length && j < currentRec.prefixLength; j++) {
+            Integer tokenID = currentRec.tokens[j].id;
+            LinkedList<Position> l = index.get(tokenID);
+            if (l != null) {
+                Iterator<Position> iter = l.iterator();
+                while (iter.hasNext()) {
+                    Position pos = iter.next();
+                    int tokensNumber2 = pos.record.tokens.length; // |y|
+                    if (tokensNumber2 >= sizeFilteringThreshold) { // size
+                        // filtering
+                        // on |y|
+                        int alpha = measure.getAlpha(tokensNumber, tokensNumber2, threshold);
+                        int ubound = 1 + Math.min(tokensNumber - j - 1, tokensNumber2 - pos.position - 1);
+
+                        CandidateInfo cf = candidates.get(pos.record);
+                        if (cf == null) {
+                            if (ubound >= alpha) {
+                                // differs from paper because count starts
+                                // at 0 not 1
+                                int H_max = tokensNumber + tokensNumber2 - 2 * alpha - j - pos.position;
+                                int H = suffixFilter(currentRec, j + 1, currentRec.tokens.length - 1, pos.record,
+                                        pos.position + 1, pos.record.tokens.length - 1, H_max, 1);
+                                if (H <= H_max) {
+                                    candidates.put(pos.record, new CandidateInfo(1, alpha));
+                                } else {
+                                    candidates.put(pos.record, new CandidateInfo(Integer.MIN_VALUE, alpha));
+                                }
+                            }
+                        } else {
+                            if (cf.currentOverlap + ubound >= alpha) {
+                                if (cf.currentOverlap == 0) {
                                     int H_max = tokensNumber + tokensNumber2 - 2 * alpha - j - pos.position;
-                                    int H = suffixFilter(currentRec, j + 1, currentRec.tokens.length - 1, pos.record,
-                                            pos.position + 1, pos.record.tokens.length - 1, H_max, 1);
+                                    int H = suffixFilter(currentRec, j + 1, currentRec.tokens.length - 1,
+                                            pos.record, pos.position + 1, pos.record.tokens.length - 1, H_max, 1);
                                     if (H <= H_max) {
-                                        candidates.put(pos.record, new CandidateInfo(1, alpha));
-                                    } else {
-                                        candidates.put(pos.record, new CandidateInfo(Integer.MIN_VALUE, alpha));
-                                    }
-                                }
-                            } else {
-                                if (cf.currentOverlap + ubound >= alpha) {
-                                    if (cf.currentOverlap == 0) {
-                                        int H_max = tokensNumber + tokensNumber2 - 2 * alpha - j - pos.position;
-                                        int H = suffixFilter(currentRec, j + 1, currentRec.tokens.length - 1,
-                                                pos.record, pos.position + 1, pos.record.tokens.length - 1, H_max, 1);
-                                        if (H <= H_max) {
-                                            cf.currentOverlap++; // a++;
-                                        } else {
-                                            cf.currentOverlap = Integer.MIN_VALUE;
-                                        }
-                                    } else {
                                         cf.currentOverlap++; // a++;
+                                    } else {
+                                        cf.currentOverlap = Integer.MIN_VALUE;
                                     }
                                 } else {
-                                    cf.currentOverlap = 0; // prune candidate
+                                    cf.currentOverlap++; // a++;
                                 }
+                            } else {
+                                cf.currentOverlap = 0; // prune candidate
                             }
-                        } else {
-                            iter.remove();
                         }
-                    }
-
-                    if (j < currentRec.midPrefix) {
-                        l.add(new Position(currentRec, j)); // index the current
-                        // prefix
-                    }
-                } else {
-                    if (j < currentRec.midPrefix) {
-                        LinkedList<Position> temp = new LinkedList<Position>();
-                        temp.add(new Position(currentRec, j));
-                        index.put(tokenID, temp);
+                    } else {
+                        iter.remove();
                     }
                 }
             }
-            verification(currentRec, candidates, mapping, sourceMap, targetMap, measure);
-        }
-        // logger.info("Mapping carried out using " + comparisons + "
-        // comparisons.");
-        AMapping tempMapping = MappingFactory.createDefaultMapping();
-        for (String key : mapping.getMap().keySet()) {
-            for (String value : mapping.getMap().get(key).keySet()) {
-                double confidence = mapping.getConfidence(key, value);
-                if (confidence >= threshold) {
-                    tempMapping.add(key, value, confidence);
+            if (j < currentRec.midPrefix) {
+                // index the current prefix
+                LinkedList<Position> temp = index.get(tokenID);
+                if (temp == null) {
+                    temp = new LinkedList<Position>();
+                    index.put(tokenID, temp);
                 }
+                temp.add(new Position(currentRec, j));
             }
         }
-        mapping = tempMapping;
-        return mapping;
+        return candidates;
     }
 
     private int verification(Record currentRec, HashMap<Record, CandidateInfo> candidates, AMapping mapping,
-                             HashMap<Integer, String> sourceMap, HashMap<Integer, String> targetMap, IStringMeasure measure) {
+                             int sourceSize, String[] uris, IStringMeasure measure) {
         int count = 0;
-        String id1, id2;
 
-        for (@SuppressWarnings("rawtypes")
-                Map.Entry e : candidates.entrySet()) {
-            CandidateInfo value = (CandidateInfo) e.getValue();
+        for (Map.Entry<Record, CandidateInfo> e : candidates.entrySet()) {
+            CandidateInfo value = e.getValue();
             if (value.currentOverlap > 0) {
-                Record key = (Record) e.getKey();
+                Record key = e.getKey();
+                boolean currentIsSource = currentRec.id < sourceSize;
+                if (currentIsSource == key.id < sourceSize) {
+                    // both records stem from the same dataset
+                    continue;
+                }
                 int overlap = value.currentOverlap;
                 Token wx = currentRec.tokens[currentRec.prefixLength - 1];
                 // Token wy = key.tokens[key.prefixLength - 1];
@@ -608,27 +728,13 @@ public class PPJoinPlusPlus extends AMapper {
                 }
                 if (overlap >= value.alpha) {
                     double similarity = measure.getSimilarity(overlap, currentRec.tokens.length, key.tokens.length);
-                    // use border here instead. faster!
-                    if ((sourceMap.containsKey(currentRec.id) && targetMap.containsKey(key.id))) {
-                        id1 = sourceMap.get(currentRec.id);
-                        id2 = targetMap.get(key.id);
-                        // CORRECT
-                        mapping.add(id1, id2, similarity);
-                        // mapping.add(id2, id1, similarity);
-                    } else if (targetMap.containsKey(currentRec.id) && sourceMap.containsKey(key.id)) {
-                        // get uris for ids
-                        {
-                            id1 = sourceMap.get(key.id);
-                            id2 = targetMap.get(currentRec.id);
-
-                            // CORRECT
-                            mapping.add(id1, id2, similarity);
-                            // mapping.add(id2, id1, similarity);
-                        }
+                    if (currentIsSource) {
+                        mapping.add(uris[currentRec.id], uris[key.id], similarity);
+                    } else {
+                        mapping.add(uris[key.id], uris[currentRec.id], similarity);
                         count++;
                     }
                 }
-                // count++;
             }
         }
         return count;
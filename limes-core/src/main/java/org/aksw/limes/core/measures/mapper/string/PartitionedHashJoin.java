@@ -0,0 +1,333 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.aksw.limes.core.util.ComputePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Radix-partitioned hash join of (value, URI) pairs on equal values. The
+ * pairs of both sides are partitioned by the high bits of the hash of their
+ * values. A partition whose buffer exceeds its share of the memory budget is
+ * spilled to a temporary file. The partitions are then joined in parallel:
+ * the build side of a partition is loaded into a hash table and the probe
+ * side is streamed against it. At most as many partitions as the pool has
+ * threads are joined at the same time, and each of them may load a build
+ * side of its share of the memory budget. A larger build side is partitioned
+ * again with another hash function and its sub-partitions are joined one
+ * after the other.
+ */
+public class PartitionedHashJoin implements Closeable {
+
+    static Logger logger = LoggerFactory.getLogger(PartitionedHashJoin.class);
+
+    // rough heap size of a buffered pair besides its characters
+    private static final int PAIR_OVERHEAD = 96;
+    // maximal number of partitions of an oversized build side
+    private static final int MAX_SUB_PARTITIONS = 64;
+    // a build side that is still too large at this depth consists of few
+    // distinct values and is loaded anyway
+    private static final int MAX_DEPTH = 3;
+
+    private final int radixBits;
+    private final int depth;
+    private final long memoryBudget;
+    private final long maxPartitionBytes;
+    private final boolean buildIsSource;
+    private final Partition[] build;
+    private final Partition[] probe;
+    private File folder;
+
+    /**
+     * @param partitions
+     *            Number of partitions, rounded up to a power of two
+     * @param memoryBudget
+     *            Maximal number of bytes buffered before spilling
+     * @param buildIsSource
+     *            whether the build side holds the source URIs
+     */
+    public PartitionedHashJoin(int partitions, long memoryBudget, boolean buildIsSource) {
+        this(partitions, memoryBudget, buildIsSource, 0);
+    }
+
+    private PartitionedHashJoin(int partitions, long memoryBudget, boolean buildIsSource, int depth) {
+        int bits = 1;
+        while ((1 << bits) < partitions && bits < 16) {
+            bits++;
+        }
+        this.radixBits = bits;
+        this.depth = depth;
+        this.memoryBudget = memoryBudget;
+        this.maxPartitionBytes = Math.max(1, memoryBudget / (2L << bits));
+        this.buildIsSource = buildIsSource;
+        this.build = new Partition[1 << bits];
+        this.probe = new Partition[1 << bits];
+        for (int i = 0; i < build.length; i++) {
+            build[i] = new Partition();
+            probe[i] = new Partition();
+        }
+    }
+
+    /**
+     * Adds a pair of the smaller side.
+     *
+     * @param value
+     *            Value to join on
+     * @param uri
+     *            URI of the instance with the value
+     */
+    public void addBuild(String value, String uri) {
+        add(build, value, uri);
+    }
+
+    /**
+     * Adds a pair of the larger side.
+     *
+     * @param value
+     *            Value to join on
+     * @param uri
+     *            URI of the instance with the value
+     */
+    public void addProbe(String value, String uri) {
+        add(probe, value, uri);
+    }
+
+    private void add(Partition[] partitions, String value, String uri) {
+        Partition partition = partitions[hash(value) >>> (32 - radixBits)];
+        partition.add(value, uri);
+        if (partition.bytes > maxPartitionBytes) {
+            try {
+                partition.spill(getFolder());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot spill join partition", e);
+            }
+        }
+    }
+
+    /**
+     * Mixes the hash code of a value with a seed that depends on the depth,
+     * so that the values of a partition are spread when it is partitioned
+     * again.
+     */
+    private int hash(String value) {
+        int h = value.hashCode() ^ (depth * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private File getFolder() throws IOException {
+        if (folder == null) {
+            folder = Files.createTempDirectory("limes-join").toFile();
+            folder.deleteOnExit();
+            logger.info("Spilling join partitions to " + folder);
+        }
+        return folder;
+    }
+
+    /**
+     * Joins the partitions in parallel and merges their links.
+     *
+     * @return mapping with a link of similarity 1 between each source URI and
+     *         target URI with an equal value
+     */
+    public AMapping join() {
+        int parallelism = Math.min(ComputePool.getParallelism(), build.length);
+        return join(parallelism, memoryBudget / parallelism);
+    }
+
+    /**
+     * @param parallelism
+     *            Maximal number of partitions joined at the same time
+     * @param maxTableBytes
+     *            Maximal size of a build side loaded into a hash table
+     */
+    private AMapping join(int parallelism, long maxTableBytes) {
+        List<Callable<AMapping>> tasks = new ArrayList<>(build.length);
+        for (int i = 0; i < build.length; i++) {
+            final Partition buildPartition = build[i];
+            final Partition probePartition = probe[i];
+            tasks.add(() -> join(buildPartition, probePartition, maxTableBytes));
+        }
+        AMapping result = MappingFactory.createDefaultMapping();
+        for (AMapping links : ComputePool.invokeAll(tasks, parallelism)) {
+            links.forEachLink(result::add);
+        }
+        return result;
+    }
+
+    private AMapping join(Partition buildPartition, Partition probePartition, long maxTableBytes) {
+        AMapping links = MappingFactory.createDefaultMapping();
+        if (buildPartition.isEmpty() || probePartition.isEmpty()) {
+            return links;
+        }
+        try {
+            if (buildPartition.totalBytes > maxTableBytes) {
+                if (depth < MAX_DEPTH) {
+                    return repartition(buildPartition, probePartition, maxTableBytes);
+                }
+                logger.warn("Loading a join partition of " + buildPartition.totalBytes
+                        + " bytes, its values are too skewed to be partitioned");
+            }
+            Map<String, List<String>> table = new HashMap<>();
+            buildPartition.forEach((value, uri) -> table.computeIfAbsent(value, k -> new ArrayList<>(1)).add(uri));
+            probePartition.forEach((value, uri) -> {
+                List<String> uris = table.get(value);
+                if (uris != null) {
+                    for (String other : uris) {
+                        if (buildIsSource) {
+                            links.add(other, uri, 1d);
+                        } else {
+                            links.add(uri, other, 1d);
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read join partition", e);
+        }
+        return links;
+    }
+
+    /**
+     * Partitions the pairs of an oversized build side and of its probe side
+     * again and joins the sub-partitions one after the other, within the
+     * memory of the task that joins the partition.
+     */
+    private AMapping repartition(Partition buildPartition, Partition probePartition, long maxTableBytes)
+            throws IOException {
+        int partitions = (int) Math.min(MAX_SUB_PARTITIONS,
+                2 + buildPartition.totalBytes / Math.max(1, maxTableBytes));
+        try (PartitionedHashJoin join = new PartitionedHashJoin(partitions, maxTableBytes, buildIsSource,
+                depth + 1)) {
+            buildPartition.forEach(join::addBuild);
+            probePartition.forEach(join::addProbe);
+            return join.join(1, maxTableBytes);
+        }
+    }
+
+    /**
+     * Deletes the spill files.
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < build.length; i++) {
+            build[i].delete();
+            probe[i].delete();
+        }
+        if (folder != null) {
+            folder.delete();
+        }
+    }
+
+    /**
+     * Pairs of a partition, buffered on the heap and appended to a spill
+     * file when the buffer is full.
+     */
+    private static class Partition {
+
+        private List<String> buffer = new ArrayList<>();
+        private long bytes = 0;
+        // bytes of the buffered and the spilled pairs
+        private long totalBytes = 0;
+        private File file;
+        private boolean spilled = false;
+
+        void add(String value, String uri) {
+            buffer.add(value);
+            buffer.add(uri);
+            long pairBytes = 2L * (value.length() + uri.length()) + PAIR_OVERHEAD;
+            bytes += pairBytes;
+            totalBytes += pairBytes;
+        }
+
+        boolean isEmpty() {
+            return buffer.isEmpty() && !spilled;
+        }
+
+        void spill(File folder) throws IOException {
+            if (file == null) {
+                file = File.createTempFile("partition", ".bin", folder);
+                file.deleteOnExit();
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16))) {
+                for (String s : buffer) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            spilled = true;
+            buffer = new ArrayList<>();
+            bytes = 0;
+        }
+
+        void forEach(PairConsumer consumer) throws IOException {
+            if (spilled) {
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+                    while (true) {
+                        String value;
+                        try {
+                            value = read(in);
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        consumer.accept(value, read(in));
+                    }
+                }
+            }
+            for (int i = 0; i < buffer.size(); i += 2) {
+                consumer.accept(buffer.get(i), buffer.get(i + 1));
+            }
+        }
+
+        private static String read(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void delete() {
+            buffer = new ArrayList<>();
+            bytes = 0;
+            totalBytes = 0;
+            if (file != null) {
+                file.delete();
+                file = null;
+            }
+            spilled = false;
+        }
+    }
+
+    private interface PairConsumer {
+        void accept(String value, String uri);
+    }
+}
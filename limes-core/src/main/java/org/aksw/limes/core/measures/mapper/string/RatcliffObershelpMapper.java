@@ -20,26 +20,22 @@ package org.aksw.limes.core.measures.mapper.string;
 import org.aksw.limes.core.exceptions.InvalidThresholdException;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.measures.mapper.AMapper;
 import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
-import org.aksw.limes.core.measures.mapper.string.triefilter.LengthQuicksort;
-import org.aksw.limes.core.measures.mapper.string.triefilter.TrieFilter;
 import org.aksw.limes.core.measures.measure.string.RatcliffObershelpMeasure;
-import org.apache.commons.lang3.tuple.ImmutableTriple;
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
+import org.aksw.limes.core.util.ComputePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
 
 public class RatcliffObershelpMapper extends AMapper {
 
     static Logger logger = LoggerFactory.getLogger(RatcliffObershelpMapper.class);
+    private static final int MIN_PARTITION_SIZE = 256;
 
     /**
      * Computes a mapping between a source and a target.
@@ -69,82 +65,159 @@ public class RatcliffObershelpMapper extends AMapper {
         List<String> properties = PropertyFetcher.getProperties(expression, threshold);
         Map<String, Set<String>> sourceMap = getValueToUriMap(source, properties.get(0));
         Map<String, Set<String>> targetMap = getValueToUriMap(target, properties.get(1));
-        return getMapping(sourceMap, targetMap, threshold);
+        return getMapping(sourceMap, targetMap, threshold, MappingFactory.createColumnarMapping(source, target));
     }
 
+    /**
+     * Compares the source values with the target values whose length is
+     * within the length bounds of the measure. Before a pair is verified with
+     * the full pattern matching, its similarity is bounded by the length
+     * bound 2 min(|a|, |b|) / (|a| + |b|) and by the overlap of the character
+     * multisets, which are computed once per value.
+     */
     protected AMapping getMapping(Map<String, Set<String>> sourceMap, Map<String, Set<String>> targetMap,
                                   double threshold) {
-        List<String> listA, listB;
-        listA = new ArrayList<>(sourceMap.keySet());
-        listB = new ArrayList<>(targetMap.keySet());
-        RatcliffObershelpMeasure metric = new RatcliffObershelpMeasure();
-        ConcurrentHashMap<String, Map<String, Double>> similarityBook = new ConcurrentHashMap<>(listA.size(), 1.0f);
-        List<String> red, blue;
-        red = listA;
-        blue = listB;
-        LengthQuicksort.sort(red);
-        LengthQuicksort.sort(blue);
-        // red is the list with the longest string
-        boolean swapped = false;
-        if (red.get(red.size() - 1).length() < blue.get(blue.size() - 1).length()) {
-            List<String> temp = red;
-            red = blue;
-            blue = temp;
-            swapped = true;
+        return getMapping(sourceMap, targetMap, threshold, createMapping(sourceMap, targetMap));
+    }
+
+    private AMapping getMapping(Map<String, Set<String>> sourceMap, Map<String, Set<String>> targetMap,
+                                double threshold, ColumnarMapping result) {
+        String[] sourceValues = sourceMap.keySet().toArray(new String[sourceMap.size()]);
+        Histogram[] sourceHistograms = getHistograms(sourceValues);
+        String[] targetValues = targetMap.keySet().toArray(new String[targetMap.size()]);
+        Histogram[] targetHistograms = getHistograms(targetValues);
+        // the target values sorted by length, the measure ignores the case
+        Integer[] order = new Integer[targetValues.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> targetHistograms[i].length));
+        int[] targetLengths = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            targetLengths[i] = targetHistograms[order[i]].length;
         }
 
-        List<Pair<List<String>, List<String>>> tempPairs = new LinkedList<>();
-        // generate length filtered partitions
-        if (metric.lengthUpperBound(1, threshold) != -1) {
-            List<ImmutableTriple<Integer, Integer, Integer>> sliceBoundaries = metric
-                    .getPartitionBounds(blue.get(blue.size() - 1).length(), threshold);
-            for (ImmutableTriple<Integer, Integer, Integer> sliceBoundary : sliceBoundaries) {
-                MutablePair<List<String>, List<String>> m = new MutablePair<>();
-                m.setLeft(new LinkedList<>());
-                m.setRight(new LinkedList<>());
-                for (String s : red)
-                    if (s.length() >= sliceBoundary.getMiddle() && s.length() <= sliceBoundary.getRight())
-                        m.getLeft().add(s);
-                    else if (s.length() > sliceBoundary.getRight())
-                        break;
-                for (String s : blue)
-                    if (s.length() == sliceBoundary.getLeft())
-                        m.getRight().add(s);
-                    else if (s.length() > sliceBoundary.getLeft())
-                        break;
-                if (m.getRight().size() > 0 && m.getLeft().size() > 0)
-                    tempPairs.add(m);
-            }
-        } else {
-            MutablePair<List<String>, List<String>> m = new MutablePair<>();
-            m.setLeft(red);
-            m.setRight(blue);
-            tempPairs.add(m);
+        int partitions = ComputePool.getPartitions(sourceValues.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<ColumnarMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sourceValues.length / partitions);
+            final int to = (int) ((long) (i + 1) * sourceValues.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ColumnarMapping links = MappingFactory.createColumnarMapping(result.getSourceDictionary(),
+                        result.getTargetDictionary());
+                // the measure keeps its score in a field
+                RatcliffObershelpMeasure metric = new RatcliffObershelpMeasure();
+                for (int j = from; j < to; j++) {
+                    Histogram a = sourceHistograms[j];
+                    if (a.length == 0) {
+                        continue;
+                    }
+                    // the length window is widened against rounding, the
+                    // pairs are bounded exactly below
+                    int k = lowerBound(targetLengths, metric.lengthLowerBound(a.length, threshold) - 1);
+                    int maxLength = metric.lengthUpperBound(a.length, threshold) + 1;
+                    for (; k < targetLengths.length && targetLengths[k] <= maxLength; k++) {
+                        Histogram b = targetHistograms[order[k]];
+                        if (b.length == 0 || metric.characterFrequencyUpperBound(a.length, b.length,
+                                Math.min(a.length, b.length)) < threshold) {
+                            continue;
+                        }
+                        if (metric.characterFrequencyUpperBound(a.length, b.length, a.overlap(b)) < threshold) {
+                            continue;
+                        }
+                        double similarity = metric.proximity(sourceValues[j], targetValues[order[k]]);
+                        if (similarity >= threshold) {
+                            for (String sourceUri : sourceMap.get(sourceValues[j])) {
+                                for (String targetUri : targetMap.get(targetValues[order[k]])) {
+                                    links.add(sourceUri, targetUri, similarity);
+                                }
+                            }
+                        }
+                    }
+                }
+                return links;
+            }));
         }
+        ComputePool.invokeAll(tasks);
+        for (ForkJoinTask<ColumnarMapping> task : tasks) {
+            result.addAll(task.join());
+        }
+        return result;
+    }
 
-        int poolSize = Runtime.getRuntime().availableProcessors();
-        if (tempPairs.size() == 0) {
-            return MappingFactory.createDefaultMapping();
+    private static Histogram[] getHistograms(String[] values) {
+        Histogram[] histograms = new Histogram[values.length];
+        for (int i = 0; i < values.length; i++) {
+            histograms[i] = new Histogram(values[i].toLowerCase());
         }
-        poolSize = poolSize > tempPairs.size() ? tempPairs.size() : poolSize;
-
-        // create thread pool, one thread per partition
-        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
-        // executor = Executors.newFixedThreadPool(1);
-        for (Pair<List<String>, List<String>> tempPair : tempPairs) {
-            Runnable worker = new TrieFilter(tempPair, similarityBook, new RatcliffObershelpMeasure(), threshold);
-            executor.execute(worker);
+        return histograms;
+    }
+
+    /*
+     * index of the first length that is at least the given length
+     */
+    private static int lowerBound(int[] lengths, int length) {
+        int low = 0, high = lengths.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lengths[mid] < length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-        executor.shutdown();
-        while (!executor.isTerminated()) {
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        return low;
+    }
+
+    /**
+     * Character multiset of a lower case value, as its sorted distinct
+     * characters and their counts.
+     */
+    private static class Histogram {
+
+        private final int length;
+        private final char[] chars;
+        private final int[] counts;
+
+        Histogram(String value) {
+            length = value.length();
+            char[] sorted = value.toCharArray();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    distinct++;
+                }
+            }
+            chars = new char[distinct];
+            counts = new int[distinct];
+            for (int i = 0, k = -1; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    chars[++k] = sorted[i];
+                }
+                counts[k]++;
             }
         }
 
-        return getUriToUriMapping(similarityBook, sourceMap, targetMap, swapped);
+        /**
+         * @return the number of characters the values have in common, an
+         *         upper bound of the characters matched by the measure
+         */
+        int overlap(Histogram other) {
+            int overlap = 0;
+            for (int i = 0, j = 0; i < chars.length && j < other.chars.length;) {
+                if (chars[i] < other.chars[j]) {
+                    i++;
+                } else if (chars[i] > other.chars[j]) {
+                    j++;
+                } else {
+                    overlap += Math.min(counts[i], other.counts[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return overlap;
+        }
     }
 
     @Override
@@ -154,7 +227,10 @@ public class RatcliffObershelpMapper extends AMapper {
 
     @Override
     public double getRuntimeApproximation(int sourceSize, int targetSize, double theta, Language language) {
-        return 1000d;
+        // fitted in milliseconds on random labels of one to three words,
+        // error = 1207.74; the fit is negative for small inputs and high
+        // thresholds, where a run takes a few milliseconds
+        return Math.max(1d, 2586.69 + 0.42 * sourceSize + 0.40 * targetSize - 4469.36 * theta);
     }
 
     @Override
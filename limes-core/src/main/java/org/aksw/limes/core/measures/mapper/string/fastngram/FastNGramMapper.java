@@ -25,15 +25,17 @@ package org.aksw.limes.core.measures.mapper.string.fastngram;
 import org.aksw.limes.core.exceptions.InvalidThresholdException;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.io.parser.Parser;
 import org.aksw.limes.core.measures.mapper.AMapper;
-import org.aksw.limes.core.measures.measure.string.QGramSimilarityMeasure;
+import org.aksw.limes.core.util.ComputePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MarkerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
@@ -42,66 +44,74 @@ public class FastNGramMapper extends AMapper {
 
     static Logger logger = LoggerFactory.getLogger(FastNGramMapper.class);
     static int q = 3;
+    private static final int MIN_PARTITION_SIZE = 1024;
 
+    /**
+     * Computes the q-gram similarity of the source and the target strings.
+     * The target strings are indexed once, then the source strings probe the
+     * index in parallel, partitioned into ranges of strings. Since the count
+     * filter |X \cap Y| \geq \kappa(|X| + |Y|) is exact, the similarity is
+     * derived from the counts directly.
+     *
+     * @param source
+     *            Source strings
+     * @param target
+     *            Target strings
+     * @param q
+     *            value of n for n-grams
+     * @param threshold
+     *            Similarity threshold
+     * @return A mapping which contains links between the source strings and
+     *         the target strings
+     */
     public static AMapping compute(Set<String> source, Set<String> target, int q, double threshold) {
         Index index = new Index(q);
         double kappa = (1 + threshold) / threshold;
-        QGramSimilarityMeasure sim = new QGramSimilarityMeasure(q);
-        ITokenizer tokenizer = new NGramTokenizer();
-        Map<String, Set<String>> targetTokens = new HashMap<String, Set<String>>();
-        AMapping result = MappingFactory.createDefaultMapping();
         // index target
-        for (String t : target) {
-            targetTokens.put(t, index.addString(t));
+        index.addStrings(target);
+        String[] sources = source.toArray(new String[source.size()]);
+        int[][] sourceTokens = new int[sources.length][];
+        for (int i = 0; i < sources.length; i++) {
+            sourceTokens[i] = index.tokenize(sources[i]);
         }
         // run similarity computation
-
-        for (String s : source) {
-            Set<Integer> allSizes = index.getAllSizes();
-            Set<String> sourceTokens = tokenizer.tokenize(s, q);
-            double sourceSize = (double) sourceTokens.size();
-            for (int size = (int) Math.ceil(sourceSize * threshold); size <= (int) Math
-                    .floor(sourceSize / threshold); size++) {
-                if (allSizes.contains(size)) {
-                    // maps tokens to strings
-                    Map<String, Set<String>> stringsOfSize = index.getStrings(size);
-                    Map<String, Integer> countMap = new HashMap<String, Integer>();
-                    for (String token : sourceTokens) {
-                        if (stringsOfSize.containsKey(token)) {
-                            // take each string and add it to the count map
-                            Set<String> candidates = stringsOfSize.get(token);
-                            for (String candidate : candidates) {
-                                if (!countMap.containsKey(candidate)) {
-                                    countMap.put(candidate, 0);
-                                }
-                                countMap.put(candidate, countMap.get(candidate) + 1);
-                            }
-                        }
-                    }
-                    // now apply filtering |X \cap Y| \geq \kappa(|X| + |Y|)
-                    for (String candidate : countMap.keySet()) {
-                        double count = (double) countMap.get(candidate);
+        int partitions = ComputePool.getPartitions(sources.length, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<AMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * sources.length / partitions);
+            final int to = (int) ((long) (i + 1) * sources.length / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                AMapping links = MappingFactory.createDefaultMapping();
+                // counters are reused by all the strings of the partition
+                int[] counts = new int[index.size()];
+                int[] candidates = new int[index.size()];
+                for (int j = from; j < to; j++) {
+                    double sourceSize = (double) sourceTokens[j].length;
+                    int n = index.count(sourceTokens[j], (int) Math.ceil(sourceSize * threshold),
+                            (int) Math.floor(sourceSize / threshold), counts, candidates);
+                    for (int k = 0; k < n; k++) {
+                        int candidate = candidates[k];
+                        double count = (double) counts[candidate];
+                        counts[candidate] = 0;
+                        double size = (double) index.getSize(candidate);
+                        // now apply filtering |X \cap Y| \geq \kappa(|X| + |Y|)
                         if (kappa * count >= (sourceSize + size)) {
-                            double similarity = sim.getSimilarity(targetTokens.get(candidate), sourceTokens);
+                            double similarity = count / (sourceSize + size - count);
                             if (similarity >= threshold) {
-                                result.add(s, candidate, similarity);
+                                links.add(sources[j], index.getString(candidate), similarity);
                             }
                         }
                     }
                 }
-            }
-
+                return links;
+            }));
         }
-        AMapping tempMapping = MappingFactory.createDefaultMapping();
-        for (String key : result.getMap().keySet()) {
-            for (String value : result.getMap().get(key).keySet()) {
-                double confidence = result.getConfidence(key, value);
-                if (confidence >= threshold) {
-                    tempMapping.add(key, value, confidence);
-                }
-            }
+        ComputePool.invokeAll(tasks);
+        // add the links in the order of the partitions
+        AMapping result = MappingFactory.createDefaultMapping();
+        for (ForkJoinTask<AMapping> task : tasks) {
+            task.join().forEachLink(result::add);
         }
-        result = tempMapping;
         return result;
     }
 
@@ -199,47 +209,20 @@ public class FastNGramMapper extends AMapper {
         }
 
         /////////////////// This actually runs the algorithm
-        Map<String, Set<String>> sourceMap = new HashMap<String, Set<String>>();
-        ArrayList<String> sourceUris = source.getAllUris();
-        Map<String, Set<String>> targetMap = new HashMap<String, Set<String>>();
-        ArrayList<String> targetUris = target.getAllUris();
-
-        // index source values
-        for (String s : sourceUris) {
-            TreeSet<String> values = source.getInstance(s).getProperty(property1);
-            for (String v : values) {
-                if (!sourceMap.containsKey(v)) {
-                    sourceMap.put(v, new HashSet<String>());
-                }
-                sourceMap.get(v).add(s);
-            }
-        }
-
-        // index target values
-        // logger.info("Indexing target values");
-        for (String t : targetUris) {
-            TreeSet<String> values = target.getInstance(t).getProperty(property2);
-            for (String v : values) {
-                if (!targetMap.containsKey(v)) {
-                    targetMap.put(v, new HashSet<String>());
-                }
-                targetMap.get(v).add(t);
-            }
-        }
+        Map<String, Set<String>> sourceMap = getValueToUriMap(source, property1);
+        Map<String, Set<String>> targetMap = getValueToUriMap(target, property2);
 
         // run the algorithm
         // logger.info("Computing mappings");
         AMapping m = FastNGramMapper.compute(sourceMap.keySet(), targetMap.keySet(), q, threshold);
-        AMapping result = MappingFactory.createDefaultMapping();
-        for (String s : m.getMap().keySet()) {
-            for (String t : m.getMap().get(s).keySet()) {
-                for (String sourceUri : sourceMap.get(s)) {
-                    for (String targetUri : targetMap.get(t)) {
-                        result.add(sourceUri, targetUri, m.getConfidence(s, t));
-                    }
+        ColumnarMapping result = MappingFactory.createColumnarMapping(source, target);
+        m.forEachLink((s, t, similarity) -> {
+            for (String sourceUri : sourceMap.get(s)) {
+                for (String targetUri : targetMap.get(t)) {
+                    result.add(sourceUri, targetUri, similarity);
                 }
             }
-        }
+        });
 
         return result;
 
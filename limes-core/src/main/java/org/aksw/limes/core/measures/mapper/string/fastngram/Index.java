@@ -21,23 +21,35 @@
  */
 package org.aksw.limes.core.measures.mapper.string.fastngram;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
+ * Index of the q-grams of a set of strings. The q-grams are mapped to integer
+ * ids and the posting list of each q-gram holds the ids of the strings that
+ * contain it, sorted by the number of distinct q-grams of the strings. Thus,
+ * the strings of a given range of sizes are found by a binary search.
+ *
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
  */
 public class Index {
 
-    private Map<Integer, Map<String, Set<String>>> sizeTokenIndex;
-    private ITokenizer tokenizer;
+    private Map<String, Integer> tokenIds;
     private int q = 3;
+    private String pad;
+    private String[] strings = new String[0];
+    // number of distinct q-grams of each string
+    private int[] sizes = new int[0];
+    // posting lists of the tokens, token t owns the range [offsets[t],
+    // offsets[t + 1])
+    private int[] offsets = new int[1];
+    private int[] postings = new int[0];
+    private int[] postingSizes = new int[0];
 
     public Index() {
-        sizeTokenIndex = new HashMap<Integer, Map<String, Set<String>>>();
-        tokenizer = new NGramTokenizer();
+        this(3);
     }
 
     /**
@@ -47,72 +59,170 @@ public class Index {
      *            value of n for n-grams
      */
     public Index(int _q) {
-        sizeTokenIndex = new HashMap<Integer, Map<String, Set<String>>>();
-        tokenizer = new NGramTokenizer();
+        tokenIds = new HashMap<String, Integer>();
         q = _q;
+        char[] blanks = new char[q - 1];
+        Arrays.fill(blanks, ' ');
+        pad = new String(blanks);
     }
 
     /**
-     * Tokenizes a string and adds it to the index
+     * Tokenizes the strings and indexes them. Replaces the strings indexed
+     * before.
      *
-     * @param s
-     *            String to index
-     * @return The number of tokens generated for s
+     * @param values
+     *            Strings to index
      */
-    public Set<String> addString(String s) {
-        // update token index
-        Set<String> tokens = tokenizer.tokenize(s, q);
-        int size = tokens.size();
-        if (!sizeTokenIndex.containsKey(size)) {
-            sizeTokenIndex.put(size, new HashMap<String, Set<String>>());
+    public void addStrings(Collection<String> values) {
+        strings = values.toArray(new String[values.size()]);
+        sizes = new int[strings.length];
+        int[][] tokens = new int[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            tokens[i] = tokenize(strings[i]);
+            sizes[i] = tokens[i].length;
+        }
+        // counting sort of the string ids by size, so that the strings are
+        // inserted by ascending size into the posting lists
+        int maxSize = 0;
+        for (int size : sizes) {
+            maxSize = Math.max(maxSize, size);
+        }
+        int[] sizeOffsets = new int[maxSize + 2];
+        for (int size : sizes) {
+            sizeOffsets[size + 1]++;
+        }
+        for (int size = 0; size <= maxSize; size++) {
+            sizeOffsets[size + 1] += sizeOffsets[size];
+        }
+        int[] bySize = new int[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            bySize[sizeOffsets[sizes[i]]++] = i;
+        }
+        offsets = new int[tokenIds.size() + 1];
+        for (int[] record : tokens) {
+            for (int token : record) {
+                offsets[token + 1]++;
+            }
         }
-        Map<String, Set<String>> tokenIndex = sizeTokenIndex.get(size);
-        for (String token : tokens) {
-            if (!tokenIndex.containsKey(token)) {
-                tokenIndex.put(token, new HashSet<String>());
+        for (int t = 0; t < tokenIds.size(); t++) {
+            offsets[t + 1] += offsets[t];
+        }
+        postings = new int[offsets[tokenIds.size()]];
+        postingSizes = new int[postings.length];
+        int[] next = Arrays.copyOf(offsets, tokenIds.size());
+        for (int id : bySize) {
+            for (int token : tokens[id]) {
+                postings[next[token]] = id;
+                postingSizes[next[token]++] = sizes[id];
             }
-            tokenIndex.get(token).add(s);
         }
-        return tokens;
     }
 
     /**
-     * Returns all strings to a given token
+     * Maps the distinct q-grams of a string to their ids. Q-grams that were
+     * not seen before get a new id, hence this method is not thread-safe.
      *
-     * @param size,
-     *            Size of token
-     * @param token
-     *            Input token
-     * @return All strings that contain this token
+     * @param s
+     *            Input string
+     * @return The sorted ids of the distinct q-grams of s
      */
-    public Set<String> getStrings(int size, String token) {
-        if (sizeTokenIndex.containsKey(size)) {
-            if (sizeTokenIndex.get(size).containsKey(token)) {
-                return sizeTokenIndex.get(size).get(token);
-            } else {
-                return new HashSet<String>();
+    public int[] tokenize(String s) {
+        if (s == null) {
+            s = "";
+        }
+        String padded = pad + s + pad;
+        int[] tokens = new int[Math.max(0, padded.length() - q + 1)];
+        for (int i = 0; i < tokens.length; i++) {
+            String token = padded.substring(i, i + q);
+            Integer id = tokenIds.get(token);
+            if (id == null) {
+                id = tokenIds.size();
+                tokenIds.put(token, id);
             }
-        } else {
-            return new HashSet<String>();
+            tokens[i] = id;
         }
+        Arrays.sort(tokens);
+        int distinct = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (i == 0 || tokens[i] != tokens[i - 1]) {
+                tokens[distinct++] = tokens[i];
+            }
+        }
+        return Arrays.copyOf(tokens, distinct);
     }
 
     /**
-     * Returns all strings of size size
+     * Counts the q-grams that the indexed strings with a number of distinct
+     * q-grams in [minSize, maxSize] share with the given tokens. The counters
+     * are provided by the caller, so that they can be reused across calls.
      *
-     * @param size
-     *            Size requirement
-     * @return All strings which consist of "size" different tokens
+     * @param tokens
+     *            Distinct q-gram ids as returned by {@link #tokenize(String)}
+     * @param minSize
+     *            Minimal number of q-grams of the indexed strings
+     * @param maxSize
+     *            Maximal number of q-grams of the indexed strings
+     * @param counts
+     *            Counter per indexed string, must be zero for all strings.
+     *            The caller has to reset the counters of the candidates.
+     * @param candidates
+     *            Receives the ids of the strings with a non-zero count, must
+     *            be at least as long as the number of indexed strings
+     * @return Number of candidates
      */
-    public Map<String, Set<String>> getStrings(int size) {
-        if (sizeTokenIndex.containsKey(size)) {
-            return sizeTokenIndex.get(size);
-        } else {
-            return new HashMap<String, Set<String>>();
+    public int count(int[] tokens, int minSize, int maxSize, int[] counts, int[] candidates) {
+        int n = 0;
+        for (int token : tokens) {
+            if (token >= offsets.length - 1) {
+                // q-gram that does not occur in the indexed strings
+                continue;
+            }
+            for (int p = firstPosting(token, minSize); p < offsets[token + 1] && postingSizes[p] <= maxSize; p++) {
+                if (counts[postings[p]]++ == 0) {
+                    candidates[n++] = postings[p];
+                }
+            }
         }
+        return n;
     }
 
-    public Set<Integer> getAllSizes() {
-        return sizeTokenIndex.keySet();
+    // first posting of the token for a string with at least minSize q-grams
+    private int firstPosting(int token, int minSize) {
+        int lo = offsets[token];
+        int hi = offsets[token + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (postingSizes[mid] < minSize) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param id
+     *            Id of an indexed string
+     * @return The indexed string
+     */
+    public String getString(int id) {
+        return strings[id];
+    }
+
+    /**
+     * @param id
+     *            Id of an indexed string
+     * @return The number of distinct q-grams of the string
+     */
+    public int getSize(int id) {
+        return sizes[id];
+    }
+
+    /**
+     * @return Number of indexed strings
+     */
+    public int size() {
+        return strings.length;
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string.triefilter;
+
+import org.aksw.limes.core.exceptions.InvalidThresholdException;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.aksw.limes.core.measures.mapper.AMapper;
+import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
+import org.aksw.limes.core.measures.measure.string.ITrieFilterableStringMeasure;
+import org.aksw.limes.core.util.ComputePool;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Base class for mappers of trie-filterable string measures. The strings are
+ * split into length partitions, each of which is matched by a
+ * {@link TrieFilter} on the shared compute pool.
+ */
+public abstract class ATrieFilterMapper extends AMapper {
+
+    /**
+     * Computes a mapping between a source and a target.
+     *
+     * @param source
+     *            Source cache
+     * @param target
+     *            Target cache
+     * @param sourceVar
+     *            Variable for the source dataset
+     * @param targetVar
+     *            Variable for the target dataset
+     * @param expression
+     *            Expression to process.
+     * @param threshold
+     *            Similarity threshold
+     * @return A mapping which contains links between the source instances and
+     *         the target instances
+     */
+    @Override
+    public AMapping getMapping(ACache source, ACache target, String sourceVar, String targetVar, String expression,
+                               double threshold) {
+        if (threshold <= 0) {
+            throw new InvalidThresholdException(threshold);
+        }
+        List<String> properties = PropertyFetcher.getProperties(expression, threshold);
+        // generate value to uri maps
+        Map<String, Set<String>> sourceMap = getValueToUriMap(source, properties.get(0));
+        Map<String, Set<String>> targetMap = getValueToUriMap(target, properties.get(1));
+        return getMapping(sourceMap, targetMap, threshold, MappingFactory.createColumnarMapping(source, target));
+    }
+
+    /**
+     * @return a fresh instance of the measure, one is handed to each worker
+     */
+    protected abstract ITrieFilterableStringMeasure getMeasure();
+
+    /**
+     * Computes a mapping between two value to uri maps.
+     *
+     * @param sourceMap
+     *            source values to source uris
+     * @param targetMap
+     *            target values to target uris
+     * @param threshold
+     *            Similarity threshold
+     * @return A mapping which contains links between the source uris and the
+     *         target uris
+     */
+    public AMapping getMapping(Map<String, Set<String>> sourceMap, Map<String, Set<String>> targetMap,
+                               double threshold) {
+        return getMapping(sourceMap, targetMap, threshold, createMapping(sourceMap, targetMap));
+    }
+
+    private AMapping getMapping(Map<String, Set<String>> sourceMap, Map<String, Set<String>> targetMap,
+                                double threshold, ColumnarMapping result) {
+        if (sourceMap.isEmpty() || targetMap.isEmpty()) {
+            return result;
+        }
+        List<String> listA, listB;
+        // get lists of strings to match
+        listA = new ArrayList<>(sourceMap.keySet());
+        listB = new ArrayList<>(targetMap.keySet());
+        // sort lists
+        LengthQuicksort.sort(listA);
+        LengthQuicksort.sort(listB);
+        // swap lists iff the largest string in listB is larger than the largest
+        // string in listA
+        boolean swapped = false;
+        if (listA.get(listA.size() - 1).length() < listB.get(listB.size() - 1).length()) {
+            List<String> temp = listA;
+            listA = listB;
+            listB = temp;
+            swapped = true;
+        }
+        // set up partitioning of lists of strings based on strings lengths
+        ITrieFilterableStringMeasure metric = getMeasure();
+        // the length bounds are only used iff they are well defined
+        // mathematically, otherwise every partition of listB is matched
+        // against all of listA
+        // (cf. "On the efficient execution of bounded Jaro-Winkler distances")
+        boolean bounded = metric.lengthUpperBound(1, threshold) != -1;
+        List<Pair<List<String>, List<String>>> partitions = new LinkedList<>();
+        List<ImmutableTriple<Integer, Integer, Integer>> sliceBoundaries = metric
+                .getPartitionBounds(listB.get(listB.size() - 1).length(), threshold);
+        for (ImmutableTriple<Integer, Integer, Integer> sliceBoundary : sliceBoundaries) {
+            int lower = bounded ? sliceBoundary.getMiddle() : 0;
+            int upper = bounded ? sliceBoundary.getRight() : Integer.MAX_VALUE;
+            MutablePair<List<String>, List<String>> m = new MutablePair<>();
+            m.setLeft(new LinkedList<>());
+            m.setRight(new LinkedList<>());
+            for (String s : listA)
+                if (s.length() >= lower && s.length() <= upper)
+                    m.getLeft().add(s);
+                else if (s.length() > upper)
+                    break;
+            for (String s : listB)
+                if (s.length() == sliceBoundary.getLeft())
+                    m.getRight().add(s);
+                else if (s.length() > sliceBoundary.getLeft())
+                    break;
+            if (m.getRight().size() > 0 && m.getLeft().size() > 0)
+                partitions.add(m);
+        }
+
+        // setting up parallel execution of matching
+        ConcurrentHashMap<String, Map<String, Double>> similarityBook = new ConcurrentHashMap<>(listA.size(), 1.0f);
+        // instantiate workers and run them on the shared pool
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>(partitions.size());
+        for (Pair<List<String>, List<String>> tempPair : partitions) {
+            Runnable worker = new TrieFilter(tempPair, similarityBook, getMeasure(), threshold);
+            tasks.add(ForkJoinTask.adapt(worker, null));
+        }
+        ComputePool.invokeAll(tasks);
+        // return result
+        return getUriToUriMapping(similarityBook, sourceMap, targetMap, swapped, result);
+    }
+
+}
@@ -122,8 +122,14 @@ public class TrieFilter implements Runnable {
                         similarityTable.put(b, currentSim);
                 }
                 if (similarityTable.size() > 0) {
-                    // noinspection unchecked
-                    tempResult.put(a, (HashMap<String, Double>) (similarityTable.clone()));
+                    // a may be a candidate for several partitions of the blue
+                    // part, so merge instead of replacing earlier matches
+                    if (tempResult.containsKey(a)) {
+                        tempResult.get(a).putAll(similarityTable);
+                    } else {
+                        // noinspection unchecked
+                        tempResult.put(a, (HashMap<String, Double>) (similarityTable.clone()));
+                    }
                 }
             }
         }
@@ -160,12 +166,14 @@ public class TrieFilter implements Runnable {
                     if (currentOrder == 0) {
                         current.getLeft().pop();
                         current.setRight(current.getRight() + 1);
-                        if (current.getRight() >= metric.characterMatchLowerBound(bLen, current.getMiddle().getLevel(),
-                                threshold) && current.getMiddle().data != null && current.getMiddle().data.size() > 0
-                                && metric.characterFrequencyUpperBound(current.getMiddle().getLevel(), b.length(),
-                                current.getRight()) >= threshold) {
-                            matchCandidateList.addAll(current.getMiddle().data);
-                        }
+                    }
+                    // strings ending in a character missing from b are
+                    // candidates as well
+                    if (current.getRight() >= metric.characterMatchLowerBound(bLen, current.getMiddle().getLevel(),
+                            threshold) && current.getMiddle().data != null && current.getMiddle().data.size() > 0
+                            && metric.characterFrequencyUpperBound(current.getMiddle().getLevel(), b.length(),
+                            current.getRight()) >= threshold) {
+                        matchCandidateList.addAll(current.getMiddle().data);
                     }
                     for (Character key : current.getMiddle().children.keySet()) {
                         // noinspection unchecked
@@ -0,0 +1,224 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.topology;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.util.ComputePool;
+import org.aksw.limes.core.util.LimesWktReader;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The geometries of a property of a cache, parsed once from their WKT values.
+ * Columns read from a cache are kept by the cache until it changes, so that
+ * all topological relations computed over the same property share them. The
+ * prepared geometries are created on demand and kept with the column as well.
+ * Of the candidate pairs of joins with other columns, only the ones of the
+ * last join are kept, and only if there are at most
+ * {@link #MAX_CACHED_CANDIDATES} of them.
+ */
+public class GeometryColumn {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeometryColumn.class);
+
+    private static final int MIN_PARTITION_SIZE = 1024;
+
+    /**
+     * Maximal number of candidate pairs kept with a column, about 16 bytes
+     * per pair
+     */
+    public static final int MAX_CACHED_CANDIDATES = 1 << 22;
+
+    private final String[] uris;
+    private final Geometry[] geometries;
+    private final AtomicReferenceArray<PreparedGeometry> prepared;
+    // candidate pairs of the last join and the column it was computed with,
+    // dropped with that column
+    private WeakReference<GeometryColumn> candidatesTarget = new WeakReference<>(null);
+    private RADON.Candidates candidates;
+
+    private GeometryColumn(String[] uris, Geometry[] geometries) {
+        this.uris = uris;
+        this.geometries = geometries;
+        this.prepared = new AtomicReferenceArray<>(geometries.length);
+    }
+
+    /**
+     * @param geometries
+     *            geometries by URI
+     */
+    public GeometryColumn(Map<String, Geometry> geometries) {
+        this(new String[geometries.size()], new Geometry[geometries.size()]);
+        int i = 0;
+        for (Map.Entry<String, Geometry> entry : geometries.entrySet()) {
+            uris[i] = entry.getKey();
+            this.geometries[i++] = entry.getValue();
+        }
+    }
+
+    /**
+     * Returns the geometries of a property of a cache. The column is read
+     * once and kept by the cache until the cache changes.
+     *
+     * @param cache
+     *            the cache
+     * @param property
+     *            property with WKT values
+     * @return the geometries of the property
+     */
+    public static GeometryColumn of(ACache cache, String property) {
+        return cache.getPropertyIndex(GeometryColumn.class.getName(), property, p -> read(cache, p));
+    }
+
+    /**
+     * Parses the first value of the property of every instance of a cache.
+     * The values are read sequentially and parsed in parallel, malformed
+     * values are skipped.
+     */
+    private static GeometryColumn read(ACache cache, String property) {
+        List<String> uriList = new ArrayList<>(cache.size());
+        List<String> wktList = new ArrayList<>(cache.size());
+        for (String uri : cache.getAllUris()) {
+            Set<String> values = cache.getInstance(uri).getProperty(property);
+            if (values.size() > 0) {
+                uriList.add(uri);
+                wktList.add(values.iterator().next());
+            }
+        }
+        int size = uriList.size();
+        Geometry[] parsed = new Geometry[size];
+        int partitions = ComputePool.getPartitions(size, MIN_PARTITION_SIZE);
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * size / partitions);
+            final int to = (int) ((long) (i + 1) * size / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                LimesWktReader wktReader = new LimesWktReader();
+                for (int j = from; j < to; j++) {
+                    try {
+                        parsed[j] = wktReader.read(wktList.get(j));
+                    } catch (ParseException e) {
+                        logger.warn("Skipping malformed geometry at " + uriList.get(j) + "...");
+                    }
+                }
+            }, null));
+        }
+        ComputePool.invokeAll(tasks);
+        int count = 0;
+        String[] uris = new String[size];
+        for (int j = 0; j < size; j++) {
+            if (parsed[j] != null) {
+                uris[count] = uriList.get(j);
+                parsed[count++] = parsed[j];
+            }
+        }
+        return new GeometryColumn(Arrays.copyOf(uris, count), Arrays.copyOf(parsed, count));
+    }
+
+    /**
+     * @return the number of geometries
+     */
+    public int size() {
+        return geometries.length;
+    }
+
+    /**
+     * @param i
+     *            index of a geometry
+     * @return the URI of the geometry
+     */
+    public String getUri(int i) {
+        return uris[i];
+    }
+
+    /**
+     * @param i
+     *            index of a geometry
+     * @return the geometry
+     */
+    public Geometry getGeometry(int i) {
+        return geometries[i];
+    }
+
+    /**
+     * @return read-only list of the geometries
+     */
+    public List<Geometry> getGeometries() {
+        return Collections.unmodifiableList(Arrays.asList(geometries));
+    }
+
+    /**
+     * Returns the prepared version of a geometry, which is created on first
+     * use. Prepared geometries are thread-safe and speed up repeated
+     * predicates against the same geometry.
+     *
+     * @param i
+     *            index of a geometry
+     * @return the prepared geometry
+     */
+    public PreparedGeometry getPreparedGeometry(int i) {
+        PreparedGeometry p = prepared.get(i);
+        if (p == null) {
+            p = PreparedGeometryFactory.prepare(geometries[i]);
+            if (!prepared.compareAndSet(i, null, p)) {
+                p = prepared.get(i);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @return a new map of the geometries by URI
+     */
+    public Map<String, Geometry> toMap() {
+        Map<String, Geometry> map = new HashMap<>(geometries.length * 2);
+        for (int i = 0; i < geometries.length; i++) {
+            map.put(uris[i], geometries[i]);
+        }
+        return map;
+    }
+
+    synchronized RADON.Candidates getCandidates(GeometryColumn target) {
+        return candidatesTarget.get() == target ? candidates : null;
+    }
+
+    synchronized void putCandidates(GeometryColumn target, RADON.Candidates join) {
+        if (join.size() <= MAX_CACHED_CANDIDATES) {
+            candidatesTarget = new WeakReference<>(target);
+            candidates = join;
+        } else {
+            candidatesTarget = new WeakReference<>(null);
+            candidates = null;
+        }
+    }
+}
@@ -23,17 +23,17 @@ import org.aksw.limes.core.io.mapping.AMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.measures.mapper.pointsets.Polygon;
 import org.aksw.limes.core.measures.mapper.pointsets.PropertyFetcher;
-import org.aksw.limes.core.util.LimesWktReader;
+import org.aksw.limes.core.util.ComputePool;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
 import org.locationtech.jts.io.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *
@@ -47,9 +47,26 @@ public class RADON {
         public final static String MIN = "min";
         public final static String MAX = "max";
         public final static String MED = "median";
-        public static boolean swap = false;
 
-        public static double[] decideForTheta(GridSizeHeuristics s, GridSizeHeuristics t, String measure) {
+        /**
+         * Grid size and join direction decided from the statistics of a
+         * source and a target dataset.
+         */
+        public static class Decision {
+
+            public final double thetaX;
+            public final double thetaY;
+            // whether the target dataset is to be indexed as source
+            public final boolean swap;
+
+            public Decision(double thetaX, double thetaY, boolean swap) {
+                this.thetaX = thetaX;
+                this.thetaY = thetaY;
+                this.swap = swap;
+            }
+        }
+
+        public static Decision decideForTheta(GridSizeHeuristics s, GridSizeHeuristics t, String measure) {
             double[] stats;
             switch (measure) {
                 case MAX:
@@ -69,8 +86,8 @@ public class RADON {
             double estAreaT = stats[2] * stats[3] * t.size;
             // we want to swap towards the smallest area coverage to optimizethe
             // number of comparisons
-            swap = estAreaS > estAreaT;
-            return new double[] { (2.0d) / (stats[0] + stats[2]), (2.0d) / (stats[1] + stats[3]) };
+            return new Decision((2.0d) / (stats[0] + stats[2]), (2.0d) / (stats[1] + stats[3]),
+                    estAreaS > estAreaT);
         }
 
         private double size;
@@ -155,6 +172,8 @@ public class RADON {
 
         public int lat1, lat2, lon1, lon2;
         public Geometry polygon;
+        // index of the polygon in its geometry column, -1 if unknown
+        public int id = -1;
         private String uri;
         private String origin_uri;
 
@@ -178,6 +197,12 @@ public class RADON {
             this.origin_uri = origin_uri;
         }
 
+        public MBBIndex(int lat1, int lon1, int lat2, int lon2, Geometry polygon, int id, String uri,
+                        String origin_uri) {
+            this(lat1, lon1, lat2, lon2, polygon, uri, origin_uri);
+            this.id = id;
+        }
+
         public boolean contains(MBBIndex i) {
             return this.lat1 <= i.lat1 && this.lon1 <= i.lon1 && this.lon2 >= i.lon2 && this.lat2 >= i.lat2;
         }
@@ -234,103 +259,32 @@ public class RADON {
         }
     }
 
-    public static class Matcher implements Runnable {
+    /**
+     * The candidate pairs of a join of two geometry columns, i.e. the pairs
+     * whose MBBs share a grid cell. They do not depend on the relation and
+     * are kept with the source column, so that all relations computed over
+     * the same columns share them.
+     */
+    public static class Candidates {
 
-        public static int maxSize = 1000;
-        private String relation;
-        private final List<Map<String, Set<String>>> result;
-        private List<MBBIndex> scheduled;
+        // whether the target column was indexed as source
+        private final boolean swapped;
+        // candidate i is the pair sources[i], targets[i]
+        private final MBBIndex[] sources;
+        private final MBBIndex[] targets;
 
-        public Matcher(String relation, List<Map<String, Set<String>>> result) {
-            this.relation = relation;
-            this.result = result;
-            this.scheduled = new ArrayList<>();
+        public Candidates(boolean swapped, MBBIndex[] sources, MBBIndex[] targets) {
+            this.swapped = swapped;
+            this.sources = sources;
+            this.targets = targets;
         }
 
-        @Override
-        public void run() {
-            Map<String, Set<String>> temp = new HashMap<>();
-            for (int i = 0; i < scheduled.size(); i += 2) {
-                MBBIndex s = scheduled.get(i);
-                MBBIndex t = scheduled.get(i + 1);
-                if (relate(s.polygon, t.polygon, relation)) {
-                    if (!temp.containsKey(s.origin_uri)) {
-                        temp.put(s.origin_uri, new HashSet<>());
-                    }
-                    temp.get(s.origin_uri).add(t.origin_uri);
-                }
-            }
-            synchronized (result) {
-                result.add(temp);
-            }
-        }
-
-        public void schedule(MBBIndex s, MBBIndex t) {
-            scheduled.add(s);
-            scheduled.add(t);
+        public boolean isSwapped() {
+            return swapped;
         }
 
         public int size() {
-            return scheduled.size();
-        }
-
-        private static Boolean relate(Geometry geometry1, Geometry geometry2, String relation) {
-            switch (relation) {
-                case EQUALS:
-                    return geometry1.equals(geometry2);
-                case DISJOINT:
-                    return geometry1.disjoint(geometry2);
-                case INTERSECTS:
-                    return geometry1.intersects(geometry2);
-                case TOUCHES:
-                    return geometry1.touches(geometry2);
-                case CROSSES:
-                    return geometry1.crosses(geometry2);
-                case WITHIN:
-                    return geometry1.within(geometry2);
-                case CONTAINS:
-                    return geometry1.contains(geometry2);
-                case COVERS:
-                    return geometry1.covers(geometry2);
-                case COVEREDBY:
-                    return geometry1.coveredBy(geometry2);
-                case OVERLAPS:
-                    return geometry1.overlaps(geometry2);
-                default:
-                    return geometry1.relate(geometry2, relation);
-            }
-        }
-    }
-
-    public static class Merger implements Runnable {
-
-        private AMapping m;
-        private List<Map<String, Set<String>>> localResults = new ArrayList<>();
-
-        public Merger(List<Map<String, Set<String>>> results, AMapping m) {
-            this.m = m;
-            // copy over entries to local list
-            synchronized (results) {
-                for (Iterator<Map<String, Set<String>>> iterator = results.listIterator(); iterator.hasNext();) {
-                    localResults.add(iterator.next());
-                    iterator.remove();
-                }
-            }
-        }
-
-        @Override
-        public void run() {
-            // merge back to m
-            for (Map<String, Set<String>> result : localResults) {
-                for (String s : result.keySet()) {
-                    for (String t : result.get(s)) {
-                        if (GridSizeHeuristics.swap)
-                            m.add(t, s, 1.0d);
-                        else
-                            m.add(s, t, 1.0d);
-                    }
-                }
-            }
+            return sources.length;
         }
     }
 
@@ -347,23 +301,12 @@ public class RADON {
     // best measure according to our evaluation in the RADON paper
     public static String heuristicStatMeasure = "avg";
 
+    private static final int MIN_PARTITION_PAIRS = 1024;
+
     private static final Logger logger = LoggerFactory.getLogger(RADON.class);
 
     public static Map<String, Geometry> getGeometryMapFromCache(ACache c, String property) {
-        LimesWktReader wktReader = new LimesWktReader();
-        Map<String, Geometry> gMap = new HashMap<>();
-        for (String uri : c.getAllUris()) {
-            Set<String> values = c.getInstance(uri).getProperty(property);
-            if (values.size() > 0) {
-                String wkt = values.iterator().next();
-                try {
-                    gMap.put(uri, wktReader.read(wkt));
-                } catch (ParseException e) {
-                    logger.warn("Skipping malformed geometry at " + uri + "...");
-                }
-            }
-        }
-        return gMap;
+        return GeometryColumn.of(c, property).toMap();
     }
 
     public static AMapping getMapping(ACache source, ACache target, String sourceVar, String targetVar,
@@ -372,9 +315,9 @@ public class RADON {
             throw new InvalidThresholdException(threshold);
         }
         List<String> properties = PropertyFetcher.getProperties(expression, threshold);
-        Map<String, Geometry> sourceMap = getGeometryMapFromCache(source, properties.get(0));
-        Map<String, Geometry> targetMap = getGeometryMapFromCache(target, properties.get(1));
-        return getMapping(sourceMap, targetMap, relation);
+        GeometryColumn sourceColumn = GeometryColumn.of(source, properties.get(0));
+        GeometryColumn targetColumn = GeometryColumn.of(target, properties.get(1));
+        return getMapping(sourceColumn, targetColumn, relation);
     }
 
     public static AMapping getMapping(Set<Polygon> sourceData, Set<Polygon> targetData, String relation) {
@@ -400,8 +343,13 @@ public class RADON {
 
     public static AMapping getMapping(Map<String, Geometry> sourceData, Map<String, Geometry> targetData,
                                       String relation) {
-        double thetaX, thetaY;
-        int numThreads = new Double(Math.ceil((double) Runtime.getRuntime().availableProcessors() / 2.0d)).intValue();
+        return getMapping(new GeometryColumn(sourceData), new GeometryColumn(targetData), relation);
+    }
+
+    public static AMapping getMapping(GeometryColumn sourceData, GeometryColumn targetData, String relation) {
+        if (sourceData.size() == 0 || targetData.size() == 0) {
+            return MappingFactory.createDefaultMapping();
+        }
         // Relation thats actually used for computation.
         // Might differ from input relation when swapping occurs or the input
         // relation is 'disjoint'.
@@ -414,15 +362,12 @@ public class RADON {
         if (disjointStrategy)
             rel = INTERSECTS;
 
-        GridSizeHeuristics heuristicsS = new GridSizeHeuristics(sourceData.values());
-        GridSizeHeuristics heuristicsT = new GridSizeHeuristics(targetData.values());
-        double[] theta = GridSizeHeuristics.decideForTheta(heuristicsS, heuristicsT, heuristicStatMeasure);
-        thetaX = theta[0];
-        thetaY = theta[1];
+        // the candidates are shared by all relations over the same columns
+        Candidates candidates = getCandidates(sourceData, targetData);
         // swap smaller dataset to source
         // if swap is necessary is decided in Stats.decideForTheta([...])!
-        Map<String, Geometry> swap;
-        boolean swapped = GridSizeHeuristics.swap;
+        GeometryColumn swap;
+        boolean swapped = candidates.swapped;
         if (swapped) {
             swap = sourceData;
             sourceData = targetData;
@@ -443,114 +388,285 @@ public class RADON {
             }
         }
 
+        // verify the candidates in parallel, each task collects its links
+        // in its own mapping
+        final String r = rel;
+        final GeometryColumn sourceColumn = sourceData;
+        int size = candidates.size();
+        int partitions = getPartitions(size);
+        List<ForkJoinTask<AMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * size / partitions);
+            final int to = (int) ((long) (i + 1) * size / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                AMapping links = MappingFactory.createDefaultMapping();
+                for (int j = from; j < to; j++) {
+                    MBBIndex a = candidates.sources[j];
+                    MBBIndex b = candidates.targets[j];
+                    if (mayRelate(a, b, r) && relate(sourceColumn, a, b, r)) {
+                        if (swapped)
+                            links.add(b.origin_uri, a.origin_uri, 1.0d);
+                        else
+                            links.add(a.origin_uri, b.origin_uri, 1.0d);
+                    }
+                }
+                return links;
+            }));
+        }
+        AMapping m = MappingFactory.createDefaultMapping();
+        for (AMapping links : ComputePool.invokeAll(tasks)) {
+            links.forEachLink(m::add);
+        }
+
+        // Compute M = (S x T) \ M' for disjoint relation
+        if (disjointStrategy) {
+            m = getComplement(m, sourceData, targetData, swapped);
+        }
+        return m;
+    }
+
+    /**
+     * Computes the pairs of S x T that are not in a mapping, in parallel
+     * partitions of the source.
+     */
+    private static AMapping getComplement(AMapping m, GeometryColumn sourceData, GeometryColumn targetData,
+                                          boolean swapped) {
+        int size = sourceData.size();
+        int partitions = getPartitions((long) size * targetData.size());
+        partitions = Math.min(partitions, size);
+        List<ForkJoinTask<AMapping>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) i * size / partitions);
+            final int to = (int) ((long) (i + 1) * size / partitions);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                AMapping disjoint = MappingFactory.createDefaultMapping();
+                for (int j = from; j < to; j++) {
+                    String s = sourceData.getUri(j);
+                    for (int k = 0; k < targetData.size(); k++) {
+                        String t = targetData.getUri(k);
+                        if (swapped) {
+                            if (!m.contains(t, s)) {
+                                disjoint.add(t, s, 1.0d);
+                            }
+                        } else {
+                            if (!m.contains(s, t)) {
+                                disjoint.add(s, t, 1.0d);
+                            }
+                        }
+                    }
+                }
+                return disjoint;
+            }));
+        }
+        List<AMapping> parts = ComputePool.invokeAll(tasks);
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        AMapping disjoint = MappingFactory.createDefaultMapping();
+        for (AMapping part : parts) {
+            part.forEachLink(disjoint::add);
+        }
+        return disjoint;
+    }
+
+    /**
+     * Computes the number of tasks for an amount of work. The number of
+     * threads that run them is the one of the shared {@link ComputePool},
+     * i.e., the THREADS parameter of the configuration.
+     */
+    private static int getPartitions(long work) {
+        return ComputePool.getPartitions((int) Math.min(Integer.MAX_VALUE, work), MIN_PARTITION_PAIRS);
+    }
+
+    private static boolean relate(GeometryColumn column, MBBIndex s, MBBIndex t, String relation) {
+        if (s.id < 0 || relation.equals(EQUALS)) {
+            return relate(s.polygon, t.polygon, relation);
+        }
+        return relate(column.getPreparedGeometry(s.id), t.polygon, relation);
+    }
+
+    private static boolean relate(PreparedGeometry geometry1, Geometry geometry2, String relation) {
+        switch (relation) {
+            case DISJOINT:
+                return geometry1.disjoint(geometry2);
+            case INTERSECTS:
+                return geometry1.intersects(geometry2);
+            case TOUCHES:
+                return geometry1.touches(geometry2);
+            case CROSSES:
+                return geometry1.crosses(geometry2);
+            case WITHIN:
+                return geometry1.within(geometry2);
+            case CONTAINS:
+                return geometry1.contains(geometry2);
+            case COVERS:
+                return geometry1.covers(geometry2);
+            case COVEREDBY:
+                return geometry1.coveredBy(geometry2);
+            case OVERLAPS:
+                return geometry1.overlaps(geometry2);
+            default:
+                return relate(geometry1.getGeometry(), geometry2, relation);
+        }
+    }
+
+    private static boolean relate(Geometry geometry1, Geometry geometry2, String relation) {
+        switch (relation) {
+            case EQUALS:
+                return geometry1.equals(geometry2);
+            case DISJOINT:
+                return geometry1.disjoint(geometry2);
+            case INTERSECTS:
+                return geometry1.intersects(geometry2);
+            case TOUCHES:
+                return geometry1.touches(geometry2);
+            case CROSSES:
+                return geometry1.crosses(geometry2);
+            case WITHIN:
+                return geometry1.within(geometry2);
+            case CONTAINS:
+                return geometry1.contains(geometry2);
+            case COVERS:
+                return geometry1.covers(geometry2);
+            case COVEREDBY:
+                return geometry1.coveredBy(geometry2);
+            case OVERLAPS:
+                return geometry1.overlaps(geometry2);
+            default:
+                return geometry1.relate(geometry2, relation);
+        }
+    }
+
+    /**
+     * Checks whether the MBBs of a candidate pair allow the relation.
+     */
+    private static boolean mayRelate(MBBIndex a, MBBIndex b, String rel) {
+        return (rel.equals(COVERS) && a.covers(b))
+                || (rel.equals(COVEREDBY) && b.covers(a))
+                || (rel.equals(CONTAINS) && a.contains(b))
+                || (rel.equals(WITHIN) && b.contains(a)) || (rel.equals(EQUALS) && a.equals(b))
+                || rel.equals(INTERSECTS) || rel.equals(CROSSES) || rel.equals(TOUCHES)
+                || rel.equals(OVERLAPS);
+    }
+
+    /**
+     * Returns the candidate pairs of two geometry columns. The pairs of the
+     * last join of the source column are kept with it, see
+     * {@link GeometryColumn}.
+     *
+     * @param sourceData
+     *            source geometries
+     * @param targetData
+     *            target geometries
+     * @return the candidate pairs
+     */
+    public static Candidates getCandidates(GeometryColumn sourceData, GeometryColumn targetData) {
+        Candidates candidates = sourceData.getCandidates(targetData);
+        if (candidates == null) {
+            candidates = computeCandidates(sourceData, targetData);
+            sourceData.putCandidates(targetData, candidates);
+        }
+        return candidates;
+    }
+
+    private static Candidates computeCandidates(GeometryColumn sourceData, GeometryColumn targetData) {
+        GridSizeHeuristics heuristicsS = new GridSizeHeuristics(sourceData.getGeometries());
+        GridSizeHeuristics heuristicsT = new GridSizeHeuristics(targetData.getGeometries());
+        GridSizeHeuristics.Decision decision = GridSizeHeuristics.decideForTheta(heuristicsS, heuristicsT,
+                heuristicStatMeasure);
+        double thetaX = decision.thetaX;
+        double thetaY = decision.thetaY;
+        boolean swapped = decision.swap;
+        if (swapped) {
+            GeometryColumn swap = sourceData;
+            sourceData = targetData;
+            targetData = swap;
+        }
+
         // set up indexes
         SquareIndex sourceIndex = index(sourceData, null, thetaX, thetaY);
         SquareIndex targetIndex = index(targetData, sourceIndex, thetaX, thetaY);
 
-        // execute matching
-        ExecutorService matchExec = Executors.newFixedThreadPool(numThreads);
-        ExecutorService mergerExec = Executors.newFixedThreadPool(1);
-        AMapping m = MappingFactory.createDefaultMapping();
-        List<Map<String, Set<String>>> results = Collections.synchronizedList(new ArrayList<>());
-        Map<String, Set<String>> computed = new HashMap<>();
-        Matcher matcher = new Matcher(rel, results);
-
+        // collect the squares of both indexes and their number of pairs
+        List<List<MBBIndex>> sourceSquares = new ArrayList<>();
+        List<List<MBBIndex>> targetSquares = new ArrayList<>();
+        List<int[]> squares = new ArrayList<>();
         for (Integer lat : sourceIndex.map.keySet()) {
             for (Integer lon : sourceIndex.map.get(lat).keySet()) {
-                List<MBBIndex> source = sourceIndex.getSquare(lat, lon);
                 List<MBBIndex> target = targetIndex.getSquare(lat, lon);
                 if (target != null && target.size() > 0) {
-                    for (MBBIndex a : source) {
-                        if (!computed.containsKey(a.uri))
-                            computed.put(a.uri, new HashSet<>());
-                        for (MBBIndex b : target) {
-                            if (!computed.get(a.uri).contains(b.uri)) {
-                                computed.get(a.uri).add(b.uri);
-                                boolean compute = (rel.equals(COVERS) && a.covers(b))
-                                        || (rel.equals(COVEREDBY) && b.covers(a))
-                                        || (rel.equals(CONTAINS) && a.contains(b))
-                                        || (rel.equals(WITHIN) && b.contains(a)) || (rel.equals(EQUALS) && a.equals(b))
-                                        || rel.equals(INTERSECTS) || rel.equals(CROSSES) || rel.equals(TOUCHES)
-                                        || rel.equals(OVERLAPS);
-                                if (compute) {
-                                    if (numThreads == 1) {
-                                        if (Matcher.relate(a.polygon, b.polygon, rel)) {
-                                            if (swapped)
-                                                m.add(b.origin_uri, a.origin_uri, 1.0);
-                                            else
-                                                m.add(a.origin_uri, b.origin_uri, 1.0);
-                                        }
-                                    } else {
-                                        matcher.schedule(a, b);
-                                        if (matcher.size() == Matcher.maxSize) {
-                                            matchExec.execute(matcher);
-                                            matcher = new Matcher(rel, results);
-                                            if (results.size() > 0) {
-                                                mergerExec.execute(new Merger(results, m));
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
+                    sourceSquares.add(sourceIndex.getSquare(lat, lon));
+                    targetSquares.add(target);
+                    squares.add(new int[] { lat, lon });
                 }
             }
         }
-        if (numThreads > 1) {
-            if (matcher.size() > 0) {
-                matchExec.execute(matcher);
-            }
-            matchExec.shutdown();
-            while (!matchExec.isTerminated()) {
-                try {
-                    if (results.size() > 0) {
-                        mergerExec.execute(new Merger(results, m));
-                    }
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (results.size() > 0) {
-                mergerExec.execute(new Merger(results, m));
+        int squareCount = squares.size();
+        long[] work = new long[squareCount + 1];
+        for (int i = 0; i < squareCount; i++) {
+            work[i + 1] = work[i] + (long) sourceSquares.get(i).size() * targetSquares.get(i).size();
+        }
+
+        // join the squares in parallel partitions of about the same number
+        // of pairs. A pair shares all squares from the one with the largest
+        // lower indexes of both MBBs on, so it is only taken from that square.
+        int partitions = Math.min(getPartitions(work[squareCount]), Math.max(1, squareCount));
+        List<ForkJoinTask<MBBIndex[][]>> tasks = new ArrayList<>(partitions);
+        int from = 0;
+        for (int i = 0; i < partitions; i++) {
+            long end = work[squareCount] * (i + 1) / partitions;
+            int to = from;
+            while (to < squareCount && (work[to + 1] <= end || i == partitions - 1)) {
+                to++;
             }
-            mergerExec.shutdown();
-            while (!mergerExec.isTerminated()) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        // Compute M = (S x T) \ M' for disjoint relation
-        if (disjointStrategy) {
-            AMapping disjoint = MappingFactory.createDefaultMapping();
-            for (String s : sourceData.keySet()) {
-                for (String t : targetData.keySet()) {
-                    if (swapped) {
-                        if (!m.contains(t, s)) {
-                            disjoint.add(t, s, 1.0d);
-                        }
-                    } else {
-                        if (!m.contains(s, t)) {
-                            disjoint.add(s, t, 1.0d);
+            final int first = from;
+            final int last = to;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                List<MBBIndex> sources = new ArrayList<>();
+                List<MBBIndex> targets = new ArrayList<>();
+                for (int j = first; j < last; j++) {
+                    int lat = squares.get(j)[0];
+                    int lon = squares.get(j)[1];
+                    for (MBBIndex a : sourceSquares.get(j)) {
+                        for (MBBIndex b : targetSquares.get(j)) {
+                            if (Math.max(a.lat1, b.lat1) == lat && Math.max(a.lon1, b.lon1) == lon) {
+                                sources.add(a);
+                                targets.add(b);
+                            }
                         }
                     }
                 }
-            }
-            m = disjoint;
-        }
-        return m;
+                return new MBBIndex[][] { sources.toArray(new MBBIndex[sources.size()]),
+                        targets.toArray(new MBBIndex[targets.size()]) };
+            }));
+            from = to;
+        }
+        List<MBBIndex[][]> parts = ComputePool.invokeAll(tasks);
+        int size = 0;
+        for (MBBIndex[][] part : parts) {
+            size += part[0].length;
+        }
+        MBBIndex[] sources = new MBBIndex[size];
+        MBBIndex[] targets = new MBBIndex[size];
+        int offset = 0;
+        for (MBBIndex[][] part : parts) {
+            System.arraycopy(part[0], 0, sources, offset, part[0].length);
+            System.arraycopy(part[1], 0, targets, offset, part[1].length);
+            offset += part[0].length;
+        }
+        return new Candidates(swapped, sources, targets);
     }
 
     public static SquareIndex index(Map<String, Geometry> input, SquareIndex extIndex, double thetaX, double thetaY) {
+        return index(new GeometryColumn(input), extIndex, thetaX, thetaY);
+    }
+
+    public static SquareIndex index(GeometryColumn input, SquareIndex extIndex, double thetaX, double thetaY) {
         SquareIndex result = new SquareIndex();
 
-        for (String p : input.keySet()) {
-            Geometry g = input.get(p);
+        for (int i = 0; i < input.size(); i++) {
+            String p = input.getUri(i);
+            Geometry g = input.getGeometry(i);
             Envelope envelope = g.getEnvelopeInternal();
 
             int minLatIndex = (int) Math.floor(envelope.getMinY() * thetaY);
@@ -565,13 +681,13 @@ public class RADON {
 
             if (minLongIndex < (int) Math.floor(-90d * thetaX) && maxLongIndex > (int) Math.ceil(90d * thetaX)) {
                 MBBIndex westernPart = new MBBIndex(minLatIndex, (int) Math.floor(-180d * thetaX), maxLatIndex,
-                        minLongIndex, g, p + "<}W", p);
+                        minLongIndex, g, i, p + "<}W", p);
                 addToIndex(westernPart, result, extIndex);
                 MBBIndex easternPart = new MBBIndex(minLatIndex, maxLongIndex, maxLatIndex,
-                        (int) Math.ceil(180 * thetaX), g, p + "<}E", p);
+                        (int) Math.ceil(180 * thetaX), g, i, p + "<}E", p);
                 addToIndex(easternPart, result, extIndex);
             } else {
-                MBBIndex mbbIndex = new MBBIndex(minLatIndex, minLongIndex, maxLatIndex, maxLongIndex, g, p);
+                MBBIndex mbbIndex = new MBBIndex(minLatIndex, minLongIndex, maxLatIndex, maxLongIndex, g, i, p, p);
                 addToIndex(mbbIndex, result, extIndex);
             }
 
@@ -37,12 +37,12 @@ import java.util.List;
  */
 public class MeasureProcessor {
 
-    private static final String ADD = "ADD";
-    private static final String XOR = "XOR";
-    private static final String MAX = "MAX";
-    private static final String MIN = "MIN";
-    private static final String AND = "AND";
-    private static final String OR = "OR";
+    static final String ADD = "ADD";
+    static final String XOR = "XOR";
+    static final String MAX = "MAX";
+    static final String MIN = "MIN";
+    static final String AND = "AND";
+    static final String OR = "OR";
     static Logger logger = LoggerFactory.getLogger(MeasureProcessor.class.getName());
 
     /**
@@ -0,0 +1,513 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.measure;
+
+import org.aksw.limes.core.exceptions.InvalidThresholdException;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.Instance;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.parser.Parser;
+import org.aksw.limes.core.measures.mapper.AMapper;
+import org.aksw.limes.core.measures.mapper.MapperFactory;
+import org.aksw.limes.core.measures.mapper.phonetic.APhoneticMapper;
+import org.aksw.limes.core.measures.mapper.string.EDJoinMapper;
+import org.aksw.limes.core.measures.mapper.string.PPJoinPlusPlus;
+import org.aksw.limes.core.measures.measure.space.SpaceMeasureFactory;
+import org.aksw.limes.core.measures.measure.string.IStringMeasure;
+import org.aksw.limes.core.measures.measure.string.QGramSimilarityMeasure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MarkerFactory;
+
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Compiled form of a metric expression that computes the similarity of single
+ * (source, target) pairs. The expression is parsed once into a tree of
+ * evaluators, in which the measure types and the properties of the atomic
+ * expressions are resolved up front. Atomic expressions are evaluated by
+ * calling {@link IMeasure#getSimilarity(Instance, Instance, String, String)}
+ * directly whenever the measure returns the same similarities as the
+ * corresponding mapper, else with the similarity formula of the mapper. The
+ * semantics are the ones of
+ * {@link MeasureProcessor#getSimilarity(Instance, Instance, String, double, String, String)}.
+ */
+public abstract class SimilarityEvaluator {
+
+    static Logger logger = LoggerFactory.getLogger(SimilarityEvaluator.class);
+
+    /**
+     * Returns the similarity between two instances.
+     *
+     * @param sourceInstance,
+     *            the source instance
+     * @param targetInstance,
+     *            the target instance
+     * @return the similarity of sourceInstance and targetInstance, or 0 if the
+     *         similarity is below the threshold of the expression
+     * @throws InvalidThresholdException
+     *             if the threshold of an atomic expression is not positive
+     * @throws RuntimeException
+     *             if the properties of an atomic expression can not be read
+     */
+    public abstract double getSimilarity(Instance sourceInstance, Instance targetInstance);
+
+    /**
+     * Compiles a metric expression into an evaluator.
+     *
+     * @param expression,
+     *            the metric expression
+     * @param threshold,
+     *            the threshold
+     * @param sourceVar,
+     *            the source variable
+     * @param targetVar,
+     *            the target variable
+     * @return the evaluator of the metric expression
+     */
+    public static SimilarityEvaluator compile(String expression, double threshold, String sourceVar,
+                                              String targetVar) {
+        Parser p = new Parser(expression, threshold);
+        if (p.isAtomic()) {
+            return compileAtomic(p, expression, threshold, sourceVar, targetVar);
+        }
+        String operator = p.getOperator();
+        if (operator.equalsIgnoreCase(MeasureProcessor.MAX) || operator.equalsIgnoreCase(MeasureProcessor.OR)
+                || operator.equalsIgnoreCase(MeasureProcessor.XOR)) {
+            return new MaxEvaluator(compile(p.getLeftTerm(), p.getThreshold1(), sourceVar, targetVar),
+                    compile(p.getRightTerm(), p.getThreshold2(), sourceVar, targetVar), p.getThreshold(),
+                    p.getThreshold1(), p.getThreshold2());
+        }
+        if (operator.equalsIgnoreCase(MeasureProcessor.MIN) || operator.equalsIgnoreCase(MeasureProcessor.AND)) {
+            return new MinEvaluator(compile(p.getLeftTerm(), p.getThreshold1(), sourceVar, targetVar),
+                    compile(p.getRightTerm(), p.getThreshold2(), sourceVar, targetVar), p.getThreshold(),
+                    p.getThreshold1(), p.getThreshold2());
+        }
+        if (operator.equalsIgnoreCase(MeasureProcessor.ADD)) {
+            // the coefficients have to be parsed first, since parsing them
+            // removes them from the terms
+            double leftCoefficient = p.getLeftCoefficient();
+            double rightCoefficient = p.getRightCoefficient();
+            return new AddEvaluator(compile(p.getLeftTerm(), p.getThreshold1(), sourceVar, targetVar),
+                    compile(p.getRightTerm(), p.getThreshold2(), sourceVar, targetVar), p.getThreshold(),
+                    p.getThreshold1(), p.getThreshold2(), leftCoefficient, rightCoefficient);
+        }
+        return new MinusEvaluator(compile(p.getLeftTerm(), p.getThreshold1(), sourceVar, targetVar),
+                compile(p.getRightTerm(), p.getThreshold2(), sourceVar, targetVar), p.getThreshold(),
+                p.getThreshold1(), p.getThreshold2());
+    }
+
+    private static SimilarityEvaluator compileAtomic(Parser p, String expression, double threshold, String sourceVar,
+                                                     String targetVar) {
+        String property1 = null, property2 = null;
+        String term1 = "?" + p.getLeftTerm();
+        String term2 = "?" + p.getRightTerm();
+
+        if (term1.contains(".")) {
+            String var = term1.substring(0, term1.indexOf("."));
+            String property = term1.substring(term1.indexOf(".") + 1);
+            if (var.equals(sourceVar)) {
+                property1 = property;
+            } else {
+                property2 = property;
+            }
+        } else {
+            property1 = term1;
+        }
+        // get second property label
+        if (term2.contains(".")) {
+            String var = term2.substring(0, term2.indexOf("."));
+            String property = term2.substring(term2.indexOf(".") + 1);
+            if (var.equals(sourceVar)) {
+                property1 = property;
+            } else {
+                property2 = property;
+            }
+        } else {
+            property2 = term2;
+        }
+
+        // if no properties then terminate
+        if (property1 == null || property2 == null) {
+            return new InvalidEvaluator(() -> {
+                logger.error(MarkerFactory.getMarker("FATAL"), "Property values could not be read. Exiting");
+                return new RuntimeException();
+            });
+        }
+        if (threshold <= 0) {
+            return new InvalidEvaluator(() -> new InvalidThresholdException(threshold));
+        }
+        MeasureType type = MeasureFactory.getMeasureType(p.getOperator());
+        SimilarityEvaluator evaluator = compileMeasure(type, p.getOperator(), property1, property2, threshold);
+        if (evaluator != null) {
+            return evaluator;
+        }
+        return new MapperEvaluator(MapperFactory.createMapper(type), expression, threshold, sourceVar, targetVar);
+    }
+
+    /**
+     * Returns an evaluator that computes the similarity of a single pair the
+     * way the mapper of a measure type does. Where the measure of the type
+     * returns the same similarities as the mapper, the measure is used.
+     * Otherwise, the similarity of a pair of values is computed with the
+     * formula of the mapper, e.g., 1 / (1 + d) for the edit distance d of
+     * EDJoin. Only the temporal and the point set mappers, whose results
+     * depend on how they read and index the values, are not reduced to a
+     * measure.
+     *
+     * @param type,
+     *            the measure type
+     * @param operator,
+     *            the measure name as given in the expression
+     * @param property1,
+     *            the source property
+     * @param property2,
+     *            the target property
+     * @param threshold,
+     *            the threshold
+     * @return the evaluator or null if the mapper has to be used
+     */
+    private static SimilarityEvaluator compileMeasure(MeasureType type, String operator, String property1,
+                                                      String property2, double threshold) {
+        switch (type) {
+            case EXACTMATCH:
+            case JARO:
+            case JAROWINKLER:
+            case MONGEELKAN:
+            case RATCLIFF:
+            case SOUNDEX:
+            case SET_JACCARD:
+            case SHORTEST_PATH:
+            case LCH:
+            case LI:
+            case WUPALMER:
+                return new MeasureEvaluator(MeasureFactory.createMeasure(type), property1, property2, threshold);
+            case QGRAMS:
+            case TRIGRAM:
+                // FastNGramMapper
+                return new MeasureEvaluator(new QGramSimilarityMeasure(3), property1, property2, threshold);
+            case EUCLIDEAN:
+            case MANHATTAN:
+            case GEO_ORTHODROMIC:
+            case GEO_GREAT_ELLIPTIC:
+                // HR3Mapper
+                return new MeasureEvaluator(SpaceMeasureFactory.getMeasure(operator, property2.split("\\|").length),
+                        property1, property2, threshold);
+            case COSINE:
+            case JACCARD:
+            case OVERLAP:
+                // PPJoinPlusPlus computes the measure on the overlap of the
+                // tokens, in double precision
+                IStringMeasure tokenMeasure = (IStringMeasure) MeasureFactory.createMeasure(type);
+                return new ValueEvaluator((a, b) -> PPJoinPlusPlus.getSimilarity(tokenMeasure, a, b), property1,
+                        property2, threshold);
+            case LEVENSHTEIN:
+                return new ValueEvaluator((a, b) -> EDJoinMapper.getSimilarity(a, b, threshold), property1,
+                        property2, threshold);
+            case DOUBLEMETA:
+            case KOELN:
+            case META:
+            case NYSIIS:
+            case CAVERPHONE1:
+            case CAVERPHONE2:
+            case REFINEDSOUNDEX:
+            case MATCHRATING:
+            case DAITCHMOKOTOFF:
+                // the phonetic mappers compare codes of the same length
+                APhoneticMapper phoneticMapper = (APhoneticMapper) MapperFactory.createMapper(type);
+                return new ValueEvaluator((a, b) -> phoneticMapper.getSimilarity(a, b, threshold), property1,
+                        property2, threshold);
+            case TOP_CONTAINS:
+            case TOP_COVERED_BY:
+            case TOP_COVERS:
+            case TOP_CROSSES:
+            case TOP_DISJOINT:
+            case TOP_EQUALS:
+            case TOP_INTERSECTS:
+            case TOP_OVERLAPS:
+            case TOP_TOUCHES:
+            case TOP_WITHIN:
+                // RADON relates the first geometry of each instance
+                return new GeometryEvaluator(MeasureFactory.createMeasure(type), property1, property2, threshold);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Evaluates an atomic expression using its measure.
+     */
+    private static class MeasureEvaluator extends SimilarityEvaluator {
+        private final IMeasure measure;
+        private final String property1;
+        private final String property2;
+        private final double threshold;
+
+        MeasureEvaluator(IMeasure measure, String property1, String property2, double threshold) {
+            this.measure = measure;
+            this.property1 = property1;
+            this.property2 = property2;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            // the mappers never link an instance without values
+            if (sourceInstance.getProperty(property1).isEmpty() || targetInstance.getProperty(property2).isEmpty()) {
+                return 0.0d;
+            }
+            try {
+                double similarity = measure.getSimilarity(sourceInstance, targetInstance, property1, property2);
+                return (similarity >= threshold) ? similarity : 0.0d;
+            } catch (RuntimeException e) {
+                logger.debug("Could not compute " + measure.getName() + " for (" + sourceInstance.getUri() + ", "
+                        + targetInstance.getUri() + ")", e);
+                return 0.0d;
+            }
+        }
+    }
+
+    /**
+     * Evaluates an atomic expression as the maximal similarity of the pairs
+     * of source and target values.
+     */
+    private static class ValueEvaluator extends SimilarityEvaluator {
+        private final ToDoubleBiFunction<String, String> similarity;
+        private final String property1;
+        private final String property2;
+        private final double threshold;
+
+        ValueEvaluator(ToDoubleBiFunction<String, String> similarity, String property1, String property2,
+                       double threshold) {
+            this.similarity = similarity;
+            this.property1 = property1;
+            this.property2 = property2;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            double max = 0.0d;
+            for (String a : sourceInstance.getProperty(property1)) {
+                for (String b : targetInstance.getProperty(property2)) {
+                    max = Math.max(max, similarity.applyAsDouble(a, b));
+                }
+            }
+            return (max >= threshold) ? max : 0.0d;
+        }
+    }
+
+    /**
+     * Evaluates a topological relation between the first geometries of the
+     * instances.
+     */
+    private static class GeometryEvaluator extends SimilarityEvaluator {
+        private final IMeasure measure;
+        private final String property1;
+        private final String property2;
+        private final double threshold;
+
+        GeometryEvaluator(IMeasure measure, String property1, String property2, double threshold) {
+            this.measure = measure;
+            this.property1 = property1;
+            this.property2 = property2;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            TreeSet<String> sourceValues = sourceInstance.getProperty(property1);
+            TreeSet<String> targetValues = targetInstance.getProperty(property2);
+            if (sourceValues.isEmpty() || targetValues.isEmpty()) {
+                return 0.0d;
+            }
+            double similarity = measure.getSimilarity(sourceValues.first(), targetValues.first());
+            return (similarity >= threshold) ? similarity : 0.0d;
+        }
+    }
+
+    /**
+     * Evaluates an atomic expression by running its mapper over caches that
+     * contain a single instance each.
+     */
+    private static class MapperEvaluator extends SimilarityEvaluator {
+        private final AMapper mapper;
+        private final String expression;
+        private final double threshold;
+        private final String sourceVar;
+        private final String targetVar;
+
+        MapperEvaluator(AMapper mapper, String expression, double threshold, String sourceVar, String targetVar) {
+            this.mapper = mapper;
+            this.expression = expression;
+            this.threshold = threshold;
+            this.sourceVar = sourceVar;
+            this.targetVar = targetVar;
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            try {
+                ACache source = new MemoryCache();
+                ACache target = new MemoryCache();
+                source.addInstance(sourceInstance);
+                target.addInstance(targetInstance);
+                AMapping m = mapper.getMapping(source, target, sourceVar, targetVar, expression, threshold);
+                double similarity = m.getConfidence(sourceInstance.getUri(), targetInstance.getUri());
+                return (similarity >= threshold) ? similarity : 0.0d;
+            } catch (RuntimeException e) {
+                logger.debug("Could not compute " + expression + " for (" + sourceInstance.getUri() + ", "
+                        + targetInstance.getUri() + ")", e);
+                return 0.0d;
+            }
+        }
+    }
+
+    /**
+     * Atomic expression that can not be evaluated. As in
+     * {@link MeasureProcessor#getSimilarity(Instance, Instance, String, double, String, String)},
+     * the error is raised when a pair is evaluated, so that filtering an empty
+     * mapping does not fail.
+     */
+    private static class InvalidEvaluator extends SimilarityEvaluator {
+        private final Supplier<RuntimeException> error;
+
+        InvalidEvaluator(Supplier<RuntimeException> error) {
+            this.error = error;
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            throw error.get();
+        }
+    }
+
+    /**
+     * Base class of the evaluators of complex expressions.
+     */
+    private abstract static class ComplexEvaluator extends SimilarityEvaluator {
+        protected final SimilarityEvaluator left;
+        protected final SimilarityEvaluator right;
+        protected final double threshold;
+        protected final double threshold1;
+        protected final double threshold2;
+
+        ComplexEvaluator(SimilarityEvaluator left, SimilarityEvaluator right, double threshold, double threshold1,
+                         double threshold2) {
+            this.left = left;
+            this.right = right;
+            this.threshold = threshold;
+            this.threshold1 = threshold1;
+            this.threshold2 = threshold2;
+        }
+    }
+
+    /**
+     * Evaluator of MAX, OR and XOR expressions.
+     */
+    private static class MaxEvaluator extends ComplexEvaluator {
+        MaxEvaluator(SimilarityEvaluator left, SimilarityEvaluator right, double threshold, double threshold1,
+                     double threshold2) {
+            super(left, right, threshold, threshold1, threshold2);
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            double firstChild = left.getSimilarity(sourceInstance, targetInstance);
+            double secondChild = right.getSimilarity(sourceInstance, targetInstance);
+            // (s,t) are not part of the union
+            if (firstChild < threshold1 && secondChild < threshold2) {
+                return 0;
+            }
+            double maxSimilarity = Math.max(firstChild, secondChild);
+            return (maxSimilarity >= threshold) ? maxSimilarity : 0;
+        }
+    }
+
+    /**
+     * Evaluator of MIN and AND expressions.
+     */
+    private static class MinEvaluator extends ComplexEvaluator {
+        MinEvaluator(SimilarityEvaluator left, SimilarityEvaluator right, double threshold, double threshold1,
+                     double threshold2) {
+            super(left, right, threshold, threshold1, threshold2);
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            double firstChild = left.getSimilarity(sourceInstance, targetInstance);
+            double secondChild = right.getSimilarity(sourceInstance, targetInstance);
+            // (s,t) are not part of the intersection
+            if (firstChild < threshold1 && secondChild < threshold2) {
+                return 0;
+            }
+            double minSimilarity = Math.min(firstChild, secondChild);
+            return (minSimilarity >= threshold) ? minSimilarity : 0;
+        }
+    }
+
+    /**
+     * Evaluator of ADD expressions.
+     */
+    private static class AddEvaluator extends ComplexEvaluator {
+        private final double leftCoefficient;
+        private final double rightCoefficient;
+
+        AddEvaluator(SimilarityEvaluator left, SimilarityEvaluator right, double threshold, double threshold1,
+                     double threshold2, double leftCoefficient, double rightCoefficient) {
+            super(left, right, threshold, threshold1, threshold2);
+            this.leftCoefficient = leftCoefficient;
+            this.rightCoefficient = rightCoefficient;
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            double firstChild = leftCoefficient * left.getSimilarity(sourceInstance, targetInstance);
+            double secondChild = rightCoefficient * right.getSimilarity(sourceInstance, targetInstance);
+            if (firstChild < threshold1 && secondChild < threshold2) {
+                return 0;
+            }
+            return (firstChild + secondChild >= threshold) ? firstChild + secondChild : 0;
+        }
+    }
+
+    /**
+     * Evaluator of MINUS expressions.
+     */
+    private static class MinusEvaluator extends ComplexEvaluator {
+        MinusEvaluator(SimilarityEvaluator left, SimilarityEvaluator right, double threshold, double threshold1,
+                       double threshold2) {
+            super(left, right, threshold, threshold1, threshold2);
+        }
+
+        @Override
+        public double getSimilarity(Instance sourceInstance, Instance targetInstance) {
+            double firstChild = left.getSimilarity(sourceInstance, targetInstance);
+            double secondChild = right.getSimilarity(sourceInstance, targetInstance);
+            // the second similarity must be 0 in order for the instance to
+            // have a change to be included at the final result
+            if (secondChild == 0 && firstChild >= threshold1 && firstChild >= threshold) {
+                return firstChild;
+            }
+            return 0;
+        }
+    }
+}
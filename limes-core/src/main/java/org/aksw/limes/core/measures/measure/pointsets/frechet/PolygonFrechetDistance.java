@@ -35,7 +35,9 @@ import java.util.Arrays;
  * @version Jul 15, 2016
  */
 public class PolygonFrechetDistance {
-    static GeometricShapeFactory gsf = new GeometricShapeFactory();
+    // the shape factory keeps the centre and size of the last shape, hence
+    // each computation needs its own
+    GeometricShapeFactory gsf = new GeometricShapeFactory();
     static GeometryFactory gf = new GeometryFactory();
     static double delta = 0.01;
     public double[][] a, b, c, d;
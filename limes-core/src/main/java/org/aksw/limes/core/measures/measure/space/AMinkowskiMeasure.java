@@ -75,6 +75,15 @@ abstract class AMinkowskiMeasure extends ASpaceMeasure {
         return 1.0 / (1.0 + outerPTerm(distance));
     }
 
+    @Override
+    public double getSimilarity(double[] point1, double[] point2) {
+        double distance = 0;
+        for (int i = 0; i < point1.length; i++) {
+            distance = distance + innerPTerm(point1[i], point2[i]);
+        }
+        return 1.0 / (1.0 + outerPTerm(distance));
+    }
+
     /**
      * Implementation of the outer p-term.
      * @param sum the sum of over |x_i-y_i|^p for i in 0...n
@@ -88,6 +97,16 @@ abstract class AMinkowskiMeasure extends ASpaceMeasure {
      * @param yi value of y_i
      * @return |x_i-y_i|^p
      */
-    abstract double innerPTerm(String xi, String yi);
+    abstract double innerPTerm(double xi, double yi);
+
+    /**
+     * Parses the values and computes the inner p-term.
+     * @param xi value of x_i
+     * @param yi value of y_i
+     * @return |x_i-y_i|^p
+     */
+    double innerPTerm(String xi, String yi) {
+        return innerPTerm(Double.parseDouble(xi), Double.parseDouble(yi));
+    }
 
 }
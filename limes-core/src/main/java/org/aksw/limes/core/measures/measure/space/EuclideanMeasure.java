@@ -31,8 +31,8 @@ public class EuclideanMeasure extends AMinkowskiMeasure {
     }
 
     @Override
-    double innerPTerm(String xi, String yi) {
-        double d = new Double(xi) - new Double(yi);
+    double innerPTerm(double xi, double yi) {
+        double d = xi - yi;
         return d * d;
     }
 
@@ -176,6 +176,12 @@ public class GeoGreatEllipticMeasure extends ASpaceMeasure {
         return getDistance(lat1, lon1, lat2, lon2);
     }
 
+    // assume lat|long
+    @Override
+    public double getSimilarity(double[] point1, double[] point2) {
+        return getDistance(point1[0], point1[1], point2[0], point2[1]);
+    }
+
     @Override
     public double getRuntimeApproximation(double mappingSize) {
         return mappingSize / 1000d;
@@ -67,7 +67,7 @@ public class GeoOrthodromicMeasure extends ASpaceMeasure {
 
     public double getSimilarity(Instance instance1, Instance instance2, String property1, String property2) {
         String p1[] = property1.split("\\|");
-        String p2[] = property1.split("\\|");
+        String p2[] = property2.split("\\|");
         double lon1, lon2, lat1, lat2;
 
         if (p1[0].toLowerCase().startsWith("lo")) {
@@ -79,17 +79,23 @@ public class GeoOrthodromicMeasure extends ASpaceMeasure {
         }
 
         if (p2[0].toLowerCase().startsWith("lo")) {
-            lon2 = Double.parseDouble(instance1.getProperty(p2[0]).first());
-            lat2 = Double.parseDouble(instance1.getProperty(p2[1]).first());
+            lon2 = Double.parseDouble(instance2.getProperty(p2[0]).first());
+            lat2 = Double.parseDouble(instance2.getProperty(p2[1]).first());
         } else {
-            lat2 = Double.parseDouble(instance1.getProperty(p2[0]).first());
-            lon2 = Double.parseDouble(instance1.getProperty(p2[1]).first());
+            lat2 = Double.parseDouble(instance2.getProperty(p2[0]).first());
+            lon2 = Double.parseDouble(instance2.getProperty(p2[1]).first());
         }
 
         double d = distance(lat1, lon1, lat2, lon2);
         return 1 / (1 + d);
     }
 
+    // assume lat|long
+    public double getSimilarity(double[] point1, double[] point2) {
+        double d = distance(point1[0], point1[1], point2[0], point2[1]);
+        return 1 / (1 + d);
+    }
+
     public String getName() {
         return "GeoOrthodromicMeasure";
     }
@@ -31,4 +31,15 @@ public interface ISpaceMeasure extends IMeasure {
     public void setDimension(int n);
 
     public double getThreshold(int dimension, double simThreshold);
+
+    /**
+     * Computes the similarity of two points whose coordinates have already
+     * been parsed. Mappers use this to avoid parsing the property values of
+     * an instance for every comparison.
+     *
+     * @param point1 coordinates of the first point
+     * @param point2 coordinates of the second point
+     * @return the similarity of the two points
+     */
+    public double getSimilarity(double[] point1, double[] point2);
 }
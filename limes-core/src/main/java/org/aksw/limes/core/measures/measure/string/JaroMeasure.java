@@ -22,14 +22,29 @@
 package org.aksw.limes.core.measures.measure.string;
 
 import org.aksw.limes.core.io.cache.Instance;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 /**
  * @author Axel-C. Ngonga Ngomo (ngonga@informatik.uni-leipzig.de)
  */
-public class JaroMeasure extends StringMeasure {
+public class JaroMeasure extends StringMeasure implements ITrieFilterableStringMeasure {
+
+    /**
+     * Slack for the filter bounds, so that they never prune pairs whose float
+     * similarity is rounded up to the threshold.
+     */
+    private static final double EPSILON = 1e-6;
+
+    /**
+     * Match flags reused by the comparisons of one thread.
+     */
+    private static final ThreadLocal<MatchBuffers> buffers = ThreadLocal.withInitial(MatchBuffers::new);
+
     public static int getTranspositions(List<Character> source, List<Character> target) {
         if (source.isEmpty() || target.isEmpty() || (source.size() != target.size())) {
             return -1;
@@ -93,25 +108,105 @@ public class JaroMeasure extends StringMeasure {
      */
 
     public float getSimilarity(String string1, String string2) {
-
+        int n = string1.length();
+        int m = string2.length();
         // get half the length of the string rounded up - (this is the distance
         // used for acceptable transpositions)
-        int halflen = ((int) (Math.min(string1.length(), string2.length()))) / 2;
+        int halflen = Math.min(n, m) / 2;
+        MatchBuffers b = buffers.get();
+        b.reset(n, m);
 
-        // get common characters
-        List<Character> common1 = getCommonCharacters(string1, string2, halflen);
-        List<Character> common2 = getCommonCharacters(string2, string1, halflen);
+        // get common characters, marking them in place of copying them out
+        int common1 = markCommonCharacters(string1, string2, halflen, b.matched1, b.used2);
+        int common2 = markCommonCharacters(string2, string1, halflen, b.matched2, b.used1);
 
         // check for zero in common
+        if (common1 == 0 || common1 != common2)
+            return 0f;
 
         // get the number of transpositions
-        int transpositions = getTranspositions(common1, common2);
-        if (transpositions == -1)
-            return 0f;
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < n; i++) {
+            if (b.matched1[i]) {
+                while (!b.matched2[j])
+                    j++;
+                if (string1.charAt(i) != string2.charAt(j))
+                    transpositions++;
+                j++;
+            }
+        }
+        transpositions /= 2;
 
         // calculate jaro metric
-        return (common1.size() / ((float) string1.length()) + common2.size() / ((float) string2.length())
-                + (common1.size() - transpositions) / ((float) common1.size())) / 3.0f;
+        return (common1 / ((float) n) + common2 / ((float) m)
+                + (common1 - transpositions) / ((float) common1)) / 3.0f;
+    }
+
+    /**
+     * Flags the characters of string1 that occur in string2 within the given
+     * distance, exactly as {@link #getCommonCharacters(String, String, int)}
+     * collects them.
+     *
+     * @return the number of common characters
+     */
+    private static int markCommonCharacters(String string1, String string2, int distanceSep, boolean[] matched,
+                                            boolean[] used) {
+        int n = string1.length();
+        int m = string2.length();
+        int common = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = string1.charAt(i);
+            int high = Math.min(i + distanceSep, m);
+            for (int j = Math.max(0, i - distanceSep); j < high; j++) {
+                if (!used[j] && string2.charAt(j) == ch) {
+                    used[j] = true;
+                    matched[i] = true;
+                    common++;
+                    break;
+                }
+            }
+        }
+        return common;
+    }
+
+    @Override
+    public double proximity(String a, String b) {
+        return getSimilarity(a, b);
+    }
+
+    @Override
+    public double characterFrequencyUpperBound(int l1, int l2, int m) {
+        return (((double) m / (double) l1) + ((double) m / (double) l2) + 1.0d) / 3.0d + EPSILON;
+    }
+
+    @Override
+    public int characterMatchLowerBound(int l1, int l2, double threshold) {
+        return (int) Math.ceil((3.0d * threshold - 1.0d) * l1 * l2 / (double) (l1 + l2) - EPSILON);
+    }
+
+    @Override
+    public int lengthUpperBound(int l1, double threshold) {
+        // at most 2/3 the similarity does not depend on the length ratio, so
+        // there is no upper bound, which is signalled by -1
+        if (3.0d * threshold - 2.0d <= EPSILON)
+            return -1;
+        else
+            return (int) Math.ceil(l1 / (3.0d * threshold - 2.0d - EPSILON));
+    }
+
+    @Override
+    public int lengthLowerBound(int l1, double threshold) {
+        return Math.max(0, (int) Math.floor(l1 * (3.0d * threshold - 2.0d - EPSILON)));
+    }
+
+    @Override
+    public LinkedList<ImmutableTriple<Integer, Integer, Integer>> getPartitionBounds(int maxSize, double threshold) {
+        LinkedList<ImmutableTriple<Integer, Integer, Integer>> sliceBoundaries = new LinkedList<>();
+        for (int t = 1; t <= maxSize; t++) {
+            sliceBoundaries
+                    .add(new ImmutableTriple<>(t, lengthLowerBound(t, threshold), lengthUpperBound(t, threshold)));
+        }
+        return sliceBoundaries;
     }
 
     public double getSimilarity(Object object1, Object object2) {
@@ -180,4 +275,29 @@ public class JaroMeasure extends StringMeasure {
         return false;
     }
 
-}
\ No newline at end of file
+    /**
+     * Per-thread match flags of both strings, grown on demand.
+     */
+    private static class MatchBuffers {
+        boolean[] matched1 = new boolean[32], used1 = new boolean[32];
+        boolean[] matched2 = new boolean[32], used2 = new boolean[32];
+
+        void reset(int n, int m) {
+            if (matched1.length < n) {
+                matched1 = new boolean[2 * n];
+                used1 = new boolean[2 * n];
+            } else {
+                Arrays.fill(matched1, 0, n, false);
+                Arrays.fill(used1, 0, n, false);
+            }
+            if (matched2.length < m) {
+                matched2 = new boolean[2 * m];
+                used2 = new boolean[2 * m];
+            } else {
+                Arrays.fill(matched2, 0, m, false);
+                Arrays.fill(used2, 0, m, false);
+            }
+        }
+    }
+
+}
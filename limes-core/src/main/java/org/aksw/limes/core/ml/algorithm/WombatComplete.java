@@ -23,7 +23,6 @@ import org.aksw.limes.core.exceptions.UnsupportedMLImplementationException;
 import org.aksw.limes.core.io.cache.ACache;
 import org.aksw.limes.core.io.ls.LinkSpecification;
 import org.aksw.limes.core.io.mapping.AMapping;
-import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.io.parser.Parser;
 import org.aksw.limes.core.measures.mapper.MappingOperations;
 import org.aksw.limes.core.ml.algorithm.classifier.ExtendedClassifier;
@@ -37,6 +36,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * The complete Wombat algorithm (slow implementation)
@@ -326,11 +326,7 @@ public class WombatComplete extends AWombat {
         String nodeMetricExpr = node.getValue().getMetricExpression();
         // is it the root of the tree?
         if (node.getParent() == null) {
-            for (String diffExpr : diffs.keySet()) {
-                AMapping diffMapping = diffs.get(diffExpr);
-                result.add(createNode(diffMapping, diffExpr));
-            }
-            return result;
+            return createDiffNodes();
         } else if (isAtomic(nodeMetricExpr)) {
             return createDisjunctionsWithDiffNodes(node);
         } else if (isDifference(nodeMetricExpr)) {
@@ -396,20 +392,19 @@ public class WombatComplete extends AWombat {
      * @return list of nodes L \cup A_i \ A_j | A_i \in P, A_j \in P, where P is the set if initial classifiers
      */
     private List<ExtendedRefinementNode> createDisjunctionsWithDiffNodes(Tree<ExtendedRefinementNode> node) {
-        List<ExtendedRefinementNode> result = new ArrayList<>();
+        AMapping nodeMaping;
+        if (saveMapping()) {
+            nodeMaping = node.getValue().getMapping();
+        } else {
+            nodeMaping = getMappingOfMetricExpression(node.getValue().getMetricExpression(), refinementTreeRoot);
+        }
+        List<Callable<ExtendedRefinementNode>> tasks = new ArrayList<>();
         for (String diffExpr : diffs.keySet()) {
             AMapping diffMapping = diffs.get(diffExpr);
             String childMetricExpr = "OR(" + node.getValue().getMetricExpression() + "," + diffExpr + ")|0.0";
-            AMapping nodeMaping;
-            if (saveMapping()) {
-                nodeMaping = node.getValue().getMapping();
-            } else {
-                nodeMaping = getMappingOfMetricExpression(node.getValue().getMetricExpression(), refinementTreeRoot);
-            }
-            AMapping childMap = MappingOperations.union(nodeMaping, diffMapping);
-            result.add(createNode(childMap, childMetricExpr));
+            tasks.add(() -> createNode(MappingOperations.union(nodeMaping, diffMapping), childMetricExpr));
         }
-        return result;
+        return invokeAll(tasks);
     }
 
 
@@ -443,20 +438,33 @@ public class WombatComplete extends AWombat {
      * @return list of nodes L \cup A_i \ A_j | A_i \in P, A_j \in P, where P is the set if initial classifiers
      */
     private List<ExtendedRefinementNode> createConjunctionsWithDiffNodes(Tree<ExtendedRefinementNode> node) {
-        List<ExtendedRefinementNode> result = new ArrayList<>();
+        AMapping nodeMaping;
+        if (saveMapping()) {
+            nodeMaping = node.getValue().getMapping();
+        } else {
+            nodeMaping = getMappingOfMetricExpression(node.getValue().getMetricExpression(), refinementTreeRoot);
+        }
+        List<Callable<ExtendedRefinementNode>> tasks = new ArrayList<>();
         for (String diffExpr : diffs.keySet()) {
             AMapping diffMapping = diffs.get(diffExpr);
-            AMapping nodeMaping = MappingFactory.createDefaultMapping();
-            if (saveMapping()) {
-                nodeMaping = node.getValue().getMapping();
-            } else {
-                nodeMaping = getMappingOfMetricExpression(node.getValue().getMetricExpression(), refinementTreeRoot);
-            }
             String childMetricExpr = "AND(" + node.getValue().getMetricExpression() + "," + diffExpr + ")|0.0";
-            AMapping childMap = MappingOperations.intersection(nodeMaping, diffMapping);
-            result.add(createNode(childMap, childMetricExpr));
+            tasks.add(() -> createNode(MappingOperations.intersection(nodeMaping, diffMapping), childMetricExpr));
         }
-        return result;
+        return invokeAll(tasks);
+    }
+
+    /**
+     * Evaluates the nodes of all classifier differences concurrently
+     *
+     * @return list of nodes A_i \ A_j | A_i \in P, A_j \in P, in the order of the diffs map
+     */
+    private List<ExtendedRefinementNode> createDiffNodes() {
+        List<Callable<ExtendedRefinementNode>> tasks = new ArrayList<>();
+        for (String diffExpr : diffs.keySet()) {
+            AMapping diffMapping = diffs.get(diffExpr);
+            tasks.add(() -> createNode(diffMapping, diffExpr));
+        }
+        return invokeAll(tasks);
     }
 
     /**
@@ -505,9 +513,7 @@ public class WombatComplete extends AWombat {
     private void createRefinementTreeRoot() {
         ExtendedRefinementNode initialNode = new ExtendedRefinementNode();
         refinementTreeRoot = new Tree<>(null, initialNode, null);
-        for (String diffExpr : diffs.keySet()) {
-            AMapping diffMapping = diffs.get(diffExpr);
-            ExtendedRefinementNode n = createNode(diffMapping, diffExpr);
+        for (ExtendedRefinementNode n : createDiffNodes()) {
             refinementTreeRoot.addChild(new Tree<>(refinementTreeRoot, n, null));
         }
         if (isVerbose()) {
@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 /**
  * Simple implementation of the Wombat algorithm
@@ -288,28 +289,46 @@ public class WombatSimple extends AWombat {
      * @author sherif
      */
     private void expandNode(Tree<RefinementNode> node) {
-        AMapping map = MappingFactory.createDefaultMapping();
+        // the children are evaluated concurrently and added in the order of
+        // the classifiers and operators
+        List<Callable<RefinementNode>> tasks = new ArrayList<>();
         for (ExtendedClassifier c : classifiers) {
             for (LogicOperator op : LogicOperator.values()) {
                 if (!node.getValue().getMetricExpression().equals(c.getMetricExpression())) { // do not create the same metricExpression again
-                    if (op.equals(LogicOperator.AND)) {
-                        map = MappingOperations.intersection(node.getValue().getMapping(), c.getMapping());
-                    } else if (op.equals(LogicOperator.OR)) {
-                        map = MappingOperations.union(node.getValue().getMapping(), c.getMapping());
-                    } else if (op.equals(LogicOperator.MINUS)) {
-                        map = MappingOperations.difference(node.getValue().getMapping(), c.getMapping());
-                    }
-                    String metricExpr = op + "(" + node.getValue().getMetricExpression() + "," + c.getMetricExpression() + ")|0";
-                    RefinementNode child = createNode(map, metricExpr);
-                    node.addChild(new Tree<RefinementNode>(child));
+                    tasks.add(() -> createChildNode(node.getValue(), c, op));
                 }
             }
         }
+        for (RefinementNode child : invokeAll(tasks)) {
+            node.addChild(new Tree<RefinementNode>(child));
+        }
         if (isVerbose()) {
             refinementTreeRoot.print();
         }
     }
 
+    /**
+     * @param parent
+     *         refinement node to be expanded
+     * @param c
+     *         initial classifier to be combined with the parent
+     * @param op
+     *         logical operator combining the parent and the classifier
+     * @return the child node op(parent, c)
+     */
+    private RefinementNode createChildNode(RefinementNode parent, ExtendedClassifier c, LogicOperator op) {
+        AMapping map = MappingFactory.createDefaultMapping();
+        if (op.equals(LogicOperator.AND)) {
+            map = MappingOperations.intersection(parent.getMapping(), c.getMapping());
+        } else if (op.equals(LogicOperator.OR)) {
+            map = MappingOperations.union(parent.getMapping(), c.getMapping());
+        } else if (op.equals(LogicOperator.MINUS)) {
+            map = MappingOperations.difference(parent.getMapping(), c.getMapping());
+        }
+        String metricExpr = op + "(" + parent.getMetricExpression() + "," + c.getMetricExpression() + ")|0";
+        return createNode(map, metricExpr);
+    }
+
 
     /**
      * initiate the refinement tree as a root node  with set of
@@ -27,6 +27,7 @@ import org.aksw.limes.core.evaluation.qualititativeMeasures.FMeasure;
 import org.aksw.limes.core.evaluation.qualititativeMeasures.Precision;
 import org.aksw.limes.core.evaluation.qualititativeMeasures.PseudoFMeasure;
 import org.aksw.limes.core.evaluation.qualititativeMeasures.Recall;
+import org.aksw.limes.core.evaluation.qualititativeMeasures.ThresholdSweep;
 import org.aksw.limes.core.execution.engine.ExecutionEngine;
 import org.aksw.limes.core.execution.engine.ExecutionEngineFactory;
 import org.aksw.limes.core.execution.engine.ExecutionEngineFactory.ExecutionEngineType;
@@ -49,10 +50,12 @@ import org.aksw.limes.core.ml.algorithm.LearningParameter;
 import org.aksw.limes.core.ml.algorithm.MLResults;
 import org.aksw.limes.core.ml.algorithm.classifier.ExtendedClassifier;
 import org.aksw.limes.core.ml.algorithm.euclid.LinearSelfConfigurator;
+import org.aksw.limes.core.util.ComputePool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * This class uses Least General Generalization (LGG) to learn Link
@@ -78,6 +81,7 @@ public abstract class AWombat extends ACoreMLAlgorithm {
     public static final String PARAMETER_ATOMIC_MEASURES = "atomic measures";
     public static final String PARAMETER_SAVE_MAPPING = "save mapping";
     public static final String PARAMETER_FMEASURE_BETA = "beta";
+    public static final String PARAMETER_MAX_PARALLELISM = "max parallelism";
     public static List<String> sourceUris;
     public static List<String> targetUris;
     static Logger logger = LoggerFactory.getLogger(AWombat.class);
@@ -300,20 +304,38 @@ public abstract class AWombat extends ACoreMLAlgorithm {
      */
     protected final List<ExtendedClassifier> findInitialClassifiers() {
         logger.debug("Geting all initial classifiers ...");
-        List<ExtendedClassifier> initialClassifiers = new ArrayList<>();
+        List<Callable<ExtendedClassifier>> tasks = new ArrayList<>();
+        Set<String> measures = getAtomicMeasures();
         for (String p : sourcePropertiesCoverageMap.keySet()) {
             for (String q : targetPropertiesCoverageMap.keySet()) {
-                for (String m : getAtomicMeasures()) {
-                    ExtendedClassifier cp = findInitialClassifier(p, q, m);
-                    // only add if classifier covers all entries
-                    initialClassifiers.add(cp);
+                for (String m : measures) {
+                    tasks.add(() -> findInitialClassifier(p, q, m));
                 }
             }
         }
+        // the classifiers are returned in the order of the loops above
+        List<ExtendedClassifier> initialClassifiers = invokeAll(tasks);
         logger.debug("Done computing all initial classifiers.");
         return initialClassifiers;
     }
 
+    /**
+     * Runs the input tasks on the shared {@link ComputePool} and waits for all
+     * of them to finish. The tasks are split into at most
+     * {@link #getMaxParallelism()} groups, which are executed concurrently.
+     * The results are returned in the order of the tasks, so that the learned
+     * specifications do not depend on the scheduling of the threads.
+     *
+     * @param tasks
+     *            Tasks to be executed, must not modify the refinement tree
+     * @param <T>
+     *            Type of the results
+     * @return The results of the tasks, in the order of the input
+     */
+    protected final <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        return ComputePool.invokeAll(tasks, getMaxParallelism());
+    }
+
     double getThreshold(String measure) {
         double threshold = 0.4d;
         if (measure.equals("li") || measure.equals("lch") || measure.equals("wupalmer")
@@ -340,15 +362,38 @@ public abstract class AWombat extends ACoreMLAlgorithm {
         AMapping bestMapping = MappingFactory.createDefaultMapping();
 
         double minThreshold = this.getThreshold(measure);
+        List<Double> thresholds = new ArrayList<>();
         for (double threshold = 1d; threshold > minThreshold; threshold = threshold * getPropertyLearningRate()) {
-            AMapping mapping = executeAtomicMeasure(sourceProperty, targetProperty, measure, threshold);
-            double overlap = fMeasure(mapping);
-            if (maxOverlap < overlap) {
-                theta = threshold;
-                maxOverlap = overlap;
-                bestMapping = mapping;
+            thresholds.add(threshold);
+        }
+        if (thresholds.isEmpty()) {
+            ExtendedClassifier cp = new ExtendedClassifier(measure, theta, sourceProperty, targetProperty);
+            cp.setfMeasure(maxOverlap);
+            cp.setMapping(bestMapping);
+            return cp;
+        }
+        // run the measure once with the lowest threshold, the mappings of the
+        // higher thresholds are prefixes of its links sorted by similarity
+        ThresholdSweep sweep = new ThresholdSweep(executeAtomicMeasure(sourceProperty, targetProperty, measure,
+                thresholds.get(thresholds.size() - 1)));
+        double[] overlaps = new double[thresholds.size()];
+        if (isUnsupervised) {
+            for (int i = 0; i < overlaps.length; i++) {
+                overlaps[i] = fMeasure(sweep.getMapping(thresholds.get(i)));
+            }
+        } else {
+            overlaps = sweep.fMeasures(thresholds.stream().mapToDouble(Double::doubleValue).toArray(), trainingData,
+                    getBeta());
+        }
+        for (int i = 0; i < overlaps.length; i++) {
+            if (maxOverlap < overlaps[i]) {
+                theta = thresholds.get(i);
+                maxOverlap = overlaps[i];
             }
         }
+        if (maxOverlap > 0) {
+            bestMapping = sweep.getMapping(theta);
+        }
         ExtendedClassifier cp = new ExtendedClassifier(measure, theta, sourceProperty, targetProperty);
         cp.setfMeasure(maxOverlap);
         cp.setMapping(bestMapping);
@@ -462,6 +507,7 @@ public abstract class AWombat extends ACoreMLAlgorithm {
         double propertyLearningRate = 0.9;
         double overallPenaltyWeight = 0.5d;
         boolean verbose = false;
+        int maxParallelism = ComputePool.getParallelism();
         Set<String> measures = new HashSet<>(Arrays.asList("jaccard", "cosine", "qgrams"));
 
         learningParameters = new ArrayList<>();
@@ -493,6 +539,8 @@ public abstract class AWombat extends ACoreMLAlgorithm {
                 PARAMETER_ATOMIC_MEASURES));
         learningParameters.add(new LearningParameter(PARAMETER_SAVE_MAPPING, saveMapping, Boolean.class, 0, 1, 0,
                 PARAMETER_SAVE_MAPPING));
+        learningParameters.add(new LearningParameter(PARAMETER_MAX_PARALLELISM, maxParallelism, Integer.class, 1d,
+                Integer.MAX_VALUE, 1, "maximal number of classifiers or refinement nodes evaluated concurrently"));
     }
 
     protected boolean isVerbose() {
@@ -539,6 +587,10 @@ public abstract class AWombat extends ACoreMLAlgorithm {
         return Integer.parseInt(getParameter(PARAMETER_MAX_ITERATIONS_NUMBER).toString());
     }
 
+    protected int getMaxParallelism() {
+        return Integer.parseInt(getParameter(PARAMETER_MAX_PARALLELISM).toString());
+    }
+
     protected int getMaxRefinmentTreeSize() {
         return Integer.parseInt(getParameter(PARAMETER_MAX_REFINEMENT_TREE_SIZE).toString());
     }
@@ -0,0 +1,235 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared work-stealing pool on which the parallel mappers, the parallel
+ * execution engine and the learning algorithms run their tasks. Since all of
+ * them use the same pool, nested parallelism, e.g., a multi-threaded mapper
+ * running an atomic specification within the parallel execution engine, does
+ * not oversubscribe the cores: a task waiting for its subtasks executes
+ * pending tasks of the pool instead of blocking a thread.
+ * <p>
+ * The number of threads defaults to the number of available processors. It
+ * is set once at startup from the THREADS parameter of the configuration,
+ * the components that run on the pool never resize it.
+ */
+public class ComputePool {
+
+    static Logger logger = LoggerFactory.getLogger(ComputePool.class);
+
+    private static volatile ForkJoinPool pool = null;
+
+    private ComputePool() {
+    }
+
+    /**
+     * @return the shared pool
+     */
+    public static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+    /**
+     * Sets the number of threads of the shared pool. If the number changes,
+     * the pool is replaced. The previous pool is not shut down: tasks that
+     * run on it, e.g., of a concurrent linking task, still finish on it and
+     * its threads terminate once they are idle.
+     *
+     * @param parallelism
+     *            Number of threads, values smaller than 1 stand for the
+     *            number of available processors
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        if (pool == null || pool.getParallelism() != parallelism) {
+            logger.debug("Using " + parallelism + " threads for computations");
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * @return the number of threads of the shared pool
+     */
+    public static int getParallelism() {
+        return getPool().getParallelism();
+    }
+
+    /**
+     * Computes the number of partitions into which an input is split. There
+     * are enough partitions to balance the load between the threads of the
+     * pool, but none of them is smaller than minPartitionSize.
+     *
+     * @param size
+     *            Size of the input
+     * @param minPartitionSize
+     *            Minimal size of a partition
+     * @return the number of partitions, at least 1
+     */
+    public static int getPartitions(int size, int minPartitionSize) {
+        return Math.max(1, Math.min(getParallelism() * 4, size / minPartitionSize));
+    }
+
+    /**
+     * Runs the input tasks on the shared pool and waits for all of them to
+     * finish. If the caller is a worker of the pool, the tasks are forked from
+     * the current task, else they are submitted to the pool. A single task is
+     * run by the caller.
+     *
+     * @param tasks
+     *            Tasks to be executed
+     * @param <T>
+     *            Type of the results
+     * @return The results of the tasks, in the order of the input
+     */
+    public static <T> List<T> invokeAll(List<? extends ForkJoinTask<T>> tasks) {
+        if (tasks.size() == 1) {
+            tasks.get(0).invoke();
+        } else if (tasks.size() > 1) {
+            ForkJoinPool p = getPool();
+            if (ForkJoinTask.getPool() == p) {
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                p.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<T> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Runs the input tasks on the shared pool with a bounded parallelism. At
+     * most maxParallelism workers take the next task that did not start yet
+     * until all tasks are done, so that a worker that finishes cheap tasks
+     * takes over the remaining ones instead of idling. The pool itself is not
+     * changed.
+     *
+     * @param tasks
+     *            Tasks to be executed
+     * @param maxParallelism
+     *            Maximal number of tasks running at the same time
+     * @param <T>
+     *            Type of the results
+     * @return The results of the tasks, in the order of the input
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int maxParallelism) {
+        int workers = Math.max(1, Math.min(maxParallelism, tasks.size()));
+        AtomicInteger next = new AtomicInteger();
+        AtomicReferenceArray<T> results = new AtomicReferenceArray<>(tasks.size());
+        List<ForkJoinTask<Void>> forkJoinTasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            forkJoinTasks.add(ForkJoinTask.adapt(() -> {
+                for (int task = next.getAndIncrement(); task < tasks.size(); task = next.getAndIncrement()) {
+                    results.set(task, tasks.get(task).call());
+                }
+                return null;
+            }));
+        }
+        invokeAll(forkJoinTasks);
+        List<T> list = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            list.add(results.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Submits a task to the shared pool without waiting for it. The caller
+     * has to {@link ForkJoinTask#join()} the returned task.
+     *
+     * @param task
+     *            Task to be executed
+     * @return the submitted task
+     */
+    public static ForkJoinTask<?> submit(Runnable task) {
+        ForkJoinPool p = getPool();
+        if (ForkJoinTask.getPool() == p) {
+            return ForkJoinTask.adapt(task).fork();
+        }
+        return p.submit(task);
+    }
+
+    /**
+     * @return an estimate of the number of tasks queued by the threads of the
+     *         pool, excluding the tasks submitted from outside of the pool
+     */
+    public static long getQueuedTaskCount() {
+        return getPool().getQueuedTaskCount();
+    }
+
+    /**
+     * @return an estimate of the number of tasks submitted from outside of
+     *         the pool that did not start yet
+     */
+    public static int getQueuedSubmissionCount() {
+        return getPool().getQueuedSubmissionCount();
+    }
+
+    /**
+     * @return an estimate of the number of threads that are executing tasks
+     */
+    public static int getActiveThreadCount() {
+        return getPool().getActiveThreadCount();
+    }
+
+    /**
+     * @return an estimate of the number of tasks stolen from the queue of one
+     *         thread by another one
+     */
+    public static long getStealCount() {
+        return getPool().getStealCount();
+    }
+
+    /**
+     * @return an estimate of the fraction of the threads of the pool that are
+     *         executing tasks
+     */
+    public static double getUtilization() {
+        ForkJoinPool p = getPool();
+        return Math.min(1d, (double) p.getActiveThreadCount() / p.getParallelism());
+    }
+
+    /**
+     * @return a summary of the queue and utilization metrics of the pool
+     */
+    public static String getStatistics() {
+        ForkJoinPool p = getPool();
+        return "threads=" + p.getParallelism() + ", active=" + p.getActiveThreadCount() + ", utilization="
+                + String.format("%.2f", getUtilization()) + ", queued tasks=" + p.getQueuedTaskCount()
+                + ", queued submissions=" + p.getQueuedSubmissionCount() + ", steals=" + p.getStealCount();
+    }
+}
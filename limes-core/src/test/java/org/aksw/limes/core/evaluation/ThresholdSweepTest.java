@@ -0,0 +1,58 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.evaluation;
+
+import org.aksw.limes.core.datastrutures.GoldStandard;
+import org.aksw.limes.core.evaluation.qualititativeMeasures.FMeasure;
+import org.aksw.limes.core.evaluation.qualititativeMeasures.ThresholdSweep;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThresholdSweepTest {
+
+    @Test
+    public void testSweepEqualsSingleRuns() {
+        Random random = new Random(42);
+        AMapping mapping = MappingFactory.createDefaultMapping();
+        AMapping reference = MappingFactory.createDefaultMapping();
+        for (int i = 0; i < 500; i++) {
+            String s = "s" + random.nextInt(100), t = "t" + random.nextInt(100);
+            mapping.add(s, t, 0.3 + Math.round(random.nextDouble() * 70) / 100d);
+            if (random.nextBoolean()) {
+                reference.add(s, t, 1d);
+            }
+        }
+        reference.add("s1000", "t1000", 1d);
+
+        double[] thresholds = {1d, 0.9, 0.81, 0.729, 0.6561, 0.59049, 0.531441, 0.4782969, 0.43046721};
+        ThresholdSweep sweep = new ThresholdSweep(mapping);
+        double[] fMeasures = sweep.fMeasures(thresholds, reference, 1d);
+        for (int i = 0; i < thresholds.length; i++) {
+            AMapping expected = mapping.getSubMap(thresholds[i]);
+            assertEquals(expected.size(), sweep.countLinks(thresholds[i]));
+            assertEquals(expected.getMap(), sweep.getMapping(thresholds[i]).getMap());
+            assertEquals(new FMeasure().calculate(expected, new GoldStandard(reference), 1d), fMeasures[i], 1e-9);
+        }
+        assertEquals(0, sweep.getMapping(1.5).size());
+    }
+}
@@ -49,6 +49,12 @@ public class ExecutionEngineFactoryTest {
         assertTrue(engine instanceof SimpleExecutionEngine);
     }
 
+    @Test
+    public void testEqualParallel() {
+        ExecutionEngine engine = ExecutionEngineFactory.getEngine(ExecutionEngineType.PARALLEL, null, null, null, null, 0, 1.0);
+        assertTrue(engine instanceof ParallelExecutionEngine);
+    }
+
     @Test
     public void testEqualLiger() {
         ExecutionEngine engine = ExecutionEngineFactory.getEngine(ExecutionEngineType.PARTIAL_RECALL, null, null, null, null, 0, 1.0);
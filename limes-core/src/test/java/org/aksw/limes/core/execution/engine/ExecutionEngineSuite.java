@@ -22,7 +22,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        ExecutionEngineFactoryTest.class, SimpleExecutionEngineTest.class
+        ExecutionEngineFactoryTest.class, SimpleExecutionEngineTest.class, ParallelExecutionEngineTest.class
 })
 public class ExecutionEngineSuite {
 
@@ -0,0 +1,171 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.execution.engine;
+
+import org.aksw.limes.core.execution.planning.planner.CanonicalPlanner;
+import org.aksw.limes.core.execution.planning.planner.DynamicPlanner;
+import org.aksw.limes.core.execution.planning.planner.HeliosPlanner;
+import org.aksw.limes.core.execution.planning.planner.IPlanner;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.ls.LinkSpecification;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.util.ComputePool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelExecutionEngineTest {
+    public ACache source = new MemoryCache();
+    public ACache target = new MemoryCache();
+
+    @Before
+    public void setUp() {
+        source = new MemoryCache();
+        target = new MemoryCache();
+        // create source cache
+        source.addTriple("S1", "surname", "georgala");
+        source.addTriple("S1", "name", "kleanthi");
+        source.addTriple("S1", "age", "26");
+
+        source.addTriple("S2", "surname", "sandra");
+        source.addTriple("S2", "name", "lukas");
+        source.addTriple("S2", "age", "13");
+
+        source.addTriple("S3", "surname", "depp");
+        source.addTriple("S3", "name", "johny");
+        source.addTriple("S3", "age", "52");
+
+        source.addTriple("S4", "surname", "swift");
+        source.addTriple("S4", "name", "taylor,maria");
+        source.addTriple("S4", "age", "25");
+
+        source.addTriple("S5", "surname", "paok");
+        source.addTriple("S5", "name", "ole");
+        source.addTriple("S5", "age", "56");
+
+        target.addTriple("T1", "surname", "georg");
+        target.addTriple("T1", "name", "klea");
+        target.addTriple("T1", "age", "26");
+
+        target.addTriple("T2", "surname", "sandra");
+        target.addTriple("T2", "name", "lukas");
+        target.addTriple("T2", "age", "13");
+
+        target.addTriple("T3", "surname", "derp");
+        target.addTriple("T3", "name", "johnny");
+        target.addTriple("T3", "age", "52");
+
+        target.addTriple("T4", "surname", "swift");
+        target.addTriple("T4", "name", "taylor");
+        target.addTriple("T4", "age", "25");
+
+        target.addTriple("T5", "surname", "paok");
+        target.addTriple("T5", "name", "oleole");
+        target.addTriple("T5", "age", "56");
+
+    }
+
+    @After
+    public void tearDown() {
+        source = null;
+        target = null;
+    }
+
+    private static final String[] SPECS = {
+            "OR(qgrams(x.surname,y.surname)|0.4,trigrams(x.name,y.name)|0.4)",
+            "AND(qgrams(x.surname,y.surname)|0.2,trigrams(x.name,y.name)|0.8)",
+            "MINUS(qgrams(x.surname,y.surname)|0.2,trigrams(x.name,y.name)|0.8)",
+            "XOR(qgrams(x.surname,y.surname)|0.2,trigrams(x.name,y.name)|0.5)",
+            "OR(AND(jaccard(x.surname,y.surname)|0.3,trigrams(x.name,y.name)|0.5)|0.3,"
+                    + "OR(cosine(x.name,y.name)|0.4,euclidean(x.age,y.age)|0.5)|0.3)" };
+
+    @Test
+    public void testCanonical() {
+        System.out.println("testCanonical");
+        for (String expression : SPECS) {
+            LinkSpecification ls = new LinkSpecification(expression, 0.3);
+            SimpleExecutionEngine simple = new SimpleExecutionEngine(source, target, "?x", "?y");
+            AMapping expected = simple.execute(ls, new CanonicalPlanner());
+
+            ParallelExecutionEngine parallel = new ParallelExecutionEngine(source, target, "?x", "?y", 4);
+            AMapping m = parallel.execute(ls, new CanonicalPlanner());
+            assertEquals(expected, m);
+        }
+        System.out.println("---------------------------------");
+    }
+
+    @Test
+    public void testHelios() {
+        System.out.println("testHelios");
+        for (String expression : SPECS) {
+            LinkSpecification ls = new LinkSpecification(expression, 0.3);
+            SimpleExecutionEngine simple = new SimpleExecutionEngine(source, target, "?x", "?y");
+            AMapping expected = simple.execute(ls, new HeliosPlanner(source, target));
+
+            ParallelExecutionEngine parallel = new ParallelExecutionEngine(source, target, "?x", "?y", 4);
+            AMapping m = parallel.execute(ls, new HeliosPlanner(source, target));
+            assertEquals(expected, m);
+        }
+        System.out.println("---------------------------------");
+    }
+
+    @Test
+    public void testDynamic() {
+        System.out.println("testDynamic");
+        for (String expression : SPECS) {
+            LinkSpecification ls = new LinkSpecification(expression, 0.3);
+            SimpleExecutionEngine simple = new SimpleExecutionEngine(source, target, "?x", "?y");
+            AMapping expected = simple.execute(ls, new DynamicPlanner(source, target));
+
+            ParallelExecutionEngine parallel = new ParallelExecutionEngine(source, target, "?x", "?y", 4);
+            DynamicPlanner planner = new DynamicPlanner(source, target);
+            AMapping m = parallel.execute(ls, planner);
+            assertEquals(expected, m);
+            assertTrue(planner.isExecuted(planner.normalize(ls)));
+        }
+        System.out.println("---------------------------------");
+    }
+
+    @Test
+    public void testNumberOfThreads() {
+        System.out.println("testNumberOfThreads");
+        ParallelExecutionEngine ee = new ParallelExecutionEngine(source, target, "?x", "?y", 0);
+        assertEquals(Runtime.getRuntime().availableProcessors(), ee.getNumberOfThreads());
+        System.out.println("---------------------------------");
+    }
+
+    @Test
+    public void testNumberOfThreadsKeepsSharedPool() {
+        System.out.println("testNumberOfThreadsKeepsSharedPool");
+        ForkJoinPool pool = ComputePool.getPool();
+        ParallelExecutionEngine ee = new ParallelExecutionEngine(source, target, "?x", "?y", 1);
+        assertEquals(1, ee.getNumberOfThreads());
+        assertSame(pool, ComputePool.getPool());
+        LinkSpecification ls = new LinkSpecification(SPECS[SPECS.length - 1], 0.3);
+        SimpleExecutionEngine simple = new SimpleExecutionEngine(source, target, "?x", "?y");
+        assertEquals(simple.execute(ls, new CanonicalPlanner()), ee.execute(ls, new CanonicalPlanner()));
+        System.out.println("---------------------------------");
+    }
+}
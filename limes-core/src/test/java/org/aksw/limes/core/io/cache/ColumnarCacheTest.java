@@ -0,0 +1,139 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarCacheTest {
+
+    @Test
+    public void testTriplesAndColumns() {
+        ColumnarCache cache = new ColumnarCache();
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        cache.addTriple("ex:Dresden", "rdfs:label", "Dresden");
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Lipsia");
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        cache.addTriple("ex:Leipzig", "ex:population", "560472");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getInstance("ex:Berlin"));
+        Instance leipzig = new Instance("ex:Leipzig");
+        leipzig.addProperty("rdfs:label", "Leipzig");
+        leipzig.addProperty("rdfs:label", "Lipsia");
+        leipzig.addProperty("ex:population", "560472");
+        assertEquals(leipzig, cache.getInstance("ex:Leipzig"));
+        assertEquals(new HashSet<>(Arrays.asList("rdfs:label", "ex:population")), cache.getAllProperties());
+
+        PropertyColumn labels = cache.getColumn("rdfs:label");
+        assertEquals(3, labels.getValueCount());
+        int leipzigId = cache.getUriDictionary().lookup("ex:Leipzig");
+        int[] ids = labels.getValueIds(leipzigId);
+        assertEquals(2, ids.length);
+        assertEquals("Leipzig", cache.getValueDictionary().getString(ids[0]));
+        assertEquals(0, cache.getColumn("ex:area").getValueCount());
+    }
+
+    @Test
+    public void testChangesThroughViews() {
+        ColumnarCache cache = new ColumnarCache();
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        cache.addTriple("ex:Leipzig", "ex:country", "Germany");
+        cache.addTriple("ex:Dresden", "rdfs:label", "Dresden");
+
+        for (Instance i : cache.getAllInstances()) {
+            TreeSet<String> values = new TreeSet<>();
+            for (String v : i.getProperty("rdfs:label")) {
+                values.add(v.toLowerCase());
+            }
+            i.replaceProperty("rdfs:label", values);
+            i.removePropery("ex:country");
+        }
+        assertEquals(new TreeSet<>(Arrays.asList("leipzig")), cache.getInstance("ex:Leipzig").getProperty("rdfs:label"));
+        assertFalse(cache.getInstance("ex:Leipzig").getAllProperties().contains("ex:country"));
+
+        ColumnarCache clone = cache.clone();
+        clone.addTriple("ex:Berlin", "rdfs:label", "Berlin");
+        assertFalse(cache.containsUri("ex:Berlin"));
+        assertTrue(clone.containsUri("ex:Berlin"));
+        assertEquals(1, cache.getColumn("rdfs:label").getValueIds(1).length);
+        assertEquals("dresden", cache.getValueDictionary().getString(cache.getColumn("rdfs:label").getValueIds(1)[0]));
+        assertEquals(0, cache.getColumn("ex:country").getValueCount());
+    }
+
+    @Test
+    public void testValueToUriIndex() {
+        ColumnarCache cache = new ColumnarCache();
+        cache.addTriple("ex:Leipzig", "ex:country", "Germany");
+        cache.addTriple("ex:Dresden", "ex:country", "Germany");
+        assertEquals(new HashSet<>(Arrays.asList("ex:Leipzig", "ex:Dresden")),
+                cache.getValueToUriIndex("ex:country").get("Germany"));
+
+        cache.getInstance("ex:Dresden").replaceProperty("ex:country", new TreeSet<>(Arrays.asList("Saxony")));
+        assertEquals(1, cache.getValueToUriIndex("ex:country").get("Germany").size());
+        assertTrue(cache.getValueToUriIndex("ex:country").containsKey("Saxony"));
+    }
+
+    @Test
+    public void testRepeatedPropertyReads() {
+        ColumnarCache cache = new ColumnarCache();
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        Instance leipzig = cache.getInstance("ex:Leipzig");
+        TreeSet<String> labels = leipzig.getProperty("rdfs:label");
+        assertSame(labels, leipzig.getProperty("rdfs:label"));
+
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Lipsia");
+        assertEquals(new TreeSet<>(Arrays.asList("Leipzig", "Lipsia")), leipzig.getProperty("rdfs:label"));
+        leipzig.addProperty("rdfs:label", "Lipsk");
+        assertEquals(3, leipzig.getProperty("rdfs:label").size());
+        cache.compact();
+        assertEquals(3, leipzig.getProperty("rdfs:label").size());
+        assertEquals(1, labels.size());
+    }
+
+    @Test
+    public void testViewsEqualPlainInstances() {
+        ColumnarCache cache = new ColumnarCache();
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        cache.addTriple("ex:Dresden", "rdfs:label", "Dresden");
+        Instance view = cache.getInstance("ex:Leipzig");
+        Instance plain = new Instance("ex:Leipzig");
+        plain.addProperty("rdfs:label", "Leipzig");
+
+        assertTrue(view instanceof ColumnarInstance);
+        assertEquals(plain, view);
+        assertEquals(view, plain);
+        assertEquals(plain.hashCode(), view.hashCode());
+        assertEquals(0, view.compareTo(plain));
+        assertEquals(0, plain.compareTo(view));
+        assertFalse(plain.equals(cache.getInstance("ex:Dresden")));
+        assertEquals(-1, view.compareTo("ex:Leipzig"));
+
+        TreeSet<Instance> instances = new TreeSet<>(Arrays.asList(plain, view, cache.getInstance("ex:Dresden")));
+        assertEquals(2, instances.size());
+    }
+}
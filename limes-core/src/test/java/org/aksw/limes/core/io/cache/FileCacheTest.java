@@ -0,0 +1,194 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import org.aksw.limes.core.io.preprocessing.Preprocessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEvictionAndReopen() throws IOException {
+        File dir = folder.newFolder("cache");
+        FileCache cache = new FileCache(dir, 10);
+        for (int i = 0; i < 1000; i++) {
+            cache.addTriple("ex:" + i, "rdfs:label", "Label " + i);
+            cache.addTriple("ex:" + i, "ex:value", "" + i * 2);
+        }
+        cache.addTriple("ex:Köln", "rdfs:label", "Köln");
+        assertEquals(1001, cache.size());
+        assertTrue(cache.getInstance("ex:7").getProperty("ex:value").contains("14"));
+        cache.close();
+
+        FileCache reopened = new FileCache(dir, 10);
+        assertEquals(1001, reopened.size());
+        assertTrue(reopened.containsUri("ex:Köln"));
+        assertFalse(reopened.containsUri("ex:Berlin"));
+        assertNull(reopened.getInstance("ex:Berlin"));
+        assertTrue(reopened.getInstance("ex:999").getProperty("rdfs:label").contains("Label 999"));
+        assertEquals(1001, reopened.getAllUris().size());
+
+        int count = 0;
+        reopened.resetIterator();
+        for (Instance i = reopened.getNextInstance(); i != null; i = reopened.getNextInstance()) {
+            i.addProperty("ex:seen", "true");
+            reopened.replaceInstance(i.getUri(), i);
+            count++;
+        }
+        assertEquals(1001, count);
+        reopened.close();
+
+        FileCache updated = new FileCache(dir);
+        assertTrue(updated.getInstance("ex:500").getProperty("ex:seen").contains("true"));
+        assertTrue(updated.getAllProperties().contains("ex:seen"));
+        updated.close();
+    }
+
+    @Test
+    public void testReadOnlyCacheIsPreprocessedIntoCopy() throws IOException {
+        File dir = folder.newFolder("cache");
+        FileCache cache = new FileCache(dir, 10);
+        for (int i = 0; i < 100; i++) {
+            cache.addTriple("ex:" + i, "rdfs:label", "Label " + i);
+        }
+        cache.close();
+
+        FileCache readOnly = new FileCache(dir, 10, true);
+        try {
+            readOnly.addTriple("ex:0", "rdfs:label", "Label");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Map<String, Map<String, String>> functions = Collections.singletonMap("rdfs:label",
+                Collections.singletonMap("rdfs:label", "lowercase"));
+        ACache preprocessed = Preprocessor.applyFunctionsToCache(readOnly, functions);
+        assertNotSame(readOnly, preprocessed);
+        assertEquals(100, preprocessed.size());
+        assertTrue(preprocessed.getInstance("ex:42").getProperty("rdfs:label").contains("label 42"));
+        assertTrue(readOnly.getInstance("ex:42").getProperty("rdfs:label").contains("Label 42"));
+        readOnly.close();
+
+        FileCache reopened = new FileCache(dir, 10, true);
+        assertTrue(reopened.getInstance("ex:42").getProperty("rdfs:label").contains("Label 42"));
+        reopened.close();
+    }
+
+    @Test
+    public void testChangesWithoutFlushAreDiscarded() throws IOException {
+        File dir = folder.newFolder("cache");
+        FileCache cache = new FileCache(dir, 10);
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        cache.close();
+
+        FileCache changed = new FileCache(dir, 10);
+        assertEquals(1, changed.size());
+        changed.addTriple("ex:Dresden", "rdfs:label", "Dresden");
+        // not flushed, e.g., because the process was killed
+        assertEquals(0, new FileCache(dir, 10).size());
+    }
+
+    @Test
+    public void testReplacedRecordsAreCompacted() throws IOException {
+        File dir = folder.newFolder("cache");
+        FileCache cache = new FileCache(dir, 10);
+        for (int i = 0; i < 1000; i++) {
+            cache.addTriple("ex:" + i, "rdfs:label", "Label " + i);
+        }
+        cache.flush();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                Instance instance = cache.getInstance("ex:" + i);
+                instance.addProperty("ex:round", "" + round);
+                cache.replaceInstance(instance.getUri(), instance);
+            }
+            cache.flush();
+        }
+        cache.close();
+        // files grow with their content instead of whole segments
+        assertTrue(new File(dir, "records").length() < 1 << 20);
+
+        FileCache reopened = new FileCache(dir, 10, true);
+        assertEquals(1000, reopened.size());
+        for (int i = 0; i < 1000; i++) {
+            Instance instance = reopened.getInstance("ex:" + i);
+            assertTrue(instance.getProperty("rdfs:label").contains("Label " + i));
+            assertEquals(3, instance.getProperty("ex:round").size());
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void testConcurrentReadsOfReadOnlyCache() throws Exception {
+        File dir = folder.newFolder("cache");
+        FileCache cache = new FileCache(dir, 10);
+        for (int i = 0; i < 2000; i++) {
+            cache.addTriple("ex:" + i, "rdfs:label", "Label " + i);
+        }
+        cache.close();
+
+        FileCache readOnly = new FileCache(dir, 10, true);
+        List<Callable<Boolean>> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t;
+            readers.add(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int id = (i * 7 + offset) % 2000;
+                    if (!readOnly.getInstance("ex:" + id).getProperty("rdfs:label").contains("Label " + id)) {
+                        return false;
+                    }
+                }
+                return readOnly.getValueToUriIndex("rdfs:label").size() == 2000;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Boolean> result : executor.invokeAll(readers)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertNull(readOnly.getInstance("ex:Berlin"));
+        assertEquals(2000, readOnly.getAllUris().size());
+        readOnly.close();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HybridCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        HybridCache cache = new HybridCache();
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Leipzig");
+        cache.addTriple("ex:Leipzig", "rdfs:label", "Lipsia");
+        cache.addTriple("ex:Leipzig", "ex:population", "560472");
+        cache.addTriple("ex:Dresden", "rdfs:label", "Dresden");
+        cache.addTriple("ex:Köln", "rdfs:label", "Köln");
+        File file = new File(folder.newFolder("cache"), "42.ser");
+        cache.saveToFile(file);
+
+        HybridCache loaded = HybridCache.loadFromFile(file);
+        assertEquals(3, loaded.size());
+        assertTrue(loaded.containsUri("ex:Köln"));
+        assertFalse(loaded.containsUri("ex:Berlin"));
+        assertNull(loaded.getInstance("ex:Berlin"));
+        assertEquals(cache.getInstance("ex:Leipzig"), loaded.getInstance("ex:Leipzig"));
+        assertEquals(cache.getAllUris(), loaded.getAllUris());
+        assertEquals(cache.getAllInstances(), loaded.getAllInstances());
+    }
+
+    @Test
+    public void testChangesToLoadedInstances() throws IOException {
+        HybridCache cache = new HybridCache();
+        for (int i = 0; i < 100; i++) {
+            cache.addTriple("ex:s" + i, "rdfs:label", "label " + i);
+        }
+        File file = new File(folder.newFolder("cache"), "42.ser");
+        cache.saveToFile(file);
+
+        HybridCache loaded = HybridCache.loadFromFile(file);
+        List<Instance> instances = IntStream.range(0, 100).parallel()
+                .mapToObj(i -> loaded.getInstance("ex:s" + i)).collect(Collectors.toList());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(cache.getInstance("ex:s" + i), instances.get(i));
+            assertSame(instances.get(i), loaded.getInstance("ex:s" + i));
+        }
+        loaded.getInstance("ex:s7").addProperty("rdfs:label", "seven");
+        loaded.addTriple("ex:s100", "rdfs:label", "label 100");
+        assertEquals(101, loaded.size());
+        assertSame(instances.get(7), loaded.getInstance("ex:s7"));
+        assertTrue(loaded.getInstance("ex:s7").getProperty("rdfs:label").contains("seven"));
+    }
+
+    @Test
+    public void testValueToUriIndex() {
+        HybridCache cache = new HybridCache();
+        cache.addTriple("ex:Leipzig", "ex:country", "Germany");
+        cache.addTriple("ex:Dresden", "ex:country", "Germany");
+        cache.addTriple("ex:Paris", "ex:country", "France");
+
+        Map<String, Set<String>> index = cache.getValueToUriIndex("ex:country");
+        assertEquals(new HashSet<>(Arrays.asList("ex:Leipzig", "ex:Dresden")), index.get("Germany"));
+        assertSame(index, cache.getValueToUriIndex("ex:country"));
+
+        cache.addTriple("ex:Lyon", "ex:country", "France");
+        assertEquals(2, cache.getValueToUriIndex("ex:country").get("France").size());
+
+        Instance paris = new Instance("ex:Paris");
+        paris.addProperty("ex:country", new TreeSet<>(Arrays.asList("Frankreich")));
+        cache.replaceInstance("ex:Paris", paris);
+        assertEquals(1, cache.getValueToUriIndex("ex:country").get("France").size());
+        assertTrue(cache.getValueToUriIndex("ex:area").isEmpty());
+    }
+}
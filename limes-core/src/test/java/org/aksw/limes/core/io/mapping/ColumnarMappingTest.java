@@ -0,0 +1,211 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.io.mapping;
+
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.measures.mapper.MappingOperations;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ColumnarMappingTest {
+
+    private AMapping fill(AMapping m) {
+        m.add("Potter", "Harry", 0.7);
+        m.add("Granger", "Hermione", 0.9);
+        m.add("Weasley", "Ron", 0.4);
+        m.add("Weasley", "Fred", 0.4);
+        m.add("Weasley", "George", 0.2);
+        m.add("Potter", "Harry", 0.5);
+        return m;
+    }
+
+    @Test
+    public void testAddAndContains() {
+        AMapping columnar = fill(MappingFactory.createMapping(MappingFactory.MappingType.COLUMNAR_MAPPING));
+        AMapping memory = fill(MappingFactory.createDefaultMapping());
+        assertEquals(memory.size(), columnar.size());
+        assertEquals(0.7, columnar.getConfidence("Potter", "Harry"), 0d);
+        assertTrue(columnar.contains("Weasley", "Fred"));
+        assertFalse(columnar.contains("Weasley", "Harry"));
+        assertEquals(0d, columnar.getConfidence("Malfoy", "Draco"), 0d);
+        assertEquals(memory.getMap(), columnar.getMap());
+        assertEquals(memory.getBestOneToNMapping().getMap(), columnar.getBestOneToNMapping().getMap());
+        assertEquals(memory.getSubMap(0.4).getMap(), columnar.getSubMap(0.4).getMap());
+        assertEquals(memory.reverseSourceTarget().getMap(), columnar.reverseSourceTarget().getMap());
+    }
+
+    @Test
+    public void testSetOperations() {
+        StringDictionary sources = new StringDictionary();
+        StringDictionary targets = new StringDictionary();
+        ColumnarMapping a = MappingFactory.createColumnarMapping(sources, targets);
+        ColumnarMapping b = MappingFactory.createColumnarMapping(sources, targets);
+        AMapping memoryA = MappingFactory.createDefaultMapping();
+        AMapping memoryB = MappingFactory.createDefaultMapping();
+        fill(a);
+        fill(memoryA);
+        for (AMapping m : new AMapping[] { b, memoryB }) {
+            m.add("Potter", "Harry", 0.6);
+            m.add("Weasley", "Ginny", 0.8);
+            m.add("Weasley", "George", 0.3);
+        }
+        assertEquals(MappingOperations.union(memoryA, memoryB).getMap(), MappingOperations.union(a, b).getMap());
+        assertEquals(MappingOperations.intersection(memoryA, memoryB).getMap(),
+                MappingOperations.intersection(a, b).getMap());
+        assertEquals(MappingOperations.difference(memoryA, memoryB).getMap(),
+                MappingOperations.difference(a, b).getMap());
+        assertTrue(MappingOperations.union(a, b) instanceof ColumnarMapping);
+    }
+
+    @Test
+    public void testPartitionedMerge() {
+        StringDictionary sources = new StringDictionary();
+        StringDictionary targets = new StringDictionary();
+        ColumnarMapping a = MappingFactory.createColumnarMapping(sources, targets);
+        ColumnarMapping b = MappingFactory.createColumnarMapping(sources, targets);
+        AMapping memoryA = MappingFactory.createDefaultMapping();
+        AMapping memoryB = MappingFactory.createDefaultMapping();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            String s = "s" + random.nextInt(2000);
+            String t = "t" + random.nextInt(2000);
+            double sim = random.nextInt(10) / 10d;
+            if (random.nextBoolean()) {
+                a.add(s, t, sim);
+                memoryA.add(s, t, sim);
+            } else {
+                b.add(s, t, sim);
+                memoryB.add(s, t, sim);
+            }
+        }
+        AMapping union = MappingOperations.union(a, b);
+        assertEquals(MappingOperations.union(memoryA, memoryB).getMap(), union.getMap());
+        assertTrue(((ColumnarMapping) union).isSorted());
+        assertEquals(MappingOperations.intersection(memoryA, memoryB).getMap(),
+                MappingOperations.intersection(a, b).getMap());
+        assertEquals(MappingOperations.difference(memoryA, memoryB).getMap(),
+                MappingOperations.difference(a, b).getMap());
+        assertEquals(memoryA.getMap(), a.getMap());
+    }
+
+    @Test
+    public void testSortReturnsSortedCopy() {
+        ColumnarMapping mapping = (ColumnarMapping) fill(
+                MappingFactory.createMapping(MappingFactory.MappingType.COLUMNAR_MAPPING));
+        mapping.add("Malfoy", "Draco", 0.3);
+        mapping.add("Potter", "Ginny", 0.3);
+        assertFalse(mapping.isSorted());
+        String first = mapping.getSourceUri(0);
+        ColumnarMapping sorted = mapping.sort();
+        assertNotSame(mapping, sorted);
+        assertTrue(sorted.isSorted());
+        assertFalse(mapping.isSorted());
+        assertEquals(first, mapping.getSourceUri(0));
+        assertEquals(mapping.getMap(), sorted.getMap());
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.getKey(i - 1) < sorted.getKey(i));
+        }
+        assertEquals(0.9, sorted.getConfidence("Granger", "Hermione"), 0d);
+        assertEquals(0d, sorted.getConfidence("Granger", "Harry"), 0d);
+        assertSame(sorted, sorted.sort());
+    }
+
+    @Test
+    public void testFrozenDictionaries() {
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        source.addTriple("Potter", "name", "Harry Potter");
+        target.addTriple("Harry", "name", "Harry");
+        ColumnarMapping mapping = MappingFactory.createColumnarMapping(source, target);
+        assertTrue(mapping.getSourceDictionary().isFrozen());
+        assertSame(mapping.getSourceDictionary(), source.getUriDictionary());
+        mapping.add("Potter", "Harry", 1d);
+        assertTrue(mapping.contains("Potter", "Harry"));
+        try {
+            mapping.add("Weasley", "Harry", 1d);
+            fail();
+        } catch (IllegalStateException e) {
+            // the source dictionary does not contain Weasley
+        }
+        // changing the cache builds a new dictionary
+        source.addTriple("Weasley", "name", "Ron Weasley");
+        assertNotSame(mapping.getSourceDictionary(), source.getUriDictionary());
+        assertTrue(source.getUriDictionary().contains("Weasley"));
+    }
+
+    @Test
+    public void testSerializationOfUnsortedMapping() throws Exception {
+        ColumnarMapping mapping = (ColumnarMapping) fill(
+                MappingFactory.createMapping(MappingFactory.MappingType.COLUMNAR_MAPPING));
+        mapping.add("Granger", "Ron", 0.3);
+        assertFalse(mapping.isSorted());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mapping);
+        }
+        ColumnarMapping copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ColumnarMapping) in.readObject();
+        }
+        assertFalse(copy.isSorted());
+        assertEquals(mapping.size(), copy.size());
+        for (int i = 0; i < mapping.size(); i++) {
+            assertTrue(copy.contains(mapping.getSourceUri(i), mapping.getTargetUri(i)));
+            assertEquals(mapping.getConfidence(i),
+                    copy.getConfidence(mapping.getSourceUri(i), mapping.getTargetUri(i)), 0d);
+        }
+        assertFalse(copy.contains("Granger", "Harry"));
+        copy.add("Granger", "Ron", 0.8);
+        assertEquals(mapping.size(), copy.size());
+        assertEquals(0.8, copy.getConfidence("Granger", "Ron"), 0d);
+    }
+
+    @Test
+    public void testEqualsMemoryMapping() {
+        AMapping columnar = fill(MappingFactory.createMapping(MappingFactory.MappingType.COLUMNAR_MAPPING));
+        AMapping memory = fill(MappingFactory.createDefaultMapping());
+        assertEquals(memory, columnar);
+        assertEquals(columnar, memory);
+        assertEquals(memory.hashCode(), columnar.hashCode());
+        columnar.add("Weasley", "George", 0.3);
+        assertNotEquals(memory, columnar);
+        assertNotEquals(columnar, memory);
+        memory.add("Weasley", "George", 0.3);
+        memory.add("Weasley", "Ginny", 0.3);
+        assertNotEquals(columnar, memory);
+        columnar.add("Weasley", "Ginny", 0.3);
+        assertEquals(columnar, memory);
+        columnar.setPredicate("ex:similar");
+        assertNotEquals(columnar, memory);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.Instance;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+
+import java.util.Random;
+import java.util.function.ToDoubleBiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fixtures shared by the tests that compare a mapper with a brute force
+ * computation of its measure.
+ */
+public class MapperTestUtil {
+
+    private static final int LETTERS = 6;
+
+    /**
+     * @param random
+     *         the random generator
+     * @return a short label over a small alphabet, so that random labels are
+     * often similar
+     */
+    public static String randomLabel(Random random) {
+        StringBuilder label = new StringBuilder();
+        for (int i = 1 + random.nextInt(12); i > 0; i--) {
+            label.append((char) ('a' + random.nextInt(LETTERS)));
+        }
+        return label.toString();
+    }
+
+    /**
+     * @param label
+     *         the label to change
+     * @param random
+     *         the random generator
+     * @return the label with up to three characters inserted, deleted or
+     * replaced
+     */
+    public static String mutate(String label, Random random) {
+        StringBuilder mutated = new StringBuilder(label);
+        for (int i = random.nextInt(4); i > 0; i--) {
+            int pos = random.nextInt(mutated.length() + 1);
+            char c = (char) ('a' + random.nextInt(LETTERS));
+            switch (random.nextInt(3)) {
+                case 0:
+                    mutated.insert(pos, c);
+                    break;
+                case 1:
+                    if (pos < mutated.length()) {
+                        mutated.deleteCharAt(pos);
+                    }
+                    break;
+                default:
+                    if (pos < mutated.length()) {
+                        mutated.setCharAt(pos, c);
+                    }
+            }
+        }
+        return mutated.toString();
+    }
+
+    /**
+     * Links every pair of instances whose similarity reaches the threshold.
+     *
+     * @param source
+     *         the source cache
+     * @param target
+     *         the target cache
+     * @param similarity
+     *         the similarity of a source and a target instance
+     * @param threshold
+     *         the threshold
+     * @return the mapping
+     */
+    public static AMapping bruteForce(ACache source, ACache target, ToDoubleBiFunction<Instance, Instance> similarity,
+                                      double threshold) {
+        AMapping mapping = MappingFactory.createDefaultMapping();
+        for (Instance s : source.getAllInstances()) {
+            for (Instance t : target.getAllInstances()) {
+                double sim = similarity.applyAsDouble(s, t);
+                if (sim >= threshold) {
+                    mapping.add(s.getUri(), t.getUri(), sim);
+                }
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Links every pair of instances with a pair of property values whose
+     * similarity reaches the threshold.
+     *
+     * @param source
+     *         the source cache
+     * @param sourceProperty
+     *         the source property
+     * @param target
+     *         the target cache
+     * @param targetProperty
+     *         the target property
+     * @param similarity
+     *         the similarity of a source and a target value
+     * @param threshold
+     *         the threshold
+     * @return the mapping
+     */
+    public static AMapping bruteForce(ACache source, String sourceProperty, ACache target, String targetProperty,
+                                      ToDoubleBiFunction<String, String> similarity, double threshold) {
+        AMapping mapping = MappingFactory.createDefaultMapping();
+        for (Instance s : source.getAllInstances()) {
+            for (Instance t : target.getAllInstances()) {
+                for (String x : s.getProperty(sourceProperty)) {
+                    for (String y : t.getProperty(targetProperty)) {
+                        double sim = similarity.applyAsDouble(x, y);
+                        if (sim >= threshold) {
+                            mapping.add(s.getUri(), t.getUri(), sim);
+                        }
+                    }
+                }
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Asserts that a mapper found links and exactly the links of the brute
+     * force mapping that reach the threshold.
+     *
+     * @param expected
+     *         the brute force mapping, computed for the threshold or a lower one
+     * @param threshold
+     *         the threshold of the mapper
+     * @param mapping
+     *         the mapping of the mapper
+     */
+    public static void assertMapping(AMapping expected, double threshold, AMapping mapping) {
+        assertMapping("" + threshold, expected.getSubMap(threshold), mapping);
+    }
+
+    /**
+     * Asserts that a mapper found links and exactly the links of the brute
+     * force mapping.
+     *
+     * @param message
+     *         the message of a failure
+     * @param expected
+     *         the brute force mapping
+     * @param mapping
+     *         the mapping of the mapper
+     */
+    public static void assertMapping(String message, AMapping expected, AMapping mapping) {
+        assertTrue(message, mapping.size() > 0);
+        assertEquals(message, expected.getMap(), mapping.getMap());
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper;
+
+import org.aksw.limes.core.datastrutures.StringDictionary;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the set operations of {@link MappingOperations} against
+ * the former implementations, which probe one mapping link by link. Each
+ * input holds {@code links} links over roughly sqrt(links) sources and the
+ * inputs overlap by half. The 100M configuration needs a heap of about 16GB
+ * for the columnar mappings only; memory mappings of that size are out of
+ * reach for most machines, hence it has to be enabled explicitly, e.g.
+ * {@code -p links=100000000 -p type=columnar}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class MappingOperationsBenchmark {
+
+    @Param({ "1000000", "10000000" })
+    public int links;
+
+    @Param({ "memory", "columnar" })
+    public String type;
+
+    private AMapping map1;
+    private AMapping map2;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringDictionary sources = new StringDictionary();
+        StringDictionary targets = new StringDictionary();
+        if (type.equals("columnar")) {
+            map1 = MappingFactory.createColumnarMapping(sources, targets, links);
+            map2 = MappingFactory.createColumnarMapping(sources, targets, links);
+        } else {
+            map1 = MappingFactory.createDefaultMapping();
+            map2 = MappingFactory.createDefaultMapping();
+        }
+        int width = (int) Math.sqrt(links);
+        Random random = new Random(42);
+        for (int i = 0; i < links; i++) {
+            String s = "http://example.org/s" + (i / width);
+            String t = "http://example.org/t" + (i % width);
+            map1.add(s, t, random.nextDouble());
+            // shift the second mapping by half of its links
+            int j = i + links / 2;
+            map2.add("http://example.org/s" + (j / width), "http://example.org/t" + (j % width),
+                    random.nextDouble());
+        }
+        if (map1 instanceof ColumnarMapping) {
+            // mappers emit sorted mappings, do not measure the sorting
+            map1 = ((ColumnarMapping) map1).sort();
+            map2 = ((ColumnarMapping) map2).sort();
+        }
+    }
+
+    @Benchmark
+    public AMapping union() {
+        return MappingOperations.union(map1, map2);
+    }
+
+    @Benchmark
+    public AMapping unionBaseline() {
+        if (map1 instanceof ColumnarMapping) {
+            ColumnarMapping c2 = (ColumnarMapping) map2;
+            ColumnarMapping result = ((ColumnarMapping) map1).copy();
+            for (int i = 0; i < c2.size(); i++) {
+                result.addIds(c2.getSourceId(i), c2.getTargetId(i), c2.getConfidence(i));
+            }
+            return result;
+        }
+        AMapping map = MappingFactory.createDefaultMapping();
+        for (String key : map1.getMap().keySet()) {
+            for (String value : map1.getMap().get(key).keySet()) {
+                map.add(key, value, map1.getMap().get(key).get(value));
+            }
+        }
+        for (String key : map2.getMap().keySet()) {
+            for (String value : map2.getMap().get(key).keySet()) {
+                map.add(key, value, map2.getMap().get(key).get(value));
+            }
+        }
+        return map;
+    }
+
+    @Benchmark
+    public AMapping intersection() {
+        return MappingOperations.intersection(map1, map2);
+    }
+
+    @Benchmark
+    public AMapping intersectionBaseline() {
+        if (map1 instanceof ColumnarMapping) {
+            ColumnarMapping c1 = (ColumnarMapping) map1;
+            ColumnarMapping c2 = (ColumnarMapping) map2;
+            ColumnarMapping result = MappingFactory.createColumnarMapping(c1.getSourceDictionary(),
+                    c1.getTargetDictionary());
+            for (int i = 0; i < c1.size(); i++) {
+                int index = c2.indexOf(c1.getSourceId(i), c1.getTargetId(i));
+                if (index >= 0) {
+                    result.addIds(c1.getSourceId(i), c1.getTargetId(i),
+                            Math.min(c1.getConfidence(i), c2.getConfidence(index)));
+                }
+            }
+            return result;
+        }
+        AMapping map = MappingFactory.createDefaultMapping();
+        for (String key : map1.getMap().keySet()) {
+            if (map2.getMap().containsKey(key)) {
+                for (String value : map1.getMap().get(key).keySet()) {
+                    if (map2.getMap().get(key).containsKey(value)) {
+                        map.add(key, value,
+                                Math.min(map1.getMap().get(key).get(value), map2.getMap().get(key).get(value)));
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    @Benchmark
+    public AMapping difference() {
+        return MappingOperations.difference(map1, map2);
+    }
+
+    @Benchmark
+    public AMapping differenceBaseline() {
+        if (map1 instanceof ColumnarMapping) {
+            ColumnarMapping c1 = (ColumnarMapping) map1;
+            ColumnarMapping c2 = (ColumnarMapping) map2;
+            ColumnarMapping result = MappingFactory.createColumnarMapping(c1.getSourceDictionary(),
+                    c1.getTargetDictionary());
+            for (int i = 0; i < c1.size(); i++) {
+                if (!c2.containsIds(c1.getSourceId(i), c1.getTargetId(i))) {
+                    result.addIds(c1.getSourceId(i), c1.getTargetId(i), c1.getConfidence(i));
+                }
+            }
+            return result;
+        }
+        AMapping map = MappingFactory.createDefaultMapping();
+        for (String key : map1.getMap().keySet()) {
+            if (map2.getMap().containsKey(key)) {
+                for (String value : map1.getMap().get(key).keySet()) {
+                    if (!map2.getMap().get(key).containsKey(value)) {
+                        map.add(key, value, map1.getMap().get(key).get(value));
+                    }
+                }
+            } else {
+                map.add(key, map1.getMap().get(key));
+            }
+        }
+        return map;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MappingOperationsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
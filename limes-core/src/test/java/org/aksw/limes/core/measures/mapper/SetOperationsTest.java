@@ -17,10 +17,14 @@
  */
 package org.aksw.limes.core.measures.mapper;
 
+import org.aksw.limes.core.datastrutures.StringDictionary;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class SetOperationsTest {
@@ -42,4 +46,63 @@ public class SetOperationsTest {
         //assertTrue(MappingOperations.xor(a, b).size() != 0);
     }
 
+    @Test
+    public void testUnionDoesNotModifyInputs() {
+        AMapping a = MappingFactory.createDefaultMapping();
+        AMapping b = MappingFactory.createDefaultMapping();
+        a.add("a", "x", 0.5);
+        a.add("a", "y", 0.5);
+        a.add("b", "x", 0.5);
+        b.add("a", "z", 0.7);
+        AMapping union = MappingOperations.union(a, b);
+        assertEquals(4, union.size());
+        assertEquals(3, union.getMap().get("a").size());
+        assertEquals(2, a.getMap().get("a").size());
+        assertEquals(1, b.getMap().get("a").size());
+        assertEquals(3, a.size());
+    }
+
+    @Test
+    public void testResultsDoNotShareLinksWithInputs() {
+        AMapping a = MappingFactory.createDefaultMapping();
+        AMapping b = MappingFactory.createDefaultMapping();
+        a.add("a", "x", 0.5);
+        a.add("b", "x", 0.5);
+        b.add("c", "x", 0.7);
+        AMapping union = MappingOperations.union(a, b);
+        AMapping difference = MappingOperations.difference(a, b);
+        union.add("a", "y", 0.5);
+        union.add("c", "y", 0.5);
+        difference.add("b", "y", 0.5);
+        a.add("b", "z", 0.5);
+        assertEquals(1, a.getMap().get("a").size());
+        assertEquals(1, b.getMap().get("c").size());
+        assertEquals(2, a.getMap().get("b").size());
+        assertEquals(1, union.getMap().get("b").size());
+        assertEquals(2, difference.getMap().get("b").size());
+        assertFalse(difference.contains("b", "z"));
+    }
+
+    @Test
+    public void testColumnarInputsAreNotSorted() {
+        StringDictionary sources = new StringDictionary();
+        StringDictionary targets = new StringDictionary();
+        ColumnarMapping a = MappingFactory.createColumnarMapping(sources, targets);
+        ColumnarMapping b = MappingFactory.createColumnarMapping(sources, targets);
+        a.add("a", "z", 0.5);
+        a.add("c", "c", 0.5);
+        a.add("a", "d", 0.5);
+        b.add("a", "d", 0.7);
+        b.add("b", "y", 0.7);
+        assertFalse(a.isSorted());
+        AMapping union = MappingOperations.union(a, b);
+        assertEquals(4, union.size());
+        assertEquals(0.7, union.getConfidence("a", "d"), 0d);
+        assertEquals(1, MappingOperations.intersection(a, b).size());
+        assertEquals(2, MappingOperations.difference(a, b).size());
+        assertFalse(a.isSorted());
+        assertEquals("c", a.getSourceUri(1));
+        assertEquals(3, a.size());
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.phonetic;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.bruteForce;
+import static org.junit.Assert.assertEquals;
+
+public class PhoneticMapperTest {
+
+    private static final String[] NAMES = { "Robert", "Rupert", "Rubin", "Ashcraft", "Ashcroft", "Tymczak",
+            "Pfister", "Honeyman", "Smith", "Smyth", "Schmidt", "Meyer", "Maier", "Mayer", "Miller", "Muller",
+            "Catherine", "Kathryn", "Thompson", "Thomson", "Jackson", "Jaxon", "Knight", "Night", "Philips",
+            "Fillips", "Lee", "Leigh", "Müller", "" };
+
+    @Test
+    public void testMappingEqualsBruteForce() {
+        Random random = new Random(42);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 300; i++) {
+            source.addTriple("ex:s" + i, "name", randomName(random));
+            if (random.nextInt(5) == 0) {
+                source.addTriple("ex:s" + i, "name", randomName(random));
+            }
+            target.addTriple("ex:t" + i, "label", randomName(random));
+        }
+        List<APhoneticMapper> mappers = Arrays.asList(new SoundexMapper(), new RefinedSoundexMapper(),
+                new NysiisMapper(), new MetaPhoneMapper(), new DoubleMetaPhoneMapper(), new KoelnPhoneticMapper(),
+                new Caverphone1Mapper(), new Caverphone2Mapper(), new DaitchMokotoffMapper(),
+                new MatchRatingMapper());
+        for (APhoneticMapper mapper : mappers) {
+            for (double threshold : new double[] { 0.5, 0.75, 1.0 }) {
+                AMapping mapping = mapper.getMapping(source, target, "?x", "?y",
+                        mapper.getName() + "(x.name, y.label)", threshold);
+                int maxDistance = mapper.getMaxDistance(threshold);
+                // the distance bounds the links, their similarity may be lower than the threshold
+                assertMapping(mapper.getName() + " " + threshold, bruteForce(source, "name", target, "label",
+                        (a, b) -> similarity(mapper, maxDistance, a, b), Double.NEGATIVE_INFINITY), mapping);
+            }
+        }
+    }
+
+    @Test
+    public void testExactMatch() {
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        source.addTriple("ex:s1", "name", "Robert");
+        source.addTriple("ex:s2", "name", "Tymczak");
+        target.addTriple("ex:t1", "name", "Rupert");
+        target.addTriple("ex:t2", "name", "Rubin");
+        AMapping mapping = new SoundexMapper().getMapping(source, target, "?x", "?y", "soundex(x.name, y.name)",
+                1.0);
+        assertEquals(1, mapping.size());
+        assertEquals(1.0d, mapping.getConfidence("ex:s1", "ex:t1"), 0d);
+    }
+
+    private double similarity(APhoneticMapper mapper, int maxDistance, String a, String b) {
+        String x = a.isEmpty() ? null : mapper.getCode(a);
+        String y = b.isEmpty() ? null : mapper.getCode(b);
+        if (x == null || y == null || x.isEmpty() || x.length() != y.length()) {
+            return Double.NaN;
+        }
+        int distance = 0;
+        for (int i = 0; i < x.length(); i++) {
+            if (x.charAt(i) != y.charAt(i)) {
+                distance++;
+            }
+        }
+        return distance <= maxDistance ? mapper.getSimilarity(distance) : Double.NaN;
+    }
+
+    private String randomName(Random random) {
+        String name = NAMES[random.nextInt(NAMES.length)];
+        if (random.nextBoolean() && name.length() > 2) {
+            // replace a letter to spread the codes
+            int i = random.nextInt(name.length());
+            name = name.substring(0, i) + (char) ('a' + random.nextInt(26)) + name.substring(i + 1);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.pointsets;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.measure.MeasureType;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.GranularityModifier;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.IPolygonModifier;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.MeasurementErrorModifier;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.borderModifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the candidate strategies of {@link GeoHR3}, the grid
+ * against the STR-tree over the target envelopes, on polygons distorted by
+ * the benchmarking modifiers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeoHR3Benchmark {
+
+    @Param({ "measurementError", "granularity", "border" })
+    public String modifier;
+
+    @Param({ "GRID", "STR_TREE" })
+    public GeoHR3.CandidateStrategy strategy;
+
+    @Param({ "1000", "10000" })
+    public int size;
+
+    @Param({ "2" })
+    public float distanceThreshold;
+
+    private Set<Polygon> source;
+    private Set<Polygon> target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        IPolygonModifier polygonModifier;
+        double threshold;
+        switch (modifier) {
+            case "granularity":
+                polygonModifier = new GranularityModifier();
+                threshold = 0.5;
+                break;
+            case "border":
+                polygonModifier = new borderModifier();
+                threshold = 0.5;
+                break;
+            default:
+                polygonModifier = new MeasurementErrorModifier();
+                threshold = 0.005;
+        }
+        source = GeoHR3Test.createPolygons(new Random(7), size);
+        target = polygonModifier.modifySet(source, threshold);
+    }
+
+    @Benchmark
+    public AMapping run() {
+        GeoHR3 geoHR3 = new GeoHR3(distanceThreshold, GeoHR3.DEFAULT_GRANULARITY, MeasureType.GEO_NAIVE_HAUSDORFF);
+        geoHR3.strategy = strategy;
+        return geoHR3.run(source, target);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GeoHR3Benchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.pointsets;
+
+import org.aksw.limes.core.datastrutures.Point;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.measure.MeasureType;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.GranularityModifier;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.IPolygonModifier;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.MeasurementErrorModifier;
+import org.aksw.limes.core.measures.measure.pointsets.benchmarking.borderModifier;
+import org.aksw.limes.core.util.ComputePool;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeoHR3Test {
+
+    private static final float DISTANCE_THRESHOLD = 2f;
+
+    /**
+     * Creates small circular polygons, some of which are close to the poles
+     * and to the 180th meridian.
+     */
+    static Set<Polygon> createPolygons(Random random, int size) {
+        Set<Polygon> polygons = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            double lat = i % 10 == 0 ? 84 + random.nextDouble() : random.nextDouble() * 160 - 80;
+            double lon = i % 10 == 1 ? 179.97 + random.nextDouble() * 0.06 : random.nextDouble() * 360 - 180;
+            List<Point> points = new ArrayList<>();
+            int count = 3 + random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                double angle = 2 * Math.PI * j / count;
+                double pointLon = lon + 0.01 * Math.cos(angle);
+                if (pointLon >= 180) {
+                    pointLon -= 360;
+                }
+                points.add(new Point("p" + j, Arrays.asList(lat + 0.01 * Math.sin(angle), pointLon)));
+            }
+            polygons.add(new Polygon("http://example.com/polygon" + i, points));
+        }
+        return polygons;
+    }
+
+    private AMapping run(Set<Polygon> source, Set<Polygon> target, GeoHR3.CandidateStrategy strategy) {
+        GeoHR3 geoHR3 = new GeoHR3(DISTANCE_THRESHOLD, GeoHR3.DEFAULT_GRANULARITY,
+                MeasureType.GEO_NAIVE_HAUSDORFF);
+        geoHR3.strategy = strategy;
+        return geoHR3.run(source, target);
+    }
+
+    @Test
+    public void testEnvelopeIndexFindsGridLinks() {
+        Random random = new Random(7);
+        Set<Polygon> source = createPolygons(random, 500);
+        IPolygonModifier[] modifiers = { new MeasurementErrorModifier(), new GranularityModifier(),
+                new borderModifier() };
+        double[] thresholds = { 0.005, 0.5, 0.5 };
+        for (int i = 0; i < modifiers.length; i++) {
+            Set<Polygon> target = modifiers[i].modifySet(source, thresholds[i]);
+            AMapping grid = run(source, target, GeoHR3.CandidateStrategy.GRID);
+            AMapping tree = run(source, target, GeoHR3.CandidateStrategy.STR_TREE);
+            assertTrue(grid.size() > 0);
+            // the envelope expansion is exact, while the grid may miss pairs
+            // across the 180th meridian, thus the tree finds at least the
+            // links of the grid
+            grid.forEachLink((s, t, similarity) -> assertTrue(tree.contains(s, t)));
+        }
+    }
+
+    @Test
+    public void testParallelismDoesNotChangeMapping() {
+        Random random = new Random(11);
+        Set<Polygon> source = createPolygons(random, 500);
+        Set<Polygon> target = new MeasurementErrorModifier().modifySet(source, 0.005);
+        int parallelism = ComputePool.getParallelism();
+        try {
+            for (MeasureType measure : new MeasureType[] { MeasureType.GEO_NAIVE_HAUSDORFF,
+                    MeasureType.GEO_FRECHET }) {
+                ComputePool.setParallelism(1);
+                AMapping sequential = new GeoHR3(DISTANCE_THRESHOLD, GeoHR3.DEFAULT_GRANULARITY, measure)
+                        .run(source, target);
+                ComputePool.setParallelism(4);
+                AMapping parallel = new GeoHR3(DISTANCE_THRESHOLD, GeoHR3.DEFAULT_GRANULARITY, measure)
+                        .run(source, target);
+                assertTrue(sequential.size() > 0);
+                assertEquals(sequential, parallel);
+            }
+        } finally {
+            ComputePool.setParallelism(parallelism);
+        }
+    }
+
+    @Test
+    public void testEnvelopeIndexWrapsAround180thMeridian() {
+        Polygon east = new Polygon("east", Arrays.asList(new Point("e", Arrays.asList(10d, 179.995))));
+        Polygon west = new Polygon("west", Arrays.asList(new Point("w", Arrays.asList(10d, -179.995))));
+        PolygonEnvelopeIndex index = new PolygonEnvelopeIndex(Arrays.asList(west));
+        List<Polygon> candidates = new ArrayList<>();
+        index.query(east, DISTANCE_THRESHOLD, candidates::add);
+        assertEquals(Arrays.asList(west), candidates);
+        candidates.clear();
+        index.query(east, 0.1, candidates::add);
+        assertTrue(candidates.isEmpty());
+    }
+}
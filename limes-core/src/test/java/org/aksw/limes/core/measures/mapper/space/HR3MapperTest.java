@@ -0,0 +1,68 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.space;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.measure.space.EuclideanMeasure;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.bruteForce;
+
+public class HR3MapperTest {
+
+    private static final String[] PROPERTIES = { "a", "b", "c" };
+
+    @Test
+    public void testEuclideanEqualsBruteForce() {
+        for (int dimensions = 1; dimensions <= 3; dimensions++) {
+            Random random = new Random(dimensions);
+            ACache source = new MemoryCache();
+            ACache target = new MemoryCache();
+            for (int i = 0; i < 300; i++) {
+                for (int d = 0; d < dimensions; d++) {
+                    double value = (random.nextInt(2000) - 1000) / 100d;
+                    source.addTriple("ex:s" + i, PROPERTIES[d], "" + value);
+                    // every other target lies close to a source
+                    if (i % 2 == 1) {
+                        value = (random.nextInt(2000) - 1000) / 100d;
+                    }
+                    target.addTriple("ex:t" + i, PROPERTIES[d], "" + (value + random.nextInt(5) / 100d));
+                }
+            }
+            // several values per property and values that are no numbers
+            source.addTriple("ex:s0", "a", "1.5");
+            source.addTriple("ex:s1", "a", "foo");
+            String properties = String.join("|", Arrays.copyOf(PROPERTIES, dimensions));
+            EuclideanMeasure measure = new EuclideanMeasure();
+            measure.setDimension(dimensions);
+            AMapping all = bruteForce(source, target,
+                    (s, t) -> measure.getSimilarity(s, t, properties, properties), 0.5);
+            for (double threshold : new double[] { 0.5, 0.8, 0.95 }) {
+                AMapping mapping = new HR3Mapper().getMapping(source, target, "?x", "?y",
+                        "euclidean(x." + properties + ", y." + properties + ")", threshold);
+                assertMapping(all, threshold, mapping);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.bruteForce;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.mutate;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.randomLabel;
+import static org.junit.Assert.assertEquals;
+
+public class EDJoinMapperTest {
+
+    @Test
+    public void testBoundedEditDistance() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            String x = randomLabel(random);
+            String y = random.nextBoolean() ? randomLabel(random) : mutate(x, random);
+            int ed = EDJoinMapper.editDistance(x, y);
+            for (int max = 0; max <= 4; max++) {
+                assertEquals(x + " " + y + " " + max, Math.min(ed, max + 1), EDJoinMapper.editDistance(x, y, max));
+            }
+        }
+        assertEquals(3, EDJoinMapper.editDistance("kitten", "sitting", 3));
+        assertEquals(3, EDJoinMapper.editDistance("", "abc", 5));
+    }
+
+    @Test
+    public void testMappingEqualsBruteForce() {
+        Random random = new Random(42);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 400; i++) {
+            String label = randomLabel(random);
+            source.addTriple("ex:s" + i, "label", label);
+            if (random.nextInt(5) == 0) {
+                // some instances have several values
+                source.addTriple("ex:s" + i, "label", randomLabel(random));
+            }
+            target.addTriple("ex:t" + i, "name", random.nextBoolean() ? mutate(label, random) : randomLabel(random));
+        }
+        AMapping all = bruteForce(source, "label", target, "name", EDJoinMapperTest::similarity, 0.25);
+        for (double threshold : new double[] { 0.25, 0.3, 0.4, 0.5, 0.8 }) {
+            AMapping mapping = new EDJoinMapper().getMapping(source, target, "?x", "?y",
+                    "levenshtein(x.label, y.name)", threshold);
+            assertMapping(all, threshold, mapping);
+        }
+    }
+
+    @Test
+    public void testPartitionedMapping() {
+        // enough source values to be probed by several tasks
+        Random random = new Random(7);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 2100; i++) {
+            String label = randomLabel(random);
+            source.addTriple("ex:s" + i, "label", label);
+            target.addTriple("ex:t" + i, "label", mutate(label, random));
+        }
+        AMapping mapping = new EDJoinMapper().getMapping(source, target, "?x", "?y",
+                "levenshtein(x.label, y.label)", 0.3);
+        assertMapping(bruteForce(source, "label", target, "label", EDJoinMapperTest::similarity, 0.3), 0.3, mapping);
+    }
+
+    private static double similarity(String x, String y) {
+        return x.isEmpty() || y.isEmpty() ? 0 : 1.0 / (1 + EDJoinMapper.editDistance(x, y));
+    }
+}
@@ -20,21 +20,31 @@ package org.aksw.limes.core.measures.mapper.string;
 
 import org.aksw.commons.util.Pair;
 import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.FileCache;
 import org.aksw.limes.core.io.cache.MemoryCache;
 import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.ColumnarMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.measures.mapper.IMapper;
 import org.aksw.limes.core.util.RandomStringGenerator;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ExactMatchMapperTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void test() {
         int size = 1000;
@@ -52,6 +62,9 @@ public class ExactMatchMapperTest {
         ACache source = caches.getKey();
         ACache target = caches.getValue();
         AMapping mapping = mapper.getMapping(source, target, property, property, expression, threshold);
+        // the links are interned into the uri dictionaries of the caches
+        assertTrue(((ColumnarMapping) mapping)
+                .hasSameDictionaries(MappingFactory.createColumnarMapping(source, target)));
         assertEquals(mapping.getMap().keySet(), new HashSet<>(matchingValues.getAllUris()));
         for (String s : mapping.getMap().keySet()) {
             HashMap<String, Double> map = mapping.getMap().get(s);
@@ -65,6 +78,46 @@ public class ExactMatchMapperTest {
 
     }
 
+    @Test
+    public void testFileCache() throws IOException {
+        ACache source = new MemoryCache();
+        ACache memoryTarget = new MemoryCache();
+        FileCache target = new FileCache(folder.newFolder("cache"), 10);
+        for (int i = 0; i < 500; i++) {
+            source.addTriple("ex:s" + i, "id", "Q" + (i % 300));
+            memoryTarget.addTriple("ex:t" + i, "id", "Q" + (i * 2));
+            target.addTriple("ex:t" + i, "id", "Q" + (i * 2));
+        }
+        AMapping expected = new ExactMatchMapper().getMapping(source, memoryTarget, "?x", "?y",
+                "exactmatch(x.id, y.id)", 1.0);
+        AMapping mapping = new ExactMatchMapper().getMapping(source, target, "?x", "?y", "exactmatch(x.id, y.id)",
+                1.0);
+        assertEquals(250, expected.size());
+        assertEquals(expected.getMap(), mapping.getMap());
+        target.close();
+    }
+
+    @Test
+    public void testFileCacheKeepsIteratorPosition() throws IOException {
+        ACache source = new MemoryCache();
+        FileCache target = new FileCache(folder.newFolder("cache"), 10);
+        for (int i = 0; i < 100; i++) {
+            source.addTriple("ex:s" + i, "id", "Q" + i);
+            target.addTriple("ex:t" + i, "id", "Q" + i);
+        }
+        target.resetIterator();
+        String first = target.getNextInstance().getUri();
+        String second = target.getNextInstance().getUri();
+        target.resetIterator();
+        target.getNextInstance();
+        AMapping mapping = new ExactMatchMapper().getMapping(source, target, "?x", "?y", "exactmatch(x.id, y.id)",
+                1.0);
+        assertEquals(100, mapping.size());
+        assertEquals(second, target.getNextInstance().getUri());
+        assertEquals("ex:t0", first);
+        target.close();
+    }
+
     private Pair<ACache, ACache> fillRandomCachePairMatching(String sourcePrefix, String targetPrefix,
                                                              String property, int size) {
         RandomStringGenerator rsg = new RandomStringGenerator(5, 20);
@@ -26,9 +26,13 @@ import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
+
 public class JaroMapperTest extends JaroMapper {
 
     @Test
@@ -37,6 +41,56 @@ public class JaroMapperTest extends JaroMapper {
         deduplicationTest(jm, 1000, 1.0);
     }
 
+    @Test
+    public void testMappingEqualsBruteForce() {
+        Random random = new Random(42);
+        Map<String, Set<String>> sourceMap = new HashMap<>();
+        Map<String, Set<String>> targetMap = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String label = randomLabel(random);
+            sourceMap.computeIfAbsent(label, k -> new HashSet<>()).add(label);
+            label = random.nextBoolean() ? mutate(label, random) : randomLabel(random);
+            targetMap.computeIfAbsent(label, k -> new HashSet<>()).add(label);
+        }
+        AMapping all = bruteForce(sourceMap, targetMap, 0.3);
+        for (double threshold : new double[] { 0.3, 0.6, 0.7, 0.8, 0.9, 1.0 }) {
+            AMapping mapping = new JaroMapper().getMapping(sourceMap, targetMap, threshold);
+            assertEquals("" + threshold, all.getSubMap(threshold).getMap(), mapping.getMap());
+        }
+    }
+
+    @Test
+    public void testSimilarityEqualsCommonCharacters() {
+        Random random = new Random(7);
+        JaroMeasure measure = new JaroMeasure();
+        for (int i = 0; i < 2000; i++) {
+            String a = randomLabel(random);
+            String b = random.nextBoolean() ? mutate(a, random) : randomLabel(random);
+            int halfLength = Math.min(a.length(), b.length()) / 2;
+            List<Character> common1 = JaroMeasure.getCommonCharacters(a, b, halfLength);
+            List<Character> common2 = JaroMeasure.getCommonCharacters(b, a, halfLength);
+            int transpositions = JaroMeasure.getTranspositions(common1, common2);
+            float expected = transpositions == -1 ? 0f
+                    : (common1.size() / ((float) a.length()) + common2.size() / ((float) b.length())
+                            + (common1.size() - transpositions) / ((float) common1.size())) / 3.0f;
+            assertEquals(a + " " + b, expected, measure.getSimilarity(a, b), 0d);
+        }
+    }
+
+    private String randomLabel(Random random) {
+        StringBuilder label = new StringBuilder();
+        for (int i = 1 + random.nextInt(14); i > 0; i--) {
+            label.append((char) ('a' + random.nextInt(8)));
+        }
+        return label.toString();
+    }
+
+    private String mutate(String label, Random random) {
+        int i = random.nextInt(label.length());
+        return label.substring(0, i) + (char) ('a' + random.nextInt(8)) + label.substring(i + 1)
+                + (random.nextBoolean() ? "h" : "");
+    }
+
     /**
      * Returns the set of characters contained in a string
      *
@@ -0,0 +1,96 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.measure.string.TrigramMeasure;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.bruteForce;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.mutate;
+import static org.junit.Assert.assertEquals;
+
+public class MongeElkanMapperTest {
+
+    private static final String[] WORDS = { "link", "discovery", "framework", "metric", "spaces", "linked",
+            "data", "dataset", "sets", "time", "efficient", "approach", "large", "scale", "semantic", "web",
+            "learning", "learned", "geo", "spatial", "a", "of", "the", "" };
+
+    private static final TrigramMeasure TRIGRAM = new TrigramMeasure();
+
+    @Test
+    public void testMappingEqualsBruteForce() {
+        Random random = new Random(42);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 600; i++) {
+            String label = randomText(random);
+            source.addTriple("ex:s" + i, "label", label);
+            target.addTriple("ex:t" + i, "title", random.nextBoolean() ? mutate(label, random) : randomText(random));
+        }
+        source.addTriple("ex:s600", "label", "");
+        target.addTriple("ex:t600", "title", "  ");
+        AMapping all = bruteForce(source, "label", target, "title", MongeElkanMapperTest::similarity, 0.3);
+        for (double threshold : new double[] { 0.3, 0.5, 0.7, 0.9, 1.0 }) {
+            AMapping mapping = new MongeElkanMapper().getMapping(source, target, "?x", "?y",
+                    "mongeelkan(x.label, y.title)", threshold);
+            assertMapping(all, threshold, mapping);
+        }
+    }
+
+    @Test
+    public void testMapping() {
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        source.addTriple("ex:s1", "label", "link discovery");
+        target.addTriple("ex:t1", "label", "discovery of links");
+        target.addTriple("ex:t2", "label", "time series");
+        AMapping mapping = new MongeElkanMapper().getMapping(source, target, "?x", "?y",
+                "mongeelkan(x.label, y.label)", 0.5);
+        assertEquals(1, mapping.size());
+        // link and links share 4 of 9 trigrams: (4 / 9 + 1) / 2
+        assertEquals(13d / 18d, mapping.getConfidence("ex:s1", "ex:t1"), 1e-12);
+    }
+
+    private static double similarity(String a, String b) {
+        String[] x = a.split(" ");
+        String[] y = b.split(" ");
+        double sum = 0;
+        for (String tokenA : x) {
+            double max = 0;
+            for (String tokenB : y) {
+                max = Math.max(max, TRIGRAM.getSimilarity(tokenA, tokenB));
+            }
+            sum += max;
+        }
+        return x.length == 0 ? 0 : sum / x.length;
+    }
+
+    private String randomText(Random random) {
+        StringBuilder text = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        for (int i = random.nextInt(5); i > 0; i--) {
+            text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
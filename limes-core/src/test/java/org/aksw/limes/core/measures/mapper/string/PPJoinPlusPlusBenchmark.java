@@ -0,0 +1,92 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.datastrutures.PairSimilar;
+import org.aksw.limes.core.evaluation.evaluationDataLoader.DataSetChooser;
+import org.aksw.limes.core.evaluation.evaluationDataLoader.DataSetChooser.DataSets;
+import org.aksw.limes.core.evaluation.evaluationDataLoader.EvaluationData;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link PPJoinPlusPlus} joining the source with the target
+ * values against self-joining the concatenated values, on the first string
+ * property pair of the bundled evaluation datasets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PPJoinPlusPlusBenchmark {
+
+    @Param({ "ABTBUY", "AMAZONGOOGLEPRODUCTS", "DBLPACM", "DBLPSCHOLAR" })
+    public String dataset;
+
+    @Param({ "jaccard", "cosine", "overlap" })
+    public String measure;
+
+    @Param({ "0.5", "0.8" })
+    public double threshold;
+
+    @Param({ "join", "selfjoin" })
+    public String mode;
+
+    private ACache source;
+    private ACache target;
+    private String expression;
+    private PPJoinPlusPlus mapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EvaluationData data = DataSetChooser.getData(DataSets.valueOf(dataset));
+        source = data.getSourceCache();
+        target = data.getTargetCache();
+        PairSimilar<String> properties = data.getPropertyMapping().stringPropPairs.get(0);
+        expression = measure + "(x." + properties.a + ", y." + properties.b + ")";
+        mapper = new PPJoinPlusPlus(mode.equals("selfjoin"));
+    }
+
+    @Benchmark
+    public AMapping getMapping() {
+        return mapper.getMapping(source, target, "?x", "?y", expression, threshold);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PPJoinPlusPlusBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PPJoinPlusPlusTest {
+
+    @Test
+    public void testJoinEqualsSelfJoin() {
+        Random random = new Random(42);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 300; i++) {
+            source.addTriple("ex:s" + i, "label", randomTokens(random));
+            if (random.nextInt(5) == 0) {
+                // some instances have several values
+                source.addTriple("ex:s" + i, "label", randomTokens(random));
+            }
+            target.addTriple("ex:t" + i, "name", randomTokens(random));
+        }
+        for (String measure : new String[] { "jaccard", "cosine", "overlap" }) {
+            for (double threshold : new double[] { 0.3, 0.5, 0.8 }) {
+                String expression = measure + "(x.label, y.name)";
+                AMapping selfJoin = new PPJoinPlusPlus(true).getMapping(source, target, "?x", "?y", expression,
+                        threshold);
+                AMapping join = new PPJoinPlusPlus().getMapping(source, target, "?x", "?y", expression, threshold);
+                assertMapping(selfJoin, threshold, join);
+            }
+        }
+    }
+
+    @Test
+    public void testPartitionedJoin() {
+        // enough source values to be probed by several tasks
+        Random random = new Random(7);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 5000; i++) {
+            source.addTriple("ex:s" + i, "label", randomTokens(random));
+            target.addTriple("ex:t" + i, "label", randomTokens(random));
+        }
+        String expression = "jaccard(x.label, y.label)";
+        AMapping selfJoin = new PPJoinPlusPlus(true).getMapping(source, target, "?x", "?y", expression, 0.6);
+        AMapping join = new PPJoinPlusPlus().getMapping(source, target, "?x", "?y", expression, 0.6);
+        assertMapping(selfJoin, 0.6, join);
+    }
+
+    @Test
+    public void testNoLinksWithinDataset() {
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        source.addTriple("ex:s1", "label", "leipzig university");
+        source.addTriple("ex:s2", "label", "leipzig university");
+        target.addTriple("ex:t1", "label", "university leipzig");
+        target.addTriple("ex:t2", "label", "paderborn university");
+        AMapping mapping = new PPJoinPlusPlus().getMapping(source, target, "?x", "?y",
+                "jaccard(x.label, y.label)", 0.9);
+        assertEquals(2, mapping.size());
+        assertTrue(mapping.contains("ex:s1", "ex:t1"));
+        assertTrue(mapping.contains("ex:s2", "ex:t1"));
+    }
+
+    private String randomTokens(Random random) {
+        int tokens = 1 + random.nextInt(8);
+        StringBuilder label = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            if (i > 0) {
+                label.append(' ');
+            }
+            // skewed token frequencies as in natural language labels
+            label.append("w").append((int) Math.abs(random.nextGaussian() * 10) % 40);
+        }
+        return label.toString();
+    }
+}
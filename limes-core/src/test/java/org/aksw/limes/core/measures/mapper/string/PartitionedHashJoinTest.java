@@ -0,0 +1,100 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PartitionedHashJoinTest {
+
+    @Test
+    public void testJoinWithAndWithoutSpilling() {
+        // a budget of a few bytes spills every pair
+        for (long budget : new long[] { Long.MAX_VALUE, 4096, 1 }) {
+            for (boolean buildIsSource : new boolean[] { true, false }) {
+                AMapping expected = MappingFactory.createDefaultMapping();
+                AMapping mapping;
+                try (PartitionedHashJoin join = new PartitionedHashJoin(8, budget, buildIsSource)) {
+                    Random random = new Random(42);
+                    String[] sourceValues = new String[2000];
+                    String[] targetValues = new String[3000];
+                    for (int i = 0; i < sourceValues.length; i++) {
+                        sourceValues[i] = "Q" + random.nextInt(2500) + "ä";
+                        add(join, buildIsSource, true, sourceValues[i], "ex:s" + i);
+                    }
+                    for (int i = 0; i < targetValues.length; i++) {
+                        targetValues[i] = "Q" + random.nextInt(2500) + "ä";
+                        add(join, buildIsSource, false, targetValues[i], "ex:t" + i);
+                    }
+                    for (int i = 0; i < sourceValues.length; i++) {
+                        for (int j = 0; j < targetValues.length; j++) {
+                            if (sourceValues[i].equals(targetValues[j])) {
+                                expected.add("ex:s" + i, "ex:t" + j, 1d);
+                            }
+                        }
+                    }
+                    mapping = join.join();
+                }
+                assertEquals(budget + " " + buildIsSource, expected.getMap(), mapping.getMap());
+            }
+        }
+    }
+
+    @Test
+    public void testRepartitionsOversizedBuildSides() {
+        // a budget of a few pairs per table forces the build sides to be
+        // partitioned again, down to the maximal depth for the skewed value
+        for (long budget : new long[] { 4096, 64 * 1024 }) {
+            AMapping expected = MappingFactory.createDefaultMapping();
+            AMapping mapping;
+            try (PartitionedHashJoin join = new PartitionedHashJoin(2, budget, true)) {
+                for (int i = 0; i < 2000; i++) {
+                    String value = i < 100 ? "skewed" : "Q" + i;
+                    join.addBuild(value, "ex:s" + i);
+                    if (i % 3 == 0) {
+                        join.addProbe(value, "ex:t" + i);
+                    }
+                }
+                for (int i = 0; i < 2000; i += 3) {
+                    if (i < 100) {
+                        for (int j = 0; j < 100; j++) {
+                            expected.add("ex:s" + j, "ex:t" + i, 1d);
+                        }
+                    } else {
+                        expected.add("ex:s" + i, "ex:t" + i, 1d);
+                    }
+                }
+                mapping = join.join();
+            }
+            assertEquals("" + budget, expected.getMap(), mapping.getMap());
+        }
+    }
+
+    private void add(PartitionedHashJoin join, boolean buildIsSource, boolean source, String value, String uri) {
+        if (buildIsSource == source) {
+            join.addBuild(value, uri);
+        } else {
+            join.addProbe(value, uri);
+        }
+    }
+}
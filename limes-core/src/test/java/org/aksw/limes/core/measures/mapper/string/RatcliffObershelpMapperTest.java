@@ -0,0 +1,67 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.mapper.IMapper.Language;
+import org.aksw.limes.core.measures.measure.string.RatcliffObershelpMeasure;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.bruteForce;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.mutate;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.randomLabel;
+import static org.junit.Assert.assertTrue;
+
+public class RatcliffObershelpMapperTest {
+
+    @Test
+    public void testMappingEqualsBruteForce() {
+        Random random = new Random(42);
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        for (int i = 0; i < 400; i++) {
+            String label = randomLabel(random);
+            source.addTriple("ex:s" + i, "label", label);
+            target.addTriple("ex:t" + i, "label", random.nextBoolean() ? mutate(label, random) : randomLabel(random));
+        }
+        // the measure ignores the case
+        source.addTriple("ex:s400", "label", "Link Discovery");
+        target.addTriple("ex:t400", "label", "LINK DISCOVERY");
+        AMapping all = bruteForce(source, "label", target, "label", new RatcliffObershelpMeasure()::proximity, 0.3);
+        for (double threshold : new double[] { 0.3, 0.5, 0.7, 0.9, 1.0 }) {
+            AMapping mapping = new RatcliffObershelpMapper().getMapping(source, target, "?x", "?y",
+                    "ratcliff-obershelp(x.label, y.label)", threshold);
+            assertMapping(all, threshold, mapping);
+        }
+    }
+
+    @Test
+    public void testRuntimeApproximationIsPositive() {
+        RatcliffObershelpMapper mapper = new RatcliffObershelpMapper();
+        for (double threshold : new double[] { 0.5, 0.9, 1.0 }) {
+            assertTrue(mapper.getRuntimeApproximation(10, 10, threshold, Language.EN) > 0);
+        }
+        assertTrue(mapper.getRuntimeApproximation(4000, 4000, 0.5, Language.EN)
+                > mapper.getRuntimeApproximation(500, 500, 0.5, Language.EN));
+    }
+}
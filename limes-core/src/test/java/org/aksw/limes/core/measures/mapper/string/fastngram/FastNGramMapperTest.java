@@ -0,0 +1,88 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.string.fastngram;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.measure.string.QGramSimilarityMeasure;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.assertMapping;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.bruteForce;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.mutate;
+import static org.aksw.limes.core.measures.mapper.MapperTestUtil.randomLabel;
+import static org.junit.Assert.assertEquals;
+
+public class FastNGramMapperTest {
+
+    @Test
+    public void testComputeEqualsBruteForce() {
+        Random random = new Random(42);
+        Set<String> source = new HashSet<>();
+        Set<String> target = new HashSet<>();
+        // enough source strings to be probed by several tasks
+        while (source.size() < 2100) {
+            String label = randomLabel(random);
+            source.add(label);
+            target.add(random.nextBoolean() ? mutate(label, random) : randomLabel(random));
+        }
+        // the strings are linked themselves, so they serve as URIs
+        ACache sourceCache = new MemoryCache();
+        ACache targetCache = new MemoryCache();
+        NGramTokenizer tokenizer = new NGramTokenizer();
+        Map<String, Set<String>> tokens = new HashMap<>();
+        for (String s : source) {
+            sourceCache.addTriple(s, "label", s);
+            tokens.put(s, tokenizer.tokenize(s, 3));
+        }
+        for (String t : target) {
+            targetCache.addTriple(t, "label", t);
+            tokens.put(t, tokenizer.tokenize(t, 3));
+        }
+        QGramSimilarityMeasure measure = new QGramSimilarityMeasure();
+        AMapping all = bruteForce(sourceCache, "label", targetCache, "label",
+                (s, t) -> measure.getSimilarity(tokens.get(s), tokens.get(t)), 0.3);
+        for (double threshold : new double[] { 0.3, 0.5, 0.8, 1.0 }) {
+            assertMapping(all, threshold, FastNGramMapper.compute(source, target, 3, threshold));
+        }
+    }
+
+    @Test
+    public void testMapping() {
+        ACache source = new MemoryCache();
+        ACache target = new MemoryCache();
+        source.addTriple("ex:s1", "label", "leipzig");
+        source.addTriple("ex:s2", "label", "leipzig");
+        source.addTriple("ex:s3", "label", "paderborn");
+        target.addTriple("ex:t1", "name", "leipzig");
+        target.addTriple("ex:t2", "name", "leipzik");
+        target.addTriple("ex:t3", "name", "dresden");
+        AMapping mapping = new FastNGramMapper().getMapping(source, target, "?x", "?y", "qgrams(x.label, y.name)",
+                0.5);
+        assertEquals(4, mapping.size());
+        assertEquals(1.0, mapping.getConfidence("ex:s1", "ex:t1"), 0.0);
+        assertEquals(0.5, mapping.getConfidence("ex:s2", "ex:t2"), 1e-9);
+    }
+}
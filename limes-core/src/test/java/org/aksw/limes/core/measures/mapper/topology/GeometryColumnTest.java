@@ -0,0 +1,94 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.mapper.topology;
+
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.io.mapping.MappingFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class GeometryColumnTest {
+
+    private ACache createSource() {
+        ACache s = new MemoryCache();
+        s.addTriple("http://test.com/s/#1", "asWKT", "POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0))");
+        s.addTriple("http://test.com/s/#2", "asWKT", "POLYGON ((20 20, 20 30, 30 30, 30 20, 20 20))");
+        s.addTriple("http://test.com/s/#3", "asWKT", "not a geometry");
+        return s;
+    }
+
+    private ACache createTarget() {
+        ACache t = new MemoryCache();
+        t.addTriple("http://test.com/t/#1", "asWKT", "POLYGON ((-1 -1, -1 11, 11 11, 11 -1, -1 -1))");
+        t.addTriple("http://test.com/t/#2", "asWKT", "POLYGON ((25 25, 25 40, 40 40, 40 25, 25 25))");
+        return t;
+    }
+
+    @Test
+    public void testColumnIsKeptUntilCacheChanges() {
+        ACache s = createSource();
+        GeometryColumn column = GeometryColumn.of(s, "asWKT");
+        // the malformed geometry is skipped
+        assertEquals(2, column.size());
+        assertSame(column, GeometryColumn.of(s, "asWKT"));
+        assertSame(column.getPreparedGeometry(0), column.getPreparedGeometry(0));
+        s.addTriple("http://test.com/s/#4", "asWKT", "POLYGON ((1 1, 1 2, 2 2, 2 1, 1 1))");
+        GeometryColumn changed = GeometryColumn.of(s, "asWKT");
+        assertNotSame(column, changed);
+        assertEquals(3, changed.size());
+    }
+
+    @Test
+    public void testRelationsShareCandidates() {
+        ACache s = createSource();
+        ACache t = createTarget();
+        AMapping within = RADON.getMapping(s, t, "?x", "?y", "top_within(x.asWKT, y.asWKT)", 1.0d, RADON.WITHIN);
+        RADON.Candidates candidates = RADON.getCandidates(GeometryColumn.of(s, "asWKT"),
+                GeometryColumn.of(t, "asWKT"));
+        AMapping intersects = RADON.getMapping(s, t, "?x", "?y", "top_intersects(x.asWKT, y.asWKT)", 1.0d,
+                RADON.INTERSECTS);
+        assertSame(candidates, RADON.getCandidates(GeometryColumn.of(s, "asWKT"), GeometryColumn.of(t, "asWKT")));
+
+        AMapping referenceWithin = MappingFactory.createDefaultMapping();
+        referenceWithin.add("http://test.com/s/#1", "http://test.com/t/#1", 1.0d);
+        assertEquals(referenceWithin, within);
+        AMapping referenceIntersects = MappingFactory.createDefaultMapping();
+        referenceIntersects.add("http://test.com/s/#1", "http://test.com/t/#1", 1.0d);
+        referenceIntersects.add("http://test.com/s/#2", "http://test.com/t/#2", 1.0d);
+        assertEquals(referenceIntersects, intersects);
+    }
+
+    @Test
+    public void testOnlyLastJoinIsKept() {
+        GeometryColumn s = GeometryColumn.of(createSource(), "asWKT");
+        GeometryColumn t1 = GeometryColumn.of(createTarget(), "asWKT");
+        GeometryColumn t2 = GeometryColumn.of(createTarget(), "asWKT");
+        RADON.Candidates candidates = RADON.getCandidates(s, t1);
+        assertSame(candidates, RADON.getCandidates(s, t1));
+        RADON.getCandidates(s, t2);
+        RADON.Candidates recomputed = RADON.getCandidates(s, t1);
+        assertNotSame(candidates, recomputed);
+        assertEquals(candidates.size(), recomputed.size());
+        assertEquals(candidates.isSwapped(), recomputed.isSwapped());
+    }
+}
@@ -17,13 +17,21 @@
  */
 package org.aksw.limes.core.measures.mapper.topology;
 
+import org.aksw.limes.core.io.mapping.AMapping;
 import org.aksw.limes.core.measures.mapper.pointsets.Polygon;
+import org.aksw.limes.core.util.ComputePool;
 import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
 
 import static org.aksw.limes.core.measures.mapper.pointsets.OrchidMapper.getPoints;
+import static org.junit.Assert.assertEquals;
 
 public class RADONTest {
 
@@ -79,4 +87,31 @@ public class RADONTest {
 
     }
 
+    @Test
+    public void testParallelismDoesNotChangeMapping() throws Exception {
+        WKTReader reader = new WKTReader();
+        Random random = new Random(42);
+        Map<String, Geometry> source = new HashMap<>();
+        Map<String, Geometry> target = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Geometry> data = i % 2 == 0 ? source : target;
+            int x = random.nextInt(200) - 100;
+            int y = random.nextInt(100) - 50;
+            int w = 1 + random.nextInt(3);
+            int h = 1 + random.nextInt(3);
+            data.put("http://test.com/" + i, reader.read("POLYGON ((" + x + " " + y + ", " + (x + w) + " " + y + ", "
+                    + (x + w) + " " + (y + h) + ", " + x + " " + (y + h) + ", " + x + " " + y + "))"));
+        }
+        int parallelism = ComputePool.getParallelism();
+        try {
+            ComputePool.setParallelism(4);
+            AMapping parallel = RADON.getMapping(source, target, RADON.INTERSECTS);
+            ComputePool.setParallelism(1);
+            AMapping sequential = RADON.getMapping(source, target, RADON.INTERSECTS);
+            assertEquals(sequential, parallel);
+        } finally {
+            ComputePool.setParallelism(parallelism);
+        }
+    }
+
 }
@@ -0,0 +1,159 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.measures.measure;
+
+import org.aksw.limes.core.exceptions.InvalidThresholdException;
+import org.aksw.limes.core.io.cache.ACache;
+import org.aksw.limes.core.io.cache.Instance;
+import org.aksw.limes.core.io.cache.MemoryCache;
+import org.aksw.limes.core.io.mapping.AMapping;
+import org.aksw.limes.core.measures.mapper.AMapper;
+import org.aksw.limes.core.measures.mapper.phonetic.DoubleMetaPhoneMapper;
+import org.aksw.limes.core.measures.mapper.phonetic.KoelnPhoneticMapper;
+import org.aksw.limes.core.measures.mapper.string.EDJoinMapper;
+import org.aksw.limes.core.measures.mapper.string.PPJoinPlusPlus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SimilarityEvaluatorTest {
+
+    private ACache source;
+    private ACache target;
+
+    @Before
+    public void setUp() {
+        source = new MemoryCache();
+        target = new MemoryCache();
+        source.addTriple("S1", "pub", "test");
+        source.addTriple("S1", "conf", "conf one");
+        source.addTriple("S1", "age", "26");
+        source.addTriple("S2", "pub", "test2");
+        source.addTriple("S2", "conf", "conf2");
+        source.addTriple("S2", "age", "13");
+
+        target.addTriple("S1", "pub", "test");
+        target.addTriple("S1", "conf", "conf one");
+        target.addTriple("S1", "age", "26");
+        target.addTriple("S3", "pub", "test1");
+        target.addTriple("S3", "conf", "conf three");
+        target.addTriple("S3", "age", "25");
+    }
+
+    @Test
+    public void testSameAsMeasureProcessor() {
+        String[] expressions = { "trigrams(x.conf, y.conf)", "levenshtein(x.pub, y.pub)",
+                "euclidean(x.age, y.age)", "cosine(y.conf, x.conf)",
+                "ADD(0.5*trigram(x.conf, y.conf),0.5*cosine(y.conf, x.conf))",
+                "AND(jaro(x.pub,y.pub)|0.5,qgrams(x.conf,y.conf)|0.3)",
+                "OR(jaro(x.pub,y.pub)|0.9,qgrams(x.conf,y.conf)|0.3)",
+                "MINUS(jaro(x.pub,y.pub)|0.5,exactmatch(x.conf,y.conf)|0.5)" };
+        for (String expression : expressions) {
+            SimilarityEvaluator evaluator = SimilarityEvaluator.compile(expression, 0.4, "?x", "?y");
+            for (Instance s : source.getAllInstances()) {
+                for (Instance t : target.getAllInstances()) {
+                    assertEquals(expression,
+                            MeasureProcessor.getSimilarity(s, t, expression, 0.4, "?x", "?y"),
+                            evaluator.getSimilarity(s, t), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testThreshold() {
+        SimilarityEvaluator evaluator = SimilarityEvaluator.compile("exactmatch(x.pub, y.pub)", 0.5, "?x", "?y");
+        assertEquals(1.0, evaluator.getSimilarity(source.getInstance("S1"), target.getInstance("S1")), 0.0);
+        assertEquals(0.0, evaluator.getSimilarity(source.getInstance("S1"), target.getInstance("S3")), 0.0);
+
+        evaluator = SimilarityEvaluator.compile("trigrams(x.pub, y.pub)", 0.99, "?x", "?y");
+        assertTrue(evaluator.getSimilarity(source.getInstance("S2"), target.getInstance("S3")) == 0.0);
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        Instance s = source.getInstance("S1");
+        Instance t = target.getInstance("S1");
+        SimilarityEvaluator evaluator = SimilarityEvaluator.compile("exactmatch(x.pub, y.pub)", 0, "?x", "?y");
+        try {
+            evaluator.getSimilarity(s, t);
+            fail();
+        } catch (InvalidThresholdException e) {
+            // the threshold has to be positive
+        }
+        evaluator = SimilarityEvaluator.compile("exactmatch(x.pub, x.conf)", 0.5, "?x", "?y");
+        try {
+            evaluator.getSimilarity(s, t);
+            fail();
+        } catch (InvalidThresholdException e) {
+            fail();
+        } catch (RuntimeException e) {
+            // there is no target property
+        }
+    }
+
+    @Test
+    public void testSameAsMapper() {
+        Random random = new Random(7);
+        ACache labels1 = new MemoryCache();
+        ACache labels2 = new MemoryCache();
+        String[] words = { "link", "links", "lnk", "discovery", "discover", "data", "date", "meier", "mayer" };
+        for (int i = 0; i < 60; i++) {
+            for (int j = 1 + random.nextInt(2); j > 0; j--) {
+                labels1.addTriple("s" + i, "label", randomLabel(words, random));
+                labels2.addTriple("t" + i, "label", randomLabel(words, random));
+            }
+        }
+        Object[][] expressions = { { new EDJoinMapper(), "levenshtein(x.label, y.label)" },
+                { new PPJoinPlusPlus(), "cosine(x.label, y.label)" },
+                { new PPJoinPlusPlus(), "jaccard(x.label, y.label)" },
+                { new PPJoinPlusPlus(), "overlap(x.label, y.label)" },
+                { new DoubleMetaPhoneMapper(), "doublemeta(x.label, y.label)" },
+                { new KoelnPhoneticMapper(), "koeln(x.label, y.label)" } };
+        for (Object[] expression : expressions) {
+            for (double threshold : new double[] { 0.3, 0.5, 0.7 }) {
+                AMapping mapping = ((AMapper) expression[0]).getMapping(labels1, labels2, "?x", "?y",
+                        (String) expression[1], threshold);
+                SimilarityEvaluator evaluator = SimilarityEvaluator.compile((String) expression[1], threshold,
+                        "?x", "?y");
+                for (Instance s : labels1.getAllInstances()) {
+                    for (Instance t : labels2.getAllInstances()) {
+                        // as in MeasureProcessor, links below the threshold
+                        // count as 0
+                        double similarity = mapping.getConfidence(s.getUri(), t.getUri());
+                        assertEquals(expression[1] + " " + threshold, similarity >= threshold ? similarity : 0.0,
+                                evaluator.getSimilarity(s, t), 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    private String randomLabel(String[] words, Random random) {
+        StringBuilder label = new StringBuilder(words[random.nextInt(words.length)]);
+        for (int i = random.nextInt(3); i > 0; i--) {
+            label.append(' ').append(words[random.nextInt(words.length)]);
+        }
+        return label.toString();
+    }
+}
@@ -25,12 +25,14 @@ import org.aksw.limes.core.io.cache.MemoryCache;
 import org.aksw.limes.core.io.mapping.AMapping;
 import org.aksw.limes.core.io.mapping.MappingFactory;
 import org.aksw.limes.core.ml.algorithm.eagle.util.PropertyMapping;
+import org.aksw.limes.core.ml.algorithm.wombat.AWombat;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 public class WombatSimpleTest {
@@ -93,6 +95,22 @@ public class WombatSimpleTest {
     }
 
 
+    @Test
+    public void testMaxParallelism() throws UnsupportedMLImplementationException {
+        List<String> specs = new LinkedList<String>();
+        for (int parallelism : new int[] { 1, 4 }) {
+            SupervisedMLAlgorithm wombatSimple = MLAlgorithmFactory.createMLAlgorithm(WombatSimple.class,
+                    MLImplementationType.SUPERVISED_BATCH).asSupervised();
+            wombatSimple.init(null, sc, tc);
+            wombatSimple.setParameter(AWombat.PARAMETER_MAX_PARALLELISM, parallelism);
+            MLResults mlModel = wombatSimple.learn(trainingMap);
+            specs.add(mlModel.getLinkSpecification().getFullExpression());
+            assertEquals(refMap.getMap(), wombatSimple.predict(sc, tc, mlModel).getMap());
+        }
+        // the learned specification does not depend on the number of threads
+        assertEquals(specs.get(0), specs.get(1));
+    }
+
     @Test
     public void testUnsupervised() throws UnsupportedMLImplementationException {
         UnsupervisedMLAlgorithm wombatSimpleU = null;
@@ -0,0 +1,137 @@
+/*
+ * LIMES Core Library - LIMES – Link Discovery Framework for Metric Spaces.
+ * Copyright © 2011 Data Science Group (DICE) (ngonga@uni-paderborn.de)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aksw.limes.core.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ComputePoolTest {
+
+    @After
+    public void resetParallelism() {
+        ComputePool.setParallelism(0);
+    }
+
+    @Test
+    public void testInvokeAllKeepsOrder() {
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            tasks.add(ForkJoinTask.adapt(() -> value * value));
+        }
+        List<Integer> results = ComputePool.invokeAll(tasks);
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+    }
+
+    @Test
+    public void testNestedInvokeAll() {
+        // tasks waiting for their subtasks must not exhaust a small pool
+        ComputePool.setParallelism(2);
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                List<ForkJoinTask<Integer>> subTasks = new ArrayList<>();
+                for (int j = 0; j < 8; j++) {
+                    subTasks.add(ForkJoinTask.adapt(() -> 1));
+                }
+                int sum = 0;
+                for (int value : ComputePool.invokeAll(subTasks)) {
+                    sum += value;
+                }
+                return sum;
+            }));
+        }
+        for (int sum : ComputePool.invokeAll(tasks)) {
+            assertEquals(8, sum);
+        }
+    }
+
+    @Test
+    public void testBoundedInvokeAll() {
+        ComputePool.setParallelism(4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<Thread> slowThreads = ConcurrentHashMap.newKeySet();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            final int value = i;
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                if (value < 4) {
+                    // the expensive tasks come first, as the tasks of a
+                    // property pair in WOMBAT
+                    slowThreads.add(Thread.currentThread());
+                    Thread.sleep(100);
+                }
+                running.decrementAndGet();
+                return value * value;
+            });
+        }
+        List<Integer> results = ComputePool.invokeAll(tasks, 2);
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(2, slowThreads.size());
+    }
+
+    @Test
+    public void testParallelism() {
+        ComputePool.setParallelism(3);
+        assertEquals(3, ComputePool.getParallelism());
+        assertEquals(1, ComputePool.getPartitions(100, 1024));
+        assertEquals(12, ComputePool.getPartitions(1000000, 1024));
+        ComputePool.setParallelism(0);
+        assertEquals(Runtime.getRuntime().availableProcessors(), ComputePool.getParallelism());
+    }
+
+    @Test
+    public void testResizeKeepsPreviousPoolRunning() {
+        ForkJoinPool previous = ComputePool.getPool();
+        ComputePool.setParallelism(previous.getParallelism() + 1);
+        // tasks of a concurrent run may still be submitted to the previous
+        // pool
+        assertFalse(previous.isShutdown());
+        assertEquals(42, (int) previous.submit(() -> 42).join());
+    }
+
+    @Test
+    public void testStatistics() {
+        ComputePool.submit(() -> {
+        }).join();
+        assertTrue(ComputePool.getUtilization() >= 0d && ComputePool.getUtilization() <= 1d);
+        assertTrue(ComputePool.getQueuedTaskCount() >= 0);
+        assertTrue(ComputePool.getStatistics().startsWith("threads=" + ComputePool.getParallelism()));
+    }
+}